@@ -0,0 +1,95 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.api;
+
+import io.bitsquare.offer.Offer;
+import io.bitsquare.offer.OpenOffer;
+import io.bitsquare.trade.Trade;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps the domain objects to the flat JSON objects of the API. Amounts are plain strings (e.g. "0.5") so clients
+ * don't lose precision.
+ */
+class ApiJson {
+
+    static Map<String, Object> offer(Offer offer) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", offer.getId());
+        map.put("direction", offer.getDirection().name());
+        map.put("currency", offer.getCurrency().getCurrencyCode());
+        map.put("price", toPlainString(offer.getPrice()));
+        map.put("amount", toPlainString(offer.getAmount()));
+        map.put("minAmount", toPlainString(offer.getMinAmount()));
+        map.put("bankAccountType", offer.getBankAccountType().name());
+        map.put("country", offer.getBankAccountCountry().getCode());
+        map.put("securityDeposit", toPlainString(offer.getSecurityDeposit()));
+        map.put("creationDate", offer.getCreationDate().getTime());
+        map.put("state", offer.getState().name());
+        return map;
+    }
+
+    static Map<String, Object> openOffer(OpenOffer openOffer) {
+        Map<String, Object> map = offer(openOffer.getOffer());
+        map.put("openOfferState", openOffer.getState().name());
+        return map;
+    }
+
+    static Map<String, Object> trade(Trade trade) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", trade.getId());
+        map.put("state", trade.getState().name());
+        map.put("amount", toPlainString(trade.getTradeAmount()));
+        map.put("volume", toPlainString(trade.getTradeVolume()));
+        map.put("date", trade.getDate().getTime());
+        if (trade.getDepositTx() != null)
+            map.put("depositTxId", trade.getDepositTx().getHashAsString());
+        if (trade.getPayoutTx() != null)
+            map.put("payoutTxId", trade.getPayoutTx().getHashAsString());
+        if (trade.getFault() != null)
+            map.put("fault", trade.getFault().getMessage());
+        map.put("offer", offer(trade.getOffer()));
+        return map;
+    }
+
+    static Map<String, Object> error(String message) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("error", message);
+        return map;
+    }
+
+    static Map<String, Object> of(String key, Object value) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(key, value);
+        return map;
+    }
+
+    private static String toPlainString(Coin coin) {
+        return coin != null ? coin.toPlainString() : null;
+    }
+
+    private static String toPlainString(Fiat fiat) {
+        return fiat != null ? fiat.toPlainString() : null;
+    }
+}
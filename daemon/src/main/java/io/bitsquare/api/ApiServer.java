@@ -0,0 +1,594 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.api;
+
+import io.bitsquare.app.BitsquareEnvironment;
+import io.bitsquare.app.daemon.TradingApi;
+import io.bitsquare.btc.WalletService;
+import io.bitsquare.btc.listeners.BalanceListener;
+import io.bitsquare.offer.Direction;
+import io.bitsquare.offer.Offer;
+import io.bitsquare.offer.OfferBookService;
+import io.bitsquare.offer.OpenOffer;
+import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.TradeManager;
+import io.bitsquare.util.UserThread;
+import io.bitsquare.util.handlers.ErrorMessageHandler;
+import io.bitsquare.util.handlers.ResultHandler;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import javafx.beans.value.ChangeListener;
+import javafx.collections.MapChangeListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Local JSON-over-HTTP API for bots. It only listens on the loopback interface and only accepts requests with the
+ * bearer token from the {@link ApiToken} file in the app data directory and a loopback Host (and Origin, if sent),
+ * so web pages can't use it via DNS rebinding. Requests with a body must be sent as application/json.
+ * <p>
+ * GET /api/offers?currency=EUR returns the known offers and requests the latest ones from the network,
+ * POST /api/offers places an offer, DELETE /api/offers/{id} removes it and POST /api/offers/{id}/take takes it.
+ * POST /api/offers with an array places all offers with one fee transaction, POST /api/offers/remove with an array
+ * of IDs removes several offers.
+ * GET /api/open-offers, /api/trades, /api/closed-trades and /api/balance return the current state.
+ * POST /api/trades/{id}/payment-started, /payment-received and /close drive the trade.
+ * GET /api/events is a stream of server-sent events with the offer book deltas, the state changes of the open offers
+ * and trades and the wallet balance, so clients don't need to poll.
+ */
+public class ApiServer {
+    private static final Logger log = LoggerFactory.getLogger(ApiServer.class);
+
+    public static final String ENABLED_KEY = "api.enabled";
+    public static final String PORT_KEY = "api.port";
+    public static final int DEFAULT_PORT = 7367;
+
+    private static final String CONTEXT = "/api/";
+    private static final long USER_THREAD_TIMEOUT_SECONDS = 10;
+    private static final long KEEP_ALIVE_SECONDS = 15;
+    // Event streams keep their thread, so they get fewer threads than the pool has to leave some for requests
+    private static final int NUM_THREADS = 4;
+    private static final int MAX_EVENT_STREAMS = 2;
+    private static final Set<String> LOOPBACK_HOSTS = new HashSet<>(Arrays.asList("localhost", "127.0.0.1", "[::1]"));
+
+    private final TradingApi tradingApi;
+    private final TradeManager tradeManager;
+    private final OfferBookService offerBookService;
+    private final WalletService walletService;
+    private final int port;
+    private final Path tokenFile;
+
+    private final Gson gson = new Gson();
+    private final EventStream eventStream = new EventStream();
+    private final Map<String, Offer> offers = new ConcurrentHashMap<>();
+    // The state listeners we have added, so we can remove them when the open offer or trade is gone
+    private final Map<String, ChangeListener<OpenOffer.State>> openOfferStateListeners = new HashMap<>();
+    private final Map<String, ChangeListener<Trade.State>> tradeStateListeners = new HashMap<>();
+    private final OfferBookService.Listener offerBookListener = new OfferBookListener();
+    private final BalanceListener balanceListener = new BalanceListener() {
+        @Override
+        public void onBalanceChanged(Coin balance) {
+            eventStream.publish("balance", ApiJson.of("wallet", balance.toPlainString()));
+        }
+    };
+    private final MapChangeListener<String, OpenOffer> openOffersListener = this::onOpenOffersChanged;
+    private final MapChangeListener<String, Trade> pendingTradesListener = this::onPendingTradesChanged;
+    private final Semaphore eventStreamPermits = new Semaphore(MAX_EVENT_STREAMS);
+
+    private ApiToken apiToken;
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public ApiServer(TradingApi tradingApi, TradeManager tradeManager, OfferBookService offerBookService,
+                     WalletService walletService, Environment env) {
+        this.tradingApi = tradingApi;
+        this.tradeManager = tradeManager;
+        this.offerBookService = offerBookService;
+        this.walletService = walletService;
+        this.port = env.getProperty(PORT_KEY, Integer.class, DEFAULT_PORT);
+        this.tokenFile = Paths.get(env.getRequiredProperty(BitsquareEnvironment.APP_DATA_DIR_KEY), ApiToken.FILE_NAME);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Must be called on the user thread after all services are initialized
+    public void start() throws IOException {
+        apiToken = ApiToken.readOrCreate(tokenFile);
+
+        offerBookService.addListener(offerBookListener);
+        walletService.addBalanceListener(balanceListener);
+        tradeManager.getOpenOffers().addListener(openOffersListener);
+        tradeManager.getPendingTrades().addListener(pendingTradesListener);
+        tradeManager.getOpenOffers().values().forEach(this::observeOpenOffer);
+        tradeManager.getPendingTrades().values().forEach(this::observeTrade);
+
+        executorService = Executors.newFixedThreadPool(NUM_THREADS,
+                new ThreadFactoryBuilder().setNameFormat("ApiServer-%d").setDaemon(true).build());
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext(CONTEXT, this::handle);
+        httpServer.setExecutor(executorService);
+        httpServer.start();
+        log.info("API server listening on port " + port + ", the bearer token is in " + tokenFile);
+    }
+
+    public void stop() {
+        offerBookService.removeListener(offerBookListener);
+        walletService.removeBalanceListener(balanceListener);
+        tradeManager.getOpenOffers().removeListener(openOffersListener);
+        tradeManager.getPendingTrades().removeListener(pendingTradesListener);
+        tradeManager.getOpenOffers().values().forEach(this::unobserveOpenOffer);
+        tradeManager.getPendingTrades().values().forEach(this::unobserveTrade);
+
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executorService.shutdownNow();
+            httpServer = null;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Request handling
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void handle(HttpExchange exchange) {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring(CONTEXT.length()).split("/");
+        try {
+            if (!isLoopbackHost(exchange.getRequestHeaders().getFirst("Host")) ||
+                    !isLoopbackOrigin(exchange.getRequestHeaders().getFirst("Origin")))
+                respond(exchange, 403, ApiJson.error("Only local clients are allowed"));
+            else if (!apiToken.isValidAuthorization(exchange.getRequestHeaders().getFirst("Authorization")))
+                respond(exchange, 401, ApiJson.error("Missing or invalid bearer token"));
+            else if (!method.equals("GET") && !isJsonContentType(exchange.getRequestHeaders().getFirst("Content-Type")))
+                respond(exchange, 415, ApiJson.error("Content-Type application/json expected"));
+            else if (method.equals("GET") && path.length == 1)
+                handleGet(exchange, path[0]);
+            else if (path[0].equals("offers") && path.length == 1 && method.equals("POST"))
+                placeOffers(exchange);
+            else if (path[0].equals("offers") && path.length == 2 && path[1].equals("remove") && method.equals("POST"))
+                removeOffers(exchange);
+            else if (path[0].equals("offers") && path.length == 2 && method.equals("DELETE"))
+                removeOffer(exchange, path[1]);
+            else if (path[0].equals("offers") && path.length == 3 && path[2].equals("take") && method.equals("POST"))
+                takeOffer(exchange, path[1]);
+            else if (path[0].equals("trades") && path.length == 3 && method.equals("POST"))
+                handleTradeAction(exchange, path[1], path[2]);
+            else
+                respond(exchange, 404, ApiJson.error("Unknown request " + method + " " + exchange.getRequestURI()));
+        } catch (IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            respond(exchange, 400, ApiJson.error(String.valueOf(e.getMessage())));
+        } catch (Throwable t) {
+            log.error("API request failed. " + t);
+            respond(exchange, 500, ApiJson.error(t.toString()));
+        }
+    }
+
+    private void handleGet(HttpExchange exchange, String resource) throws Exception {
+        switch (resource) {
+            case "offers":
+                String currency = getQueryParameter(exchange, "currency");
+                if (currency == null)
+                    throw new IllegalArgumentException("Missing parameter currency");
+                tradingApi.requestOffers(currency);
+                respond(exchange, 200, offers.values().stream()
+                        .filter(offer -> offer.getCurrency().getCurrencyCode().equals(currency))
+                        .map(ApiJson::offer)
+                        .collect(Collectors.toList()));
+                break;
+            case "open-offers":
+                respond(exchange, 200, callOnUserThread(() -> tradingApi.getOpenOffers().stream()
+                        .map(ApiJson::openOffer)
+                        .collect(Collectors.toList())));
+                break;
+            case "trades":
+                respond(exchange, 200, callOnUserThread(() -> tradingApi.getPendingTrades().stream()
+                        .map(ApiJson::trade)
+                        .collect(Collectors.toList())));
+                break;
+            case "closed-trades":
+                respond(exchange, 200, callOnUserThread(() -> tradingApi.getClosedTrades().stream()
+                        .map(ApiJson::trade)
+                        .collect(Collectors.toList())));
+                break;
+            case "balance":
+                respond(exchange, 200, ApiJson.of("wallet", walletService.getWalletBalance().toPlainString()));
+                break;
+            case "events":
+                streamEvents(exchange);
+                break;
+            default:
+                respond(exchange, 404, ApiJson.error("Unknown resource " + resource));
+                break;
+        }
+    }
+
+    // Responds when the offer fee is paid and the offers are published. A single offer is placed with its own fee
+    // transaction, an array of offers with one fee transaction for all of them.
+    private void placeOffers(HttpExchange exchange) throws Exception {
+        JsonElement request = readRequest(exchange);
+        if (request.isJsonArray()) {
+            List<Offer> newOffers = new ArrayList<>();
+            for (JsonElement element : request.getAsJsonArray())
+                newOffers.add(createOffer(getObject(element)));
+            if (newOffers.isEmpty())
+                throw new IllegalArgumentException("No offers");
+
+            tradingApi.placeOffers(newOffers,
+                    transaction -> {
+                        Map<String, Object> response = ApiJson.of("ids", newOffers.stream()
+                                .map(Offer::getId)
+                                .collect(Collectors.toList()));
+                        response.put("offerFeeTxId", transaction.getHashAsString());
+                        respond(exchange, 200, response);
+                    },
+                    errorMessage -> respond(exchange, 500, ApiJson.error(errorMessage)));
+        }
+        else {
+            Offer offer = createOffer(getObject(request));
+            tradingApi.placeOffers(Collections.singletonList(offer),
+                    transaction -> {
+                        Map<String, Object> response = ApiJson.of("id", offer.getId());
+                        response.put("offerFeeTxId", transaction.getHashAsString());
+                        respond(exchange, 200, response);
+                    },
+                    errorMessage -> respond(exchange, 500, ApiJson.error(errorMessage)));
+        }
+    }
+
+    private Offer createOffer(JsonObject request) throws InterruptedException, ExecutionException, TimeoutException {
+        Direction direction = Direction.valueOf(getString(request, "direction"));
+        Fiat price = Fiat.parseFiat(getString(request, "currency"), getString(request, "price"));
+        Coin amount = Coin.parseCoin(getString(request, "amount"));
+        Coin minAmount = request.has("minAmount") ? Coin.parseCoin(getString(request, "minAmount")) : amount;
+
+        CompletableFuture<Offer> future = new CompletableFuture<>();
+        tradingApi.createOffer(direction, price, amount, minAmount, future::complete,
+                errorMessage -> future.completeExceptionally(new IllegalStateException(errorMessage)));
+        try {
+            return future.get(USER_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException)
+                throw (IllegalStateException) e.getCause();
+            throw e;
+        }
+    }
+
+    private void removeOffers(HttpExchange exchange) throws IOException {
+        JsonElement request = readRequest(exchange);
+        if (!request.isJsonArray())
+            throw new IllegalArgumentException("Array of offer IDs expected");
+
+        List<String> offerIds = new ArrayList<>();
+        for (JsonElement element : request.getAsJsonArray())
+            offerIds.add(element.getAsString());
+
+        tradingApi.removeOffers(offerIds,
+                () -> respond(exchange, 200, ApiJson.of("ids", offerIds)),
+                errorMessage -> respond(exchange, 400, ApiJson.error(errorMessage)));
+    }
+
+    private void removeOffer(HttpExchange exchange, String offerId) {
+        tradingApi.removeOffer(offerId,
+                () -> respond(exchange, 200, ApiJson.of("id", offerId)),
+                errorMessage -> respond(exchange, 400, ApiJson.error(errorMessage)));
+    }
+
+    // Responds with the new trade, its progress is delivered as events
+    private void takeOffer(HttpExchange exchange, String offerId) throws IOException {
+        Offer offer = offers.get(offerId);
+        if (offer == null)
+            throw new IllegalArgumentException("Unknown offer " + offerId + ", request the offers first");
+
+        JsonObject request = getObject(readRequest(exchange));
+        Coin amount = request.has("amount") ? Coin.parseCoin(getString(request, "amount")) : offer.getAmount();
+        if (amount.compareTo(offer.getMinAmount()) < 0 || amount.compareTo(offer.getAmount()) > 0)
+            throw new IllegalArgumentException("Amount is not in the range of the offer");
+
+        tradingApi.takeOffer(offer, amount, trade -> respond(exchange, 200, ApiJson.trade(trade)));
+    }
+
+    // Responds with 409 if the trade is in no state for the action, e.g. the payment started of a taker
+    private void handleTradeAction(HttpExchange exchange, String tradeId, String action) throws Exception {
+        if (!callOnUserThread(() -> tradeManager.getPendingTrades().containsKey(tradeId)))
+            throw new IllegalArgumentException("Unknown trade " + tradeId);
+
+        ResultHandler resultHandler = () -> respond(exchange, 200, ApiJson.of("id", tradeId));
+        ErrorMessageHandler errorMessageHandler = errorMessage -> respond(exchange, 409, ApiJson.error(errorMessage));
+        switch (action) {
+            case "payment-started":
+                tradingApi.fiatPaymentStarted(tradeId, resultHandler, errorMessageHandler);
+                break;
+            case "payment-received":
+                tradingApi.fiatPaymentReceived(tradeId, resultHandler, errorMessageHandler);
+                break;
+            case "close":
+                tradingApi.closeTrade(tradeId, resultHandler, errorMessageHandler);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown trade action " + action);
+        }
+    }
+
+    // Keeps the connection and its thread until the client disconnects
+    private void streamEvents(HttpExchange exchange) throws IOException {
+        if (!eventStreamPermits.tryAcquire()) {
+            respond(exchange, 503, ApiJson.error("Too many event streams, at most " + MAX_EVENT_STREAMS + " allowed"));
+            return;
+        }
+
+        try {
+            writeEvents(exchange);
+        } finally {
+            eventStreamPermits.release();
+        }
+    }
+
+    private void writeEvents(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        EventStream.Subscription subscription = eventStream.subscribe();
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            while (!subscription.isClosed()) {
+                String event = subscription.poll(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+                outputStream.write((event != null ? event : ": keep-alive\n\n").getBytes(StandardCharsets.UTF_8));
+                outputStream.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            log.debug("API event stream closed. " + e);
+        } finally {
+            eventStream.unsubscribe(subscription);
+            exchange.close();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Events
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void onOpenOffersChanged(MapChangeListener.Change<? extends String, ? extends OpenOffer> change) {
+        if (change.wasRemoved()) {
+            unobserveOpenOffer(change.getValueRemoved());
+            if (!change.wasAdded())
+                eventStream.publish("openOfferRemoved", ApiJson.of("id", change.getKey()));
+        }
+        if (change.wasAdded()) {
+            observeOpenOffer(change.getValueAdded());
+            eventStream.publish("openOfferAdded", ApiJson.openOffer(change.getValueAdded()));
+        }
+    }
+
+    private void onPendingTradesChanged(MapChangeListener.Change<? extends String, ? extends Trade> change) {
+        if (change.wasRemoved()) {
+            unobserveTrade(change.getValueRemoved());
+            if (!change.wasAdded())
+                eventStream.publish("tradeRemoved", ApiJson.of("id", change.getKey()));
+        }
+        if (change.wasAdded()) {
+            observeTrade(change.getValueAdded());
+            eventStream.publish("tradeAdded", ApiJson.trade(change.getValueAdded()));
+        }
+    }
+
+    private void observeOpenOffer(OpenOffer openOffer) {
+        if (!openOfferStateListeners.containsKey(openOffer.getId())) {
+            ChangeListener<OpenOffer.State> listener = (ov, oldValue, newValue) ->
+                    eventStream.publish("openOfferState", ApiJson.openOffer(openOffer));
+            openOffer.stateProperty().addListener(listener);
+            openOfferStateListeners.put(openOffer.getId(), listener);
+        }
+    }
+
+    private void unobserveOpenOffer(OpenOffer openOffer) {
+        ChangeListener<OpenOffer.State> listener = openOfferStateListeners.remove(openOffer.getId());
+        if (listener != null)
+            openOffer.stateProperty().removeListener(listener);
+    }
+
+    private void observeTrade(Trade trade) {
+        if (!tradeStateListeners.containsKey(trade.getId())) {
+            ChangeListener<Trade.State> listener = (ov, oldValue, newValue) ->
+                    eventStream.publish("tradeState", ApiJson.trade(trade));
+            trade.stateProperty().addListener(listener);
+            tradeStateListeners.put(trade.getId(), listener);
+        }
+    }
+
+    private void unobserveTrade(Trade trade) {
+        ChangeListener<Trade.State> listener = tradeStateListeners.remove(trade.getId());
+        if (listener != null)
+            trade.stateProperty().removeListener(listener);
+    }
+
+    private class OfferBookListener implements OfferBookService.Listener {
+        @Override
+        public void onOfferAdded(Offer offer) {
+            offers.put(offer.getId(), offer);
+            eventStream.publish("offerAdded", ApiJson.offer(offer));
+        }
+
+        @Override
+        public void onOffersReceived(List<Offer> receivedOffers) {
+            receivedOffers.forEach(offer -> offers.put(offer.getId(), offer));
+            eventStream.publish("offersReceived", ApiJson.of("offers", receivedOffers.stream()
+                    .map(ApiJson::offer)
+                    .collect(Collectors.toList())));
+        }
+
+        @Override
+        public void onOfferRemoved(Offer offer) {
+            offers.remove(offer.getId());
+            eventStream.publish("offerRemoved", ApiJson.of("id", offer.getId()));
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The trade manager is not thread safe, so we read its state on the user thread
+    private <T> T callOnUserThread(Callable<T> callable) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        FutureTask<T> futureTask = new FutureTask<>(callable);
+        UserThread.execute(futureTask);
+        return futureTask.get(USER_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // The host name without the port, IPv6 addresses are in brackets
+    static boolean isLoopbackHost(String host) {
+        if (host == null)
+            return false;
+
+        String hostName = host.startsWith("[") ? host.substring(0, host.indexOf(']') + 1) : host.split(":")[0];
+        return LOOPBACK_HOSTS.contains(hostName.toLowerCase(Locale.ROOT));
+    }
+
+    // Browsers send an Origin with cross-site requests, other clients usually don't send one
+    static boolean isLoopbackOrigin(String origin) {
+        if (origin == null)
+            return true;
+
+        try {
+            URI uri = new URI(origin);
+            return "http".equals(uri.getScheme()) && uri.getHost() != null && isLoopbackHost(uri.getHost());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    static boolean isJsonContentType(String contentType) {
+        return contentType != null &&
+                contentType.split(";")[0].trim().toLowerCase(Locale.ROOT).equals("application/json");
+    }
+
+    private JsonElement readRequest(HttpExchange exchange) throws IOException {
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            return new JsonParser().parse(reader);
+        }
+    }
+
+    // An empty request body is treated as an empty object
+    private static JsonObject getObject(JsonElement jsonElement) {
+        if (jsonElement.isJsonObject())
+            return jsonElement.getAsJsonObject();
+        else if (jsonElement.isJsonNull())
+            return new JsonObject();
+        else
+            throw new IllegalArgumentException("JSON object expected");
+    }
+
+    private static String getString(JsonObject request, String key) {
+        if (!request.has(key))
+            throw new IllegalArgumentException("Missing field " + key);
+        return request.get(key).getAsString();
+    }
+
+    private static String getQueryParameter(HttpExchange exchange, String key) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null)
+            return null;
+
+        for (String parameter : query.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            if (keyValue.length == 2 && keyValue[0].equals(key))
+                return keyValue[1];
+        }
+        return null;
+    }
+
+    // Can be called from any thread, also from the handlers of asynchronous requests
+    private void respond(HttpExchange exchange, int statusCode, Object response) {
+        byte[] bytes = gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        try {
+            exchange.sendResponseHeaders(statusCode, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (IOException e) {
+            log.warn("Could not send API response. " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.api;
+
+import com.google.common.io.BaseEncoding;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The secret a client of the API has to send as bearer token. It is created once per installation in a file which
+ * only the owner may access, so only processes of the same user can use the API.
+ */
+public class ApiToken {
+    private static final Logger log = LoggerFactory.getLogger(ApiToken.class);
+
+    public static final String FILE_NAME = "api-token";
+
+    private static final int TOKEN_BYTES = 32;
+    private static final Set<PosixFilePermission> NOT_OWNER_PERMISSIONS = EnumSet.of(
+            PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_EXECUTE);
+
+    private static final Set<PosixFilePermission> OWNER_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+    private final byte[] token;
+
+    private ApiToken(String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static ApiToken readOrCreate(Path tokenFile) throws IOException {
+        if (!Files.exists(tokenFile)) {
+            try {
+                create(tokenFile);
+                log.info("Created the API token file " + tokenFile);
+            } catch (FileAlreadyExistsException e) {
+                log.debug("The API token file was created concurrently. " + e);
+            }
+        }
+
+        // File systems without POSIX permissions (Windows) protect the user directory by default
+        if (isPosix(tokenFile)) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(tokenFile);
+            permissions.retainAll(NOT_OWNER_PERMISSIONS);
+            if (!permissions.isEmpty())
+                throw new IOException("The API token file " + tokenFile + " must only be accessible by its owner " +
+                        "(chmod 600), but it has the permissions " + permissions);
+        }
+
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+        if (token.isEmpty())
+            throw new IOException("The API token file " + tokenFile + " is empty");
+        return new ApiToken(token);
+    }
+
+    // The value of the Authorization header, compared in constant time
+    public boolean isValidAuthorization(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer "))
+            return false;
+        byte[] presented = authorization.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, presented);
+    }
+
+    // The file is created with the owner permissions only, so the token is never readable by others
+    private static void create(Path tokenFile) throws IOException {
+        byte[] randomBytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(randomBytes);
+        byte[] token = BaseEncoding.base16().lowerCase().encode(randomBytes).getBytes(StandardCharsets.UTF_8);
+
+        if (isPosix(tokenFile))
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(OWNER_PERMISSIONS));
+        else
+            Files.createFile(tokenFile);
+        Files.write(tokenFile, token);
+    }
+
+    private static boolean isPosix(Path file) {
+        return file.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.api;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import com.google.gson.Gson;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Distributes events to the subscribers of the API in the server-sent events format. Each subscriber has a bounded
+ * queue which is drained by its own connection. A subscriber which does not keep up with the events is dropped
+ * instead of slowing down the thread which publishes the events.
+ */
+class EventStream {
+    private static final Logger log = LoggerFactory.getLogger(EventStream.class);
+
+    private static final int MAX_QUEUED_EVENTS = 1000;
+
+    private final Gson gson = new Gson();
+    private final int maxQueuedEvents;
+    private final Set<Subscription> subscriptions = new CopyOnWriteArraySet<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    EventStream() {
+        this(MAX_QUEUED_EVENTS);
+    }
+
+    @VisibleForTesting
+    EventStream(int maxQueuedEvents) {
+        this.maxQueuedEvents = maxQueuedEvents;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    Subscription subscribe() {
+        Subscription subscription = new Subscription(maxQueuedEvents);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        subscription.closed = true;
+        subscriptions.remove(subscription);
+    }
+
+    void publish(String type, Map<String, Object> data) {
+        if (subscriptions.isEmpty())
+            return;
+
+        String event = "event: " + type + "\ndata: " + gson.toJson(data) + "\n\n";
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.queue.offer(event)) {
+                log.warn("API subscriber does not keep up with the events and gets dropped.");
+                unsubscribe(subscription);
+            }
+        }
+    }
+
+    int getNumSubscriptions() {
+        return subscriptions.size();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static class Subscription {
+        private final BlockingQueue<String> queue;
+        private volatile boolean closed;
+
+        Subscription(int maxQueuedEvents) {
+            queue = new ArrayBlockingQueue<>(maxQueuedEvents);
+        }
+
+        // Returns null if there was no event within the timeout
+        @Nullable
+        String poll(long timeout, TimeUnit timeUnit) throws InterruptedException {
+            return queue.poll(timeout, timeUnit);
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+    }
+}
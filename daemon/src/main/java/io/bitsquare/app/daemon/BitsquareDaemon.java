@@ -0,0 +1,169 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.app.daemon;
+
+import io.bitsquare.account.AccountSettings;
+import io.bitsquare.api.ApiServer;
+import io.bitsquare.btc.WalletService;
+import io.bitsquare.network.BootstrapState;
+import io.bitsquare.network.ClientNode;
+import io.bitsquare.persistence.Persistence;
+import io.bitsquare.trade.TradeManager;
+import io.bitsquare.trade.TradeMessageService;
+import io.bitsquare.user.User;
+import io.bitsquare.util.UserThread;
+import io.bitsquare.util.handlers.ExceptionHandler;
+import io.bitsquare.util.handlers.ResultHandler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import java.io.IOException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.core.env.Environment;
+import rx.Observable;
+
+/**
+ * Runs the wallet, network, offer and trade services without the JavaFX toolkit. The state of the domain objects is
+ * updated on a single user thread instead of the JavaFX application thread.
+ * The account (bank account, arbitrators) is set up with the GUI, the daemon uses the same data directory.
+ */
+public class BitsquareDaemon {
+    private static final Logger log = LoggerFactory.getLogger(BitsquareDaemon.class);
+
+    private final Environment env;
+    private final ExecutorService userThread = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("UserThread").build());
+
+    private BitsquareDaemonModule bitsquareDaemonModule;
+    private Injector injector;
+    private ApiServer apiServer;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public BitsquareDaemon(Environment env) {
+        this.env = env;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The result handler is called on the user thread when all services are initialized and the trading API is ready
+    public void start(ResultHandler resultHandler, ExceptionHandler exceptionHandler) {
+        log.trace("BitsquareDaemon.start");
+        UserThread.setExecutor(userThread);
+        bitsquareDaemonModule = new BitsquareDaemonModule(env);
+        injector = Guice.createInjector(bitsquareDaemonModule);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "ShutdownHook"));
+
+        UserThread.execute(() -> initBackend(resultHandler, exceptionHandler));
+    }
+
+    public TradingApi getTradingApi() {
+        return injector.getInstance(TradingApi.class);
+    }
+
+    public void stop() {
+        if (apiServer != null) {
+            apiServer.stop();
+            apiServer = null;
+        }
+        if (injector != null) {
+            bitsquareDaemonModule.close(injector);
+            injector = null;
+        }
+        userThread.shutdown();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void initBackend(ResultHandler resultHandler, ExceptionHandler exceptionHandler) {
+        // load and apply any stored settings
+        User user = injector.getInstance(User.class);
+        AccountSettings accountSettings = injector.getInstance(AccountSettings.class);
+        Persistence persistence = injector.getInstance(Persistence.class);
+        persistence.init();
+        user.applyPersistedUser((User) persistence.read(user));
+        accountSettings.applyPersistedAccountSettings((AccountSettings) persistence
+                .read(accountSettings.getClass().getName()));
+
+        ClientNode clientNode = injector.getInstance(ClientNode.class);
+        WalletService walletService = injector.getInstance(WalletService.class);
+        TradeMessageService tradeMessageService = injector.getInstance(TradeMessageService.class);
+
+        if (user.getLegacyMessageKeyPair() != null)
+            clientNode.setLegacyPublicKey(user.getLegacyMessageKeyPair().getPublic());
+        Observable<BootstrapState> messageObservable = clientNode.bootstrap(user.getMessageKeyPair(),
+                tradeMessageService);
+        messageObservable.subscribe(
+                state -> log.info("Connecting to the Bitsquare network: " + state.getMessage()),
+                error -> log.error("Connecting to the Bitsquare network failed. " + error));
+
+        Observable<Object> walletServiceObservable = walletService.initialize(UserThread::execute);
+        walletService.getDownloadProgress().subscribe(
+                percentage -> log.trace("Blockchain download: " + percentage + "%"),
+                error -> log.error(error.toString()),
+                () -> log.info("Blockchain download completed. " + walletService.getSyncStats()));
+
+        Observable.merge(messageObservable, walletServiceObservable).subscribe(
+                next -> {
+                },
+                error -> UserThread.execute(() -> exceptionHandler.handleException(error)),
+                () -> UserThread.execute(() -> {
+                    allServicesInitialized(user, accountSettings);
+                    resultHandler.handleResult();
+                }));
+    }
+
+    private void allServicesInitialized(User user, AccountSettings accountSettings) {
+        log.info("All services initialized");
+        injector.getInstance(TradeManager.class).onAllServicesInitialized();
+
+        if (!user.isRegistered())
+            log.warn("The account is not registered. Please set up the account with the GUI first.");
+        if (accountSettings.getAcceptedArbitrators().isEmpty())
+            log.warn("No arbitrators accepted. Please set up the account with the GUI first.");
+
+        if (env.getProperty(ApiServer.ENABLED_KEY, Boolean.class, false)) {
+            try {
+                apiServer = injector.getInstance(ApiServer.class);
+                apiServer.start();
+            } catch (IOException e) {
+                log.error("Starting the API server failed. " + e);
+                apiServer = null;
+            }
+        }
+    }
+}
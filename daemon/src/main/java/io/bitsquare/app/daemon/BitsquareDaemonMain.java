@@ -0,0 +1,97 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.app.daemon;
+
+import io.bitsquare.api.ApiServer;
+import io.bitsquare.app.BitsquareEnvironment;
+import io.bitsquare.app.BitsquareExecutable;
+import io.bitsquare.btc.BitcoinNetwork;
+import io.bitsquare.network.BootstrapNodes;
+import io.bitsquare.network.Node;
+import io.bitsquare.util.joptsimple.EnumValueConverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+import static io.bitsquare.app.BitsquareEnvironment.*;
+import static io.bitsquare.network.Node.*;
+import static io.bitsquare.network.tomp2p.TomP2PNetworkModule.*;
+
+/**
+ * Starts Bitsquare without user interface, e.g. on a server. Offers are placed and taken with the {@link TradingApi}.
+ */
+public class BitsquareDaemonMain extends BitsquareExecutable {
+    private static final Logger log = LoggerFactory.getLogger(BitsquareDaemonMain.class);
+
+    public static void main(String[] args) throws Exception {
+        new BitsquareDaemonMain().execute(args);
+    }
+
+    @Override
+    protected void customizeOptionParsing(OptionParser parser) {
+        parser.accepts(USER_DATA_DIR_KEY, description("User data directory", DEFAULT_USER_DATA_DIR))
+                .withRequiredArg();
+        parser.accepts(APP_NAME_KEY, description("Application name", DEFAULT_APP_NAME))
+                .withRequiredArg();
+        parser.accepts(APP_DATA_DIR_KEY, description("Application data directory", DEFAULT_APP_DATA_DIR))
+                .withRequiredArg();
+        parser.accepts(NAME_KEY, description("Name of this node", null))
+                .withRequiredArg();
+        parser.accepts(PORT_KEY, description("Port to listen on", Node.DEFAULT_PORT))
+                .withRequiredArg()
+                .ofType(int.class);
+        parser.accepts(USE_MANUAL_PORT_FORWARDING_KEY, description("Use manual port forwarding", false))
+                .withRequiredArg()
+                .ofType(boolean.class);
+        parser.accepts(BitcoinNetwork.KEY, description("", BitcoinNetwork.DEFAULT))
+                .withRequiredArg()
+                .ofType(BitcoinNetwork.class)
+                .withValuesConvertedBy(new EnumValueConverter(BitcoinNetwork.class));
+        parser.accepts(BOOTSTRAP_NODE_NAME_KEY, description("", BootstrapNodes.DEFAULT.getName()))
+                .withRequiredArg();
+        parser.accepts(BOOTSTRAP_NODE_IP_KEY, description("", BootstrapNodes.DEFAULT.getIp()))
+                .withRequiredArg();
+        parser.accepts(BOOTSTRAP_NODE_PORT_KEY, description("", BootstrapNodes.DEFAULT.getPort()))
+                .withRequiredArg()
+                .ofType(int.class);
+        parser.accepts(NETWORK_INTERFACE_KEY, description("Network interface", null))
+                .withRequiredArg();
+        parser.accepts(ApiServer.ENABLED_KEY, description("Enable the local JSON API for bots", false))
+                .withRequiredArg()
+                .ofType(boolean.class);
+        parser.accepts(ApiServer.PORT_KEY, description("Port of the local JSON API", ApiServer.DEFAULT_PORT))
+                .withRequiredArg()
+                .ofType(int.class);
+    }
+
+    @Override
+    protected void doExecute(OptionSet options) {
+        BitsquareDaemon daemon = new BitsquareDaemon(new BitsquareEnvironment(options));
+        daemon.start(
+                () -> log.info("Bitsquare daemon started"),
+                throwable -> {
+                    log.error("Starting the Bitsquare daemon failed. " + throwable);
+                    daemon.stop();
+                    System.exit(EXIT_FAILURE);
+                });
+    }
+}
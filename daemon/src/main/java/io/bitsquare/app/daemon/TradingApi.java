@@ -0,0 +1,221 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.app.daemon;
+
+import io.bitsquare.offer.Direction;
+import io.bitsquare.offer.Offer;
+import io.bitsquare.offer.OfferBookService;
+import io.bitsquare.offer.OpenOffer;
+import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.TradeManager;
+import io.bitsquare.trade.handlers.OfferResultHandler;
+import io.bitsquare.trade.handlers.TradeResultHandler;
+import io.bitsquare.trade.handlers.TransactionResultHandler;
+import io.bitsquare.util.UserThread;
+import io.bitsquare.util.handlers.ErrorMessageHandler;
+import io.bitsquare.util.handlers.ResultHandler;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Programmatic access to placing and taking offers, e.g. for automated market making with the headless daemon.
+ * All requests can be called from any thread, they are passed to the user thread where the trade manager lives.
+ * The handlers and listeners are called on the user thread. The trade manager is not thread safe, so the getters
+ * must be called on the user thread as well, e.g. from a handler or via {@link UserThread#execute(Runnable)}.
+ */
+public class TradingApi {
+    private static final Logger log = LoggerFactory.getLogger(TradingApi.class);
+
+    private final TradeManager tradeManager;
+    private final OfferBookService offerBookService;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public TradingApi(TradeManager tradeManager, OfferBookService offerBookService) {
+        this.tradeManager = tradeManager;
+        this.offerBookService = offerBookService;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Offers
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns the ID of the new offer. The result handler is called when the offer fee is paid and the offer is
+    // published.
+    public String placeOffer(Direction direction,
+                             Fiat price,
+                             Coin amount,
+                             Coin minAmount,
+                             TransactionResultHandler resultHandler,
+                             ErrorMessageHandler errorMessageHandler) {
+        String id = UUID.randomUUID().toString();
+        placeOffer(id, direction, price, amount, minAmount, resultHandler, errorMessageHandler);
+        return id;
+    }
+
+    public void placeOffer(String id,
+                           Direction direction,
+                           Fiat price,
+                           Coin amount,
+                           Coin minAmount,
+                           TransactionResultHandler resultHandler,
+                           ErrorMessageHandler errorMessageHandler) {
+        log.debug("placeOffer " + id);
+        UserThread.execute(() -> tradeManager.requestPlaceOffer(id, direction, price, amount, minAmount,
+                resultHandler, errorMessageHandler));
+    }
+
+    // Creates an offer with the current bank account and the account settings, to be placed with placeOffers.
+    public void createOffer(Direction direction,
+                            Fiat price,
+                            Coin amount,
+                            Coin minAmount,
+                            OfferResultHandler resultHandler,
+                            ErrorMessageHandler errorMessageHandler) {
+        String id = UUID.randomUUID().toString();
+        UserThread.execute(() -> {
+            Offer offer;
+            try {
+                offer = tradeManager.createOffer(id, direction, price, amount, minAmount);
+            } catch (Throwable t) {
+                log.error("Creating offer failed. " + t);
+                errorMessageHandler.handleErrorMessage("Creating offer failed. " + t.getMessage());
+                return;
+            }
+            resultHandler.handleResult(offer);
+        });
+    }
+
+    // Places several offers with one offer fee transaction, e.g. for repricing. The result handler is called once
+    // when all offers are published.
+    public void placeOffers(List<Offer> offers,
+                            TransactionResultHandler resultHandler,
+                            ErrorMessageHandler errorMessageHandler) {
+        log.debug("placeOffers " + offers.size());
+        UserThread.execute(() -> tradeManager.requestPlaceOffers(offers, resultHandler, errorMessageHandler));
+    }
+
+    public void removeOffers(List<String> offerIds, ResultHandler resultHandler,
+                             ErrorMessageHandler errorMessageHandler) {
+        UserThread.execute(() -> tradeManager.requestRemoveOpenOffers(offerIds, resultHandler, errorMessageHandler));
+    }
+
+    public void removeOffer(String offerId, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
+        UserThread.execute(() -> {
+            if (tradeManager.getOpenOffers().containsKey(offerId))
+                tradeManager.requestRemoveOpenOffer(offerId, resultHandler, errorMessageHandler);
+            else
+                errorMessageHandler.handleErrorMessage("No open offer with ID " + offerId);
+        });
+    }
+
+    // The offers are delivered to the listeners
+    public void requestOffers(String fiatCode) {
+        UserThread.execute(() -> offerBookService.getOffers(fiatCode));
+    }
+
+    public void addOfferBookListener(OfferBookService.Listener listener) {
+        offerBookService.addListener(listener);
+    }
+
+    public void removeOfferBookListener(OfferBookService.Listener listener) {
+        offerBookService.removeListener(listener);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Trades
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The result is delivered to the state property of the offer
+    public void requestIsOfferAvailable(Offer offer) {
+        UserThread.execute(() -> tradeManager.requestIsOfferAvailable(offer));
+    }
+
+    // The result handler gets the new trade, its progress can be observed at its state property
+    public void takeOffer(Offer offer, Coin amount, TradeResultHandler resultHandler) {
+        UserThread.execute(() -> resultHandler.handleResult(tradeManager.requestTakeOffer(amount, offer)));
+    }
+
+    // The error message handler is called if the trade has no protocol of the offerer, so nothing got dispatched
+    public void fiatPaymentStarted(String tradeId, ResultHandler resultHandler,
+                                   ErrorMessageHandler errorMessageHandler) {
+        UserThread.execute(() -> {
+            if (tradeManager.fiatPaymentStarted(tradeId))
+                resultHandler.handleResult();
+            else
+                errorMessageHandler.handleErrorMessage("Trade " + tradeId + " has no running offerer protocol");
+        });
+    }
+
+    // The error message handler is called if the trade has no protocol of the taker, so nothing got dispatched
+    public void fiatPaymentReceived(String tradeId, ResultHandler resultHandler,
+                                    ErrorMessageHandler errorMessageHandler) {
+        UserThread.execute(() -> {
+            if (tradeManager.fiatPaymentReceived(tradeId))
+                resultHandler.handleResult();
+            else
+                errorMessageHandler.handleErrorMessage("Trade " + tradeId + " has no running taker protocol");
+        });
+    }
+
+    public void closeTrade(String tradeId, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
+        UserThread.execute(() -> {
+            Trade trade = tradeManager.getPendingTrades().get(tradeId);
+            if (trade != null) {
+                tradeManager.closeTrade(trade);
+                resultHandler.handleResult();
+            }
+            else {
+                errorMessageHandler.handleErrorMessage("No pending trade with ID " + tradeId);
+            }
+        });
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Getters, to be called on the user thread
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public List<OpenOffer> getOpenOffers() {
+        return new ArrayList<>(tradeManager.getOpenOffers().values());
+    }
+
+    public List<Trade> getPendingTrades() {
+        return new ArrayList<>(tradeManager.getPendingTrades().values());
+    }
+
+    public List<Trade> getClosedTrades() {
+        return new ArrayList<>(tradeManager.getClosedTrades().values());
+    }
+}
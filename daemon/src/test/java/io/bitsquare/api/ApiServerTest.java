@@ -0,0 +1,59 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ApiServerTest {
+
+    @Test
+    public void testLoopbackHost() {
+        assertTrue(ApiServer.isLoopbackHost("localhost:7367"));
+        assertTrue(ApiServer.isLoopbackHost("127.0.0.1:7367"));
+        assertTrue(ApiServer.isLoopbackHost("[::1]:7367"));
+        assertTrue(ApiServer.isLoopbackHost("LOCALHOST"));
+
+        assertFalse(ApiServer.isLoopbackHost(null));
+        assertFalse(ApiServer.isLoopbackHost("attacker.example:7367"));
+        assertFalse(ApiServer.isLoopbackHost("localhost.attacker.example"));
+    }
+
+    @Test
+    public void testLoopbackOrigin() {
+        assertTrue(ApiServer.isLoopbackOrigin(null));
+        assertTrue(ApiServer.isLoopbackOrigin("http://localhost:7367"));
+        assertTrue(ApiServer.isLoopbackOrigin("http://[::1]:7367"));
+
+        assertFalse(ApiServer.isLoopbackOrigin("null"));
+        assertFalse(ApiServer.isLoopbackOrigin("http://attacker.example"));
+        assertFalse(ApiServer.isLoopbackOrigin("file://localhost"));
+    }
+
+    @Test
+    public void testJsonContentType() {
+        assertTrue(ApiServer.isJsonContentType("application/json"));
+        assertTrue(ApiServer.isJsonContentType("application/json; charset=utf-8"));
+
+        assertFalse(ApiServer.isJsonContentType(null));
+        assertFalse(ApiServer.isJsonContentType("text/plain"));
+        assertFalse(ApiServer.isJsonContentType("application/x-www-form-urlencoded"));
+    }
+}
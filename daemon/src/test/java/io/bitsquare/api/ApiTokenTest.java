@@ -0,0 +1,95 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.api;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ApiTokenTest {
+    private Path dir;
+    private Path tokenFile;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("api");
+        tokenFile = dir.resolve(ApiToken.FILE_NAME);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(tokenFile);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    public void testCreateOwnerOnlyTokenFile() throws IOException {
+        ApiToken apiToken = ApiToken.readOrCreate(tokenFile);
+
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8);
+        assertEquals(64, token.length());
+        assertTrue(apiToken.isValidAuthorization("Bearer " + token));
+        if (isPosix())
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)));
+    }
+
+    @Test
+    public void testReadExistingToken() throws IOException {
+        ApiToken.readOrCreate(tokenFile);
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8);
+
+        ApiToken apiToken = ApiToken.readOrCreate(tokenFile);
+        assertTrue(apiToken.isValidAuthorization("Bearer " + token));
+        assertEquals(token, new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testInvalidAuthorization() throws IOException {
+        ApiToken apiToken = ApiToken.readOrCreate(tokenFile);
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8);
+
+        assertFalse(apiToken.isValidAuthorization(null));
+        assertFalse(apiToken.isValidAuthorization(token));
+        assertFalse(apiToken.isValidAuthorization("Bearer "));
+        assertFalse(apiToken.isValidAuthorization("Bearer " + token.substring(1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTokenFileReadableByOthersIsRejected() throws IOException {
+        assumeTrue(isPosix());
+        Files.write(tokenFile, "secret".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(tokenFile, PosixFilePermissions.fromString("rw-r--r--"));
+
+        ApiToken.readOrCreate(tokenFile);
+    }
+
+    private boolean isPosix() {
+        return dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
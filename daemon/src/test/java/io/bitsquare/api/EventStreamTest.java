@@ -0,0 +1,74 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.api;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventStreamTest {
+
+    @Test
+    public void testPublishToAllSubscribers() throws InterruptedException {
+        EventStream eventStream = new EventStream();
+        EventStream.Subscription subscription1 = eventStream.subscribe();
+        EventStream.Subscription subscription2 = eventStream.subscribe();
+
+        eventStream.publish("tradeState", Collections.singletonMap("id", "1"));
+
+        String expected = "event: tradeState\ndata: {\"id\":\"1\"}\n\n";
+        assertEquals(expected, subscription1.poll(1, TimeUnit.SECONDS));
+        assertEquals(expected, subscription2.poll(1, TimeUnit.SECONDS));
+        assertNull(subscription1.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testUnsubscribe() throws InterruptedException {
+        EventStream eventStream = new EventStream();
+        EventStream.Subscription subscription = eventStream.subscribe();
+        eventStream.unsubscribe(subscription);
+
+        eventStream.publish("tradeState", Collections.singletonMap("id", "1"));
+
+        assertTrue(subscription.isClosed());
+        assertEquals(0, eventStream.getNumSubscriptions());
+        assertNull(subscription.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSlowSubscriberGetsDropped() throws InterruptedException {
+        EventStream eventStream = new EventStream(2);
+        EventStream.Subscription slowSubscription = eventStream.subscribe();
+        EventStream.Subscription subscription = eventStream.subscribe();
+
+        eventStream.publish("balance", Collections.singletonMap("wallet", "1"));
+        eventStream.publish("balance", Collections.singletonMap("wallet", "2"));
+        assertNotNull(subscription.poll(1, TimeUnit.SECONDS));
+        assertNotNull(subscription.poll(1, TimeUnit.SECONDS));
+        eventStream.publish("balance", Collections.singletonMap("wallet", "3"));
+
+        assertTrue(slowSubscription.isClosed());
+        assertFalse(subscription.isClosed());
+        assertEquals(1, eventStream.getNumSubscriptions());
+        assertEquals("event: balance\ndata: {\"wallet\":\"3\"}\n\n", subscription.poll(1, TimeUnit.SECONDS));
+    }
+}
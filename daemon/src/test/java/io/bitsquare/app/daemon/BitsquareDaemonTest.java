@@ -0,0 +1,62 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.app.daemon;
+
+import io.bitsquare.api.ApiServer;
+import io.bitsquare.app.BitsquareEnvironment;
+
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import joptsimple.OptionParser;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitsquareDaemonTest {
+
+    @Test
+    public void testModuleBindsApiWithoutGui() {
+        BitsquareEnvironment env = new BitsquareEnvironment(new OptionParser().parse());
+        List<Element> elements = Elements.getElements(new BitsquareDaemonModule(env));
+        Set<Key<?>> keys = elements.stream()
+                .filter(element -> element instanceof Binding)
+                .map(element -> ((Binding<?>) element).getKey())
+                .collect(Collectors.toSet());
+
+        assertTrue(keys.contains(Key.get(TradingApi.class)));
+        assertTrue(keys.contains(Key.get(ApiServer.class)));
+        keys.forEach(key -> {
+            String typeName = key.getTypeLiteral().getRawType().getName();
+            assertFalse(typeName, typeName.startsWith("io.bitsquare.gui.") || typeName.startsWith("viewfx."));
+        });
+    }
+
+    @Test
+    public void testStopBeforeStart() {
+        BitsquareDaemon daemon = new BitsquareDaemon(new BitsquareEnvironment(new OptionParser().parse()));
+        daemon.stop();
+    }
+}
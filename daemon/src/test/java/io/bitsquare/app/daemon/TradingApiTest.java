@@ -0,0 +1,152 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.app.daemon;
+
+import io.bitsquare.offer.Direction;
+import io.bitsquare.offer.Offer;
+import io.bitsquare.offer.OfferBookService;
+import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.TradeManager;
+import io.bitsquare.util.UserThread;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javafx.collections.FXCollections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class TradingApiTest {
+
+    private final List<Runnable> userThreadTasks = new ArrayList<>();
+    private Executor previousExecutor;
+    private TradeManager tradeManager;
+    private TradingApi tradingApi;
+
+    @Before
+    public void setUp() {
+        previousExecutor = UserThread.getExecutor();
+        UserThread.setExecutor(userThreadTasks::add);
+        tradeManager = mock(TradeManager.class);
+        tradingApi = new TradingApi(tradeManager, mock(OfferBookService.class));
+    }
+
+    @After
+    public void tearDown() {
+        UserThread.setExecutor(previousExecutor);
+    }
+
+    @Test
+    public void testCreateOfferOnUserThread() {
+        Offer offer = mock(Offer.class);
+        when(tradeManager.createOffer(anyString(), any(), any(), any(), any())).thenReturn(offer);
+        List<Offer> results = new ArrayList<>();
+
+        tradingApi.createOffer(Direction.BUY, Fiat.parseFiat("EUR", "300"), Coin.COIN, Coin.COIN,
+                results::add, errorMessage -> fail(errorMessage));
+        verifyZeroInteractions(tradeManager);
+
+        runUserThreadTasks();
+        assertEquals(Collections.singletonList(offer), results);
+    }
+
+    @Test
+    public void testCreateOfferFailure() {
+        when(tradeManager.createOffer(anyString(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("No bank account"));
+        List<String> errorMessages = new ArrayList<>();
+
+        tradingApi.createOffer(Direction.SELL, Fiat.parseFiat("EUR", "300"), Coin.COIN, Coin.COIN,
+                offer -> fail("Offer created"), errorMessages::add);
+        runUserThreadTasks();
+
+        assertEquals(1, errorMessages.size());
+    }
+
+    @Test
+    public void testRemoveUnknownOffer() {
+        when(tradeManager.getOpenOffers()).thenReturn(Collections.emptyMap());
+        List<String> errorMessages = new ArrayList<>();
+
+        tradingApi.removeOffer("unknown", () -> fail("Offer removed"), errorMessages::add);
+        runUserThreadTasks();
+
+        assertEquals(1, errorMessages.size());
+        verify(tradeManager, never()).requestRemoveOpenOffer(anyString(), any(), any());
+    }
+
+    @Test
+    public void testTakeOfferOnUserThread() {
+        Offer offer = mock(Offer.class);
+        Trade trade = mock(Trade.class);
+        when(tradeManager.requestTakeOffer(Coin.COIN, offer)).thenReturn(trade);
+        List<Trade> results = new ArrayList<>();
+
+        tradingApi.takeOffer(offer, Coin.COIN, results::add);
+        verifyZeroInteractions(tradeManager);
+
+        runUserThreadTasks();
+        assertEquals(Collections.singletonList(trade), results);
+    }
+
+    @Test
+    public void testTradeActionWithoutProtocolFails() {
+        when(tradeManager.fiatPaymentStarted("trade")).thenReturn(false);
+        when(tradeManager.fiatPaymentReceived("trade")).thenReturn(true);
+        List<String> errorMessages = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+
+        tradingApi.fiatPaymentStarted("trade", () -> fail("Payment started dispatched"), errorMessages::add);
+        tradingApi.fiatPaymentReceived("trade", () -> results.add("trade"), errorMessage -> fail(errorMessage));
+        verifyZeroInteractions(tradeManager);
+        runUserThreadTasks();
+
+        assertEquals(1, errorMessages.size());
+        assertEquals(Collections.singletonList("trade"), results);
+    }
+
+    @Test
+    public void testCloseUnknownTrade() {
+        when(tradeManager.getPendingTrades()).thenReturn(FXCollections.observableHashMap());
+        List<String> errorMessages = new ArrayList<>();
+
+        tradingApi.closeTrade("unknown", () -> fail("Trade closed"), errorMessages::add);
+        runUserThreadTasks();
+
+        assertEquals(1, errorMessages.size());
+        verify(tradeManager, never()).closeTrade(any());
+    }
+
+    private void runUserThreadTasks() {
+        List<Runnable> tasks = new ArrayList<>(userThreadTasks);
+        userThreadTasks.clear();
+        tasks.forEach(Runnable::run);
+    }
+}
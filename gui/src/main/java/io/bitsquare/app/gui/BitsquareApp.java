@@ -24,6 +24,7 @@ import io.bitsquare.gui.main.MainView;
 import io.bitsquare.gui.util.ImageUtil;
 import io.bitsquare.persistence.Persistence;
 import io.bitsquare.user.User;
+import io.bitsquare.util.UserThread;
 import io.bitsquare.util.Utilities;
 
 import com.google.common.base.Throwables;
@@ -39,6 +40,7 @@ import viewfx.view.support.CachingViewLoader;
 import viewfx.view.support.guice.InjectorViewFactory;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.*;
 import javafx.scene.image.*;
 import javafx.scene.input.*;
@@ -71,6 +73,16 @@ public class BitsquareApp extends Application {
         injector.getInstance(InjectorViewFactory.class).setInjector(injector);
 
 
+        // domain objects observed by the UI get updated on the JavaFX application thread
+
+        UserThread.setExecutor(runnable -> {
+            if (Platform.isFxApplicationThread())
+                runnable.run();
+            else
+                Platform.runLater(runnable);
+        });
+
+
         // route uncaught exceptions to a user-facing dialog
 
         Thread.currentThread().setUncaughtExceptionHandler((thread, throwable) ->
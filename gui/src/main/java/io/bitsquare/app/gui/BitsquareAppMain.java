@@ -21,6 +21,7 @@ import io.bitsquare.BitsquareException;
 import io.bitsquare.app.BitsquareEnvironment;
 import io.bitsquare.app.BitsquareExecutable;
 import io.bitsquare.btc.BitcoinNetwork;
+import io.bitsquare.btc.WalletService;
 import io.bitsquare.network.BootstrapNodes;
 import io.bitsquare.network.Node;
 import io.bitsquare.util.joptsimple.EnumValueConverter;
@@ -132,6 +133,12 @@ public class BitsquareAppMain extends BitsquareExecutable {
                 .withRequiredArg()
                 .ofType(BitcoinNetwork.class)
                 .withValuesConvertedBy(new EnumValueConverter(BitcoinNetwork.class));
+        parser.accepts(WalletService.RESTORE_SEED_FILE_KEY,
+                description("File with the seed words of a wallet to restore, readable by the owner only", null))
+                .withRequiredArg();
+        parser.accepts(WalletService.RESTORE_BIRTHDAY_KEY,
+                description("Creation date (yyyy-MM-dd) of the wallet to restore", null))
+                .withRequiredArg();
         parser.accepts(BOOTSTRAP_NODE_NAME_KEY, description("", BootstrapNodes.DEFAULT.getName()))
                 .withRequiredArg();
         parser.accepts(BOOTSTRAP_NODE_IP_KEY, description("", BootstrapNodes.DEFAULT.getIp()))
@@ -17,15 +17,20 @@
 
 package io.bitsquare.arbitrator;
 
+import io.bitsquare.network.ContentAddressable;
+import io.bitsquare.util.CanonicalWriter;
+
 import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 
-public class Arbitrator implements Serializable {
+public class Arbitrator implements Serializable, ContentAddressable {
     private static final long serialVersionUID = -2625059604136756635L;
 
     private String id;
@@ -43,6 +48,9 @@ public class Arbitrator implements Serializable {
 
     private String description;
 
+    // Derived from the identity of the arbitrator, calculated once at first access
+    private transient byte[] contentHash;
+
     public Arbitrator() {
     }
 
@@ -88,6 +96,24 @@ public class Arbitrator implements Serializable {
 
         //TODO for mock arbitrator
         id = name;
+        contentHash = null;
+    }
+
+    // Only the identity is covered, so the arbitrator keeps its content key when the other data get updated
+    @Override
+    public byte[] getContentHash() {
+        if (contentHash == null) {
+            try (CanonicalWriter writer = new CanonicalWriter()) {
+                writer.writeString(id);
+                writer.writeString(pubKeyAsHex);
+                writer.writeString(messagePubKeyAsHex);
+                contentHash = Sha256Hash.create(writer.toByteArray()).getBytes();
+            } catch (IOException e) {
+                // Cannot happen as we write to memory
+                throw new RuntimeException(e);
+            }
+        }
+        return contentHash.clone();
     }
 
     @Override
@@ -0,0 +1,211 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.arbitrator;
+
+import org.bitcoinj.core.Coin;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Local, persisted directory of the known arbitrators. The arbitrators are indexed by language, arbitration method
+ * and ID verification, so lookups only touch the matching subset. Results are sorted by fee.
+ * <p>
+ * Not thread safe, it is only accessed from the user thread.
+ */
+public class ArbitratorDirectory implements Serializable {
+    private static final long serialVersionUID = -4361842180434575826L;
+
+    private static final Comparator<Arbitrator> BY_FEE = Comparator.comparing(ArbitratorDirectory::getFee)
+            .thenComparing(Arbitrator::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Map<String, Arbitrator> arbitratorsById = new HashMap<>();
+    // The language index follows the per-language snapshots of the network, so it gets persisted
+    private final Map<String, Set<String>> idsByLanguage = new HashMap<>();
+    // Derived from the arbitrators only, so they get rebuilt after deserialization
+    private transient Map<Arbitrator.METHOD, Set<String>> idsByMethod = new EnumMap<>(Arbitrator.METHOD.class);
+    private transient Map<Arbitrator.ID_VERIFICATION, Set<String>> idsByIdVerification =
+            new EnumMap<>(Arbitrator.ID_VERIFICATION.class);
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Adds the arbitrator or replaces an older version of it
+    public void put(Arbitrator arbitrator) {
+        remove(arbitrator);
+        String id = arbitrator.getId();
+        arbitratorsById.put(id, arbitrator);
+        if (arbitrator.getLanguages() != null)
+            arbitrator.getLanguages().stream().forEach(e -> index(idsByLanguage, getLanguageKey(e), id));
+        indexMethodsAndIdVerifications(arbitrator);
+    }
+
+    public boolean remove(Arbitrator arbitrator) {
+        Arbitrator removed = arbitratorsById.remove(arbitrator.getId());
+        if (removed == null)
+            return false;
+
+        String id = removed.getId();
+        if (removed.getLanguages() != null)
+            removed.getLanguages().stream().forEach(e -> unIndex(idsByLanguage, getLanguageKey(e), id));
+        if (removed.getArbitrationMethods() != null)
+            removed.getArbitrationMethods().stream().forEach(e -> unIndex(idsByMethod, e, id));
+        if (removed.getIdVerifications() != null)
+            removed.getIdVerifications().stream().forEach(e -> unIndex(idsByIdVerification, e, id));
+        return true;
+    }
+
+    /**
+     * Applies a fresh snapshot of the arbitrators of one language. Arbitrators of that language which are not in the
+     * snapshot any more are only removed from that language, they are removed completely once they are not listed
+     * under any language.
+     *
+     * @return true if the directory has changed
+     */
+    public boolean replaceLanguage(Locale language, Collection<Arbitrator> arbitrators) {
+        String languageKey = getLanguageKey(language);
+        Set<String> ids = arbitrators.stream().map(Arbitrator::getId).collect(Collectors.toSet());
+        boolean changed = false;
+        for (Arbitrator arbitrator : getArbitrators(language)) {
+            String id = arbitrator.getId();
+            if (!ids.contains(id)) {
+                unIndex(idsByLanguage, languageKey, id);
+                if (idsByLanguage.values().stream().noneMatch(languageIds -> languageIds.contains(id)))
+                    remove(arbitrator);
+                changed = true;
+            }
+        }
+        for (Arbitrator arbitrator : arbitrators) {
+            if (arbitratorsById.get(arbitrator.getId()) != arbitrator) {
+                put(arbitrator);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // The arbitrators speaking the language, cheapest first
+    public List<Arbitrator> getArbitrators(Locale language) {
+        return find(language, null, null, null);
+    }
+
+    /**
+     * @param language       Mandatory, the language the arbitrator has to speak
+     * @param method         The arbitration method the arbitrator has to support or null for any
+     * @param idVerification The ID verification the arbitrator has to support or null for any
+     * @param maxFee         The highest accepted fee or null for any
+     * @return The matching arbitrators, cheapest first
+     */
+    public List<Arbitrator> find(Locale language,
+                                 @Nullable Arbitrator.METHOD method,
+                                 @Nullable Arbitrator.ID_VERIFICATION idVerification,
+                                 @Nullable Coin maxFee) {
+        List<Set<String>> indices = new ArrayList<>();
+        indices.add(idsByLanguage.getOrDefault(getLanguageKey(language), Collections.emptySet()));
+        if (method != null)
+            indices.add(idsByMethod.getOrDefault(method, Collections.emptySet()));
+        if (idVerification != null)
+            indices.add(idsByIdVerification.getOrDefault(idVerification, Collections.emptySet()));
+
+        // We walk the smallest index and look up the ids in the others
+        indices.sort(Comparator.comparing(Set::size));
+        Set<String> smallest = indices.remove(0);
+        return smallest.stream()
+                .filter(id -> indices.stream().allMatch(index -> index.contains(id)))
+                .map(arbitratorsById::get)
+                .filter(arbitrator -> maxFee == null || getFee(arbitrator).compareTo(maxFee) <= 0)
+                .sorted(BY_FEE)
+                .collect(Collectors.toList());
+    }
+
+    // The arbitrators matching in any of the languages, cheapest first
+    public List<Arbitrator> find(Collection<Locale> languages,
+                                 @Nullable Arbitrator.METHOD method,
+                                 @Nullable Arbitrator.ID_VERIFICATION idVerification,
+                                 @Nullable Coin maxFee) {
+        return languages.stream()
+                .flatMap(language -> find(language, method, idVerification, maxFee).stream())
+                .distinct()
+                .sorted(BY_FEE)
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return arbitratorsById.size();
+    }
+
+    // Only the language is relevant for the arbitration, not the country of the locale
+    public static String getLanguageKey(Locale locale) {
+        return locale.getLanguage();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        idsByMethod = new EnumMap<>(Arbitrator.METHOD.class);
+        idsByIdVerification = new EnumMap<>(Arbitrator.ID_VERIFICATION.class);
+        arbitratorsById.values().stream().forEach(this::indexMethodsAndIdVerifications);
+    }
+
+    private void indexMethodsAndIdVerifications(Arbitrator arbitrator) {
+        String id = arbitrator.getId();
+        if (arbitrator.getArbitrationMethods() != null)
+            arbitrator.getArbitrationMethods().stream().forEach(e -> index(idsByMethod, e, id));
+        if (arbitrator.getIdVerifications() != null)
+            arbitrator.getIdVerifications().stream().forEach(e -> index(idsByIdVerification, e, id));
+    }
+
+    private static <K> void index(Map<K, Set<String>> index, K key, String id) {
+        index.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+    }
+
+    private static <K> void unIndex(Map<K, Set<String>> index, K key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty())
+                index.remove(key);
+        }
+    }
+
+    private static Coin getFee(Arbitrator arbitrator) {
+        return arbitrator.getFee() != null ? arbitrator.getFee() : Coin.ZERO;
+    }
+}
@@ -31,5 +31,7 @@ public interface ArbitratorMessageService {
     void addArbitratorListener(ArbitratorListener listener);
 
     void getArbitrators(Locale defaultLanguageLocale);
+
+    ArbitratorDirectory getArbitratorDirectory();
 }
 
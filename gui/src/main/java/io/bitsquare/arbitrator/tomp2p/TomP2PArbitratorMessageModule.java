@@ -20,6 +20,8 @@ package io.bitsquare.arbitrator.tomp2p;
 import io.bitsquare.arbitrator.ArbitratorMessageModule;
 import io.bitsquare.arbitrator.ArbitratorMessageService;
 import io.bitsquare.network.tomp2p.TomP2PNode;
+import io.bitsquare.persistence.Persistence;
+import io.bitsquare.util.UserThread;
 
 import com.google.inject.Injector;
 import com.google.inject.Provider;
@@ -27,8 +29,6 @@ import com.google.inject.Singleton;
 
 import javax.inject.Inject;
 
-import javafx.application.Platform;
-
 import org.springframework.core.env.Environment;
 
 public class TomP2PArbitratorMessageModule extends ArbitratorMessageModule {
@@ -52,9 +52,9 @@ class ArbitratorMessageServiceProvider implements Provider<ArbitratorMessageServ
     private final ArbitratorMessageService arbitratorMessageService;
 
     @Inject
-    public ArbitratorMessageServiceProvider(TomP2PNode tomP2PNode) {
-        arbitratorMessageService = new TomP2PArbitratorMessageService(tomP2PNode);
-        arbitratorMessageService.setExecutor(Platform::runLater);
+    public ArbitratorMessageServiceProvider(TomP2PNode tomP2PNode, Persistence persistence) {
+        arbitratorMessageService = new TomP2PArbitratorMessageService(tomP2PNode, persistence);
+        arbitratorMessageService.setExecutor(UserThread::execute);
     }
 
     public ArbitratorMessageService get() {
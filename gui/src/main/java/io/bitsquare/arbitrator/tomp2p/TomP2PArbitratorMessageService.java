@@ -14,20 +14,26 @@
  * You should have received a copy of the GNU Affero General Public License
  * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package io.bitsquare.arbitrator.tomp2p;
 
 import io.bitsquare.arbitrator.Arbitrator;
+import io.bitsquare.arbitrator.ArbitratorDirectory;
 import io.bitsquare.arbitrator.ArbitratorMessageService;
 import io.bitsquare.arbitrator.listeners.ArbitratorListener;
 import io.bitsquare.network.tomp2p.TomP2PNode;
+import io.bitsquare.persistence.Persistence;
 
 import java.io.IOException;
+import java.io.Serializable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import net.tomp2p.dht.FutureGet;
 import net.tomp2p.dht.FuturePut;
@@ -35,31 +41,43 @@ import net.tomp2p.dht.FutureRemove;
 import net.tomp2p.futures.BaseFuture;
 import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
 import net.tomp2p.storage.Data;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-
+/**
+ * Arbitrators are stored under one location key per language they speak, so a client only fetches the arbitrators
+ * of the language it is interested in. The fetched arbitrators are kept in a persisted {@link ArbitratorDirectory}.
+ * The content key of an arbitrator only covers its identity, so at a refresh we compare the hash of the entry data
+ * with the one we have read before and only deserialize new or updated entries.
+ */
 public class TomP2PArbitratorMessageService implements ArbitratorMessageService {
     private static final Logger log = LoggerFactory.getLogger(TomP2PArbitratorMessageService.class);
-    
+
     private static final String ARBITRATORS_ROOT = "ArbitratorsRoot";
-    
+    private static final String DIRECTORY_KEY = "arbitratorDirectory";
+
     private final TomP2PNode tomP2PNode;
+    private final Persistence persistence;
     private final List<ArbitratorListener> arbitratorListeners = new ArrayList<>();
     private Executor executor;
+    private ArbitratorDirectory arbitratorDirectory;
+    // Hash of the data we have read for a content key, not persisted so all entries are read once after a restart
+    private final Map<Number160, Number160> dataHashes = new HashMap<>();
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public TomP2PArbitratorMessageService(TomP2PNode tomP2PNode) {
+    public TomP2PArbitratorMessageService(TomP2PNode tomP2PNode, Persistence persistence) {
         this.tomP2PNode = tomP2PNode;
+        this.persistence = persistence;
     }
 
-    
+
     public void setExecutor(Executor executor) {
         this.executor = executor;
     }
@@ -69,27 +87,23 @@ public class TomP2PArbitratorMessageService implements ArbitratorMessageService
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void addArbitrator(Arbitrator arbitrator) {
-        Number160 locationKey = Number160.createHash(ARBITRATORS_ROOT);
+        final Data arbitratorData;
         try {
-            final Data arbitratorData = new Data(arbitrator);
+            arbitratorData = new Data(arbitrator);
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Serializing arbitrator failed with exception:" + e.getMessage());
+            return;
+        }
 
-            FuturePut addFuture = tomP2PNode.addProtectedData(locationKey, arbitratorData);
+        List<Locale> languages = arbitrator.getLanguages();
+        AtomicInteger pendingPuts = new AtomicInteger(languages.size());
+        for (Locale language : languages) {
+            Number160 locationKey = getLocationKey(language);
+            FuturePut addFuture = tomP2PNode.addProtectedData(locationKey, arbitrator, arbitratorData);
             addFuture.addListener(new BaseFutureAdapter<BaseFuture>() {
                 @Override
                 public void operationComplete(BaseFuture future) throws Exception {
-                    executor.execute(() -> arbitratorListeners.stream().forEach(listener ->
-                    {
-                        try {
-                            Object arbitratorDataObject = arbitratorData.object();
-                            if (arbitratorDataObject instanceof Arbitrator) {
-                                listener.onArbitratorAdded((Arbitrator) arbitratorDataObject);
-                            }
-                        } catch (ClassNotFoundException | IOException e) {
-                            e.printStackTrace();
-                            log.error(e.toString());
-                        }
-                    }));
-
                     if (future.isSuccess()) {
                         log.trace("Add arbitrator to DHT was successful. Stored data: [key: " + locationKey + ", " +
                                 "values: " + arbitratorData + "]");
@@ -97,79 +111,79 @@ public class TomP2PArbitratorMessageService implements ArbitratorMessageService
                     else {
                         log.error("Add arbitrator to DHT failed with reason:" + addFuture.failedReason());
                     }
+
+                    if (pendingPuts.decrementAndGet() == 0) {
+                        executor.execute(() -> {
+                            getArbitratorDirectory().put(arbitrator);
+                            writeArbitratorDirectory();
+                            arbitratorListeners.stream().forEach(listener -> listener.onArbitratorAdded(arbitrator));
+                        });
+                    }
                 }
             });
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    public void removeArbitrator(Arbitrator arbitrator) throws IOException {
-        Number160 locationKey = Number160.createHash(ARBITRATORS_ROOT);
-        final Data arbitratorData = new Data(arbitrator);
-        FutureRemove removeFuture = tomP2PNode.removeFromDataMap(locationKey, arbitratorData);
-        removeFuture.addListener(new BaseFutureAdapter<BaseFuture>() {
-            @Override
-            public void operationComplete(BaseFuture future) throws Exception {
-                executor.execute(() -> arbitratorListeners.stream().forEach(listener ->
-                {
-                    for (Data arbitratorData : removeFuture.dataMap().values()) {
-                        try {
-                            Object arbitratorDataObject = arbitratorData.object();
-                            if (arbitratorDataObject instanceof Arbitrator) {
-                                Arbitrator arbitrator = (Arbitrator) arbitratorDataObject;
-                                listener.onArbitratorRemoved(arbitrator);
-                            }
-                        } catch (ClassNotFoundException | IOException e) {
-                            e.printStackTrace();
-                        }
+    // The content key is derived from the arbitrator, so we don't need to serialize it for removing it
+    public void removeArbitrator(Arbitrator arbitrator) {
+        List<Locale> languages = arbitrator.getLanguages();
+        AtomicInteger pendingRemoves = new AtomicInteger(languages.size());
+        for (Locale language : languages) {
+            Number160 locationKey = getLocationKey(language);
+            FutureRemove removeFuture = tomP2PNode.removeFromDataMap(locationKey, arbitrator);
+            removeFuture.addListener(new BaseFutureAdapter<BaseFuture>() {
+                @Override
+                public void operationComplete(BaseFuture future) throws Exception {
+                    // We don't test futureRemove.isSuccess() as this API does not fit well to that operation,
+                    // it might change in future to something like foundAndRemoved and notFound
+                    // See discussion at: https://github.com/tomp2p/TomP2P/issues/57#issuecomment-62069840
+
+                    log.trace("Remove arbitrator from DHT was successful. Removed data: [key: " + locationKey + ", " +
+                            "arbitrator: " + arbitrator.getId() + "]");
+
+                    if (pendingRemoves.decrementAndGet() == 0) {
+                        executor.execute(() -> {
+                            if (getArbitratorDirectory().remove(arbitrator))
+                                writeArbitratorDirectory();
+                            arbitratorListeners.stream().forEach(listener -> listener.onArbitratorRemoved(arbitrator));
+                        });
                     }
-                }));
-
-                // We don't test futureRemove.isSuccess() as this API does not fit well to that operation,
-                // it might change in future to something like foundAndRemoved and notFound
-                // See discussion at: https://github.com/tomp2p/TomP2P/issues/57#issuecomment-62069840
-
-                log.trace("Remove arbitrator from DHT was successful. Stored data: [key: " + locationKey + ", " +
-                        "values: " + arbitratorData + "]");
-            }
-        });
+                }
+            });
+        }
     }
 
+    // The listeners get the arbitrators after the refresh, the known ones if the refresh failed
     public void getArbitrators(Locale languageLocale) {
-        Number160 locationKey = Number160.createHash(ARBITRATORS_ROOT);
+        Number160 locationKey = getLocationKey(languageLocale);
         FutureGet futureGet = tomP2PNode.getDataMap(locationKey);
         futureGet.addListener(new BaseFutureAdapter<BaseFuture>() {
             @Override
             public void operationComplete(BaseFuture future) throws Exception {
-                executor.execute(() -> arbitratorListeners.stream().forEach(listener ->
-                {
-                    List<Arbitrator> arbitrators = new ArrayList<>();
-                    for (Data arbitratorData : futureGet.dataMap().values()) {
-                        try {
-                            Object arbitratorDataObject = arbitratorData.object();
-                            if (arbitratorDataObject instanceof Arbitrator) {
-                                arbitrators.add((Arbitrator) arbitratorDataObject);
-                            }
-                        } catch (ClassNotFoundException | IOException e) {
-                            e.printStackTrace();
-                            log.error("Get arbitrators from DHT failed with exception:" + e.getMessage());
-                        }
-                    }
-
-                    listener.onArbitratorsReceived(arbitrators);
-                }));
                 if (future.isSuccess()) {
                     log.trace("Get arbitrators from DHT was successful. Stored data: [key: " + locationKey + ", " +
                             "values: " + futureGet.dataMap() + "]");
+                    Map<Number640, Data> dataMap = futureGet.dataMap() != null ?
+                            futureGet.dataMap() : new HashMap<>();
+                    executor.execute(() -> applyDataMap(languageLocale, dataMap));
                 }
                 else {
                     log.error("Get arbitrators from DHT failed with reason:" + future.failedReason());
+                    executor.execute(() -> notifyArbitratorsReceived(languageLocale));
                 }
             }
         });
     }
 
+    public ArbitratorDirectory getArbitratorDirectory() {
+        if (arbitratorDirectory == null) {
+            Serializable persisted = persistence.read(this, DIRECTORY_KEY);
+            arbitratorDirectory = persisted instanceof ArbitratorDirectory ?
+                    (ArbitratorDirectory) persisted : new ArbitratorDirectory();
+        }
+        return arbitratorDirectory;
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Event Listeners
@@ -183,4 +197,53 @@ public class TomP2PArbitratorMessageService implements ArbitratorMessageService
         arbitratorListeners.remove(listener);
     }
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void applyDataMap(Locale languageLocale, Map<Number640, Data> dataMap) {
+        ArbitratorDirectory directory = getArbitratorDirectory();
+        Map<Number160, Arbitrator> knownArbitrators = directory.getArbitrators(languageLocale).stream()
+                .collect(Collectors.toMap(TomP2PNode::getContentKey, arbitrator -> arbitrator, (a, b) -> a));
+
+        List<Arbitrator> arbitrators = new ArrayList<>();
+        for (Map.Entry<Number640, Data> entry : dataMap.entrySet()) {
+            Number160 contentKey = entry.getKey().contentKey();
+            Number160 dataHash = entry.getValue().hash();
+            Arbitrator knownArbitrator = knownArbitrators.get(contentKey);
+            if (knownArbitrator != null && dataHash.equals(dataHashes.get(contentKey))) {
+                arbitrators.add(knownArbitrator);
+                continue;
+            }
+
+            try {
+                Object arbitratorDataObject = entry.getValue().object();
+                if (arbitratorDataObject instanceof Arbitrator) {
+                    arbitrators.add((Arbitrator) arbitratorDataObject);
+                    dataHashes.put(contentKey, dataHash);
+                }
+            } catch (ClassNotFoundException | IOException e) {
+                e.printStackTrace();
+                log.error("Get arbitrators from DHT failed with exception:" + e.getMessage());
+            }
+        }
+
+        if (directory.replaceLanguage(languageLocale, arbitrators))
+            writeArbitratorDirectory();
+        notifyArbitratorsReceived(languageLocale);
+    }
+
+    private void notifyArbitratorsReceived(Locale languageLocale) {
+        List<Arbitrator> arbitrators = getArbitratorDirectory().getArbitrators(languageLocale);
+        arbitratorListeners.stream().forEach(listener -> listener.onArbitratorsReceived(arbitrators));
+    }
+
+    private void writeArbitratorDirectory() {
+        persistence.write(this, DIRECTORY_KEY, arbitratorDirectory);
+    }
+
+    private static Number160 getLocationKey(Locale languageLocale) {
+        return Number160.createHash(ARBITRATORS_ROOT + "." + ArbitratorDirectory.getLanguageKey(languageLocale));
+    }
 }
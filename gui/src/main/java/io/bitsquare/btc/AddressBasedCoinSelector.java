@@ -34,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,11 +44,13 @@ import org.slf4j.LoggerFactory;
  * This class implements a {@link org.bitcoinj.wallet.CoinSelector} which attempts to get the highest priority
  * possible. This means that the transaction is the most likely to get confirmed. Note that this means we may end up
  * "spending" more priority than would be required to get the transaction we are creating confirmed.
+ * Only outputs sent to one of the given address entries are selected, so several funded addresses can be spent in
+ * one transaction.
  */
 class AddressBasedCoinSelector extends DefaultCoinSelector {
     private static final Logger log = LoggerFactory.getLogger(AddressBasedCoinSelector.class);
     private final NetworkParameters params;
-    private final AddressEntry addressEntry;
+    private final Set<Address> addresses;
     private final boolean includePending;
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -54,8 +58,13 @@ class AddressBasedCoinSelector extends DefaultCoinSelector {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public AddressBasedCoinSelector(NetworkParameters params, AddressEntry addressEntry, boolean includePending) {
+        this(params, Collections.singletonList(addressEntry), includePending);
+    }
+
+    public AddressBasedCoinSelector(NetworkParameters params, List<AddressEntry> addressEntries,
+                                    boolean includePending) {
         this.params = params;
-        this.addressEntry = addressEntry;
+        this.addresses = addressEntries.stream().map(AddressEntry::getAddress).collect(Collectors.toSet());
         this.includePending = includePending;
     }
 
@@ -135,13 +144,12 @@ class AddressBasedCoinSelector extends DefaultCoinSelector {
             Address addressOutput = transactionOutput.getScriptPubKey().getToAddress(params);
             log.trace("matchesRequiredAddress?");
             log.trace(addressOutput.toString());
-            log.trace(addressEntry.getAddress().toString());
 
-            if (addressEntry != null && addressOutput.equals(addressEntry.getAddress())) {
+            if (addresses.contains(addressOutput)) {
                 return true;
             }
-            log.warn("No match found at matchesRequiredAddress addressOutput/addressEntry " + addressOutput.toString
-                    () + "/" + addressEntry.getAddress().toString());
+            log.warn("No match found at matchesRequiredAddress addressOutput/addresses " + addressOutput.toString
+                    () + "/" + addresses.toString());
         }
         return false;
     }
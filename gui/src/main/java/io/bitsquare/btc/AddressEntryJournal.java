@@ -0,0 +1,131 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.btc;
+
+import io.bitsquare.BitsquareException;
+
+import org.bitcoinj.core.Utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only record of new address entries. Writing the whole address entry list (and with it the whole persistence
+ * file) for each new offer is too expensive, so we only append one line per entry and merge the journal into the
+ * persisted list at the next startup.
+ * A line contains the address context, the hex encoded pub key hash and the optional offer ID.
+ */
+class AddressEntryJournal {
+    private static final Logger log = LoggerFactory.getLogger(AddressEntryJournal.class);
+
+    private static final String SEPARATOR = ",";
+
+    private final File file;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    AddressEntryJournal(File file) {
+        this.file = file;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    synchronized void append(AddressEntry addressEntry) {
+        String line = addressEntry.getAddressContext() + SEPARATOR + Utils.HEX.encode(addressEntry.getPubKeyHash());
+        if (addressEntry.getOfferId() != null)
+            line += SEPARATOR + addressEntry.getOfferId();
+
+        try (FileOutputStream fileOutputStream = new FileOutputStream(file, true);
+             Writer writer = new OutputStreamWriter(fileOutputStream, StandardCharsets.UTF_8)) {
+            writer.write(line + "\n");
+            writer.flush();
+            fileOutputStream.getFD().sync();
+        } catch (IOException e) {
+            throw new BitsquareException(e, "Could not append address entry to %s", file);
+        }
+    }
+
+    synchronized List<Record> read() {
+        List<Record> records = new ArrayList<>();
+        if (!file.exists())
+            return records;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split(SEPARATOR);
+                // A crash during append might have left an incomplete last line
+                if (tokens.length < 2) {
+                    log.warn("Skip invalid address journal line: " + line);
+                    continue;
+                }
+                try {
+                    records.add(new Record(AddressEntry.AddressContext.valueOf(tokens[0]),
+                            Utils.HEX.decode(tokens[1]),
+                            tokens.length > 2 ? tokens[2] : null));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skip invalid address journal line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            throw new BitsquareException(e, "Could not read address journal %s", file);
+        }
+        return records;
+    }
+
+    // Called after the entries got merged into the persisted address entry list
+    synchronized void clear() {
+        if (file.exists() && !file.delete())
+            log.warn("Could not delete address journal " + file);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static class Record {
+        final AddressEntry.AddressContext addressContext;
+        final byte[] pubKeyHash;
+        final String offerId;
+
+        Record(AddressEntry.AddressContext addressContext, byte[] pubKeyHash, String offerId) {
+            this.addressContext = addressContext;
+            this.pubKeyHash = pubKeyHash;
+            this.offerId = offerId;
+        }
+    }
+}
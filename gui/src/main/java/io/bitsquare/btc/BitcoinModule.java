@@ -49,6 +49,10 @@ public class BitcoinModule extends BitsquareModule {
         bind(File.class).annotatedWith(named(WalletService.DIR_KEY)).toInstance(walletDir);
         bindConstant().annotatedWith(named(WalletService.PREFIX_KEY)).to(
                 env.getRequiredProperty(WalletService.PREFIX_KEY));
+        bindConstant().annotatedWith(named(WalletService.RESTORE_SEED_FILE_KEY)).to(
+                env.getProperty(WalletService.RESTORE_SEED_FILE_KEY, ""));
+        bindConstant().annotatedWith(named(WalletService.RESTORE_BIRTHDAY_KEY)).to(
+                env.getProperty(WalletService.RESTORE_BIRTHDAY_KEY, ""));
         bind(WalletService.class).in(Singleton.class);
 
         bind(BlockChainService.class).in(Singleton.class);
@@ -22,22 +22,32 @@ import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.RegTestParams;
 import org.bitcoinj.params.TestNet3Params;
 
+import javax.annotation.Nullable;
+
 public enum BitcoinNetwork {
 
-    MAINNET(MainNetParams.get()),
-    TESTNET(TestNet3Params.get()),
-    REGTEST(RegTestParams.get());
+    MAINNET(MainNetParams.get(), "checkpoints"),
+    TESTNET(TestNet3Params.get(), "checkpoints.testnet"),
+    REGTEST(RegTestParams.get(), null);
 
     public static final String KEY = "bitcoin.network";
     public static final BitcoinNetwork DEFAULT = TESTNET;
 
     private final NetworkParameters parameters;
+    private final String checkpointsFileName;
 
-    BitcoinNetwork(NetworkParameters parameters) {
+    BitcoinNetwork(NetworkParameters parameters, @Nullable String checkpointsFileName) {
         this.parameters = parameters;
+        this.checkpointsFileName = checkpointsFileName;
     }
 
     public NetworkParameters getParameters() {
         return parameters;
     }
+
+    // Regtest has no checkpoints
+    @Nullable
+    public String getCheckpointsFileName() {
+        return checkpointsFileName;
+    }
 }
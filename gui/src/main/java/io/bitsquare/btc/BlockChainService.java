@@ -14,55 +14,204 @@
  * You should have received a copy of the GNU Affero General Public License
  * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package io.bitsquare.btc;
 
-import io.bitsquare.bank.BankAccount;
+import io.bitsquare.persistence.Persistence;
+
+import org.bitcoinj.core.AbstractWalletEventListener;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.core.ScriptException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Wallet;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptChunk;
+
+import java.io.Serializable;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
 
 import javax.inject.Inject;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.bitcoinj.script.ScriptOpCodes.OP_RETURN;
+
 /**
  * A service delivers blockchain functionality from the BitcoinJ library.
+ * <p>
+ * The account registration transactions the wallet sees are kept in a persisted {@link RegistrationIndex}. With a
+ * SPV wallet we only see the transactions matching our bloom filter. We don't add the registration addresses of our
+ * trading peers to it, as that would link our wallet to them, so the registration of a peer is usually not indexed.
+ * Such a registration is reported as {@link RegistrationState#UNVERIFIED} until we have a backend to look it up.
  */
 public class BlockChainService {
-    @Inject
-    public BlockChainService() {
+    private static final Logger log = LoggerFactory.getLogger(BlockChainService.class);
+
+    private static final String REGISTRATION_INDEX_KEY = "registrationIndex";
+    // The OP_RETURN data of a registration is a hash160 of the signed bank accounts
+    private static final int REGISTRATION_DATA_LENGTH = 20;
+
+    private final WalletService walletService;
+    private final Persistence persistence;
+    private RegistrationIndex registrationIndex;
+    private Wallet wallet;
 
+    @Inject
+    public BlockChainService(WalletService walletService, Persistence persistence) {
+        this.walletService = walletService;
+        this.persistence = persistence;
     }
 
-    //TODO
-    public boolean isAccountBlackListed(String accountID, BankAccount bankAccount) {
-        return false;
+    // The wallet is available only after the wallet service got initialized
+    public synchronized void onAllServicesInitialized() {
+        wallet = walletService.getWallet();
+        for (Transaction tx : wallet.getTransactions(false))
+            indexTransaction(tx);
+        // The listener runs on the wallet event thread
+        wallet.addEventListener(new RegistrationIndexListener());
     }
 
-    //TODO
-    public boolean verifyAccountRegistration() {
-        return true;
+    /**
+     * The account ID is the registration address. An invalid address and an indexed registration which got double
+     * spent or has no valid data are {@link RegistrationState#INVALID}. A registration which is not indexed is
+     * {@link RegistrationState#UNVERIFIED}, as we cannot know it.
+     */
+    public synchronized RegistrationState verifyAccountRegistration(String accountID) {
+        if (accountID == null || !isValidAddress(accountID)) {
+            log.warn("Account ID is not a valid registration address: " + accountID);
+            return RegistrationState.INVALID;
+        }
+
+        if (!findAddressInBlockChain(accountID)) {
+            log.info("Registration for address " + accountID + " is not indexed.");
+            return RegistrationState.UNVERIFIED;
+        }
+
+        byte[] data = getDataForTxWithAddress(accountID);
+        boolean valid = data != null && data.length == REGISTRATION_DATA_LENGTH && isFeePayed(accountID);
+        return valid ? RegistrationState.VERIFIED : RegistrationState.INVALID;
     }
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
     private boolean findAddressInBlockChain(String address) {
-        // TODO lookup for address in blockchain
-        return true;
+        return getRegistrationIndex().get(address) != null;
     }
 
-
+    @Nullable
     private byte[] getDataForTxWithAddress(String address) {
-        // TODO return data after OP_RETURN
-        return null;
+        RegistrationIndex.Registration registration = getRegistrationIndex().get(address);
+        return registration != null ? registration.getData() : null;
     }
 
+    // We don't take a registration fee at the moment, so the registration is paid if it did not get double spent
     private boolean isFeePayed(String address) {
-        // TODO check if fee is paid
-        return true;
+        RegistrationIndex.Registration registration = getRegistrationIndex().get(address);
+        return registration != null && !registration.isDead();
     }
 
-    private boolean isAccountIDBlacklisted(String accountID) {
-        // TODO check if accountID is on blacklist
-        return false;
+    private synchronized void indexTransaction(Transaction tx) {
+        byte[] data = getOpReturnData(tx);
+        if (data == null || data.length != REGISTRATION_DATA_LENGTH)
+            return;
+
+        String address = getFromAddress(tx);
+        if (address == null)
+            return;
+
+        // The wallet sees only our own registration, other OP_RETURN data is not of interest
+        AddressEntry ownRegistration = walletService.getRegistrationAddressEntry();
+        if (ownRegistration == null || !address.equals(ownRegistration.getAddressString()))
+            return;
+
+        boolean changed = getRegistrationIndex().put(address, tx.getHashAsString(), data);
+        if (tx.getConfidence().getConfidenceType() == TransactionConfidence.ConfidenceType.DEAD)
+            changed |= getRegistrationIndex().markDead(tx.getHashAsString());
+        if (changed)
+            writeRegistrationIndex();
+    }
+
+    @Nullable
+    private static byte[] getOpReturnData(Transaction tx) {
+        for (TransactionOutput output : tx.getOutputs()) {
+            try {
+                Script script = output.getScriptPubKey();
+                List<ScriptChunk> chunks = script.getChunks();
+                if (chunks.size() > 1 && chunks.get(0).equalsOpCode(OP_RETURN))
+                    return chunks.get(1).data;
+            } catch (ScriptException e) {
+                // Not a standard output, cannot be a registration
+            }
+        }
+        return null;
+    }
+
+    // The registration transaction spends from the registration address
+    @Nullable
+    private static String getFromAddress(Transaction tx) {
+        for (TransactionInput input : tx.getInputs()) {
+            try {
+                return input.getFromAddress().toString();
+            } catch (ScriptException e) {
+                // Not a pay to address input
+            }
+        }
+        return null;
+    }
+
+    private boolean isValidAddress(String address) {
+        if (wallet == null)
+            return true;
+
+        try {
+            new Address(wallet.getParams(), address);
+            return true;
+        } catch (AddressFormatException e) {
+            return false;
+        }
+    }
+
+    private RegistrationIndex getRegistrationIndex() {
+        if (registrationIndex == null) {
+            Serializable persisted = persistence.read(this, REGISTRATION_INDEX_KEY);
+            registrationIndex = persisted instanceof RegistrationIndex ?
+                    (RegistrationIndex) persisted : new RegistrationIndex();
+        }
+        return registrationIndex;
+    }
+
+    private void writeRegistrationIndex() {
+        persistence.write(this, REGISTRATION_INDEX_KEY, registrationIndex);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public enum RegistrationState {
+        VERIFIED,
+        // We have no data about the registration, the peer is accepted without verification
+        UNVERIFIED,
+        INVALID
     }
 
-    private boolean isBankAccountBlacklisted(BankAccount bankAccount) {
-        // TODO check if accountID is on blacklist
-        return false;
+    // We check all transactions when their confidence changes, that is also the way we get informed about a double
+    // spend of a registration.
+    private class RegistrationIndexListener extends AbstractWalletEventListener {
+        @Override
+        public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
+            indexTransaction(tx);
+        }
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.btc;
+
+import org.bitcoinj.crypto.DeterministicKey;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds keys which are derived ahead of time, so assigning a key to a new offer or trade is just a lock-free poll.
+ * The pool gets refilled on the given executor after a key was taken. Only if the pool is empty the key gets
+ * derived on the calling thread.
+ */
+class KeyPool {
+    private static final Logger log = LoggerFactory.getLogger(KeyPool.class);
+
+    private final Queue<DeterministicKey> keys = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    private final Supplier<DeterministicKey> keyDeriver;
+    private final int size;
+    private final Executor refillExecutor;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    KeyPool(Supplier<DeterministicKey> keyDeriver, int size, Executor refillExecutor) {
+        this.keyDeriver = keyDeriver;
+        this.size = size;
+        this.refillExecutor = refillExecutor;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Used for keys which got derived already but never got assigned (e.g. pool content of the last session)
+    void add(DeterministicKey key) {
+        keys.add(key);
+    }
+
+    DeterministicKey poll() {
+        DeterministicKey key = keys.poll();
+        if (key == null) {
+            log.debug("Key pool is empty. We derive the key on the calling thread.");
+            key = keyDeriver.get();
+        }
+        scheduleRefill();
+        return key;
+    }
+
+    void scheduleRefill() {
+        if (refillScheduled.compareAndSet(false, true)) {
+            refillExecutor.execute(() -> {
+                refillScheduled.set(false);
+                while (keys.size() < size)
+                    keys.add(keyDeriver.get());
+            });
+        }
+    }
+
+    int size() {
+        return keys.size();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * Hands values computed on the wallet event thread over to the user thread. As long as a value for a key is still
+ * waiting for the user thread it gets replaced by newer values, so only the latest value is delivered. During the
+ * blockchain sync we get bursts of wallet events and this keeps them from flooding the UI thread.
+ */
+class LatestValueDispatcher<K, V> {
+    private final Map<K, V> pendingValues = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final WalletSyncStats syncStats;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    LatestValueDispatcher(Executor executor, WalletSyncStats syncStats) {
+        this.executor = executor;
+        this.syncStats = syncStats;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void dispatch(K key, V value, BiConsumer<K, V> consumer) {
+        if (pendingValues.put(key, value) == null) {
+            syncStats.onUserThreadUpdatePosted();
+            executor.execute(() -> {
+                V latestValue = pendingValues.remove(key);
+                if (latestValue != null)
+                    consumer.accept(key, latestValue);
+            });
+        }
+        else {
+            syncStats.onUserThreadUpdateCoalesced();
+        }
+    }
+}
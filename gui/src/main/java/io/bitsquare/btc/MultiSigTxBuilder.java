@@ -0,0 +1,135 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.bitcoinj.script.ScriptOpCodes.OP_0;
+
+/**
+ * Builds the 2of3 multiSig deposit output and the payout tx of one trade. The deposit goes to a P2SH output, so the
+ * deposit tx stays small and standard and the keys are only revealed when the payout tx spends it.
+ * <p>
+ * The keys of the trade are parsed once and the redeem script and the P2SH output script are created once, so the
+ * trade steps don't need to rebuild them from the hex strings for each call.
+ * Immutable, so it can be shared between the trade steps.
+ */
+public class MultiSigTxBuilder {
+    private final NetworkParameters params;
+    private final String offererPubKey;
+    private final String takerPubKey;
+    private final String arbitratorPubKey;
+    private final Script redeemScript;
+    private final Script outputScript;
+
+    public MultiSigTxBuilder(NetworkParameters params, String offererPubKey, String takerPubKey,
+                             String arbitratorPubKey) {
+        this.params = params;
+        this.offererPubKey = offererPubKey;
+        this.takerPubKey = takerPubKey;
+        this.arbitratorPubKey = arbitratorPubKey;
+
+        // The order of the keys defines the order of the signatures in the input script of the payout tx
+        ImmutableList<ECKey> keys = ImmutableList.of(ECKey.fromPublicOnly(Utils.parseAsHexOrBase58(offererPubKey)),
+                ECKey.fromPublicOnly(Utils.parseAsHexOrBase58(takerPubKey)),
+                ECKey.fromPublicOnly(Utils.parseAsHexOrBase58(arbitratorPubKey)));
+        redeemScript = ScriptBuilder.createMultiSigOutputScript(2, keys);
+        outputScript = ScriptBuilder.createP2SHOutputScript(redeemScript);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean hasKeys(String offererPubKey, String takerPubKey, String arbitratorPubKey) {
+        return this.offererPubKey.equals(offererPubKey) && this.takerPubKey.equals(takerPubKey) &&
+                this.arbitratorPubKey.equals(arbitratorPubKey);
+    }
+
+    // The multiSig output is always the first output of the deposit tx
+    public TransactionOutput getMultiSigOutput(Transaction depositTx) {
+        TransactionOutput multiSigOutput = depositTx.getOutput(0);
+        checkArgument(Arrays.equals(multiSigOutput.getScriptBytes(), outputScript.getProgram()),
+                "The deposit tx does not pay to the multiSig address of the trade");
+        return multiSigOutput;
+    }
+
+    /**
+     * Creates the unsigned payout tx. Both traders create it from the deposit tx they already have, so only the
+     * signature needs to be exchanged.
+     */
+    public Transaction createPayoutTx(Transaction depositTx, Coin offererPaybackAmount, Coin takerPaybackAmount,
+                                      Address offererAddress, Address takerAddress) {
+        Transaction tx = new Transaction(params);
+        tx.addInput(getMultiSigOutput(depositTx));
+        tx.addOutput(offererPaybackAmount, offererAddress);
+        tx.addOutput(takerPaybackAmount, takerAddress);
+        return tx;
+    }
+
+    public TransactionSignature signPayoutTx(Transaction payoutTx, ECKey key) {
+        Sha256Hash sigHash = payoutTx.hashForSignature(0, redeemScript, Transaction.SigHash.ALL, false);
+        return new TransactionSignature(key.sign(sigHash), Transaction.SigHash.ALL, false);
+    }
+
+    /**
+     * Applies the signatures of offerer and taker to the payout tx and checks that it spends the multiSig output.
+     */
+    public void applyPayoutSignatures(Transaction payoutTx, TransactionSignature offererSignature,
+                                      TransactionSignature takerSignature) {
+        // OP_0 is needed because of the off-by-one bug in OP_CHECKMULTISIG
+        Script inputScript = new ScriptBuilder()
+                .op(OP_0)
+                .data(offererSignature.encodeToBitcoin())
+                .data(takerSignature.encodeToBitcoin())
+                .data(redeemScript.getProgram())
+                .build();
+        payoutTx.getInput(0).setScriptSig(inputScript);
+        inputScript.correctlySpends(payoutTx, 0, outputScript);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Getters
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Script getRedeemScript() {
+        return redeemScript;
+    }
+
+    public Script getOutputScript() {
+        return outputScript;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import java.io.Serializable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Local index of the account registration transactions, keyed by the registration address. It gets filled while
+ * the wallet syncs, so verifying the registration of a peer is a map lookup instead of a blockchain scan.
+ * <p>
+ * Not thread safe, access is synchronized by the {@link BlockChainService}.
+ */
+public class RegistrationIndex implements Serializable {
+    private static final long serialVersionUID = -8279467356238590813L;
+
+    private final Map<String, Registration> registrationsByAddress = new HashMap<>();
+    private final Map<String, String> addressesByTxId = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The first registration of an address is kept, a later one only replaces it if the first got double spent.
+     *
+     * @return true if the index has changed
+     */
+    public boolean put(String address, String txId, byte[] data) {
+        Registration registration = registrationsByAddress.get(address);
+        if (registration != null && !registration.isDead())
+            return false;
+
+        if (registration != null)
+            addressesByTxId.remove(registration.getTxId());
+        registrationsByAddress.put(address, new Registration(txId, data));
+        addressesByTxId.put(txId, address);
+        return true;
+    }
+
+    /**
+     * Marks the registration as invalid if the given transaction was a registration which got double spent.
+     *
+     * @return true if the index has changed
+     */
+    public boolean markDead(String txId) {
+        String address = addressesByTxId.get(txId);
+        if (address == null)
+            return false;
+
+        Registration registration = registrationsByAddress.get(address);
+        if (registration.isDead())
+            return false;
+
+        registration.dead = true;
+        return true;
+    }
+
+    @Nullable
+    public Registration get(String address) {
+        return registrationsByAddress.get(address);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static class Registration implements Serializable {
+        private static final long serialVersionUID = 4622098617346437541L;
+
+        private final String txId;
+        // The data after OP_RETURN
+        private final byte[] data;
+        private boolean dead;
+
+        private Registration(String txId, byte[] data) {
+            this.txId = txId;
+            this.data = data.clone();
+        }
+
+        public String getTxId() {
+            return txId;
+        }
+
+        public byte[] getData() {
+            return data.clone();
+        }
+
+        public boolean isDead() {
+            return dead;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.AbstractPeerEventListener;
+import org.bitcoinj.core.InventoryItem;
+import org.bitcoinj.core.InventoryMessage;
+import org.bitcoinj.core.Message;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.utils.Threading;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records which peers have announced a transaction and when we have seen it first. The peer group reports the
+ * inventory announcements once to the tracker, so the protocol tasks don't need to poll the confidence of a
+ * transaction. Only the latest transactions are kept, older ones get dropped from the map.
+ * <p>
+ * With a bloom filter the peers announce only the transactions matching our filter, so for other transactions, like
+ * the fee payment of our trading peer, we ask the connected peers for it with {@link #requestFromPeers(Sha256Hash)}
+ * or repeatedly with {@link #requestUntilSeenByPeers}.
+ */
+public class TxPropagationTracker {
+    private static final Logger log = LoggerFactory.getLogger(TxPropagationTracker.class);
+
+    private final Map<Sha256Hash, Propagation> propagations;
+    private final Map<Sha256Hash, List<Waiter>> waiters = new HashMap<>();
+    private final ScheduledExecutorService timeoutExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("TxPropagationTracker").setDaemon(true).build());
+    private PeerGroup peerGroup;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public TxPropagationTracker(int maxTrackedTxs) {
+        propagations = new LinkedHashMap<Sha256Hash, Propagation>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Sha256Hash, Propagation> eldest) {
+                return size() > maxTrackedTxs;
+            }
+        };
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void start(PeerGroup peerGroup) {
+        this.peerGroup = peerGroup;
+        // onPreMessageReceived is only called with the same thread executor
+        peerGroup.addEventListener(new InventoryListener(), Threading.SAME_THREAD);
+    }
+
+    public void shutDown() {
+        timeoutExecutor.shutdownNow();
+    }
+
+    // Asks all connected peers whether the transaction is in their memory pool, the answers get recorded as seen
+    public void requestFromPeers(Sha256Hash txHash) {
+        if (peerGroup == null)
+            return;
+
+        for (Peer peer : peerGroup.getConnectedPeers()) {
+            Futures.addCallback(peer.getPeerMempoolTransaction(txHash), new FutureCallback<Transaction>() {
+                @Override
+                public void onSuccess(@Nullable Transaction tx) {
+                    // We get null if the peer does not know the transaction
+                    if (tx != null && tx.getHash().equals(txHash))
+                        onTxReceived(tx, peer.getAddress().toString());
+                }
+
+                @Override
+                public void onFailure(@NotNull Throwable t) {
+                    log.debug("Request of tx " + txHash + " from peer " + peer + " failed: " + t.getMessage());
+                }
+            });
+        }
+    }
+
+    public synchronized int getNumPeersSeen(Sha256Hash txHash) {
+        Propagation propagation = propagations.get(txHash);
+        return propagation != null ? propagation.peers.size() : 0;
+    }
+
+    // The transaction as a peer has sent it to us, null if we only got announcements of it
+    @Nullable
+    public synchronized Transaction getTransaction(Sha256Hash txHash) {
+        Propagation propagation = propagations.get(txHash);
+        return propagation != null ? propagation.tx : null;
+    }
+
+    // Milliseconds since epoch or null if not seen yet
+    @Nullable
+    public synchronized Long getFirstSeenTime(Sha256Hash txHash) {
+        Propagation propagation = propagations.get(txHash);
+        return propagation != null ? propagation.firstSeenTime : null;
+    }
+
+    /**
+     * @return A future which completes with the number of peers as soon as the transaction has been seen by the
+     * given number of peers, or fails with a {@link TimeoutException} if that did not happen in time.
+     */
+    public ListenableFuture<Integer> whenSeenByPeers(Sha256Hash txHash, int numPeers, long timeout, TimeUnit unit) {
+        SettableFuture<Integer> future = SettableFuture.create();
+        Waiter waiter = new Waiter(numPeers, future);
+        synchronized (this) {
+            int numPeersSeen = getNumPeersSeen(txHash);
+            if (numPeersSeen >= numPeers) {
+                future.set(numPeersSeen);
+                return future;
+            }
+            waiters.computeIfAbsent(txHash, k -> new ArrayList<>()).add(waiter);
+        }
+
+        timeoutExecutor.schedule(() -> {
+            synchronized (this) {
+                List<Waiter> txWaiters = waiters.get(txHash);
+                if (txWaiters != null && txWaiters.remove(waiter) && txWaiters.isEmpty())
+                    waiters.remove(txHash);
+            }
+            future.setException(new TimeoutException("Transaction " + txHash + " was seen by " +
+                    getNumPeersSeen(txHash) + " peers, but we need " + numPeers + " peers."));
+        }, timeout, unit);
+        return future;
+    }
+
+    /**
+     * Like {@link #whenSeenByPeers} but asks the connected peers for the transaction at once and then again at every
+     * request interval until it completes. Peers which did not have the transaction in their memory pool yet or which
+     * connected in the meantime get asked again.
+     */
+    public ListenableFuture<Integer> requestUntilSeenByPeers(Sha256Hash txHash, int numPeers, long timeout,
+                                                             long requestInterval, TimeUnit unit) {
+        ListenableFuture<Integer> future = whenSeenByPeers(txHash, numPeers, timeout, unit);
+        if (!future.isDone()) {
+            // A failed request must not cancel the following ones
+            ScheduledFuture<?> requests = timeoutExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    requestFromPeers(txHash);
+                } catch (Throwable t) {
+                    log.warn("Request of tx " + txHash + " failed: " + t.getMessage());
+                }
+            }, 0, requestInterval, unit);
+            future.addListener(() -> requests.cancel(false), MoreExecutors.sameThreadExecutor());
+        }
+        return future;
+    }
+
+    @VisibleForTesting
+    void onTxReceived(Transaction tx, String peer) {
+        onTxSeen(tx.getHash(), tx, peer);
+    }
+
+    @VisibleForTesting
+    void onTxSeen(Sha256Hash txHash, String peer) {
+        onTxSeen(txHash, null, peer);
+    }
+
+    private void onTxSeen(Sha256Hash txHash, @Nullable Transaction tx, String peer) {
+        List<SettableFuture<Integer>> completed = new ArrayList<>();
+        int numPeersSeen;
+        synchronized (this) {
+            Propagation propagation = propagations.get(txHash);
+            if (propagation == null) {
+                propagation = new Propagation(System.currentTimeMillis());
+                propagations.put(txHash, propagation);
+            }
+            if (tx != null && propagation.tx == null)
+                propagation.tx = tx;
+            if (!propagation.peers.add(peer))
+                return;
+
+            numPeersSeen = propagation.peers.size();
+            List<Waiter> txWaiters = waiters.get(txHash);
+            if (txWaiters != null) {
+                for (Iterator<Waiter> iterator = txWaiters.iterator(); iterator.hasNext(); ) {
+                    Waiter waiter = iterator.next();
+                    if (numPeersSeen >= waiter.numPeers) {
+                        completed.add(waiter.future);
+                        iterator.remove();
+                    }
+                }
+                if (txWaiters.isEmpty())
+                    waiters.remove(txHash);
+            }
+        }
+
+        // We complete the futures outside of the lock as the listeners run on the calling thread
+        for (SettableFuture<Integer> future : completed)
+            future.set(numPeersSeen);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Propagation {
+        private final long firstSeenTime;
+        private final Set<String> peers = new HashSet<>();
+        @Nullable
+        private Transaction tx;
+
+        private Propagation(long firstSeenTime) {
+            this.firstSeenTime = firstSeenTime;
+        }
+    }
+
+    private static class Waiter {
+        private final int numPeers;
+        private final SettableFuture<Integer> future;
+
+        private Waiter(int numPeers, SettableFuture<Integer> future) {
+            this.numPeers = numPeers;
+            this.future = future;
+        }
+    }
+
+    private class InventoryListener extends AbstractPeerEventListener {
+        @Override
+        public Message onPreMessageReceived(Peer peer, Message m) {
+            if (m instanceof InventoryMessage) {
+                for (InventoryItem item : ((InventoryMessage) m).getItems()) {
+                    if (item.type == InventoryItem.Type.Transaction)
+                        onTxSeen(item.hash, peer.getAddress().toString());
+                }
+            }
+            return m;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.btc;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the data of a wallet to restore. The seed words are read from a file which only the owner may access, so
+ * they don't show up in the process list, the shell history or the environment like an option value would.
+ */
+public class WalletRestore {
+    private static final Logger log = LoggerFactory.getLogger(WalletRestore.class);
+
+    private static final Set<PosixFilePermission> NOT_OWNER_PERMISSIONS = EnumSet.of(
+            PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_EXECUTE);
+
+    private WalletRestore() {
+    }
+
+    public static List<String> readSeedWords(Path seedFile) throws IOException {
+        // File systems without POSIX permissions (Windows) protect the user directory by default
+        if (Files.getFileAttributeView(seedFile, PosixFileAttributeView.class) != null) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(seedFile);
+            permissions.retainAll(NOT_OWNER_PERMISSIONS);
+            if (!permissions.isEmpty())
+                throw new IOException("The seed file " + seedFile + " must only be accessible by its owner " +
+                        "(chmod 600), but it has the permissions " + permissions);
+        }
+
+        String seed = new String(Files.readAllBytes(seedFile), StandardCharsets.UTF_8).trim();
+        if (seed.isEmpty())
+            throw new IOException("The seed file " + seedFile + " is empty");
+        return Arrays.asList(seed.split("\\s+"));
+    }
+
+    /**
+     * @return the creation time in seconds, 0 if the birthday is unknown so the whole chain has to be scanned
+     * @throws ParseException if the birthday is not in the format yyyy-MM-dd
+     */
+    public static long parseBirthday(String birthday) throws ParseException {
+        if (birthday.isEmpty()) {
+            log.warn("No wallet creation date given for the restore. The whole blockchain needs to be scanned.");
+            return 0;
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        dateFormat.setLenient(false);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        // One day earlier to be on the safe side with time zones
+        return dateFormat.parse(birthday).getTime() / 1000 - TimeUnit.DAYS.toSeconds(1);
+    }
+}
@@ -17,6 +17,7 @@
 
 package io.bitsquare.btc;
 
+import io.bitsquare.BitsquareException;
 import io.bitsquare.btc.listeners.AddressConfidenceListener;
 import io.bitsquare.btc.listeners.BalanceListener;
 import io.bitsquare.btc.listeners.TxConfidenceListener;
@@ -26,11 +27,13 @@ import io.bitsquare.persistence.Persistence;
 import org.bitcoinj.core.AbstractWalletEventListener;
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.core.Block;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.DownloadListener;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.InsufficientMoneyException;
 import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Peer;
 import org.bitcoinj.core.ScriptException;
 import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.Transaction;
@@ -44,43 +47,53 @@ import org.bitcoinj.core.WalletEventListener;
 import org.bitcoinj.crypto.DeterministicKey;
 import org.bitcoinj.crypto.TransactionSignature;
 import org.bitcoinj.kits.WalletAppKit;
-import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.RegTestParams;
-import org.bitcoinj.params.TestNet3Params;
 import org.bitcoinj.script.Script;
 import org.bitcoinj.script.ScriptBuilder;
 import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.DeterministicSeed;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 
-import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import java.text.ParseException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
-import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.Nullable;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import javafx.util.Pair;
-
 import org.jetbrains.annotations.NotNull;
 
 import org.slf4j.Logger;
@@ -90,6 +103,7 @@ import rx.Observable;
 import rx.subjects.BehaviorSubject;
 import rx.subjects.Subject;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.bitcoinj.script.ScriptOpCodes.OP_RETURN;
 
 /**
@@ -98,20 +112,33 @@ import static org.bitcoinj.script.ScriptOpCodes.OP_RETURN;
  */
 public class WalletService {
     private static final Logger log = LoggerFactory.getLogger(WalletService.class);
-    private static final String LOCK_NAME = "lock";
 
     public static final String DIR_KEY = "wallet.dir";
     public static final String PREFIX_KEY = "wallet.prefix";
+    public static final String RESTORE_SEED_FILE_KEY = "wallet.restore.seedFile";
+    public static final String RESTORE_BIRTHDAY_KEY = "wallet.restore.birthday";
+    private static final String CHECKPOINTS_RESOURCE_DIR = "/wallet/";
+    private static final int KEY_POOL_SIZE = 10;
+    // We track the propagation of the latest transactions only, a fee payment gets verified shortly after it was sent
+    private static final int MAX_TRACKED_TXS = 10000;
+    private static final long TX_PROPAGATION_TIMEOUT_SEC = 30;
+    private static final long TX_REQUEST_INTERVAL_SEC = 5;
 
     private final List<AddressConfidenceListener> addressConfidenceListeners = new CopyOnWriteArrayList<>();
     private final List<TxConfidenceListener> txConfidenceListeners = new CopyOnWriteArrayList<>();
     private final List<BalanceListener> balanceListeners = new CopyOnWriteArrayList<>();
-    private final ReentrantLock lock = Threading.lock(LOCK_NAME);
+    private final List<AddressEntry> addressEntryList = new CopyOnWriteArrayList<>();
+    private final Map<String, MultiSigTxBuilder> multiSigTxBuilders = new ConcurrentHashMap<>();
 
-    private final ObservableDownloadListener downloadListener = new ObservableDownloadListener();
+    private final WalletSyncStats syncStats = new WalletSyncStats();
+    private final ObservableDownloadListener downloadListener = new ObservableDownloadListener(syncStats);
     private final Observable<Double> downloadProgress = downloadListener.getObservable();
     private final WalletEventListener walletEventListener = new BitsquareWalletEventListener();
+    private final TxPropagationTracker txPropagationTracker = new TxPropagationTracker(MAX_TRACKED_TXS);
+    private final ExecutorService walletEventExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("WalletEventThread").setDaemon(true).build());
 
+    private final BitcoinNetwork bitcoinNetwork;
     private final NetworkParameters params;
     private final FeePolicy feePolicy;
     private final SignatureService signatureService;
@@ -119,12 +146,20 @@ public class WalletService {
     private final File walletDir;
     private final String walletPrefix;
     private final UserAgent userAgent;
-
+    private final AddressEntryJournal addressEntryJournal;
+    private final String restoreSeedFile;
+    private final String restoreBirthday;
+
+    private DeterministicSeed seedToRestore;
+    private Executor userExecutor;
+    private LatestValueDispatcher<BalanceListener, Coin> balanceDispatcher;
+    private LatestValueDispatcher<AddressConfidenceListener, TransactionConfidence> addressConfidenceDispatcher;
+    private LatestValueDispatcher<TxConfidenceListener, TransactionConfidence> txConfidenceDispatcher;
     private WalletAppKit walletAppKit;
     private Wallet wallet;
     private AddressEntry registrationAddressEntry;
     private AddressEntry arbitratorDepositAddressEntry;
-    private @GuardedBy(LOCK_NAME) List<AddressEntry> addressEntryList = new ArrayList<>();
+    private KeyPool keyPool;
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -133,7 +168,10 @@ public class WalletService {
     @Inject
     public WalletService(BitcoinNetwork bitcoinNetwork, FeePolicy feePolicy, SignatureService signatureService,
                          Persistence persistence, UserAgent userAgent,
-                         @Named(DIR_KEY) File walletDir, @Named(PREFIX_KEY) String walletPrefix) {
+                         @Named(DIR_KEY) File walletDir, @Named(PREFIX_KEY) String walletPrefix,
+                         @Named(RESTORE_SEED_FILE_KEY) String restoreSeedFile,
+                         @Named(RESTORE_BIRTHDAY_KEY) String restoreBirthday) {
+        this.bitcoinNetwork = bitcoinNetwork;
         this.params = bitcoinNetwork.getParameters();
         this.feePolicy = feePolicy;
         this.signatureService = signatureService;
@@ -141,6 +179,9 @@ public class WalletService {
         this.walletDir = walletDir;
         this.walletPrefix = walletPrefix;
         this.userAgent = userAgent;
+        this.addressEntryJournal = new AddressEntryJournal(new File(walletDir, walletPrefix + ".addresses"));
+        this.restoreSeedFile = restoreSeedFile;
+        this.restoreBirthday = restoreBirthday;
     }
 
 
@@ -148,16 +189,44 @@ public class WalletService {
     // Public Methods
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Restores the wallet from the given seed words at the next {@link #initialize(Executor)} call. The creation time
+     * is the birthday of the wallet, blocks before it are skipped with the help of the checkpoints, so it should not
+     * be later than the first transaction of the wallet.
+     */
+    public void restoreWalletFromSeed(List<String> mnemonicCode, long creationTimeSeconds) {
+        checkArgument(walletAppKit == null, "The wallet must be restored before it gets initialized.");
+        seedToRestore = new DeterministicSeed(mnemonicCode, null, "", creationTimeSeconds);
+    }
+
     public Observable<Object> initialize(Executor executor) {
         Subject<Object, Object> status = BehaviorSubject.create();
+        if (!restoreSeedFile.isEmpty() && seedToRestore == null) {
+            try {
+                restoreWalletFromSeed(WalletRestore.readSeedWords(Paths.get(restoreSeedFile)),
+                        WalletRestore.parseBirthday(restoreBirthday));
+            } catch (IOException | ParseException e) {
+                status.onError(new BitsquareException(e, "Cannot restore the wallet from the seed file %s",
+                        restoreSeedFile));
+                return status;
+            }
+        }
 
-        // Tell bitcoinj to execute event handlers on the JavaFX UI thread. This keeps things simple and means
-        // we cannot forget to switch threads when adding event handlers. Unfortunately, the DownloadListener
-        // we give to the app kit is currently an exception and runs on a library thread. It'll get fixed in
-        // a future version.
-        Threading.USER_THREAD = executor;
+        syncStats.start();
+        syncStats.registerMBean();
+
+        // bitcoinj executes the wallet event handlers on a dedicated wallet event thread, so the balance and
+        // confidence computations don't block the JavaFX UI thread during the blockchain sync. Our listeners get
+        // only the resulting values on the given executor (the UI thread). Event handlers added directly to the
+        // wallet or to a confidence object have to pass the executor themselves if they touch the UI.
+        // Unfortunately, the DownloadListener we give to the app kit is currently an exception and runs on a
+        // library thread. It'll get fixed in a future version.
+        userExecutor = executor;
+        balanceDispatcher = new LatestValueDispatcher<>(executor, syncStats);
+        addressConfidenceDispatcher = new LatestValueDispatcher<>(executor, syncStats);
+        txConfidenceDispatcher = new LatestValueDispatcher<>(executor, syncStats);
+        Threading.USER_THREAD = walletEventExecutor;
 
-        // If seed is non-null it means we are restoring from backup.
         walletAppKit = new WalletAppKit(params, walletDir, walletPrefix) {
             @Override
             protected void onSetupCompleted() {
@@ -167,6 +236,11 @@ public class WalletService {
                 if (params != RegTestParams.get())
                     walletAppKit.peerGroup().setMaxConnections(11);
                 walletAppKit.peerGroup().setBloomFilterFalsePositiveRate(0.00001);
+                // Blocks before the wallet creation time (or the birthday of a restored seed) cannot contain any of
+                // our transactions, so we only download their headers. The peer group has set the fast catchup time
+                // already when the wallet got added, one week before the key creation time to allow for clock skew.
+                log.info("Fast catchup time: " + new Date(walletAppKit.peerGroup().getFastCatchupTimeSecs() * 1000));
+                txPropagationTracker.start(walletAppKit.peerGroup());
                 initWallet();
                 status.onCompleted();
             }
@@ -176,34 +250,34 @@ public class WalletService {
         if (params == RegTestParams.get()) {
             walletAppKit.connectToLocalHost();   // You should run a regtest mode bitcoind locally.
         }
-        else if (params == MainNetParams.get()) {
+        else {
             // Checkpoints are block headers that ship inside our app: for a new user, we pick the last header
             // in the checkpoints file and then download the rest from the network. It makes things much faster.
             // Checkpoint files are made using the BuildCheckpoints tool and usually we have to download the
             // last months worth or more (takes a few seconds).
-            try {
-                walletAppKit.setCheckpoints(getClass().getResourceAsStream("/wallet/checkpoints"));
-            } catch (Exception e) {
-                e.printStackTrace();
-                log.error(e.toString());
-            }
+            InputStream checkpoints = getCheckpoints();
+            if (checkpoints != null)
+                walletAppKit.setCheckpoints(checkpoints);
             // As an example!
             // walletAppKit.useTor();
         }
-        else if (params == TestNet3Params.get()) {
-            walletAppKit.setCheckpoints(getClass().getResourceAsStream("/wallet/checkpoints.testnet"));
-            //walletAppKit.useTor();
-        }
 
         walletAppKit.setDownloadListener(downloadListener)
                 .setBlockingStartup(false)
                 .setUserAgent(userAgent.getName(), userAgent.getVersion());
 
-        /*
-        // TODO restore from DeterministicSeed
-        if (seed != null)
-            walletAppKit.restoreWalletFromSeed(seed);
-            */
+        // If seed is non-null it means we are restoring from backup.
+        if (seedToRestore != null) {
+            if (new File(walletDir, walletPrefix + ".wallet").exists()) {
+                log.warn("Wallet file exists already. We don't restore from seed as that would overwrite it.");
+            }
+            else {
+                log.info("Restore wallet from seed with creation time " +
+                        new Date(seedToRestore.getCreationTimeSeconds() * 1000));
+                walletAppKit.restoreWalletFromSeed(seedToRestore);
+            }
+            seedToRestore = null;
+        }
 
         walletAppKit.addListener(new Service.Listener() {
             @Override
@@ -211,7 +285,7 @@ public class WalletService {
                 walletAppKit = null;
                 status.onError(failure);
             }
-        }, Threading.USER_THREAD);
+        }, userExecutor);
         walletAppKit.startAsync();
 
         return status.mergeWith(downloadProgress).timeout(30, TimeUnit.SECONDS);
@@ -228,19 +302,49 @@ public class WalletService {
                 persistedAddressEntry.setDeterministicKey(
                         (DeterministicKey) wallet.findKeyFromPubHash(persistedAddressEntry.getPubKeyHash()));
             }
-            addressEntryList = persistedAddressEntryList;
-            registrationAddressEntry = addressEntryList.get(0);
+            addressEntryList.addAll(persistedAddressEntryList);
         }
-        else {
+        boolean journalMerged = mergeAddressEntryJournal();
+
+        if (addressEntryList.isEmpty()) {
             // First time
-            lock.lock();
             DeterministicKey registrationKey = wallet.currentReceiveKey();
-            registrationAddressEntry = new AddressEntry(registrationKey, params,
-                    AddressEntry.AddressContext.REGISTRATION_FEE);
-            addressEntryList.add(registrationAddressEntry);
-            lock.unlock();
+            addressEntryList.add(new AddressEntry(registrationKey, params,
+                    AddressEntry.AddressContext.REGISTRATION_FEE));
             saveAddressInfoList();
         }
+        else if (journalMerged) {
+            saveAddressInfoList();
+        }
+        addressEntryJournal.clear();
+        registrationAddressEntry = addressEntryList.get(0);
+
+        // Keys which got derived for the pool in the last session but were never assigned are used first, so we
+        // don't leave gaps in the key chain with each restart.
+        keyPool = new KeyPool(wallet::freshReceiveKey, KEY_POOL_SIZE, walletEventExecutor);
+        wallet.getActiveKeychain().getIssuedReceiveKeys().stream()
+                .filter(key -> !getAddressEntryByPubKeyHash(key.getPubKeyHash()).isPresent())
+                .forEach(keyPool::add);
+        keyPool.scheduleRefill();
+    }
+
+    // Entries which got added in the last session are only in the journal
+    private boolean mergeAddressEntryJournal() {
+        boolean merged = false;
+        for (AddressEntryJournal.Record record : addressEntryJournal.read()) {
+            if (getAddressEntryByPubKeyHash(record.pubKeyHash).isPresent())
+                continue;
+
+            DeterministicKey key = (DeterministicKey) wallet.findKeyFromPubHash(record.pubKeyHash);
+            if (key != null) {
+                addressEntryList.add(new AddressEntry(key, params, record.addressContext, record.offerId));
+                merged = true;
+            }
+            else {
+                log.error("Key of address journal entry not found in wallet. offerId=" + record.offerId);
+            }
+        }
+        return merged;
     }
 
     public void shutDown() {
@@ -248,12 +352,24 @@ public class WalletService {
             wallet.removeEventListener(walletEventListener);
         if (walletAppKit != null)
             walletAppKit.stopAsync();
+        walletEventExecutor.shutdown();
+        txPropagationTracker.shutDown();
+        syncStats.unregisterMBean();
     }
 
     public Observable<Double> getDownloadProgress() {
         return downloadProgress;
     }
 
+    // The executor on which our listeners get called, usually the UI thread
+    public Executor getUserExecutor() {
+        return userExecutor;
+    }
+
+    public WalletSyncStats getSyncStats() {
+        return syncStats;
+    }
+
     public Wallet getWallet() {
         return wallet;
     }
@@ -296,7 +412,7 @@ public class WalletService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public List<AddressEntry> getAddressEntryList() {
-        return ImmutableList.copyOf(addressEntryList);
+        return Collections.unmodifiableList(addressEntryList);
     }
 
     public AddressEntry getRegistrationAddressEntry() {
@@ -325,13 +441,12 @@ public class WalletService {
     // Create new AddressInfo objects
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // The key comes from the pre-derived key pool and the entry gets appended to the journal, so we neither derive
+    // a key nor write the whole persistence file here.
     private AddressEntry getNewAddressEntry(AddressEntry.AddressContext addressContext, String offerId) {
-        lock.lock();
-        DeterministicKey key = wallet.freshReceiveKey();
-        AddressEntry addressEntry = new AddressEntry(key, params, addressContext, offerId);
+        AddressEntry addressEntry = new AddressEntry(keyPool.poll(), params, addressContext, offerId);
+        addressEntryJournal.append(addressEntry);
         addressEntryList.add(addressEntry);
-        saveAddressInfoList();
-        lock.unlock();
         return addressEntry;
     }
 
@@ -339,6 +454,10 @@ public class WalletService {
         return getAddressEntryList().stream().filter(e -> address.equals(e.getAddressString())).findFirst();
     }
 
+    private Optional<AddressEntry> getAddressEntryByPubKeyHash(byte[] pubKeyHash) {
+        return addressEntryList.stream().filter(e -> Arrays.equals(pubKeyHash, e.getPubKeyHash())).findFirst();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // TransactionConfidence
@@ -476,11 +595,29 @@ public class WalletService {
         return getRegistrationBalance().compareTo(FeePolicy.REGISTRATION_FEE) >= 0;
     }
 
-    //TODO
     public int getNumOfPeersSeenTx(String txID) {
-        // TODO check from blockchain
-        // will be async
-        return 3;
+        return txPropagationTracker.getNumPeersSeen(new Sha256Hash(txID));
+    }
+
+    // The transaction of a trading peer as we got it with whenTxSeenByPeers, null if no peer has sent it to us
+    @Nullable
+    public Transaction getTxFromPeers(String txID) {
+        return txPropagationTracker.getTransaction(new Sha256Hash(txID));
+    }
+
+    /**
+     * The transaction of a trading peer does not match our bloom filter, so we ask the connected peers for it until
+     * enough of them have seen it. In regtest mode there are usually less peers than requested, so there we wait
+     * until all connected peers have seen it.
+     *
+     * @return A future which completes with the number of peers which have seen the transaction or fails with a
+     * TimeoutException
+     */
+    public ListenableFuture<Integer> whenTxSeenByPeers(String txID, int numPeers) {
+        if (bitcoinNetwork == BitcoinNetwork.REGTEST && walletAppKit != null)
+            numPeers = Math.max(1, Math.min(numPeers, walletAppKit.peerGroup().numConnectedPeers()));
+        return txPropagationTracker.requestUntilSeenByPeers(new Sha256Hash(txID), numPeers,
+                TX_PROPAGATION_TIMEOUT_SEC, TX_REQUEST_INTERVAL_SEC, TimeUnit.SECONDS);
     }
 
 
@@ -541,6 +678,61 @@ public class WalletService {
         return tx;
     }
 
+    // One fee transaction for several offers, so we pay the miner fee only once. Each offer pays its fee from its own
+    // address and gets the change back to that address, as the remaining funds are needed for the trade. The miner
+    // fee is paid by the first offer.
+    public Transaction createOfferFeeTx(List<String> offerIds) throws InsufficientMoneyException {
+        checkArgument(!offerIds.isEmpty(), "At least one offer is required.");
+        if (offerIds.size() == 1)
+            return createOfferFeeTx(offerIds.get(0));
+
+        log.trace("createOfferFeeTx for " + offerIds.size() + " offers");
+        List<Address> offerAddresses = offerIds.stream()
+                .map(offerId -> getAddressInfoByTradeID(offerId).getAddress())
+                .collect(Collectors.toList());
+        Transaction tx = createOfferFeeTx(params, feePolicy.getAddressForCreateOfferFee(), offerAddresses,
+                wallet.calculateAllSpendCandidates(true));
+
+        // completeTx takes the value of the inputs we have added into account and adds the inputs for the first offer
+        Wallet.SendRequest sendRequest = Wallet.SendRequest.forTx(tx);
+        sendRequest.shuffleOutputs = false;
+        AddressEntry addressEntry = getAddressInfoByTradeID(offerIds.get(0));
+        sendRequest.coinSelector = new AddressBasedCoinSelector(params, addressEntry, true);
+        sendRequest.changeAddress = addressEntry.getAddress();
+        wallet.completeTx(sendRequest);
+        printInputs("payCreateOfferFee", tx);
+        return tx;
+    }
+
+    // Adds the fee output for all offers and the inputs and change outputs of all but the first offer, whose inputs are
+    // added by completeTx
+    static Transaction createOfferFeeTx(NetworkParameters params, Address feeAddress, List<Address> offerAddresses,
+                                        List<TransactionOutput> spendCandidates) throws InsufficientMoneyException {
+        Transaction tx = new Transaction(params);
+        Coin fee = FeePolicy.CREATE_OFFER_FEE.subtract(FeePolicy.TX_FEE);
+        tx.addOutput(fee.multiply(offerAddresses.size()), feeAddress);
+
+        for (Address address : offerAddresses.subList(1, offerAddresses.size())) {
+            Coin value = Coin.ZERO;
+            for (TransactionOutput output : spendCandidates) {
+                if (output.getScriptPubKey().isSentToAddress()
+                        && address.equals(output.getScriptPubKey().getToAddress(params))) {
+                    tx.addInput(output);
+                    value = value.add(output.getValue());
+                }
+            }
+            if (value.compareTo(fee) < 0)
+                throw new InsufficientMoneyException(fee.subtract(value),
+                        "Insufficient money at the offer address " + address);
+
+            // Dust would make the transaction non-standard, so it goes to the miners
+            Coin change = value.subtract(fee);
+            if (change.compareTo(Transaction.MIN_NONDUST_OUTPUT) >= 0)
+                tx.addOutput(change, address);
+        }
+        return tx;
+    }
+
     public void broadcastCreateOfferFeeTx(Transaction tx, FutureCallback<Transaction> callback) {
         log.trace("broadcast tx");
         ListenableFuture<Transaction> future = walletAppKit.peerGroup().broadcastTransaction(tx);
@@ -569,6 +761,26 @@ public class WalletService {
         return tx.getHashAsString();
     }
 
+    // The miner fee is paid out of the take offer fee, so the fee address gets the rest of it
+    public boolean isTakeOfferFeePayment(Transaction tx) {
+        return isFeePayment(params, tx, feePolicy.getAddressForTakeOfferFee(),
+                FeePolicy.TAKE_OFFER_FEE.subtract(FeePolicy.TX_FEE));
+    }
+
+    static boolean isFeePayment(NetworkParameters params, Transaction tx, Address feeAddress, Coin minFee) {
+        for (TransactionOutput output : tx.getOutputs()) {
+            try {
+                Script script = output.getScriptPubKey();
+                if (script.isSentToAddress() && feeAddress.equals(script.getToAddress(params)) &&
+                        output.getValue().compareTo(minFee) >= 0)
+                    return true;
+            } catch (ScriptException e) {
+                // Not a standard output, cannot be the fee payment
+            }
+        }
+        return false;
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Withdrawal
@@ -602,8 +814,71 @@ public class WalletService {
         return tx.getHashAsString();
     }
 
+    // Sweeps funds from several of our addresses to one or more receivers with a single transaction.
+    // The receivers get the exact amounts, the btc tx fee is taken from the inputs and the change goes back to the
+    // first withdrawFromAddress.
+    public String sendFunds(List<String> withdrawFromAddresses,
+                            Map<String, Coin> receivers,
+                            FutureCallback<Transaction> callback) throws AddressFormatException,
+            InsufficientMoneyException, IllegalArgumentException {
+        List<AddressEntry> addressEntries = new ArrayList<>();
+        for (String withdrawFromAddress : withdrawFromAddresses) {
+            Optional<AddressEntry> addressEntry = getAddressEntryByAddressString(withdrawFromAddress);
+            if (!addressEntry.isPresent())
+                throw new IllegalArgumentException("WithdrawFromAddress is not found in our wallets.");
+
+            addressEntries.add(addressEntry.get());
+        }
+
+        Map<Address, Coin> outputs = new LinkedHashMap<>();
+        for (Map.Entry<String, Coin> receiver : receivers.entrySet()) {
+            outputs.put(new Address(params, receiver.getKey()), receiver.getValue());
+        }
+
+        Wallet.SendRequest sendRequest = getBatchSendRequest(addressEntries, outputs);
+        Wallet.SendResult sendResult = wallet.sendCoins(sendRequest);
+        Futures.addCallback(sendResult.broadcastComplete, callback);
+
+        printInputs("sendFunds", sendRequest.tx);
+        log.debug("tx=" + sendRequest.tx);
+
+        return sendRequest.tx.getHashAsString();
+    }
+
+    // Creates (but does not broadcast) one transaction spending from all the given address entries.
+    public Transaction createBatchTx(List<AddressEntry> fromAddressEntries, Map<Address, Coin> receivers) throws
+            InsufficientMoneyException {
+        Wallet.SendRequest sendRequest = getBatchSendRequest(fromAddressEntries, receivers);
+        wallet.completeTx(sendRequest);
+        printInputs("createBatchTx", sendRequest.tx);
+        return sendRequest.tx;
+    }
+
+    public void broadcastTx(Transaction tx, FutureCallback<Transaction> callback) {
+        log.trace("broadcast tx");
+        ListenableFuture<Transaction> future = walletAppKit.peerGroup().broadcastTransaction(tx);
+        Futures.addCallback(future, callback);
+    }
+
+    private Wallet.SendRequest getBatchSendRequest(List<AddressEntry> fromAddressEntries,
+                                                   Map<Address, Coin> receivers) {
+        checkArgument(!fromAddressEntries.isEmpty(), "At least one address to spend from is required.");
+        checkArgument(!receivers.isEmpty(), "At least one receiver is required.");
+
+        Transaction tx = new Transaction(params);
+        for (Map.Entry<Address, Coin> receiver : receivers.entrySet()) {
+            tx.addOutput(receiver.getValue(), receiver.getKey());
+        }
+
+        Wallet.SendRequest sendRequest = Wallet.SendRequest.forTx(tx);
+        sendRequest.shuffleOutputs = false;
+        // we allow spending of unconfirmed tx (double spend risk is low and usability would suffer if we need to
+        // wait for 1 confirmation)
+        sendRequest.coinSelector = new AddressBasedCoinSelector(params, fromAddressEntries, true);
+        sendRequest.changeAddress = fromAddressEntries.get(0).getAddress();
+        return sendRequest;
+    }
 
-    // TODO: Trade process - use P2SH instead and optimize tx creation and data exchange
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Trade process
@@ -616,17 +891,10 @@ public class WalletService {
                                                        String takerPubKey,
                                                        String arbitratorPubKey,
                                                        String tradeId) throws InsufficientMoneyException {
-        log.debug("offererCreatesMSTxAndAddPayment");
-        log.trace("inputs: ");
-        log.trace("offererInputAmount=" + offererInputAmount.toFriendlyString());
-        log.trace("offererPubKey=" + offererPubKey);
-        log.trace("takerPubKey=" + takerPubKey);
-        log.trace("arbitratorPubKey=" + arbitratorPubKey);
-        log.trace("tradeId=" + tradeId);
+        log.debug("offererCreatesMSTxAndAddPayment tradeId=" + tradeId);
 
         // We need to subtract the fee as it will go to the miners
         Coin offererInput = offererInputAmount.subtract(FeePolicy.TX_FEE);
-        log.trace("amountToPay=" + offererInput.toFriendlyString());
 
         // We pay the offererInputAmount to a temporary MS output which will be changed later to the correct value.
         // With the usage of completeTx() we get all the work done with fee calculation, validation and coin selection.
@@ -635,8 +903,10 @@ public class WalletService {
         // So it will not change the wallet balance.
         // The btc tx fee will be included by the completeTx() call, so we don't need to add it manually.
         Transaction tx = new Transaction(params);
-        Script multiSigOutputScript = getMultiSigScript(offererPubKey, takerPubKey, arbitratorPubKey);
-        tx.addOutput(offererInput, multiSigOutputScript);   // that output is just a dummy for input calculation
+        MultiSigTxBuilder multiSigTxBuilder = getMultiSigTxBuilder(tradeId, offererPubKey, takerPubKey,
+                arbitratorPubKey);
+        // that output is just a dummy for input calculation
+        tx.addOutput(offererInput, multiSigTxBuilder.getOutputScript());
 
         Wallet.SendRequest sendRequest = Wallet.SendRequest.forTx(tx);
         sendRequest.shuffleOutputs = false;
@@ -650,20 +920,15 @@ public class WalletService {
         // The completeTx() call signs the input, but we don't want to pass over a signed tx so we remove the
         // signature to make sure the tx is invalid for publishing
         tx.getInput(0).setScriptSig(new Script(new byte[]{}));
-
-        log.trace("verify tx");
         tx.verify();
 
         // The created tx looks like:
          /*
         IN[0]  any input > offererInputAmount + fee (unsigned)
-        OUT[0] MS offererInputAmount
+        OUT[0] P2SH MS offererInputAmount
         OUT[1] Optional Change = input - offererInputAmount - fee btc tx fee
          */
 
-        log.trace("Check if wallet is consistent: result=" + wallet.isConsistent());
-        printInputs("offererCreatesMSTxAndAddPayment", tx);
-        log.debug("tx = " + tx);
         return tx;
     }
 
@@ -677,15 +942,7 @@ public class WalletService {
                                                 String arbitratorPubKey,
                                                 String offerersPartialDepositTxAsHex,
                                                 String tradeId) throws InsufficientMoneyException {
-        log.debug("takerAddPaymentAndSignTx");
-        log.trace("inputs: ");
-        log.trace("takerInputAmount=" + takerInputAmount.toFriendlyString());
-        log.trace("msOutputAmount=" + msOutputAmount.toFriendlyString());
-        log.trace("offererPubKey=" + offererPubKey);
-        log.trace("takerPubKey=" + takerPubKey);
-        log.trace("arbitratorPubKey=" + arbitratorPubKey);
-        log.trace("offerersPartialDepositTxAsHex=" + offerersPartialDepositTxAsHex);
-        log.trace("tradeId=" + tradeId);
+        log.debug("takerAddPaymentAndSignTx tradeId=" + tradeId);
 
         // We pay the btc tx fee 2 times to the deposit tx:
         // 1. will be spent to miners when publishing the deposit tx
@@ -695,8 +952,9 @@ public class WalletService {
 
         // We do exactly the same as in the 1. step but with the takers input.
         Transaction tempTx = new Transaction(params);
-        Script multiSigOutputScript = getMultiSigScript(offererPubKey, takerPubKey, arbitratorPubKey);
-        tempTx.addOutput(takerInputAmount, multiSigOutputScript);
+        MultiSigTxBuilder multiSigTxBuilder = getMultiSigTxBuilder(tradeId, offererPubKey, takerPubKey,
+                arbitratorPubKey);
+        tempTx.addOutput(takerInputAmount, multiSigTxBuilder.getOutputScript());
 
         Wallet.SendRequest sendRequest = Wallet.SendRequest.forTx(tempTx);
         sendRequest.shuffleOutputs = false;
@@ -706,28 +964,26 @@ public class WalletService {
         sendRequest.coinSelector = new AddressBasedCoinSelector(params, addressEntry, true);
         sendRequest.changeAddress = addressEntry.getAddress();
         wallet.completeTx(sendRequest);
-
-        printInputs("tempTx", tempTx);
-        log.trace("tempTx=" + tempTx);
         // That tx has signed input, but we don't need to remove it as we don't send that tx out,
         // it is just used temporary.
 
         // The created tempTx looks like:
          /*
         IN[0]  any input taker > takerInputAmount + fee (signed)
-        OUT[0] MS takerInputAmount
+        OUT[0] P2SH MS takerInputAmount
         OUT[1] Optional change = input taker - takerInputAmount - fee btc tx fee
          */
 
 
         // Now we construct the real 2of3 multiSig tx from the serialized offerers tx
         Transaction tx = new Transaction(params, Utils.parseAsHexOrBase58(offerersPartialDepositTxAsHex));
-        log.trace("offerersPartialDepositTx=" + tx);
+        // The offerer must pay to the multiSig address of the trade
+        multiSigTxBuilder.getMultiSigOutput(tx);
 
         // The serialized offerers tx looks like:
         /*
         IN[0]  any input offerer > offererInputAmount + fee (unsigned)
-        OUT[0] MS offererInputAmount
+        OUT[0] P2SH MS offererInputAmount
         OUT[1] Change = input offerer - offererInputAmount - fee
                btc tx fee
         */
@@ -745,67 +1001,40 @@ public class WalletService {
         tx.getOutput(0).setValue(msOutputAmount);
 
         // Now we sign our input (index 1)
-        TransactionInput input = tx.getInput(1);
-        if (input == null || input.getConnectedOutput() == null)
-            log.error("Must not happen - input or input.getConnectedOutput() is null: " + input);
-
-        Script scriptPubKey = input.getConnectedOutput().getScriptPubKey();
-        ECKey sigKey = input.getOutpoint().getConnectedKey(wallet);
-        Sha256Hash hash = tx.hashForSignature(1, scriptPubKey, Transaction.SigHash.ALL, false);
-        ECKey.ECDSASignature ecSig = sigKey.sign(hash);
-        TransactionSignature txSig = new TransactionSignature(ecSig, Transaction.SigHash.ALL, false);
-        if (scriptPubKey.isSentToRawPubKey()) {
-            input.setScriptSig(ScriptBuilder.createInputScript(txSig));
-        }
-        else if (scriptPubKey.isSentToAddress()) {
-            input.setScriptSig(ScriptBuilder.createInputScript(txSig, sigKey));
-        }
-        else {
-            throw new ScriptException("Don't know how to sign for this kind of scriptPubKey: " + scriptPubKey);
-        }
-
-        log.trace("check if it can be correctly spent for input 1");
-        input.getScriptSig().correctlySpends(tx, 1, scriptPubKey);
-
-        log.trace("verify tx");
+        signInput(tx, 1);
         tx.verify();
 
         // The resulting tx looks like:
         /*
         IN[0]  any input offerer > offererInputAmount + fee (unsigned)  e.g.: 0.1001
         IN[1]  any input taker > takerInputAmount + fee (signed)  e.g.: 1.1001
-        OUT[0] MS offererInputAmount  e.g.: 1.2001
+        OUT[0] P2SH MS offererInputAmount  e.g.: 1.2001
         OUT[1] Change = input offerer - offererInputAmount - fee   e.g.: 0 if input is matching correct value
         OUT[2] Change = input taker - takerInputAmount - fee   e.g.: 0 if input is matching correct value btc tx fee   e.g.: 0.1001
         */
 
         // We must not commit that tx to the wallet as we will get it over the network when the offerer
         // publishes it and it will have a different tx hash, so it would invalidate our wallet.
-
-        log.trace("Check if wallet is consistent before commit: result=" + wallet.isConsistent());
-        printInputs("takerAddPaymentAndSignTx", tx);
-        log.debug("tx = " + tx);
         return tx;
     }
 
 
     // 3. step: deposit tx
-    // Offerer signs tx and publishes it
-
-    public void offererSignAndPublishTx(String offerersFirstTxAsHex,
+    // Offerer checks the outputs of the taker, signs tx and publishes it
+
+    public void offererSignAndPublishTx(String tradeId,
+                                        Coin msOutputAmount,
+                                        String offererPubKey,
+                                        String takerPubKey,
+                                        String arbitratorPubKey,
+                                        String offerersFirstTxAsHex,
                                         String takersSignedTxAsHex,
                                         String takersSignedConnOutAsHex,
                                         String takersSignedScriptSigAsHex,
                                         long offererTxOutIndex,
                                         long takerTxOutIndex,
                                         FutureCallback<Transaction> callback) {
-        log.debug("offererSignAndPublishTx");
-        log.trace("inputs: ");
-        log.trace("offerersFirstTxAsHex=" + offerersFirstTxAsHex);
-        log.trace("takersSignedTxAsHex=" + takersSignedTxAsHex);
-        log.trace("takersSignedConnOutAsHex=" + takersSignedConnOutAsHex);
-        log.trace("takersSignedScriptSigAsHex=" + takersSignedScriptSigAsHex);
-        log.trace("callback=" + callback);
+        log.debug("offererSignAndPublishTx tradeId=" + tradeId);
 
         // We create an empty tx (did not find a way to manipulate a tx input, otherwise the takers tx could be used
         // directly and add the offerers input and output)
@@ -814,17 +1043,10 @@ public class WalletService {
         // offerers first tx
         Transaction offerersFirstTx = new Transaction(params, Utils.parseAsHexOrBase58(offerersFirstTxAsHex));
 
-        printInputs("offerersFirstTx", offerersFirstTx);
-        log.trace("offerersFirstTx = " + offerersFirstTx);
-
         // add input
         Transaction offerersFirstTxConnOut = wallet.getTransaction(offerersFirstTx.getInput(0).getOutpoint().getHash());
         TransactionOutPoint offerersFirstTxOutPoint =
                 new TransactionOutPoint(params, offererTxOutIndex, offerersFirstTxConnOut);
-        //TransactionInput offerersFirstTxInput = new TransactionInput(params, tx,
-        // offerersFirstTx.getInput(0).getScriptBytes(), offerersFirstTxOutPoint);   // pass that around!
-        // getScriptBytes =
-        // empty bytes array
         TransactionInput offerersFirstTxInput = new TransactionInput(params, tx, new byte[]{}, offerersFirstTxOutPoint);
         offerersFirstTxInput.setParent(tx);
         tx.addInput(offerersFirstTxInput);
@@ -832,9 +1054,6 @@ public class WalletService {
         // takers signed tx
         Transaction takersSignedTx = new Transaction(params, Utils.parseAsHexOrBase58(takersSignedTxAsHex));
 
-        printInputs("takersSignedTxInput", takersSignedTx);
-        log.trace("takersSignedTx = " + takersSignedTx);
-
         // add input
         Transaction takersSignedTxConnOut = new Transaction(params, Utils.parseAsHexOrBase58(takersSignedConnOutAsHex));
         TransactionOutPoint takersSignedTxOutPoint =
@@ -854,175 +1073,111 @@ public class WalletService {
             tx.addOutput(takersSignedTx.getOutput(2));
         }
 
-        printInputs("tx", tx);
-        log.trace("tx = " + tx);
-        log.trace("Wallet balance before signing: " + wallet.getBalance());
-
-        // sign the input
-        TransactionInput input = tx.getInput(0);
-        if (input == null || input.getConnectedOutput() == null) {
-            log.error("input or input.getConnectedOutput() is null: " + input);
-        }
-
-        Script scriptPubKey = input.getConnectedOutput().getScriptPubKey();
-        ECKey sigKey = input.getOutpoint().getConnectedKey(wallet);
-        Sha256Hash hash = tx.hashForSignature(0, scriptPubKey, Transaction.SigHash.ALL, false);
-        ECKey.ECDSASignature ecSig = sigKey.sign(hash);
-        TransactionSignature txSig = new TransactionSignature(ecSig, Transaction.SigHash.ALL, false);
-        if (scriptPubKey.isSentToRawPubKey()) {
-            input.setScriptSig(ScriptBuilder.createInputScript(txSig));
-        }
-        else if (scriptPubKey.isSentToAddress()) {
-            input.setScriptSig(ScriptBuilder.createInputScript(txSig, sigKey));
-        }
-        else {
-            throw new ScriptException("Don't know how to sign for this kind of scriptPubKey: " + scriptPubKey);
+        // Before we sign, the taker's tx must pay the agreed amount to the multiSig address of the trade and our
+        // change back to us. The taker has added the btc tx fee to the multiSig amount.
+        TransactionOutput multiSigOutput = getMultiSigTxBuilder(tradeId, offererPubKey, takerPubKey,
+                arbitratorPubKey).getMultiSigOutput(tx);
+        Coin expectedMsOutputAmount = msOutputAmount.add(FeePolicy.TX_FEE);
+        checkArgument(multiSigOutput.getValue().equals(expectedMsOutputAmount), "The multiSig output of the deposit " +
+                "tx is " + multiSigOutput.getValue().toFriendlyString() + " but the trade requires " +
+                expectedMsOutputAmount.toFriendlyString());
+        if (offerersFirstTx.getOutputs().size() > 1) {
+            TransactionOutput offererChange = offerersFirstTx.getOutput(1);
+            checkArgument(tx.getOutputs().size() > 1 &&
+                            tx.getOutput(1).getValue().equals(offererChange.getValue()) &&
+                            Arrays.equals(tx.getOutput(1).getScriptBytes(), offererChange.getScriptBytes()),
+                    "The deposit tx does not pay the change of the offerer");
         }
 
-        input.getScriptSig().correctlySpends(tx, 0, scriptPubKey);
-        log.trace("check if it can be correctly spent for input 0 OK");
-
+        // sign our input and check the signature of the taker
+        signInput(tx, 0);
         TransactionInput input1 = tx.getInput(1);
-        scriptPubKey = input1.getConnectedOutput().getScriptPubKey();
-        input1.getScriptSig().correctlySpends(tx, 1, scriptPubKey);
-        log.trace("check if it can be correctly spent for input 1 OK");
+        input1.getScriptSig().correctlySpends(tx, 1, input1.getConnectedOutput().getScriptPubKey());
 
          /*
         IN[0] offerer signed 0.1001
         IN[1] taker signed  1.1001
-        OUT[0] MS (include btc tx fee for payout tx) 1.2001
+        OUT[0] P2SH MS (include btc tx fee for payout tx) 1.2001
         OUT[1] offerer change
         OUT[2] taker change
                btc tx fee   0.0001
          */
 
-        log.trace("verify ");
         tx.verify();
 
-        printInputs("tx", tx);
-        log.debug("tx = " + tx);
-
-        log.trace("Wallet balance before broadcastTransaction: " + wallet.getBalance());
-        log.trace("Check if wallet is consistent before broadcastTransaction: result=" + wallet.isConsistent());
         ListenableFuture<Transaction> broadcastComplete = walletAppKit.peerGroup().broadcastTransaction(tx);
-        log.trace("Wallet balance after broadcastTransaction: " + wallet.getBalance());
-        log.trace("Check if wallet is consistent: result=" + wallet.isConsistent());
-
         Futures.addCallback(broadcastComplete, callback);
-        printInputs("tx", tx);
-        log.debug("tx = " + tx);
+        log.debug("deposit tx published: " + tx.getHashAsString());
     }
 
     // 4 step deposit tx: Offerer send deposit tx to taker
     public Transaction takerCommitDepositTx(String depositTxAsHex) {
-        log.trace("takerCommitDepositTx");
-        log.trace("inputs: ");
-        log.trace("depositTxID=" + depositTxAsHex);
         Transaction depositTx = new Transaction(params, Utils.parseAsHexOrBase58(depositTxAsHex));
-        log.trace("depositTx=" + depositTx);
-        // boolean isAlreadyInWallet = wallet.maybeCommitTx(depositTx);
-        //log.trace("isAlreadyInWallet=" + isAlreadyInWallet);
+        log.debug("takerCommitDepositTx " + depositTx.getHashAsString());
 
         // Manually add the multisigContract to the wallet, overriding the isRelevant checks so we can track
         // it and check for double-spends later
         wallet.receivePending(depositTx, null, true);
 
         return depositTx;
-
     }
 
     // 5. step payout tx: Offerer creates payout tx and signs it
-
-    public Pair<ECKey.ECDSASignature, String> offererCreatesAndSignsPayoutTx(String depositTxID,
-                                                                             Coin offererPaybackAmount,
-                                                                             Coin takerPaybackAmount,
-                                                                             String takerAddress,
-                                                                             String tradeID)
-            throws AddressFormatException {
-        log.debug("offererCreatesAndSignsPayoutTx");
-        log.trace("inputs: ");
-        log.trace("depositTxID=" + depositTxID);
-        log.trace("offererPaybackAmount=" + offererPaybackAmount.toFriendlyString());
-        log.trace("takerPaybackAmount=" + takerPaybackAmount.toFriendlyString());
-        log.trace("takerAddress=" + takerAddress);
-
-        // Offerer has published depositTx earlier, so he has it in his wallet
-        Transaction depositTx = wallet.getTransaction(new Sha256Hash(depositTxID));
-        String depositTxAsHex = Utils.HEX.encode(depositTx.bitcoinSerialize());
-
-        // We create the payout tx
-        Transaction tx = createPayoutTx(depositTxAsHex, offererPaybackAmount, takerPaybackAmount,
-                getAddressInfoByTradeID(tradeID).getAddressString(), takerAddress);
-
-        // We create the signature for that tx
-        TransactionOutput multiSigOutput = tx.getInput(0).getConnectedOutput();
-        Script multiSigScript = multiSigOutput.getScriptPubKey();
-        Sha256Hash sigHash = tx.hashForSignature(0, multiSigScript, Transaction.SigHash.ALL, false);
-        ECKey.ECDSASignature offererSignature = getAddressInfoByTradeID(tradeID).getKey().sign(sigHash);
-
-        TransactionSignature offererTxSig = new TransactionSignature(offererSignature, Transaction.SigHash.ALL, false);
-        Script inputScript = ScriptBuilder.createMultiSigInputScript(ImmutableList.of(offererTxSig));
-        tx.getInput(0).setScriptSig(inputScript);
-
-        log.trace("sigHash=" + sigHash);
-        return new Pair<>(offererSignature, depositTxAsHex);
+    // Returns the DER encoded signature, which is all the taker needs as he has the deposit tx already
+
+    public byte[] offererCreatesAndSignsPayoutTx(Transaction depositTx,
+                                                 Coin offererPaybackAmount,
+                                                 Coin takerPaybackAmount,
+                                                 String takerAddress,
+                                                 String offererPubKey,
+                                                 String takerPubKey,
+                                                 String arbitratorPubKey,
+                                                 String tradeID) throws AddressFormatException {
+        log.debug("offererCreatesAndSignsPayoutTx tradeID=" + tradeID);
+
+        MultiSigTxBuilder multiSigTxBuilder = getMultiSigTxBuilder(tradeID, offererPubKey, takerPubKey,
+                arbitratorPubKey);
+        AddressEntry addressEntry = getAddressInfoByTradeID(tradeID);
+        Transaction tx = multiSigTxBuilder.createPayoutTx(depositTx, offererPaybackAmount, takerPaybackAmount,
+                addressEntry.getAddress(), new Address(params, takerAddress));
+
+        return multiSigTxBuilder.signPayoutTx(tx, addressEntry.getKey()).encodeToDER();
     }
 
     // 6. step payout tx: Taker signs and publish tx
-    public void takerSignsAndSendsTx(String depositTxAsHex,
-                                     String offererSignatureR,
-                                     String offererSignatureS,
+    public void takerSignsAndSendsTx(Transaction depositTx,
+                                     byte[] offererSignature,
                                      Coin offererPaybackAmount,
                                      Coin takerPaybackAmount,
                                      String offererAddress,
+                                     String offererPubKey,
+                                     String takerPubKey,
+                                     String arbitratorPubKey,
                                      String tradeID,
                                      FutureCallback<Transaction> callback) throws AddressFormatException {
-        log.debug("takerSignsAndSendsTx");
-        log.trace("inputs: ");
-        log.trace("depositTxAsHex=" + depositTxAsHex);
-        log.trace("offererSignatureR=" + offererSignatureR);
-        log.trace("offererSignatureS=" + offererSignatureS);
-        log.trace("offererPaybackAmount=" + offererPaybackAmount.toFriendlyString());
-        log.trace("takerPaybackAmount=" + takerPaybackAmount.toFriendlyString());
-        log.trace("offererAddress=" + offererAddress);
-        log.trace("callback=" + callback);
-
-        // We create the payout tx
-        Transaction tx = createPayoutTx(depositTxAsHex, offererPaybackAmount, takerPaybackAmount, offererAddress,
-                getAddressInfoByTradeID(tradeID).getAddressString());
-
-        // We sign that tx with our key and apply the signature form the offerer
-        TransactionOutput multiSigOutput = tx.getInput(0).getConnectedOutput();
-        Script multiSigScript = multiSigOutput.getScriptPubKey();
-        Sha256Hash sigHash = tx.hashForSignature(0, multiSigScript, Transaction.SigHash.ALL, false);
-        log.trace("sigHash=" + sigHash);
-
-        ECKey.ECDSASignature takerSignature = getAddressInfoByTradeID(tradeID).getKey().sign(sigHash);
-        TransactionSignature takerTxSig = new TransactionSignature(takerSignature, Transaction.SigHash.ALL, false);
-
-        ECKey.ECDSASignature offererSignature =
-                new ECKey.ECDSASignature(new BigInteger(offererSignatureR), new BigInteger(offererSignatureS));
-        TransactionSignature offererTxSig = new TransactionSignature(offererSignature, Transaction.SigHash.ALL, false);
-
-        Script inputScript = ScriptBuilder.createMultiSigInputScript(ImmutableList.of(offererTxSig, takerTxSig));
-        tx.getInput(0).setScriptSig(inputScript);
-
-        log.trace("verify tx");
+        log.debug("takerSignsAndSendsTx tradeID=" + tradeID);
+
+        MultiSigTxBuilder multiSigTxBuilder = getMultiSigTxBuilder(tradeID, offererPubKey, takerPubKey,
+                arbitratorPubKey);
+        AddressEntry addressEntry = getAddressInfoByTradeID(tradeID);
+        Transaction tx = multiSigTxBuilder.createPayoutTx(depositTx, offererPaybackAmount, takerPaybackAmount,
+                new Address(params, offererAddress), addressEntry.getAddress());
+
+        // We sign that tx with our key and apply the signature from the offerer
+        TransactionSignature takerTxSig = multiSigTxBuilder.signPayoutTx(tx, addressEntry.getKey());
+        TransactionSignature offererTxSig = new TransactionSignature(
+                ECKey.ECDSASignature.decodeFromDER(offererSignature), Transaction.SigHash.ALL, false);
+        multiSigTxBuilder.applyPayoutSignatures(tx, offererTxSig, takerTxSig);
         tx.verify();
 
-        log.trace("check if it can be correctly spent for ms input");
-        tx.getInput(0).getScriptSig().correctlySpends(tx, 0, multiSigScript);
-
-        log.trace("verify multiSigOutput");
-        tx.getInput(0).verify(multiSigOutput);
-
         ListenableFuture<Transaction> broadcastComplete = walletAppKit.peerGroup().broadcastTransaction(tx);
         Futures.addCallback(broadcastComplete, callback);
+        log.debug("payout tx published: " + tx.getHashAsString());
+    }
 
-        log.trace("getTransactions.size=" + wallet.getTransactions(true).size());
-        log.trace("Check if wallet is consistent: result=" + wallet.isConsistent());
-        printInputs("takerSignsAndSendsTx", tx);
-        log.debug("tx = " + tx);
+    // The builder is cached per trade, so the keys and scripts are only created once for all the trade steps
+    public void removeMultiSigTxBuilder(String tradeId) {
+        multiSigTxBuilders.remove(tradeId);
     }
 
 
@@ -1030,45 +1185,75 @@ public class WalletService {
     // Private methods
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void saveAddressInfoList() {
-        // use wallet extension?
-        lock.lock();
-        try {
-            persistence.write(this, "addressEntryList", addressEntryList);
-        } finally {
-            lock.unlock();
+    // A checkpoints file in the wallet directory (e.g. delivered with an update) takes precedence over the one which
+    // is bundled with the app.
+    @Nullable
+    private InputStream getCheckpoints() {
+        String checkpointsFileName = bitcoinNetwork.getCheckpointsFileName();
+        if (checkpointsFileName == null)
+            return null;
+
+        // The app kit reads the checkpoints only if it creates a new block store and does not close the stream
+        // otherwise, so we hand over an in-memory copy (a few KB)
+        File checkpointsFile = new File(walletDir, checkpointsFileName);
+        if (checkpointsFile.exists()) {
+            try {
+                log.info("Use checkpoints from " + checkpointsFile);
+                return new ByteArrayInputStream(Files.readAllBytes(checkpointsFile.toPath()));
+            } catch (IOException e) {
+                log.warn("Could not read checkpoints from " + checkpointsFile + ". " + e);
+            }
+        }
+
+        try (InputStream checkpoints =
+                     getClass().getResourceAsStream(CHECKPOINTS_RESOURCE_DIR + checkpointsFileName)) {
+            if (checkpoints == null) {
+                log.error("Checkpoints resource not found: " + checkpointsFileName);
+                return null;
+            }
+            return new ByteArrayInputStream(ByteStreams.toByteArray(checkpoints));
+        } catch (IOException e) {
+            log.error("Could not read checkpoints resource " + checkpointsFileName + ". " + e);
+            return null;
         }
     }
 
-    //TODO
-    private Script getMultiSigScript(String offererPubKey, String takerPubKey, String arbitratorPubKey) {
-        ECKey offererKey = ECKey.fromPublicOnly(Utils.parseAsHexOrBase58(offererPubKey));
-        ECKey takerKey = ECKey.fromPublicOnly(Utils.parseAsHexOrBase58(takerPubKey));
-        ECKey arbitratorKey = ECKey.fromPublicOnly(Utils.parseAsHexOrBase58(arbitratorPubKey));
+    private void saveAddressInfoList() {
+        // use wallet extension?
+        persistence.write(this, "addressEntryList", new ArrayList<>(addressEntryList));
+    }
 
-        List<ECKey> keys = ImmutableList.of(offererKey, takerKey, arbitratorKey);
-        return ScriptBuilder.createMultiSigOutputScript(2, keys);
+    private MultiSigTxBuilder getMultiSigTxBuilder(String tradeId, String offererPubKey, String takerPubKey,
+                                                   String arbitratorPubKey) {
+        MultiSigTxBuilder multiSigTxBuilder = multiSigTxBuilders.get(tradeId);
+        if (multiSigTxBuilder == null || !multiSigTxBuilder.hasKeys(offererPubKey, takerPubKey, arbitratorPubKey)) {
+            multiSigTxBuilder = new MultiSigTxBuilder(params, offererPubKey, takerPubKey, arbitratorPubKey);
+            multiSigTxBuilders.put(tradeId, multiSigTxBuilder);
+        }
+        return multiSigTxBuilder;
     }
 
+    // We sign an input which spends one of our own outputs
+    private void signInput(Transaction tx, int index) {
+        TransactionInput input = tx.getInput(index);
+        if (input.getConnectedOutput() == null)
+            throw new ScriptException("Input " + index + " is not connected to one of our outputs: " + input);
 
-    private Transaction createPayoutTx(String depositTxAsHex, Coin offererPaybackAmount, Coin takerPaybackAmount,
-                                       String offererAddress, String takerAddress) throws AddressFormatException {
-        log.trace("createPayoutTx");
-        log.trace("inputs: ");
-        log.trace("depositTxAsHex=" + depositTxAsHex);
-        log.trace("offererPaybackAmount=" + offererPaybackAmount.toFriendlyString());
-        log.trace("takerPaybackAmount=" + takerPaybackAmount.toFriendlyString());
-        log.trace("offererAddress=" + offererAddress);
-        log.trace("takerAddress=" + takerAddress);
+        Script scriptPubKey = input.getConnectedOutput().getScriptPubKey();
+        ECKey sigKey = input.getOutpoint().getConnectedKey(wallet);
+        Sha256Hash hash = tx.hashForSignature(index, scriptPubKey, Transaction.SigHash.ALL, false);
+        TransactionSignature txSig = new TransactionSignature(sigKey.sign(hash), Transaction.SigHash.ALL, false);
+        if (scriptPubKey.isSentToRawPubKey()) {
+            input.setScriptSig(ScriptBuilder.createInputScript(txSig));
+        }
+        else if (scriptPubKey.isSentToAddress()) {
+            input.setScriptSig(ScriptBuilder.createInputScript(txSig, sigKey));
+        }
+        else {
+            throw new ScriptException("Don't know how to sign for this kind of scriptPubKey: " + scriptPubKey);
+        }
 
-        Transaction depositTx = new Transaction(params, Utils.parseAsHexOrBase58(depositTxAsHex));
-        TransactionOutput multiSigOutput = depositTx.getOutput(0);
-        Transaction tx = new Transaction(params);
-        tx.addInput(multiSigOutput);
-        tx.addOutput(offererPaybackAmount, new Address(params, offererAddress));
-        tx.addOutput(takerPaybackAmount, new Address(params, takerAddress));
-        log.trace("tx=" + tx);
-        return tx;
+        input.getScriptSig().correctlySpends(tx, index, scriptPubKey);
     }
 
     public static void printInputs(String tracePrefix, Transaction tx) {
@@ -1092,16 +1277,31 @@ public class WalletService {
     private static class ObservableDownloadListener extends DownloadListener {
 
         private final Subject<Double, Double> subject = BehaviorSubject.create(0d);
+        private final WalletSyncStats syncStats;
+
+        public ObservableDownloadListener(WalletSyncStats syncStats) {
+            this.syncStats = syncStats;
+        }
+
+        @Override
+        public void onBlocksDownloaded(Peer peer, Block block, int blocksLeft) {
+            super.onBlocksDownloaded(peer, block, blocksLeft);
+            // Before the fast catchup time we only download the headers
+            syncStats.onBlockDownloaded(peer.getAddress().toString(), !peer.getDownloadData(), blocksLeft);
+        }
 
         @Override
         protected void progress(double percentage, int blocksLeft, Date date) {
             super.progress(percentage, blocksLeft, date);
+            log.debug("Download progress: " + syncStats);
             subject.onNext(percentage);
         }
 
         @Override
         protected void doneDownload() {
             super.doneDownload();
+            syncStats.onBalanceUsable();
+            log.info("Download done: " + syncStats);
             subject.onCompleted();
         }
 
@@ -1114,28 +1314,36 @@ public class WalletService {
     private class BitsquareWalletEventListener extends AbstractWalletEventListener {
         @Override
         public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            long start = System.nanoTime();
             notifyBalanceListeners();
+            syncStats.onWalletListenerCompleted(System.nanoTime() - start);
         }
 
         @Override
         public void onCoinsSent(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            long start = System.nanoTime();
             notifyBalanceListeners();
+            syncStats.onWalletListenerCompleted(System.nanoTime() - start);
         }
 
         @Override
         public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
+            long start = System.nanoTime();
             for (AddressConfidenceListener addressConfidenceListener : addressConfidenceListeners) {
                 List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
                 transactionConfidenceList.add(getTransactionConfidence(tx, addressConfidenceListener.getAddress()));
 
                 TransactionConfidence transactionConfidence = getMostRecentConfidence(transactionConfidenceList);
-                addressConfidenceListener.onTransactionConfidenceChanged(transactionConfidence);
+                if (transactionConfidence != null)
+                    addressConfidenceDispatcher.dispatch(addressConfidenceListener, transactionConfidence,
+                            AddressConfidenceListener::onTransactionConfidenceChanged);
             }
 
             txConfidenceListeners.stream()
                     .filter(txConfidenceListener -> tx.getHashAsString().equals(txConfidenceListener.getTxID()))
-                    .forEach(txConfidenceListener ->
-                            txConfidenceListener.onTransactionConfidenceChanged(tx.getConfidence()));
+                    .forEach(txConfidenceListener -> txConfidenceDispatcher.dispatch(txConfidenceListener,
+                            tx.getConfidence(), TxConfidenceListener::onTransactionConfidenceChanged));
+            syncStats.onWalletListenerCompleted(System.nanoTime() - start);
         }
 
         private void notifyBalanceListeners() {
@@ -1146,7 +1354,7 @@ public class WalletService {
                 else
                     balance = getWalletBalance();
 
-                balanceListener.onBalanceChanged(balance);
+                balanceDispatcher.dispatch(balanceListener, balance, BalanceListener::onBalanceChanged);
             }
         }
     }
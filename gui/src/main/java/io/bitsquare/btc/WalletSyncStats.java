@@ -0,0 +1,259 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects throughput numbers of the blockchain download and the time we spend in our wallet event listeners, so we
+ * can tell whether a slow startup is caused by the peers, the block download or the wallet processing.
+ * The wallet listeners run on the wallet event thread, so their time is the work we keep away from the UI thread. We
+ * also count how many updates are posted to the UI thread and how many of them got merged with a pending one.
+ * The counters are updated from the bitcoinj library threads and the wallet event thread, so all state is thread safe.
+ * It is exported via JMX and logged as a snapshot when the download is done.
+ */
+public class WalletSyncStats implements WalletSyncStatsMBean {
+    private static final Logger log = LoggerFactory.getLogger(WalletSyncStats.class);
+
+    private static final String OBJECT_NAME = "io.bitsquare:type=WalletSyncStats";
+
+    private final Ticker ticker;
+
+    private final AtomicLong headersDownloaded = new AtomicLong();
+    private final AtomicLong fullBlocksDownloaded = new AtomicLong();
+    private final Map<String, PeerStats> peerStatsMap = new ConcurrentHashMap<>();
+    private final AtomicLong walletListenerCalls = new AtomicLong();
+    private final AtomicLong walletListenerNanos = new AtomicLong();
+    private final AtomicLong userThreadUpdatesPosted = new AtomicLong();
+    private final AtomicLong userThreadUpdatesCoalesced = new AtomicLong();
+
+    private volatile long startNanos;
+    private volatile long firstBlockNanos = -1;
+    private volatile long lastBlockNanos = -1;
+    private volatile int blocksLeft = -1;
+    private volatile long timeToFirstUsableBalanceMillis = -1;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public WalletSyncStats() {
+        this(Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    WalletSyncStats(Ticker ticker) {
+        this.ticker = ticker;
+        startNanos = ticker.read();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void start() {
+        startNanos = ticker.read();
+    }
+
+    public void onBlockDownloaded(String peer, boolean headerOnly, int blocksLeft) {
+        long now = ticker.read();
+        if (firstBlockNanos < 0)
+            firstBlockNanos = now;
+        lastBlockNanos = now;
+        this.blocksLeft = blocksLeft;
+
+        if (headerOnly)
+            headersDownloaded.incrementAndGet();
+        else
+            fullBlocksDownloaded.incrementAndGet();
+
+        peerStatsMap.computeIfAbsent(peer, key -> new PeerStats(now)).blocks.incrementAndGet();
+    }
+
+    public void onWalletListenerCompleted(long elapsedNanos) {
+        walletListenerCalls.incrementAndGet();
+        walletListenerNanos.addAndGet(elapsedNanos);
+    }
+
+    public void onUserThreadUpdatePosted() {
+        userThreadUpdatesPosted.incrementAndGet();
+    }
+
+    public void onUserThreadUpdateCoalesced() {
+        userThreadUpdatesCoalesced.incrementAndGet();
+    }
+
+    // The balance is usable as soon as we are synced with the chain head. Only the first call is relevant.
+    public void onBalanceUsable() {
+        if (timeToFirstUsableBalanceMillis < 0)
+            timeToFirstUsableBalanceMillis = TimeUnit.NANOSECONDS.toMillis(ticker.read() - startNanos);
+    }
+
+    public void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName))
+                mBeanServer.registerMBean(this, objectName);
+        } catch (JMException e) {
+            log.warn("Could not register WalletSyncStats MBean. " + e);
+        }
+    }
+
+    public void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName))
+                mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.warn("Could not unregister WalletSyncStats MBean. " + e);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // WalletSyncStatsMBean
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public long getHeadersDownloaded() {
+        return headersDownloaded.get();
+    }
+
+    @Override
+    public long getFullBlocksDownloaded() {
+        return fullBlocksDownloaded.get();
+    }
+
+    @Override
+    public int getBlocksLeft() {
+        return blocksLeft;
+    }
+
+    @Override
+    public double getBlocksPerSecond() {
+        long blocks = headersDownloaded.get() + fullBlocksDownloaded.get();
+        return getRate(blocks, firstBlockNanos, lastBlockNanos);
+    }
+
+    // Returns -1 as long we don't have enough data for an estimation
+    @Override
+    public long getEtaSeconds() {
+        double blocksPerSecond = getBlocksPerSecond();
+        if (blocksLeft < 0 || blocksPerSecond <= 0)
+            return -1;
+
+        return Math.round(blocksLeft / blocksPerSecond);
+    }
+
+    @Override
+    public String getPeerDownloadRates() {
+        long now = ticker.read();
+        return peerStatsMap.entrySet().stream()
+                .map(e -> e.getKey() + "=" + String.format("%.1f", getRate(e.getValue().blocks.get(),
+                        e.getValue().firstBlockNanos, now)) + " blocks/s")
+                .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public long getWalletListenerCalls() {
+        return walletListenerCalls.get();
+    }
+
+    @Override
+    public long getWalletListenerTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(walletListenerNanos.get());
+    }
+
+    @Override
+    public long getTimeToFirstUsableBalanceMillis() {
+        return timeToFirstUsableBalanceMillis;
+    }
+
+    @Override
+    public long getUserThreadUpdatesPosted() {
+        return userThreadUpdatesPosted.get();
+    }
+
+    @Override
+    public long getUserThreadUpdatesCoalesced() {
+        return userThreadUpdatesCoalesced.get();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static double getRate(long blocks, long fromNanos, long toNanos) {
+        if (fromNanos < 0 || toNanos <= fromNanos)
+            return 0;
+
+        return blocks / ((toNanos - fromNanos) / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return "WalletSyncStats{" +
+                "headersDownloaded=" + getHeadersDownloaded() +
+                ", fullBlocksDownloaded=" + getFullBlocksDownloaded() +
+                ", blocksLeft=" + getBlocksLeft() +
+                ", blocksPerSecond=" + String.format("%.1f", getBlocksPerSecond()) +
+                ", etaSeconds=" + getEtaSeconds() +
+                ", peerDownloadRates=[" + getPeerDownloadRates() + "]" +
+                ", walletListenerCalls=" + getWalletListenerCalls() +
+                ", walletListenerTimeMillis=" + getWalletListenerTimeMillis() +
+                ", timeToFirstUsableBalanceMillis=" + getTimeToFirstUsableBalanceMillis() +
+                ", userThreadUpdatesPosted=" + getUserThreadUpdatesPosted() +
+                ", userThreadUpdatesCoalesced=" + getUserThreadUpdatesCoalesced() +
+                '}';
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class PeerStats {
+        private final long firstBlockNanos;
+        private final AtomicLong blocks = new AtomicLong();
+
+        PeerStats(long firstBlockNanos) {
+            this.firstBlockNanos = firstBlockNanos;
+        }
+    }
+}
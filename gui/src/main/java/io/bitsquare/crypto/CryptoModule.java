@@ -19,6 +19,7 @@ package io.bitsquare.crypto;
 
 import io.bitsquare.BitsquareModule;
 
+import com.google.inject.Injector;
 import com.google.inject.Singleton;
 
 import org.springframework.core.env.Environment;
@@ -32,6 +33,13 @@ public class CryptoModule extends BitsquareModule {
     @Override
     protected void configure() {
         bind(SignatureService.class).in(Singleton.class);
+        bind(SignatureVerificationService.class).in(Singleton.class);
         bind(HashService.class).in(Singleton.class);
+        bind(EncryptionService.class).in(Singleton.class);
+    }
+
+    @Override
+    protected void doClose(Injector injector) {
+        injector.getInstance(SignatureVerificationService.class).shutDown();
     }
 }
@@ -0,0 +1,166 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.crypto;
+
+import java.nio.ByteBuffer;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.DSAParams;
+import java.security.interfaces.DSAPrivateKey;
+import java.security.interfaces.DSAPublicKey;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.interfaces.DHKey;
+import javax.crypto.interfaces.DHPublicKey;
+import javax.crypto.spec.DHParameterSpec;
+import javax.crypto.spec.DHPrivateKeySpec;
+import javax.crypto.spec.DHPublicKeySpec;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts data for the owner of a message key pair. We agree on a key with an ephemeral key pair on the curve of
+ * the EC message key (ECDH) and encrypt the data with AES-GCM.
+ * The DSA message keys of former versions cannot be used for encryption directly, but their group parameters can be
+ * used for a Diffie-Hellman key agreement in the same way.
+ * The result contains the ephemeral public key, the IV and the cipher text with the authentication tag.
+ */
+public class EncryptionService {
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int AES_KEY_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public byte[] encrypt(PublicKey recipientPublicKey, byte[] plainText) throws GeneralSecurityException {
+        PublicKey recipientKey = toKeyAgreementKey(recipientPublicKey);
+        KeyPair ephemeralKeyPair = generateEphemeralKeyPair(recipientKey);
+        byte[] ephemeralPublicKey = ephemeralKeyPair.getPublic().getEncoded();
+
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, agreeOnKey(ephemeralKeyPair.getPrivate(), recipientKey),
+                new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        cipher.updateAAD(ephemeralPublicKey);
+        byte[] cipherText = cipher.doFinal(plainText);
+
+        return ByteBuffer.allocate(4 + ephemeralPublicKey.length + IV_LENGTH + cipherText.length)
+                .putInt(ephemeralPublicKey.length)
+                .put(ephemeralPublicKey)
+                .put(iv)
+                .put(cipherText)
+                .array();
+    }
+
+    public byte[] decrypt(PrivateKey privateKey, byte[] encrypted) throws GeneralSecurityException {
+        PrivateKey recipientKey = toKeyAgreementKey(privateKey);
+
+        ByteBuffer byteBuffer = ByteBuffer.wrap(encrypted);
+        int ephemeralPublicKeyLength = byteBuffer.getInt();
+        if (ephemeralPublicKeyLength <= 0 || ephemeralPublicKeyLength > byteBuffer.remaining() - IV_LENGTH)
+            throw new GeneralSecurityException("Invalid encrypted data");
+        byte[] ephemeralPublicKey = new byte[ephemeralPublicKeyLength];
+        byteBuffer.get(ephemeralPublicKey);
+        byte[] iv = new byte[IV_LENGTH];
+        byteBuffer.get(iv);
+        byte[] cipherText = new byte[byteBuffer.remaining()];
+        byteBuffer.get(cipherText);
+
+        PublicKey senderKey = KeyFactory.getInstance(recipientKey.getAlgorithm())
+                .generatePublic(new X509EncodedKeySpec(ephemeralPublicKey));
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, agreeOnKey(recipientKey, senderKey),
+                new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        cipher.updateAAD(ephemeralPublicKey);
+        return cipher.doFinal(cipherText);
+    }
+
+    // EC keys are used as they are, DSA keys get converted to DH keys of the same group
+    private static PublicKey toKeyAgreementKey(PublicKey publicKey) throws GeneralSecurityException {
+        if (publicKey instanceof ECPublicKey)
+            return publicKey;
+
+        if (!(publicKey instanceof DSAPublicKey))
+            throw new InvalidKeyException("Only EC and DSA message keys are supported");
+        DSAPublicKey dsaPublicKey = (DSAPublicKey) publicKey;
+        DSAParams params = dsaPublicKey.getParams();
+        return KeyFactory.getInstance("DH").generatePublic(
+                new DHPublicKeySpec(dsaPublicKey.getY(), params.getP(), params.getG()));
+    }
+
+    private static PrivateKey toKeyAgreementKey(PrivateKey privateKey) throws GeneralSecurityException {
+        if (privateKey instanceof ECKey)
+            return privateKey;
+
+        if (!(privateKey instanceof DSAPrivateKey))
+            throw new InvalidKeyException("Only EC and DSA message keys are supported");
+        DSAPrivateKey dsaPrivateKey = (DSAPrivateKey) privateKey;
+        DSAParams params = dsaPrivateKey.getParams();
+        return KeyFactory.getInstance("DH").generatePrivate(
+                new DHPrivateKeySpec(dsaPrivateKey.getX(), params.getP(), params.getG()));
+    }
+
+    private KeyPair generateEphemeralKeyPair(PublicKey recipientKey) throws GeneralSecurityException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(recipientKey.getAlgorithm());
+        if (recipientKey instanceof ECPublicKey) {
+            keyPairGenerator.initialize(((ECPublicKey) recipientKey).getParams(), random);
+        }
+        else {
+            DHParameterSpec params = ((DHPublicKey) recipientKey).getParams();
+            keyPairGenerator.initialize(new DHParameterSpec(params.getP(), params.getG()), random);
+        }
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    private static SecretKeySpec agreeOnKey(PrivateKey privateKey, PublicKey publicKey)
+            throws GeneralSecurityException {
+        KeyAgreement keyAgreement = KeyAgreement.getInstance(getKeyAgreementAlgorithm(privateKey));
+        keyAgreement.init(privateKey);
+        keyAgreement.doPhase(publicKey, true);
+        byte[] sharedSecret = keyAgreement.generateSecret();
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(sharedSecret);
+        return new SecretKeySpec(Arrays.copyOf(hash, AES_KEY_LENGTH), "AES");
+    }
+
+    private static String getKeyAgreementAlgorithm(Key key) throws InvalidKeyException {
+        if (key instanceof ECKey)
+            return "ECDH";
+        else if (key instanceof DHKey)
+            return "DH";
+        else
+            throw new InvalidKeyException("Unsupported key agreement key " + key.getAlgorithm());
+    }
+}
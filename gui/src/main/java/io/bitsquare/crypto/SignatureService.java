@@ -21,11 +21,18 @@ import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.Utils;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 
+import java.math.BigInteger;
+
+import org.spongycastle.crypto.digests.SHA256Digest;
+import org.spongycastle.crypto.signers.HMacDSAKCalculator;
+import org.spongycastle.math.ec.ECPoint;
 import org.spongycastle.util.encoders.Base64;
 
 public class SignatureService {
+    private static final BigInteger HALF_CURVE_ORDER = ECKey.CURVE.getN().shiftRight(1);
 
     public String signMessage(ECKey key, String message) {
         byte[] data = Utils.formatMessageForSigning(message);
@@ -33,7 +40,41 @@ public class SignatureService {
         return signMessage(key, hash);
     }
 
+    // Produces the same signature as ECKey.sign (RFC 6979 deterministic k, canonical low S), but we do the
+    // multiplication of the R point ourselves. So we know its y-parity and whether its x coordinate overflowed the
+    // curve order, which is the recovery ID. No need to recover up to 4 public keys to find it out.
     public String signMessage(ECKey key, Sha256Hash hash) {
+        BigInteger n = ECKey.CURVE.getN();
+        BigInteger privKey = key.getPrivKey();
+        byte[] message = hash.getBytes();
+        BigInteger e = new BigInteger(1, message);
+        HMacDSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+        kCalculator.init(n, privKey, message);
+        while (true) {
+            BigInteger k = kCalculator.nextK();
+            ECPoint point = ECKey.CURVE.getG().multiply(k).normalize();
+            BigInteger x = point.getAffineXCoord().toBigInteger();
+            BigInteger r = x.mod(n);
+            if (r.signum() == 0)
+                continue;
+
+            BigInteger s = k.modInverse(n).multiply(e.add(privKey.multiply(r))).mod(n);
+            if (s.signum() == 0)
+                continue;
+
+            int recId = (point.getAffineYCoord().toBigInteger().testBit(0) ? 1 : 0) | (x.compareTo(n) >= 0 ? 2 : 0);
+            // Negating S mirrors R on the x axis, so the y-parity flips
+            if (s.compareTo(HALF_CURVE_ORDER) > 0) {
+                s = n.subtract(s);
+                recId ^= 1;
+            }
+            return encode(key, recId, r, s);
+        }
+    }
+
+    // The former implementation, we keep it for cross-checking and benchmarking the direct recovery ID derivation.
+    @VisibleForTesting
+    String signMessageByKeyRecovery(ECKey key, Sha256Hash hash) {
         ECKey.ECDSASignature sig = key.sign(hash, null);
         // Now we have to work backwards to figure out the recId needed to recover the signature.
         int recId = -1;
@@ -46,12 +87,7 @@ public class SignatureService {
         }
         if (recId == -1)
             throw new RuntimeException("Could not construct a recoverable key. This should never happen.");
-        int headerByte = recId + 27 + (key.isCompressed() ? 4 : 0);
-        byte[] sigData = new byte[65];  // 1 header + 32 bytes for R + 32 bytes for S
-        sigData[0] = (byte) headerByte;
-        System.arraycopy(Utils.bigIntegerToBytes(sig.r, 32), 0, sigData, 1, 32);
-        System.arraycopy(Utils.bigIntegerToBytes(sig.s, 32), 0, sigData, 33, 32);
-        return new String(Base64.encode(sigData), Charsets.UTF_8);
+        return encode(key, recId, sig.r, sig.s);
     }
 
     public byte[] digestMessageWithSignature(ECKey key, String message) {
@@ -62,4 +98,18 @@ public class SignatureService {
     public boolean verify(ECKey key, Sha256Hash hash, ECKey.ECDSASignature signature) {
         return key.verify(hash, signature);
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static String encode(ECKey key, int recId, BigInteger r, BigInteger s) {
+        int headerByte = recId + 27 + (key.isCompressed() ? 4 : 0);
+        byte[] sigData = new byte[65];  // 1 header + 32 bytes for R + 32 bytes for S
+        sigData[0] = (byte) headerByte;
+        System.arraycopy(Utils.bigIntegerToBytes(r, 32), 0, sigData, 1, 32);
+        System.arraycopy(Utils.bigIntegerToBytes(s, 32), 0, sigData, 33, 32);
+        return new String(Base64.encode(sigData), Charsets.UTF_8);
+    }
 }
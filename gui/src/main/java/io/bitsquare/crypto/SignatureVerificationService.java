@@ -0,0 +1,216 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.crypto;
+
+import org.bitcoinj.core.Sha256Hash;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies the signatures of the data we get from the DHT (offers, arbitrators, contracts). A batch gets split into
+ * chunks which are verified in parallel on all cores. The results are cached by the hash of the signed content, so
+ * entries we got already at a former poll are not verified again.
+ */
+public class SignatureVerificationService {
+    private static final Logger log = LoggerFactory.getLogger(SignatureVerificationService.class);
+
+    private static final int MAX_CACHED_RESULTS = 100_000;
+    // Verifying a signature takes about 0.1 ms, below that it is not worth to distribute the work
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final ListeningExecutorService executorService;
+    private final int numThreads;
+    private final Cache<Sha256Hash, Boolean> results =
+            CacheBuilder.newBuilder().maximumSize(MAX_CACHED_RESULTS).build();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public SignatureVerificationService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    @VisibleForTesting
+    SignatureVerificationService(int numThreads) {
+        this.numThreads = numThreads;
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("SignatureVerification-%d").setDaemon(true).build()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Verifies a single entry on the calling thread
+    public boolean verify(SignedData signedData) {
+        Boolean result = results.getIfPresent(signedData.getHash());
+        if (result == null) {
+            result = verifySignature(signedData);
+            results.put(signedData.getHash(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Verifies all entries of the batch. Cached results are looked up on the calling thread, only the remaining entries
+     * are verified on the thread pool.
+     *
+     * @return A future with the results in the order of the batch
+     */
+    public ListenableFuture<List<Boolean>> verifyAll(List<SignedData> batch) {
+        Boolean[] batchResults = new Boolean[batch.size()];
+        List<Integer> uncached = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            batchResults[i] = results.getIfPresent(batch.get(i).getHash());
+            if (batchResults[i] == null)
+                uncached.add(i);
+        }
+        if (uncached.isEmpty())
+            return Futures.immediateFuture(Arrays.asList(batchResults));
+
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (uncached.size() + numThreads - 1) / numThreads);
+        List<ListenableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < uncached.size(); from += chunkSize) {
+            List<Integer> chunk = uncached.subList(from, Math.min(from + chunkSize, uncached.size()));
+            // Each chunk writes to its own indices of the array, allAsList makes the writes visible to the listeners
+            chunks.add(executorService.submit(() -> {
+                for (int index : chunk)
+                    batchResults[index] = verify(batch.get(index));
+                return null;
+            }));
+        }
+        return Futures.transform(Futures.allAsList(chunks),
+                (Function<List<Void>, List<Boolean>>) ignored -> Arrays.asList(batchResults));
+    }
+
+    public void shutDown() {
+        executorService.shutdown();
+    }
+
+    @VisibleForTesting
+    long getNumCachedResults() {
+        return results.size();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static boolean verifySignature(SignedData signedData) {
+        String algorithm = getSignatureAlgorithm(signedData.publicKey);
+        if (algorithm == null) {
+            log.warn("Unsupported key algorithm " + signedData.publicKey.getAlgorithm());
+            return false;
+        }
+
+        try {
+            Signature signature = Signature.getInstance(algorithm);
+            signature.initVerify(signedData.publicKey);
+            signature.update(signedData.data);
+            return signature.verify(signedData.signature);
+        } catch (GeneralSecurityException e) {
+            // A malformed signature is just an invalid one
+            log.debug("Signature verification failed. " + e);
+            return false;
+        }
+    }
+
+    // Same algorithms as used by TomP2P for the entry and domain protection
+    private static String getSignatureAlgorithm(PublicKey publicKey) {
+        switch (publicKey.getAlgorithm()) {
+            case "DSA":
+                return "SHA1withDSA";
+            case "EC":
+                return "SHA256withECDSA";
+            case "RSA":
+                return "SHA256withRSA";
+            default:
+                return null;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static class SignedData {
+        private final PublicKey publicKey;
+        private final byte[] data;
+        private final byte[] signature;
+        private Sha256Hash hash;
+
+        public SignedData(PublicKey publicKey, byte[] data, byte[] signature) {
+            this.publicKey = publicKey;
+            this.data = data;
+            this.signature = signature;
+        }
+
+        // The cache key covers the key and the signature as well, a valid signature of other data must not match
+        Sha256Hash getHash() {
+            if (hash == null) {
+                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(byteArrayOutputStream)) {
+                    byte[] encodedPublicKey = publicKey.getEncoded();
+                    out.writeInt(encodedPublicKey.length);
+                    out.write(encodedPublicKey);
+                    out.writeInt(data.length);
+                    out.write(data);
+                    out.write(signature);
+                } catch (IOException e) {
+                    // Cannot happen with a ByteArrayOutputStream
+                    throw new RuntimeException(e);
+                }
+                hash = Sha256Hash.create(byteArrayOutputStream.toByteArray());
+            }
+            return hash;
+        }
+    }
+}
@@ -24,9 +24,11 @@ import io.bitsquare.arbitrator.ArbitratorMessageService;
 import io.bitsquare.arbitrator.Reputation;
 import io.bitsquare.bank.BankAccount;
 import io.bitsquare.bank.BankAccountType;
+import io.bitsquare.btc.AddressEntry;
 import io.bitsquare.btc.BitcoinNetwork;
 import io.bitsquare.btc.WalletService;
 import io.bitsquare.gui.util.BSFormatter;
+import io.bitsquare.gui.util.Profiler;
 import io.bitsquare.locale.CountryUtil;
 import io.bitsquare.locale.LanguageUtil;
 import io.bitsquare.network.BootstrapState;
@@ -36,7 +38,7 @@ import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.TradeManager;
 import io.bitsquare.trade.TradeMessageService;
 import io.bitsquare.user.User;
-import io.bitsquare.util.DSAKeyUtil;
+import io.bitsquare.util.MessageKeyUtil;
 
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.ECKey;
@@ -165,8 +167,13 @@ class MainViewModel implements ViewModel {
                         setBitcoinNetworkSyncProgress(percentage / 100.0);
                 }),
                 error -> log.error(error.toString()),
-                () -> Platform.runLater(() -> setBitcoinNetworkSyncProgress(1.0)));
+                () -> Platform.runLater(() -> {
+                    setBitcoinNetworkSyncProgress(1.0);
+                    Profiler.printWalletEventThreadWork(walletService.getSyncStats());
+                }));
 
+        if (user.getLegacyMessageKeyPair() != null)
+            clientNode.setLegacyPublicKey(user.getLegacyMessageKeyPair().getPublic());
         Observable<BootstrapState> messageObservable = clientNode.bootstrap(user.getMessageKeyPair(), tradeMessageService);
         messageObservable.publish();
         messageObservable.subscribe(
@@ -216,6 +223,9 @@ class MainViewModel implements ViewModel {
     private void allTasksCompleted() {
         log.trace("backend completed");
 
+        migrateLegacyAccountID();
+        tradeManager.onAllServicesInitialized();
+
         tradeManager.getPendingTrades().addListener(
                 (MapChangeListener<String, Trade>) change -> updateNumPendingTrades());
         updateNumPendingTrades();
@@ -238,7 +248,18 @@ class MainViewModel implements ViewModel {
             user.setBankAccount(bankAccount);
             persistence.write(user);
 
-            user.setAccountID(walletService.getRegistrationAddressEntry().toString());
+            user.setAccountID(walletService.getRegistrationAddressEntry().getAddressString());
+            persistence.write(user.getClass().getName(), user);
+        }
+    }
+
+    // Account IDs of older versions are the string of the registration address entry, the account ID is the
+    // registration address now
+    private void migrateLegacyAccountID() {
+        AddressEntry registrationAddressEntry = walletService.getRegistrationAddressEntry();
+        if (user.isRegistered() && registrationAddressEntry != null &&
+                !user.getAccountId().equals(registrationAddressEntry.getAddressString())) {
+            user.setAccountID(registrationAddressEntry.getAddressString());
             persistence.write(user.getClass().getName(), user);
         }
     }
@@ -350,7 +371,12 @@ class MainViewModel implements ViewModel {
             blockchainSyncIconId.set("image-connection-synced");
         }
         else if (value > 0.0) {
-            blockchainSyncInfo.set("Synchronizing blockchain: " + formatter.formatToPercent(value));
+            long etaSeconds = walletService.getSyncStats().getEtaSeconds();
+            if (etaSeconds >= 0)
+                blockchainSyncInfo.set("Synchronizing blockchain: " + formatter.formatToPercent(value) +
+                        " (about " + formatter.formatDurationAsWords(etaSeconds) + " left)");
+            else
+                blockchainSyncInfo.set("Synchronizing blockchain: " + formatter.formatToPercent(value));
         }
         else {
             blockchainSyncInfo.set("Connecting to the bitcoin network...");
@@ -360,7 +386,7 @@ class MainViewModel implements ViewModel {
     private void addMockArbitrator() {
         if (accountSettings.getAcceptedArbitrators().isEmpty() && user.getMessageKeyPair() != null) {
             String pubKeyAsHex = Utils.HEX.encode(new ECKey().getPubKey());
-            String messagePubKeyAsHex = DSAKeyUtil.getHexStringFromPublicKey(user.getMessagePublicKey());
+            String messagePubKeyAsHex = MessageKeyUtil.getHexStringFromPublicKey(user.getMessagePublicKey());
             List<Locale> languages = new ArrayList<>();
             languages.add(LanguageUtil.getDefaultLanguageLocale());
             List<Arbitrator.METHOD> arbitrationMethods = new ArrayList<>();
@@ -26,7 +26,9 @@ import io.bitsquare.arbitrator.listeners.ArbitratorListener;
 import io.bitsquare.persistence.Persistence;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 import javax.inject.Inject;
 
@@ -70,7 +72,7 @@ public class ArbitratorBrowserView extends ActivatableView<Pane, Void> implement
     @Override
     public void initialize() {
         messageService.addArbitratorListener(this);
-        messageService.getArbitrators(LanguageUtil.getDefaultLanguageLocale());
+        getLanguages().stream().forEach(messageService::getArbitrators);
 
         View view = viewLoader.load(ArbitratorProfileView.class);
         root.getChildren().set(0, view.getRoot());
@@ -85,8 +87,9 @@ public class ArbitratorBrowserView extends ActivatableView<Pane, Void> implement
 
     @Override
     public void onArbitratorsReceived(List<Arbitrator> arbitrators) {
+        // The result only covers one language, so we look up all accepted languages in the directory
         allArbitrators.clear();
-        allArbitrators.addAll(arbitrators);
+        allArbitrators.addAll(messageService.getArbitratorDirectory().find(getLanguages(), null, null, null));
 
         if (!allArbitrators.isEmpty()) {
             index = 0;
@@ -132,6 +135,11 @@ public class ArbitratorBrowserView extends ActivatableView<Pane, Void> implement
         stage.close();
     }
 
+    private List<Locale> getLanguages() {
+        List<Locale> languages = accountSettings.getAcceptedLanguageLocales();
+        return languages.isEmpty() ? Collections.singletonList(LanguageUtil.getDefaultLanguageLocale()) : languages;
+    }
+
     private void checkButtonState() {
         prevButton.setDisable(index < 1);
         nextButton.setDisable(index == allArbitrators.size() - 1 || index == -1);
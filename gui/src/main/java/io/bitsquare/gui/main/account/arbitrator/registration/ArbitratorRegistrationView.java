@@ -27,7 +27,7 @@ import io.bitsquare.locale.LanguageUtil;
 import io.bitsquare.arbitrator.ArbitratorMessageService;
 import io.bitsquare.persistence.Persistence;
 import io.bitsquare.user.User;
-import io.bitsquare.util.DSAKeyUtil;
+import io.bitsquare.util.MessageKeyUtil;
 import io.bitsquare.util.Utilities;
 
 import org.bitcoinj.core.Coin;
@@ -333,7 +333,7 @@ public class ArbitratorRegistrationView extends ActivatableView<AnchorPane, Void
             public void onKeysAdded(List<ECKey> keys) {
 
             }
-        });
+        }, Platform::runLater);
     }
 
     private void applyArbitrator() {
@@ -371,7 +371,7 @@ public class ArbitratorRegistrationView extends ActivatableView<AnchorPane, Void
 
     private Arbitrator getEditedArbitrator() {
         String pubKeyAsHex = walletService.getArbitratorDepositAddressEntry().getPubKeyAsHexString();
-        String messagePubKeyAsHex = DSAKeyUtil.getHexStringFromPublicKey(user.getMessagePublicKey());
+        String messagePubKeyAsHex = MessageKeyUtil.getHexStringFromPublicKey(user.getMessagePublicKey());
         String name = nameTextField.getText();
         Coin fee = formatter.parseToCoin(arbitrationFeeTextField.getText());
         String webUrl = webPageTextField.getText();
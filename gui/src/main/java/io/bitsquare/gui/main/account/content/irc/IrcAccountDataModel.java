@@ -28,7 +28,7 @@ import io.bitsquare.locale.LanguageUtil;
 import io.bitsquare.arbitrator.ArbitratorMessageService;
 import io.bitsquare.persistence.Persistence;
 import io.bitsquare.user.User;
-import io.bitsquare.util.DSAKeyUtil;
+import io.bitsquare.util.MessageKeyUtil;
 
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.ECKey;
@@ -126,7 +126,7 @@ class IrcAccountDataModel implements Activatable, DataModel {
     private void addMockArbitrator() {
         if (accountSettings.getAcceptedArbitrators().isEmpty() && user.getMessageKeyPair() != null) {
             String pubKeyAsHex = Utils.HEX.encode(new ECKey().getPubKey());
-            String messagePubKeyAsHex = DSAKeyUtil.getHexStringFromPublicKey(user.getMessagePublicKey());
+            String messagePubKeyAsHex = MessageKeyUtil.getHexStringFromPublicKey(user.getMessagePublicKey());
             List<Locale> languages = new ArrayList<>();
             languages.add(LanguageUtil.getDefaultLanguageLocale());
             List<Arbitrator.METHOD> arbitrationMethods = new ArrayList<>();
@@ -90,7 +90,7 @@ class RegistrationDataModel implements DataModel {
                     log.info("payRegistrationFee onSuccess tx id:" + transaction.getHashAsString());
 
                     if (getAddressEntry() != null)
-                        user.setAccountID(getAddressEntry().toString());
+                        user.setAccountID(getAddressEntry().getAddressString());
 
                     persistence.write(user.getClass().getName(), user);
                     payFeeSuccess.set(true);
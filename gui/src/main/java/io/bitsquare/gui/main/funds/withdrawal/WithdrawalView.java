@@ -33,6 +33,8 @@ import org.bitcoinj.core.Transaction;
 
 import com.google.common.util.concurrent.FutureCallback;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,6 +45,7 @@ import viewfx.view.support.ActivatableViewAndModel;
 
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -64,6 +67,8 @@ public class WithdrawalView extends ActivatableViewAndModel {
     @FXML TableColumn<WithdrawalListItem, WithdrawalListItem> labelColumn, addressColumn, balanceColumn, copyColumn,
             confidenceColumn;
 
+    private static final String ADDRESS_SEPARATOR = ", ";
+
     private final WalletService walletService;
     private final BSFormatter formatter;
     private final ObservableList<WithdrawalListItem> addressList = FXCollections.observableArrayList();
@@ -88,12 +93,20 @@ public class WithdrawalView extends ActivatableViewAndModel {
 
     @Override
     public void doActivate() {
-        table.getSelectionModel().selectedItemProperty().addListener((observableValue, oldValue, newValue) -> {
-            if (newValue != null) {
-
-                if (Coin.ZERO.compareTo(newValue.getBalance()) <= 0) {
-                    amountTextField.setText(newValue.getBalance().toPlainString());
-                    withdrawFromTextField.setText(newValue.getAddressEntry().getAddressString());
+        table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        table.getSelectionModel().getSelectedItems().addListener((ListChangeListener<WithdrawalListItem>) change -> {
+            List<? extends WithdrawalListItem> selectedItems = change.getList();
+            if (!selectedItems.isEmpty()) {
+                Coin balance = selectedItems.stream()
+                        .map(WithdrawalListItem::getBalance)
+                        .reduce(Coin.ZERO, Coin::add);
+
+                if (Coin.ZERO.compareTo(balance) <= 0) {
+                    amountTextField.setText(balance.toPlainString());
+                    // Several selected addresses are withdrawn together in one transaction
+                    withdrawFromTextField.setText(selectedItems.stream()
+                            .map(item -> item.getAddressEntry().getAddressString())
+                            .collect(Collectors.joining(ADDRESS_SEPARATOR)));
                 }
                 else {
                     withdrawFromTextField.setText("");
@@ -155,8 +168,18 @@ public class WithdrawalView extends ActivatableViewAndModel {
             Popups.removeBlurContent();
             if (Popups.isOK(response)) {
                 try {
-                    walletService.sendFunds(withdrawFromTextField.getText(), withdrawToTextField.getText(),
-                            amount, callback);
+                    List<String> withdrawFromAddresses =
+                            Arrays.asList(withdrawFromTextField.getText().split(ADDRESS_SEPARATOR));
+                    if (withdrawFromAddresses.size() == 1) {
+                        walletService.sendFunds(withdrawFromAddresses.get(0), withdrawToTextField.getText(),
+                                amount, callback);
+                    }
+                    else {
+                        walletService.sendFunds(withdrawFromAddresses,
+                                Collections.singletonMap(withdrawToTextField.getText(),
+                                        amount.subtract(FeePolicy.TX_FEE)),
+                                callback);
+                    }
                     fillList();
                 } catch (AddressFormatException e) {
                     Popups.openErrorPopup("Address invalid",
@@ -75,7 +75,7 @@ class ClosedTradesDataModel implements Activatable, DataModel {
     }
 
     public Direction getDirection(Offer offer) {
-        return offer.getMessagePublicKey().equals(user.getMessagePublicKey()) ?
+        return user.isMyMessagePublicKey(offer.getMessagePublicKey()) ?
                 offer.getDirection() : offer.getMirroredDirection();
     }
 
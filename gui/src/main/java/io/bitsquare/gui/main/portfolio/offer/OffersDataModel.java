@@ -89,7 +89,7 @@ class OffersDataModel implements Activatable, DataModel {
 
     public Direction getDirection(OpenOffer openOffer) {
         Offer offer = openOffer.getOffer();
-        return offer.getMessagePublicKey().equals(user.getMessagePublicKey()) ?
+        return user.isMyMessagePublicKey(offer.getMessagePublicKey()) ?
                 offer.getDirection() : offer.getMirroredDirection();
     }
 }
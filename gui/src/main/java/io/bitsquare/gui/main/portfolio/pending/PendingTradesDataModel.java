@@ -134,7 +134,7 @@ class PendingTradesDataModel implements Activatable, DataModel {
         selectedItem = item;
 
         if (selectedItem != null) {
-            isOfferer = getTrade().getOffer().getMessagePublicKey().equals(user.getMessagePublicKey());
+            isOfferer = user.isMyMessagePublicKey(getTrade().getOffer().getMessagePublicKey());
 
             Trade trade = getTrade();
             trade.stateProperty().addListener(stateChangeListener);
@@ -260,7 +260,7 @@ class PendingTradesDataModel implements Activatable, DataModel {
     }
 
     public Direction getDirection(Offer offer) {
-        return offer.getMessagePublicKey().equals(user.getMessagePublicKey()) ?
+        return user.isMyMessagePublicKey(offer.getMessagePublicKey()) ?
                 offer.getDirection() : offer.getMirroredDirection();
     }
 
@@ -238,6 +238,7 @@ class PendingTradesViewModel extends ActivatableWithDataModel<PendingTradesDataM
                     state.set(dataModel.isOfferer() ? State.OFFERER_BUYER_COMPLETED : State.TAKER_SELLER_COMPLETED);
                     break;
                 case FAILED:
+                case MANUAL_HANDLING_REQUIRED:
                     // TODO error states not implemented yet
                     break;
                 default:
@@ -214,7 +214,7 @@ class OfferBookDataModel implements Activatable, DataModel {
     }
 
     boolean isMyOffer(Offer offer) {
-        return offer.getMessagePublicKey() != null && offer.getMessagePublicKey().equals(user.getMessagePublicKey());
+        return offer.getMessagePublicKey() != null && user.isMyMessagePublicKey(offer.getMessagePublicKey());
     }
 
     Coin getAmountAsCoin() {
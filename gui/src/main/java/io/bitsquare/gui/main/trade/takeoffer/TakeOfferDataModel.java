@@ -167,6 +167,10 @@ class TakeOfferDataModel implements Activatable, DataModel {
                 case FAILED:
                     requestTakeOfferErrorMessage.set("An error occurred. Error: " + trade.getFault().getMessage());
                     break;
+                case MANUAL_HANDLING_REQUIRED:
+                    requestTakeOfferErrorMessage.set("The trade got interrupted and needs to be checked. Error: " +
+                            trade.getFault().getMessage());
+                    break;
                 case PAYOUT_PUBLISHED:
                     break;
                 default:
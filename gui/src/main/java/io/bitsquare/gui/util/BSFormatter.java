@@ -348,6 +348,15 @@ public class BSFormatter {
         return decimalFormat.format(value * 100.0) + " %";
     }
 
+    public String formatDurationAsWords(long seconds) {
+        if (seconds < 60)
+            return seconds + " sec";
+        else if (seconds < 3600)
+            return (seconds / 60) + " min";
+        else
+            return (seconds / 3600) + " h " + ((seconds % 3600) / 60) + " min";
+    }
+
     private String cleanInput(String input) {
         input = input.replace(",", ".");
         // don't use String.valueOf(Double.parseDouble(input)) as return value as it gives scientific
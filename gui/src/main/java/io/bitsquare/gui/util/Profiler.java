@@ -17,6 +17,8 @@
 
 package io.bitsquare.gui.util;
 
+import io.bitsquare.btc.WalletSyncStats;
+
 import com.google.common.base.Stopwatch;
 
 import java.util.concurrent.TimeUnit;
@@ -42,6 +44,14 @@ public class Profiler {
         last.set(elapsed);
     }
 
+    // The wallet listeners run on the wallet event thread and only post their results to the UI thread
+    public static void printWalletEventThreadWork(WalletSyncStats syncStats) {
+        log.debug("Profiler: {} wallet events took {}ms off the UI thread, {} updates posted to the UI thread, " +
+                        "{} merged into pending updates",
+                syncStats.getWalletListenerCalls(), syncStats.getWalletListenerTimeMillis(),
+                syncStats.getUserThreadUpdatesPosted(), syncStats.getUserThreadUpdatesCoalesced());
+    }
+
     public static void init() {
         AnimationTimer fpsTimer = new AnimationTimer() {
             @Override
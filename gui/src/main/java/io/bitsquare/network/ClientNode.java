@@ -18,6 +18,9 @@
 package io.bitsquare.network;
 
 import java.security.KeyPair;
+import java.security.PublicKey;
+
+import javax.annotation.Nullable;
 
 import rx.Observable;
 
@@ -29,4 +32,8 @@ public interface ClientNode {
     Node getBootstrapNodeAddress();
 
     public Observable<BootstrapState> bootstrap(KeyPair keyPair, MessageBroker messageBroker);
+
+    // Our address gets stored under that key as well, so peers can still reach us by a key we migrated away from.
+    // Must be set before bootstrapping.
+    public void setLegacyPublicKey(@Nullable PublicKey legacyPublicKey);
 }
@@ -0,0 +1,29 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.network;
+
+/**
+ * Data we store in the DHT. The content key of the entry is derived from the content hash, which covers only the
+ * data identifying the object. It is calculated once, so adding, removing and looking up the entry never needs to
+ * serialize the object again, and mutable data of the object does not change its key.
+ */
+public interface ContentAddressable {
+
+    byte[] getContentHash();
+}
@@ -22,8 +22,10 @@ import io.bitsquare.network.MessageBroker;
 import io.bitsquare.network.BootstrapState;
 import io.bitsquare.network.ClientNode;
 import io.bitsquare.network.ConnectionType;
+import io.bitsquare.network.ContentAddressable;
 import io.bitsquare.network.NetworkException;
 import io.bitsquare.network.Node;
+import io.bitsquare.util.MessageKeyUtil;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -34,6 +36,7 @@ import java.io.IOException;
 import java.security.KeyPair;
 import java.security.PublicKey;
 
+import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -46,6 +49,7 @@ import net.tomp2p.dht.FuturePut;
 import net.tomp2p.dht.FutureRemove;
 import net.tomp2p.dht.PeerDHT;
 import net.tomp2p.futures.BaseFuture;
+import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.futures.BaseFutureListener;
 import net.tomp2p.futures.FutureDirect;
 import net.tomp2p.peers.Number160;
@@ -74,6 +78,7 @@ public class TomP2PNode implements ClientNode {
     private static final Logger log = LoggerFactory.getLogger(TomP2PNode.class);
 
     private KeyPair keyPair;
+    @Nullable private PublicKey legacyPublicKey;
     private PeerAddress storedPeerAddress;
     private PeerDHT peerDHT;
     private BootstrappedPeerBuilder bootstrappedPeerBuilder;
@@ -143,6 +148,11 @@ public class TomP2PNode implements ClientNode {
         return bootstrapStateSubject.asObservable();
     }
 
+    @Override
+    public void setLegacyPublicKey(@Nullable PublicKey legacyPublicKey) {
+        this.legacyPublicKey = legacyPublicKey;
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Generic DHT methods
@@ -176,9 +186,22 @@ public class TomP2PNode implements ClientNode {
     }
 
     public FutureRemove removeFromDataMap(Number160 locationKey, Data data) {
-        Number160 contentKey = data.hash();
-        log.trace("removeFromDataMap with contentKey " + contentKey.toString());
-        return peerDHT.remove(locationKey).contentKey(contentKey).start();
+        return removeFromDataMap(locationKey, data.hash());
+    }
+
+    // Entries of content addressable objects are stored with their own content key instead of the hash of the
+    // serialized data, so they can be removed without serializing them again
+    public FuturePut addProtectedData(Number160 locationKey, ContentAddressable content, Data data) {
+        log.trace("addProtectedData");
+        return peerDHT.put(locationKey).data(getContentKey(content), data).start();
+    }
+
+    public FutureRemove removeFromDataMap(Number160 locationKey, ContentAddressable content) {
+        return removeFromDataMap(locationKey, getContentKey(content));
+    }
+
+    public static Number160 getContentKey(ContentAddressable content) {
+        return new Number160(Arrays.copyOf(content.getContentHash(), Number160.BYTE_ARRAY_SIZE));
     }
 
     public FutureGet getDataMap(Number160 locationKey) {
@@ -186,6 +209,10 @@ public class TomP2PNode implements ClientNode {
         return peerDHT.get(locationKey).all().start();
     }
 
+    public PeerAddress getPeerAddress() {
+        return peerDHT.peerAddress();
+    }
+
     public FutureDirect sendData(PeerAddress peerAddress, Object payLoad) {
         log.trace("sendData");
         FutureDirect futureDirect = peerDHT.peer().sendDirect(peerAddress).object(payLoad).start();
@@ -305,6 +332,11 @@ public class TomP2PNode implements ClientNode {
         });
     }
 
+    private FutureRemove removeFromDataMap(Number160 locationKey, Number160 contentKey) {
+        log.trace("removeFromDataMap with contentKey " + contentKey.toString());
+        return peerDHT.remove(locationKey).contentKey(contentKey).start();
+    }
+
     private void setupTimerForIPCheck() {
         Timer timer = new Timer();
         long checkIfIPChangedPeriod = 600 * 1000;
@@ -353,10 +385,24 @@ public class TomP2PNode implements ClientNode {
     }
 
     private FuturePut saveAddress() throws IOException {
-        Number160 locationKey = Utils.makeSHAHash(keyPair.getPublic().getEncoded());
         Data data = new Data(new TomP2PPeer(peerDHT.peerAddress()));
         log.debug("storePeerAddress " + peerDHT.peerAddress().toString());
-        return putDomainProtectedData(locationKey, data);
+        if (legacyPublicKey != null) {
+            // Peers which got our legacy key from an old offer or trade look us up there
+            putDomainProtectedData(getAddressLocationKey(legacyPublicKey), data).addListener(
+                    new BaseFutureAdapter<BaseFuture>() {
+                        @Override
+                        public void operationComplete(BaseFuture future) throws Exception {
+                            if (!future.isSuccess())
+                                log.warn("Storing address under legacy key failed. " + future.failedReason());
+                        }
+                    });
+        }
+        return putDomainProtectedData(getAddressLocationKey(keyPair.getPublic()), data);
+    }
+
+    public static Number160 getAddressLocationKey(PublicKey publicKey) {
+        return Utils.makeSHAHash(MessageKeyUtil.getCompactEncoding(publicKey));
     }
 
     @Override
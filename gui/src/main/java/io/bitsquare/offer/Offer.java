@@ -20,11 +20,16 @@ package io.bitsquare.offer;
 import io.bitsquare.arbitrator.Arbitrator;
 import io.bitsquare.bank.BankAccountType;
 import io.bitsquare.locale.Country;
+import io.bitsquare.network.ContentAddressable;
+import io.bitsquare.util.CanonicalWriter;
+import io.bitsquare.util.MessageKeyUtil;
 
 import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.utils.ExchangeRate;
 import org.bitcoinj.utils.Fiat;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import java.security.PublicKey;
@@ -42,7 +47,7 @@ import static io.bitsquare.btc.Restrictions.MIN_TRADE_AMOUNT;
 
 //TODO flatten down?
 
-public class Offer implements Serializable {
+public class Offer implements Serializable, ContentAddressable {
     private static final long serialVersionUID = -971164804305475826L;
 
 
@@ -76,9 +81,13 @@ public class Offer implements Serializable {
     private final String bankAccountUID;
     private final List<Arbitrator> arbitrators;
 
-    // Mutable property. Has to be set before offer is save in DHT as it changes the objects hash!
+    // Mutable property, it is not part of the content hash
     private String offerFeePaymentTxID;
 
+    // Derived from the immutable data, calculated once at first access
+    private transient byte[] canonicalBytes;
+    private transient byte[] contentHash;
+
     // Those state properties are transient and only used at runtime! 
     private transient State state;
     // don't access directly as it might be null; use getStateProperty() which creates an object if not instantiated
@@ -134,6 +143,56 @@ public class Offer implements Serializable {
         getStateProperty().set(state);
     }
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // ContentAddressable
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public byte[] getContentHash() {
+        if (contentHash == null)
+            contentHash = Sha256Hash.create(getCanonicalBytes()).getBytes();
+        return contentHash.clone();
+    }
+
+    // Deterministic binary encoding of the immutable offer data
+    public byte[] getCanonicalBytes() {
+        if (canonicalBytes == null) {
+            try (CanonicalWriter writer = new CanonicalWriter()) {
+                writer.writeString(id);
+                writer.writeString(direction.name());
+                writer.writeString(currency.getCurrencyCode());
+                writer.writeLong(fiatPrice);
+                writer.writeCoin(amount);
+                writer.writeCoin(minAmount);
+                writer.writeCoin(securityDeposit);
+                writer.writeByteArray(MessageKeyUtil.getCompactEncoding(messagePublicKey));
+                writer.writeString(bankAccountType.name());
+                writer.writeString(bankAccountCountry.getCode());
+                writer.writeString(bankAccountUID);
+                writer.writeLong(creationDate.getTime());
+
+                writer.writeInt(acceptedCountries.size());
+                for (Country country : acceptedCountries)
+                    writer.writeString(country.getCode());
+
+                writer.writeInt(acceptedLanguageLocales.size());
+                for (Locale locale : acceptedLanguageLocales)
+                    writer.writeString(locale.toLanguageTag());
+
+                writer.writeInt(arbitrators.size());
+                for (Arbitrator arbitrator : arbitrators)
+                    writer.writeString(arbitrator.getId());
+
+                canonicalBytes = writer.toByteArray();
+            } catch (IOException e) {
+                // Cannot happen as we write to memory
+                throw new RuntimeException(e);
+            }
+        }
+        return canonicalBytes.clone();
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Getters
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -35,6 +35,11 @@ public interface OfferBookService {
 
     void removeOffer(Offer offer, ResultHandler resultHandler, FaultHandler faultHandler);
 
+    // The result handler is called once when all offers are added, the fault handler if any of them failed
+    void addOffers(List<Offer> offers, ResultHandler resultHandler, FaultHandler faultHandler);
+
+    void removeOffers(List<Offer> offers, ResultHandler resultHandler, FaultHandler faultHandler);
+
     void addListener(Listener listener);
 
     void removeListener(Listener listener);
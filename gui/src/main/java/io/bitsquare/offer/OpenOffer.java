@@ -17,6 +17,8 @@
 
 package io.bitsquare.offer;
 
+import io.bitsquare.util.UserThread;
+
 import java.io.Serializable;
 
 import javafx.beans.property.ObjectProperty;
@@ -61,7 +63,7 @@ public class OpenOffer implements Serializable {
 
     public void setState(State state) {
         this.state = state;
-        stateProperty().set(state);
+        UserThread.execute(() -> stateProperty().set(state));
     }
 
     public State getState() {
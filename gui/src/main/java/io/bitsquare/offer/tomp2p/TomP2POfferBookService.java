@@ -26,9 +26,15 @@ import io.bitsquare.util.handlers.ResultHandler;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import javafx.beans.property.LongProperty;
 import javafx.beans.property.SimpleLongProperty;
@@ -66,98 +72,120 @@ public class TomP2POfferBookService implements OfferBookService {
 
     @Override
     public void addOffer(Offer offer, ResultHandler resultHandler, FaultHandler faultHandler) {
-        Number160 locationKey = Number160.createHash(offer.getCurrency().getCurrencyCode());
-        try {
-            final Data offerData = new Data(offer);
-
-            // the offer is default 30 days valid
-            int defaultOfferTTL = 30 * 24 * 60 * 60;
-            offerData.ttlSeconds(defaultOfferTTL);
-            log.trace("Add offer to DHT requested. Added data: [locationKey: " + locationKey +
-                    ", hash: " + offerData.hash().toString() + "]");
-            FuturePut futurePut = tomP2PNode.addProtectedData(locationKey, offerData);
-            futurePut.addListener(new BaseFutureListener<BaseFuture>() {
-                @Override
-                public void operationComplete(BaseFuture future) throws Exception {
-                    if (future.isSuccess()) {
-                        executor.execute(() -> {
-                            resultHandler.handleResult();
-                            offerRepositoryListeners.stream().forEach(listener -> {
-                                try {
-                                    Object offerDataObject = offerData.object();
-                                    if (offerDataObject instanceof Offer) {
-                                        log.info("Added offer to DHT with ID: " + offerDataObject);
-                                        listener.onOfferAdded((Offer) offerDataObject);
-                                    }
-                                } catch (ClassNotFoundException | IOException e) {
-                                    e.printStackTrace();
-                                    log.error("Add offer to DHT failed: " + e.getMessage());
-                                }
-                            });
+        addOffers(Collections.singletonList(offer), resultHandler, faultHandler);
+    }
+
+    // All offers are put to the DHT at once, we don't wait for one put before we start the next. The invalidation
+    // timestamp is written once per currency when all puts are completed.
+    @Override
+    public void addOffers(List<Offer> offers, ResultHandler resultHandler, FaultHandler faultHandler) {
+        BatchResult batchResult = new BatchResult(offers.size(), resultHandler, faultHandler, offer -> {
+            log.info("Added offer to DHT with ID: " + offer.getId());
+            offerRepositoryListeners.stream().forEach(listener -> listener.onOfferAdded(offer));
+        });
 
-                            writeInvalidationTimestampToDHT(offer.getCurrency().getCurrencyCode());
+        for (Offer offer : offers) {
+            Number160 locationKey = Number160.createHash(offer.getCurrency().getCurrencyCode());
+            try {
+                final Data offerData = new Data(offer);
+
+                // the offer is default 30 days valid
+                int defaultOfferTTL = 30 * 24 * 60 * 60;
+                offerData.ttlSeconds(defaultOfferTTL);
+                log.trace("Add offer to DHT requested. Added data: [locationKey: " + locationKey +
+                        ", contentKey: " + TomP2PNode.getContentKey(offer) + "]");
+                FuturePut futurePut = tomP2PNode.addProtectedData(locationKey, offer, offerData);
+                futurePut.addListener(new BaseFutureListener<BaseFuture>() {
+                    @Override
+                    public void operationComplete(BaseFuture future) throws Exception {
+                        if (future.isSuccess()) {
                             log.trace("Add offer to DHT was successful. Added data: [locationKey: " + locationKey +
                                     ", value: " + offerData + "]");
-                        });
+                            batchResult.onSuccess(offer);
+                        }
+                        else {
+                            batchResult.onFailure("Failed to add offer to DHT",
+                                    new Exception(future.failedReason()));
+                        }
                     }
-                }
 
-                @Override
-                public void exceptionCaught(Throwable ex) throws Exception {
-                    executor.execute(() -> faultHandler.handleFault("Failed to add offer to DHT", ex));
-                }
-            });
-        } catch (IOException ex) {
-            executor.execute(() -> faultHandler.handleFault("Failed to add offer to DHT", ex));
+                    @Override
+                    public void exceptionCaught(Throwable ex) throws Exception {
+                        batchResult.onFailure("Failed to add offer to DHT", ex);
+                    }
+                });
+            } catch (IOException ex) {
+                batchResult.onFailure("Failed to add offer to DHT", ex);
+            }
         }
     }
 
+    @Override
     public void removeOffer(Offer offer, ResultHandler resultHandler, FaultHandler faultHandler) {
-        Number160 locationKey = Number160.createHash(offer.getCurrency().getCurrencyCode());
-        try {
-            final Data offerData = new Data(offer);
+        removeOffers(Collections.singletonList(offer), resultHandler, faultHandler);
+    }
+
+    // The content key is derived from the offer, so we don't need to serialize the offer for removing it. Offers of
+    // former versions are stored under the hash of their serialized data, so if nothing got removed under the content
+    // key we try that one.
+    @Override
+    public void removeOffers(List<Offer> offers, ResultHandler resultHandler, FaultHandler faultHandler) {
+        BatchResult batchResult = new BatchResult(offers.size(), resultHandler, faultHandler, offer -> {
+            log.trace("Remove offer from DHT was successful. Removed data: [offer: " + offer + "]");
+            offerRepositoryListeners.stream().forEach(listener -> listener.onOfferRemoved(offer));
+        });
+
+        for (Offer offer : offers) {
+            Number160 locationKey = Number160.createHash(offer.getCurrency().getCurrencyCode());
             log.trace("Remove offer from DHT requested. Removed data: [locationKey: " + locationKey +
-                    ", hash: " + offerData.hash().toString() + "]");
-            FutureRemove futureRemove = tomP2PNode.removeFromDataMap(locationKey, offerData);
+                    ", contentKey: " + TomP2PNode.getContentKey(offer) + "]");
+            FutureRemove futureRemove = tomP2PNode.removeFromDataMap(locationKey, offer);
             futureRemove.addListener(new BaseFutureListener<BaseFuture>() {
                 @Override
                 public void operationComplete(BaseFuture future) throws Exception {
-                    // We don't test futureRemove.isSuccess() as this API does not fit well to that operation, 
+                    // We don't test futureRemove.isSuccess() as this API does not fit well to that operation,
                     // it might change in future to something like foundAndRemoved and notFound
                     // See discussion at: https://github.com/tomp2p/TomP2P/issues/57#issuecomment-62069840
                     log.trace("isRemoved? " + futureRemove.isRemoved());
-                    executor.execute(() -> {
-                        resultHandler.handleResult();
-                        offerRepositoryListeners.stream().forEach(listener -> {
-                            try {
-                                Object offerDataObject = offerData.object();
-                                if (offerDataObject instanceof Offer) {
-                                    log.trace("Remove offer from DHT was successful. Removed data: [key: " +
-                                            locationKey + ", " +
-                                            "offer: " + offerDataObject + "]");
-                                    listener.onOfferRemoved((Offer) offerDataObject);
-                                }
-                            } catch (ClassNotFoundException | IOException e) {
-                                e.printStackTrace();
-                                log.error("Remove offer from DHT failed. Error: " + e.getMessage());
-                                faultHandler.handleFault("Remove offer from DHT failed. Error: " + e.getMessage(), e);
-                            }
-                        });
-                        writeInvalidationTimestampToDHT(offer.getCurrency().getCurrencyCode());
-                    });
+                    if (futureRemove.isRemoved())
+                        batchResult.onSuccess(offer);
+                    else
+                        removeLegacyOffer(locationKey, offer, batchResult);
                 }
 
                 @Override
                 public void exceptionCaught(Throwable t) throws Exception {
                     log.error("Remove offer from DHT failed. Error: " + t.getMessage());
-                    faultHandler.handleFault("Remove offer from DHT failed. Error: " + t.getMessage(), t);
+                    batchResult.onFailure("Remove offer from DHT failed. Error: " + t.getMessage(), t);
                 }
             });
+        }
+    }
+
+    private void removeLegacyOffer(Number160 locationKey, Offer offer, BatchResult batchResult) {
+        FutureRemove futureRemove;
+        try {
+            futureRemove = tomP2PNode.removeFromDataMap(locationKey, new Data(offer));
         } catch (IOException e) {
-            e.printStackTrace();
-            log.error("Remove offer from DHT failed. Error: " + e.getMessage());
-            faultHandler.handleFault("Remove offer from DHT failed. Error: " + e.getMessage(), e);
+            batchResult.onFailure("Remove offer from DHT failed. Error: " + e.getMessage(), e);
+            return;
         }
+
+        log.trace("Remove legacy offer from DHT requested. Removed data: [locationKey: " + locationKey +
+                ", offer: " + offer + "]");
+        futureRemove.addListener(new BaseFutureListener<BaseFuture>() {
+            @Override
+            public void operationComplete(BaseFuture future) throws Exception {
+                log.trace("Legacy offer isRemoved? " + futureRemove.isRemoved());
+                batchResult.onSuccess(offer);
+            }
+
+            @Override
+            public void exceptionCaught(Throwable t) throws Exception {
+                log.error("Remove legacy offer from DHT failed. Error: " + t.getMessage());
+                batchResult.onFailure("Remove offer from DHT failed. Error: " + t.getMessage(), t);
+            }
+        });
     }
 
     public void getOffers(String currencyCode) {
@@ -292,4 +320,61 @@ public class TomP2POfferBookService implements OfferBookService {
     private Number160 getInvalidatedLocationKey(String currencyCode) {
         return Number160.createHash(currencyCode + "lastChangeTimestamp");
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Collects the results of the DHT operations of a batch of offers. When all are completed we call the handlers
+    // on the executor and write the invalidation timestamp once for each currency. If any operation failed the fault
+    // handler is called instead of the result handler, but the listeners get notified about all the offers which
+    // have been added or removed successfully.
+    private class BatchResult {
+        private final AtomicInteger pending;
+        private final ResultHandler resultHandler;
+        private final FaultHandler faultHandler;
+        private final Consumer<Offer> listenerNotifier;
+        private final List<Offer> succeeded = new CopyOnWriteArrayList<>();
+        private final Set<String> currencyCodes = new CopyOnWriteArraySet<>();
+        private volatile String faultMessage;
+        private volatile Throwable fault;
+
+        BatchResult(int size, ResultHandler resultHandler, FaultHandler faultHandler,
+                    Consumer<Offer> listenerNotifier) {
+            this.pending = new AtomicInteger(size);
+            this.resultHandler = resultHandler;
+            this.faultHandler = faultHandler;
+            this.listenerNotifier = listenerNotifier;
+            if (size == 0)
+                executor.execute(resultHandler::handleResult);
+        }
+
+        void onSuccess(Offer offer) {
+            succeeded.add(offer);
+            currencyCodes.add(offer.getCurrency().getCurrencyCode());
+            onCompleted();
+        }
+
+        void onFailure(String message, Throwable throwable) {
+            faultMessage = message;
+            fault = throwable;
+            onCompleted();
+        }
+
+        private void onCompleted() {
+            if (pending.decrementAndGet() > 0)
+                return;
+
+            executor.execute(() -> {
+                if (fault == null)
+                    resultHandler.handleResult();
+                else
+                    faultHandler.handleFault(faultMessage, fault);
+
+                succeeded.forEach(listenerNotifier);
+                currencyCodes.forEach(TomP2POfferBookService.this::writeInvalidationTimestampToDHT);
+            });
+        }
+    }
 }
@@ -20,14 +20,13 @@ package io.bitsquare.offer.tomp2p;
 import io.bitsquare.network.tomp2p.TomP2PNode;
 import io.bitsquare.offer.OfferBookService;
 import io.bitsquare.offer.OfferModule;
+import io.bitsquare.util.UserThread;
 
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 
 import javax.inject.Inject;
 
-import javafx.application.Platform;
-
 import org.springframework.core.env.Environment;
 
 public class TomP2POfferModule extends OfferModule {
@@ -49,7 +48,7 @@ class OfferBookServiceProvider implements Provider<OfferBookService> {
     @Inject
     public OfferBookServiceProvider(TomP2PNode tomP2PNode) {
         offerBookService = new TomP2POfferBookService(tomP2PNode);
-        offerBookService.setExecutor(Platform::runLater);
+        offerBookService.setExecutor(UserThread::execute);
     }
 
     public OfferBookService get() {
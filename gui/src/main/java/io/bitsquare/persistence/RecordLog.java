@@ -0,0 +1,140 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.persistence;
+
+import io.bitsquare.BitsquareException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only file of serialized records. Each record is written with its length as prefix and synced to disk, so an
+ * append costs only the size of the new record and not a rewrite of all the data we have stored before.
+ * A crash during an append can only leave an incomplete last record, which gets skipped at reading.
+ */
+public class RecordLog<T extends Serializable> {
+    private static final Logger log = LoggerFactory.getLogger(RecordLog.class);
+
+    private final File file;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public RecordLog(File file) {
+        this.file = file;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public synchronized void append(T record) {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(file, true);
+             DataOutputStream dataOutputStream = new DataOutputStream(fileOutputStream)) {
+            byte[] bytes = serialize(record);
+            dataOutputStream.writeInt(bytes.length);
+            dataOutputStream.write(bytes);
+            dataOutputStream.flush();
+            fileOutputStream.getFD().sync();
+        } catch (IOException e) {
+            throw new BitsquareException(e, "Could not append record to %s", file);
+        }
+    }
+
+    public synchronized List<T> read() {
+        List<T> records = new ArrayList<>();
+        if (!file.exists())
+            return records;
+
+        try (DataInputStream dataInputStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] bytes;
+                try {
+                    int length = dataInputStream.readInt();
+                    if (length < 0 || length > file.length()) {
+                        log.warn("Invalid record length in " + file + ". Skip the rest of the file.");
+                        break;
+                    }
+                    bytes = new byte[length];
+                    dataInputStream.readFully(bytes);
+                } catch (EOFException e) {
+                    // Either the regular end of the file or an incomplete last record
+                    break;
+                }
+                try {
+                    records.add(deserialize(bytes));
+                } catch (ClassNotFoundException | IOException | ClassCastException e) {
+                    log.warn("Skip invalid record in " + file + ". " + e);
+                }
+            }
+        } catch (IOException e) {
+            throw new BitsquareException(e, "Could not read records from %s", file);
+        }
+        return records;
+    }
+
+    public synchronized void delete() {
+        if (file.exists() && !file.delete())
+            log.warn("Could not delete record log " + file);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static byte[] serialize(Serializable record) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(record);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (T) objectInputStream.readObject();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.persistence;
+
+import io.bitsquare.BitsquareException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores each record in its own file, so a change of one record only writes that record and not all the others
+ * like a write of a whole map through {@link Persistence}.
+ * A record is written to a temp file first and then moved over the old file, so a crash never leaves a broken record.
+ */
+public class RecordStore<T extends Serializable> {
+    private static final Logger log = LoggerFactory.getLogger(RecordStore.class);
+
+    private static final String FILE_SUFFIX = ".ser";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final File dir;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public RecordStore(File dir) {
+        this.dir = dir;
+        if (!dir.exists() && !dir.mkdirs())
+            log.error("Could not create record store directory " + dir);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void put(String key, T record) {
+        putAll(Collections.singletonMap(key, record));
+    }
+
+    // Writes several records as one batch: all temp files are written before they get synced, so the file system
+    // can flush them together, and only then the records are moved in place.
+    public synchronized void putAll(Map<String, T> records) {
+        Map<String, File> tempFiles = new LinkedHashMap<>();
+        try {
+            List<FileOutputStream> fileOutputStreams = new ArrayList<>();
+            try {
+                for (Map.Entry<String, T> entry : records.entrySet()) {
+                    File tempFile = new File(dir, entry.getKey() + TEMP_FILE_SUFFIX);
+                    tempFiles.put(entry.getKey(), tempFile);
+                    FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+                    fileOutputStreams.add(fileOutputStream);
+                    ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
+                    objectOutputStream.writeObject(entry.getValue());
+                    objectOutputStream.flush();
+                }
+                for (FileOutputStream fileOutputStream : fileOutputStreams)
+                    fileOutputStream.getFD().sync();
+            } finally {
+                for (FileOutputStream fileOutputStream : fileOutputStreams)
+                    fileOutputStream.close();
+            }
+
+            for (Map.Entry<String, File> entry : tempFiles.entrySet())
+                move(entry.getValue(), getFile(entry.getKey()));
+        } catch (IOException e) {
+            throw new BitsquareException(e, "Could not write records %s to %s", records.keySet(), dir);
+        } finally {
+            for (File tempFile : tempFiles.values()) {
+                if (tempFile.exists() && !tempFile.delete())
+                    log.error("Cannot delete temp file " + tempFile);
+            }
+        }
+    }
+
+    public synchronized void remove(String key) {
+        File file = getFile(key);
+        if (file.exists() && !file.delete())
+            log.warn("Could not delete record " + file);
+    }
+
+    public synchronized Map<String, T> readAll() {
+        Map<String, T> records = new HashMap<>();
+        File[] files = dir.listFiles((directory, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null)
+            return records;
+
+        for (File file : files) {
+            String key = file.getName().substring(0, file.getName().length() - FILE_SUFFIX.length());
+            try {
+                records.put(key, read(file));
+            } catch (ClassNotFoundException | IOException | ClassCastException e) {
+                log.warn("Skip invalid record " + file + ". " + e);
+            }
+        }
+        return records;
+    }
+
+    public boolean isEmpty() {
+        File[] files = dir.listFiles((directory, name) -> name.endsWith(FILE_SUFFIX));
+        return files == null || files.length == 0;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private File getFile(String key) {
+        return new File(dir, key + FILE_SUFFIX);
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T read(File file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(file))) {
+            return (T) objectInputStream.readObject();
+        }
+    }
+}
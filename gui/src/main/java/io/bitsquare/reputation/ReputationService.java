@@ -0,0 +1,131 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.reputation;
+
+import io.bitsquare.arbitrator.Arbitrator;
+import io.bitsquare.bank.BankAccount;
+import io.bitsquare.persistence.Persistence;
+import io.bitsquare.trade.Contract;
+import io.bitsquare.trade.Trade;
+
+import java.io.File;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the reputation of the accounts and arbitrators we have traded with. The data is aggregated incrementally
+ * in a persisted {@link ReputationStore}, so the trade protocols can look it up without scanning the trade history
+ * or the blockchain.
+ */
+public class ReputationService {
+    private static final Logger log = LoggerFactory.getLogger(ReputationService.class);
+
+    private static final String REPUTATION_DIR = "reputation";
+
+    private final ReputationStore reputationStore;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public ReputationService(@Named(Persistence.DIR_KEY) File storageDir) {
+        reputationStore = new ReputationStore(new File(storageDir, REPUTATION_DIR));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Trades closed before we kept a reputation store get aggregated once, while the store is still empty
+    public synchronized void onClosedTradesLoaded(Collection<Trade> closedTrades) {
+        if (!reputationStore.isEmpty())
+            return;
+
+        closedTrades.stream().forEach(this::addCompletedTrade);
+        reputationStore.flush();
+    }
+
+    // Gets called once per trade, at the transition to PAYOUT_PUBLISHED
+    public synchronized void onTradeCompleted(Trade trade) {
+        addCompletedTrade(trade);
+        reputationStore.flush();
+    }
+
+    // Gets called once per dispute, when the arbitrator has decided it
+    public synchronized void onDisputeResolved(String arbitratorId, String winnerAccountId, String loserAccountId) {
+        reputationStore.addDisputeResult(arbitratorId, winnerAccountId, loserAccountId);
+        reputationStore.flush();
+    }
+
+    public synchronized void blacklistAccount(String accountId) {
+        reputationStore.blacklistAccount(accountId);
+        reputationStore.flush();
+    }
+
+    public synchronized void blacklistBankAccount(BankAccount bankAccount) {
+        reputationStore.blacklistBankAccount(bankAccount);
+        reputationStore.flush();
+    }
+
+    /**
+     * Used by the trade protocols to verify the peer. Besides the blacklisted accounts and bank accounts we reject
+     * accounts which lost more disputes than their completed trades make up for.
+     */
+    public synchronized boolean isBlacklisted(String accountId, BankAccount bankAccount) {
+        return reputationStore.isBlacklisted(accountId, bankAccount) ||
+                reputationStore.getAccountAggregate(accountId).getScore() < 0;
+    }
+
+    public synchronized ReputationStore.Aggregate getAccountReputation(String accountId) {
+        return reputationStore.getAccountAggregate(accountId);
+    }
+
+    public synchronized ReputationStore.Aggregate getArbitratorReputation(String arbitratorId) {
+        return reputationStore.getArbitratorAggregate(arbitratorId);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void addCompletedTrade(Trade trade) {
+        Contract contract = trade.getContract();
+        if (contract == null) {
+            log.warn("Completed trade has no contract. Trade ID: " + trade.getId());
+            return;
+        }
+
+        // The offer has only one arbitrator yet
+        List<Arbitrator> arbitrators = trade.getOffer().getArbitrators();
+        String arbitratorId = arbitrators != null && !arbitrators.isEmpty() ? arbitrators.get(0).getId() : null;
+        reputationStore.addCompletedTrade(contract.getOffererAccountID(), contract.getTakerAccountID(), arbitratorId,
+                contract.getTradeAmount());
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.reputation;
+
+import io.bitsquare.bank.BankAccount;
+import io.bitsquare.persistence.RecordStore;
+
+import org.bitcoinj.core.Coin;
+
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.Serializable;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Local store of the reputation data. Completed trades, dispute results and blacklist entries are aggregated when
+ * they arrive, so a lookup during a trade protocol is a single map access. Each aggregate is a record of its own in a
+ * {@link RecordStore}, so a completed trade only writes the aggregates of its traders and its arbitrator.
+ * <p>
+ * Not thread safe, access is synchronized by the {@link ReputationService}.
+ */
+public class ReputationStore {
+    private static final String ACCOUNT_KEY_PREFIX = "account_";
+    private static final String ARBITRATOR_KEY_PREFIX = "arbitrator_";
+    private static final String BANK_ACCOUNT_KEY_PREFIX = "bankAccount_";
+
+    private final RecordStore<Aggregate> recordStore;
+    private final Map<String, Aggregate> aggregates;
+    private final Set<String> changedKeys = new HashSet<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public ReputationStore(File dir) {
+        recordStore = new RecordStore<>(dir);
+        aggregates = recordStore.readAll();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean isEmpty() {
+        return aggregates.isEmpty();
+    }
+
+    // The changed aggregates get written at the next flush
+    public void addCompletedTrade(String offererAccountId, String takerAccountId, @Nullable String arbitratorId,
+                                  Coin tradeAmount) {
+        getOrCreate(getKey(ACCOUNT_KEY_PREFIX, offererAccountId)).addCompletedTrade(tradeAmount);
+        getOrCreate(getKey(ACCOUNT_KEY_PREFIX, takerAccountId)).addCompletedTrade(tradeAmount);
+        if (arbitratorId != null)
+            getOrCreate(getKey(ARBITRATOR_KEY_PREFIX, arbitratorId)).addCompletedTrade(tradeAmount);
+    }
+
+    public void addDisputeResult(String arbitratorId, String winnerAccountId, String loserAccountId) {
+        getOrCreate(getKey(ACCOUNT_KEY_PREFIX, winnerAccountId)).addDispute(false);
+        getOrCreate(getKey(ACCOUNT_KEY_PREFIX, loserAccountId)).addDispute(true);
+        getOrCreate(getKey(ARBITRATOR_KEY_PREFIX, arbitratorId)).addDispute(false);
+    }
+
+    public void blacklistAccount(String accountId) {
+        getOrCreate(getKey(ACCOUNT_KEY_PREFIX, accountId)).blacklisted = true;
+    }
+
+    public void blacklistBankAccount(BankAccount bankAccount) {
+        getOrCreate(getKey(BANK_ACCOUNT_KEY_PREFIX, getBankAccountId(bankAccount))).blacklisted = true;
+    }
+
+    public boolean isBlacklisted(String accountId, BankAccount bankAccount) {
+        return isBlacklisted(getKey(ACCOUNT_KEY_PREFIX, accountId)) ||
+                isBlacklisted(getKey(BANK_ACCOUNT_KEY_PREFIX, getBankAccountId(bankAccount)));
+    }
+
+    // Writes the aggregates changed since the last flush as one batch
+    public void flush() {
+        if (changedKeys.isEmpty())
+            return;
+
+        Map<String, Aggregate> records = new HashMap<>();
+        for (String key : changedKeys)
+            records.put(key, aggregates.get(key));
+        recordStore.putAll(records);
+        changedKeys.clear();
+    }
+
+    // Returns a copy, so the caller cannot change the store
+    public Aggregate getAccountAggregate(String accountId) {
+        return new Aggregate(aggregates.getOrDefault(getKey(ACCOUNT_KEY_PREFIX, accountId), new Aggregate()));
+    }
+
+    public Aggregate getArbitratorAggregate(String arbitratorId) {
+        return new Aggregate(aggregates.getOrDefault(getKey(ARBITRATOR_KEY_PREFIX, arbitratorId), new Aggregate()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private boolean isBlacklisted(String key) {
+        Aggregate aggregate = aggregates.get(key);
+        return aggregate != null && aggregate.blacklisted;
+    }
+
+    private Aggregate getOrCreate(String key) {
+        changedKeys.add(key);
+        return aggregates.computeIfAbsent(key, k -> new Aggregate());
+    }
+
+    // The key is a file name, so we use the hash of the ID which can contain any character
+    private static String getKey(String prefix, String id) {
+        return prefix + Hashing.sha256().hashString(id, StandardCharsets.UTF_8).toString();
+    }
+
+    // The same bank account can be used with other account IDs, so we blacklist the account data itself
+    private static String getBankAccountId(BankAccount bankAccount) {
+        return bankAccount.getBankAccountType() + ":" + bankAccount.getAccountPrimaryID() + ":" +
+                bankAccount.getAccountSecondaryID();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Precomputed aggregate of the history of one account, arbitrator or bank account.
+     */
+    public static class Aggregate implements Serializable {
+        private static final long serialVersionUID = -6153021779320516421L;
+
+        // A lost dispute weighs as much as that number of completed trades
+        static final int LOST_DISPUTE_PENALTY = 10;
+
+        private int numCompletedTrades;
+        private long tradeVolume;
+        private int numDisputes;
+        private int numLostDisputes;
+        private boolean blacklisted;
+
+        Aggregate() {
+        }
+
+        Aggregate(Aggregate other) {
+            numCompletedTrades = other.numCompletedTrades;
+            tradeVolume = other.tradeVolume;
+            numDisputes = other.numDisputes;
+            numLostDisputes = other.numLostDisputes;
+            blacklisted = other.blacklisted;
+        }
+
+        private void addCompletedTrade(Coin tradeAmount) {
+            numCompletedTrades++;
+            tradeVolume += tradeAmount.value;
+        }
+
+        private void addDispute(boolean lost) {
+            numDisputes++;
+            if (lost)
+                numLostDisputes++;
+        }
+
+        public int getNumCompletedTrades() {
+            return numCompletedTrades;
+        }
+
+        public Coin getTradeVolume() {
+            return Coin.valueOf(tradeVolume);
+        }
+
+        public int getNumDisputes() {
+            return numDisputes;
+        }
+
+        public int getNumLostDisputes() {
+            return numLostDisputes;
+        }
+
+        public boolean isBlacklisted() {
+            return blacklisted;
+        }
+
+        // For arbitrators there are no lost disputes, so the score is the number of cases they handled
+        public int getScore() {
+            return numCompletedTrades + numDisputes - numLostDisputes * (LOST_DISPUTE_PENALTY + 1);
+        }
+
+        @Override
+        public String toString() {
+            return "Aggregate{" +
+                    "numCompletedTrades=" + numCompletedTrades +
+                    ", tradeVolume=" + tradeVolume +
+                    ", numDisputes=" + numDisputes +
+                    ", numLostDisputes=" + numLostDisputes +
+                    ", blacklisted=" + blacklisted +
+                    '}';
+        }
+    }
+}
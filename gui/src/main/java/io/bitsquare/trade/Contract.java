@@ -19,10 +19,13 @@ package io.bitsquare.trade;
 
 import io.bitsquare.bank.BankAccount;
 import io.bitsquare.offer.Offer;
-import io.bitsquare.util.DSAKeyUtil;
+import io.bitsquare.util.CanonicalWriter;
+import io.bitsquare.util.MessageKeyUtil;
 
 import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import java.security.PublicKey;
@@ -33,6 +36,9 @@ import java.security.PublicKey;
 public class Contract implements Serializable {
     private static final long serialVersionUID = 71472356206100158L;
 
+    // Increase if the canonical encoding changes, peers with another version would not get the same hash
+    private static final int ENCODING_VERSION = 1;
+
     private final Offer offer;
     private final String takeOfferFeeTxID;
     private final Coin tradeAmount;
@@ -43,6 +49,10 @@ public class Contract implements Serializable {
     private final String offererMessagePublicKeyAsString;
     private final String takerMessagePublicKeyAsString;
 
+    // Derived data, calculated once at first access
+    private transient byte[] canonicalBytes;
+    private transient Sha256Hash hash;
+
     public Contract(Offer offer,
                     Coin tradeAmount,
                     String takeOfferFeeTxID,
@@ -59,8 +69,48 @@ public class Contract implements Serializable {
         this.takerAccountID = takerAccountID;
         this.offererBankAccount = offererBankAccount;
         this.takerBankAccount = takerBankAccount;
-        this.offererMessagePublicKeyAsString = DSAKeyUtil.getHexStringFromPublicKey(offererMessagePublicKey);
-        this.takerMessagePublicKeyAsString = DSAKeyUtil.getHexStringFromPublicKey(takerMessagePublicKey);
+        this.offererMessagePublicKeyAsString = MessageKeyUtil.getHexStringFromPublicKey(offererMessagePublicKey);
+        this.takerMessagePublicKeyAsString = MessageKeyUtil.getHexStringFromPublicKey(takerMessagePublicKey);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Deterministic binary encoding of all the contract data. Both trading peers create the contract from their own
+     * data, so they can compare and sign the hash instead of exchanging the whole contract.
+     */
+    public byte[] getCanonicalBytes() {
+        if (canonicalBytes == null) {
+            try (CanonicalWriter writer = new CanonicalWriter()) {
+                writer.writeInt(ENCODING_VERSION);
+                writer.writeByteArray(offer.getCanonicalBytes());
+                // The offer fee payment is not part of the identity of the offer
+                writer.writeString(offer.getOfferFeePaymentTxID());
+                writer.writeString(takeOfferFeeTxID);
+                writer.writeCoin(tradeAmount);
+                writer.writeString(offererAccountID);
+                writer.writeString(takerAccountID);
+                writeBankAccount(writer, offererBankAccount);
+                writeBankAccount(writer, takerBankAccount);
+                writer.writeString(offererMessagePublicKeyAsString);
+                writer.writeString(takerMessagePublicKeyAsString);
+                canonicalBytes = writer.toByteArray();
+            } catch (IOException e) {
+                // Cannot happen as we write to memory
+                throw new RuntimeException(e);
+            }
+        }
+        return canonicalBytes.clone();
+    }
+
+    // The hash the peers sign
+    public Sha256Hash getHash() {
+        if (hash == null)
+            hash = Sha256Hash.create(getCanonicalBytes());
+        return hash;
     }
 
 
@@ -118,4 +168,19 @@ public class Contract implements Serializable {
                 ", offererMessagePublicKeyAsString=" + offererMessagePublicKeyAsString +
                 '}';
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static void writeBankAccount(CanonicalWriter writer, BankAccount bankAccount) throws IOException {
+        writer.writeString(bankAccount.getBankAccountType().name());
+        writer.writeString(bankAccount.getCurrency().getCurrencyCode());
+        writer.writeString(bankAccount.getCountry().getCode());
+        writer.writeString(bankAccount.getNameOfBank());
+        writer.writeString(bankAccount.getAccountHolderName());
+        writer.writeString(bankAccount.getAccountPrimaryID());
+        writer.writeString(bankAccount.getAccountSecondaryID());
+    }
 }
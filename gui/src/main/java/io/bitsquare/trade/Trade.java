@@ -18,6 +18,7 @@
 package io.bitsquare.trade;
 
 import io.bitsquare.offer.Offer;
+import io.bitsquare.util.UserThread;
 
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Transaction;
@@ -46,14 +47,14 @@ public class Trade implements Serializable {
         FIAT_PAYMENT_STARTED,
         FIAT_PAYMENT_RECEIVED,
         PAYOUT_PUBLISHED,
-        FAILED
+        FAILED,
+        MANUAL_HANDLING_REQUIRED /* Interrupted in a payment or without journal, the user has to check the wallet */
     }
 
     private final Offer offer;
     private final Date date;
     private String takeOfferFeeTxID;
     private Contract contract;
-    private String contractAsJson;
     private String takerContractSignature;
     private Transaction depositTx;
     private Transaction payoutTx;
@@ -65,6 +66,7 @@ public class Trade implements Serializable {
     // For changing values we use properties to get binding support in the UI (table)
     // When serialized those transient properties are not instantiated, so we instantiate them in the getters at first
     // access. Only use the accessor not the private field.
+    // The protocols run on their own threads, so the properties get updated on the user thread.
     transient private ObjectProperty<Coin> _tradeAmount;
     transient private ObjectProperty<Fiat> _tradeVolume;
     transient private ObjectProperty<State> _state;
@@ -101,18 +103,16 @@ public class Trade implements Serializable {
 
     public void setTradeAmount(Coin tradeAmount) {
         this.tradeAmount = tradeAmount;
-        tradeAmountProperty().set(tradeAmount);
-        tradeVolumeProperty().set(getTradeVolume());
+        UserThread.execute(() -> {
+            tradeAmountProperty().set(tradeAmount);
+            tradeVolumeProperty().set(getTradeVolume());
+        });
     }
 
     public Contract getContract() {
         return contract;
     }
 
-    public void setContractAsJson(String contractAsJson) {
-        this.contractAsJson = contractAsJson;
-    }
-
     public void setContract(Contract contract) {
         this.contract = contract;
     }
@@ -127,12 +127,12 @@ public class Trade implements Serializable {
 
     public void setState(State state) {
         this.state = state;
-        stateProperty().set(state);
+        UserThread.execute(() -> stateProperty().set(state));
     }
 
     public void setFault(Throwable fault) {
         this.fault = fault;
-        faultProperty().set(fault);
+        UserThread.execute(() -> faultProperty().set(fault));
     }
 
 
@@ -180,10 +180,6 @@ public class Trade implements Serializable {
         return takeOfferFeeTxID;
     }
 
-    public String getContractAsJson() {
-        return contractAsJson;
-    }
-
     public Date getDate() {
         return date;
     }
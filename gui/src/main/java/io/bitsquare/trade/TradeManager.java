@@ -29,9 +29,14 @@ import io.bitsquare.offer.Offer;
 import io.bitsquare.offer.OfferBookService;
 import io.bitsquare.offer.OpenOffer;
 import io.bitsquare.persistence.Persistence;
+import io.bitsquare.reputation.ReputationService;
 import io.bitsquare.trade.handlers.TransactionResultHandler;
-import io.bitsquare.trade.protocol.placeoffer.PlaceOfferProtocol;
+import io.bitsquare.trade.protocol.ProtocolExecutor;
+import io.bitsquare.trade.protocol.placeoffer.PlaceOffersProtocol;
 import io.bitsquare.trade.protocol.trade.OfferMessage;
+import io.bitsquare.trade.protocol.trade.ProtocolCheckpoint;
+import io.bitsquare.trade.protocol.trade.ProtocolJournal;
+import io.bitsquare.trade.protocol.trade.TradeSharedModel;
 import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererModel;
 import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererProtocol;
 import io.bitsquare.trade.protocol.trade.offerer.messages.IsOfferAvailableResponseMessage;
@@ -47,10 +52,21 @@ import io.bitsquare.util.handlers.ResultHandler;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.utils.Fiat;
 
+import java.io.File;
+import java.io.Serializable;
+
+import java.security.PublicKey;
+
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
@@ -71,6 +87,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class TradeManager {
     private static final Logger log = LoggerFactory.getLogger(TradeManager.class);
 
+    private static final String PROTOCOL_JOURNAL_DIR = "protocols";
+    private static final String TRADE_REPOSITORY_DIR = "trades";
+    private static final int PROTOCOL_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // Above that number of pending protocol tasks we don't accept new take offer requests
+    private static final int MAX_PENDING_PROTOCOL_TASKS = 500;
+
     private final User user;
     private final AccountSettings accountSettings;
     private final Persistence persistence;
@@ -79,8 +101,12 @@ public class TradeManager {
     private final WalletService walletService;
     private final SignatureService signatureService;
     private final OfferBookService offerBookService;
+    private final ReputationService reputationService;
+    private final ProtocolJournal protocolJournal;
+    private final TradeRepository tradeRepository;
+    private final ProtocolExecutor protocolExecutor = new ProtocolExecutor(PROTOCOL_THREADS,
+            MAX_PENDING_PROTOCOL_TASKS);
 
-    //TODO store TakerAsSellerProtocol in trade
     private final Map<String, SellerAsTakerProtocol> takerAsSellerProtocolMap = new HashMap<>();
     private final Map<String, BuyerAsOffererProtocol> offererAsBuyerProtocolMap = new HashMap<>();
     private final Map<String, RequestIsOfferAvailableProtocol> requestIsOfferAvailableProtocolMap = new HashMap<>();
@@ -102,7 +128,8 @@ public class TradeManager {
     public TradeManager(User user, AccountSettings accountSettings, Persistence persistence,
                         TradeMessageService tradeMessageService, BlockChainService blockChainService,
                         WalletService walletService, SignatureService signatureService,
-                        OfferBookService offerBookService) {
+                        OfferBookService offerBookService, ReputationService reputationService,
+                        @Named(Persistence.DIR_KEY) File storageDir) {
         this.user = user;
         this.accountSettings = accountSettings;
         this.persistence = persistence;
@@ -111,20 +138,19 @@ public class TradeManager {
         this.walletService = walletService;
         this.signatureService = signatureService;
         this.offerBookService = offerBookService;
-
-        Object openOffersObject = persistence.read(this, "openOffers");
-        if (openOffersObject instanceof Map) {
-            openOffers.putAll((Map<String, OpenOffer>) openOffersObject);
-        }
-
-        Object pendingTradesObject = persistence.read(this, "pendingTrades");
-        if (pendingTradesObject instanceof Map) {
-            pendingTrades.putAll((Map<String, Trade>) pendingTradesObject);
-        }
-
-        Object closedTradesObject = persistence.read(this, "closedTrades");
-        if (closedTradesObject instanceof Map) {
-            closedTrades.putAll((Map<String, Trade>) closedTradesObject);
+        this.reputationService = reputationService;
+
+        protocolJournal = new ProtocolJournal(new File(storageDir, PROTOCOL_JOURNAL_DIR));
+        tradeRepository = new TradeRepository(new File(storageDir, TRADE_REPOSITORY_DIR));
+
+        importLegacyTrades();
+        openOffers.putAll(tradeRepository.readOpenOffers());
+        pendingTrades.putAll(tradeRepository.readPendingTrades());
+        closedTrades.putAll(tradeRepository.readClosedTrades());
+        // A crash after a trade got archived but before its pending record got removed leaves it in both stores
+        for (String id : closedTrades.keySet()) {
+            if (pendingTrades.remove(id) != null)
+                tradeRepository.removePendingTrade(id);
         }
 
         tradeMessageService.addMessageHandler(this::handleNewMessage);
@@ -135,8 +161,31 @@ public class TradeManager {
     // Public Methods
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // The protocols need the wallet and the message service, so we can only rebuild them when those are initialized
+    public void onAllServicesInitialized() {
+        blockChainService.onAllServicesInitialized();
+
+        Set<String> ids = new HashSet<>(openOffers.keySet());
+        ids.addAll(pendingTrades.keySet());
+        for (String id : ids) {
+            ProtocolCheckpoint checkpoint = protocolJournal.getLatestCheckpoint(id);
+            if (checkpoint != null)
+                restoreProtocol(checkpoint);
+            else if (openOffers.containsKey(id))
+                createOffererAsBuyerProtocol(openOffers.get(id));
+            else
+                log.warn("No protocol checkpoint found for pending trade with ID " + id);
+        }
+
+        reputationService.onClosedTradesLoaded(closedTrades.values());
+
+        // Messages which arrived while we have been offline are waiting in our mailbox
+        tradeMessageService.pollMailbox(this::getPeersMessagePublicKey);
+    }
+
     public void cleanup() {
         tradeMessageService.removeMessageHandler(this::handleNewMessage);
+        protocolExecutor.shutDown();
     }
 
 
@@ -151,9 +200,44 @@ public class TradeManager {
                                   Coin minAmount,
                                   TransactionResultHandler resultHandler,
                                   ErrorMessageHandler errorMessageHandler) {
+        Offer offer = createOffer(id, direction, price, amount, minAmount);
+        requestPlaceOffers(Collections.singletonList(offer), resultHandler, errorMessageHandler);
+    }
 
+    // Places the offers with one offer fee transaction. The offers are created with createOffer.
+    // If only some of the offers got published they become open offers as their fee is paid, but the error message
+    // handler is called with the IDs of the others.
+    public void requestPlaceOffers(List<Offer> offers,
+                                   TransactionResultHandler resultHandler,
+                                   ErrorMessageHandler errorMessageHandler) {
+        PlaceOffersProtocol placeOffersProtocol = new PlaceOffersProtocol(
+                offers,
+                walletService,
+                offerBookService,
+                (transaction, publishedOffers) -> {
+                    createOpenOffers(publishedOffers);
+                    if (publishedOffers.size() == offers.size()) {
+                        resultHandler.handleResult(transaction);
+                    }
+                    else {
+                        List<String> failedOfferIds = offers.stream()
+                                .filter(offer -> !publishedOffers.contains(offer))
+                                .map(Offer::getId)
+                                .collect(Collectors.toList());
+                        errorMessageHandler.handleErrorMessage("The offers " + failedOfferIds + " could not be " +
+                                "published, the other offers are open. The offer fee transaction is " +
+                                transaction.getHashAsString());
+                    }
+                },
+                (message, throwable) -> errorMessageHandler.handleErrorMessage(message)
+        );
+
+        placeOffersProtocol.placeOffers();
+    }
+
+    public Offer createOffer(String id, Direction direction, Fiat price, Coin amount, Coin minAmount) {
         BankAccount currentBankAccount = user.getCurrentBankAccount().get();
-        Offer offer = new Offer(id,
+        return new Offer(id,
                 user.getMessagePublicKey(),
                 direction,
                 price.getValue(),
@@ -167,28 +251,13 @@ public class TradeManager {
                 accountSettings.getSecurityDeposit(),
                 accountSettings.getAcceptedCountries(),
                 accountSettings.getAcceptedLanguageLocales());
-
-
-        PlaceOfferProtocol placeOfferProtocol = new PlaceOfferProtocol(
-                offer,
-                walletService,
-                offerBookService,
-                (transaction) -> {
-                    createOpenOffer(offer);
-                    resultHandler.handleResult(transaction);
-                },
-                (message, throwable) -> errorMessageHandler.handleErrorMessage(message)
-        );
-
-        placeOfferProtocol.placeOffer();
     }
 
-    private void createOpenOffer(Offer offer) {
-        OpenOffer openOffer = new OpenOffer(offer);
-        openOffers.put(openOffer.getId(), openOffer);
-        persistOpenOffers();
-
-        createOffererAsBuyerProtocol(openOffer);
+    private void createOpenOffers(List<Offer> offers) {
+        List<OpenOffer> newOpenOffers = offers.stream().map(OpenOffer::new).collect(Collectors.toList());
+        newOpenOffers.forEach(openOffer -> openOffers.put(openOffer.getId(), openOffer));
+        tradeRepository.putOpenOffers(newOpenOffers);
+        newOpenOffers.forEach(this::createOffererAsBuyerProtocol);
     }
 
     public void requestRemoveOpenOffer(String offerId, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
@@ -196,7 +265,7 @@ public class TradeManager {
                 () -> {
                     if (openOffers.containsKey(offerId)) {
                         openOffers.remove(offerId);
-                        persistOpenOffers();
+                        tradeRepository.removeOpenOffer(offerId);
                         resultHandler.handleResult();
                     }
                     else {
@@ -207,6 +276,29 @@ public class TradeManager {
                 (message, throwable) -> errorMessageHandler.handleErrorMessage(message));
     }
 
+    public void requestRemoveOpenOffers(List<String> offerIds, ResultHandler resultHandler,
+                                        ErrorMessageHandler errorMessageHandler) {
+        List<String> unknownOfferIds = offerIds.stream()
+                .filter(offerId -> !openOffers.containsKey(offerId))
+                .collect(Collectors.toList());
+        if (!unknownOfferIds.isEmpty()) {
+            errorMessageHandler.handleErrorMessage("Locally stored offers does not contain the offers with the IDs " +
+                    unknownOfferIds);
+            return;
+        }
+
+        offerBookService.removeOffers(offerIds.stream().map(offerId -> openOffers.get(offerId).getOffer())
+                        .collect(Collectors.toList()),
+                () -> {
+                    offerIds.forEach(offerId -> {
+                        openOffers.remove(offerId);
+                        tradeRepository.removeOpenOffer(offerId);
+                    });
+                    resultHandler.handleResult();
+                },
+                (message, throwable) -> errorMessageHandler.handleErrorMessage(message));
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Manage trades
@@ -218,7 +310,7 @@ public class TradeManager {
 
         Trade trade = new Trade(offer);
         pendingTrades.put(offer.getId(), trade);
-        persistPendingTrades();
+        tradeRepository.putPendingTrade(trade);
 
         currentPendingTrade = trade;
 
@@ -229,16 +321,20 @@ public class TradeManager {
         if (!pendingTrades.containsKey(trade.getId()))
             log.error("trades does not contain the trade with the ID " + trade.getId());
 
+        // The trade gets archived before its pending record is removed, so a crash in between cannot lose it
+        if (tradeRepository.archiveClosedTrade(trade))
+            tradeRepository.removePendingTrade(trade.getId());
         pendingTrades.remove(trade.getId());
-        persistPendingTrades();
 
         if (takerAsSellerProtocolMap.containsKey(trade.getId()))
             takerAsSellerProtocolMap.remove(trade.getId());
         else if (offererAsBuyerProtocolMap.containsKey(trade.getId()))
             offererAsBuyerProtocolMap.remove(trade.getId());
+        protocolJournal.remove(trade.getId());
+        protocolExecutor.remove(trade.getId());
+        walletService.removeMultiSigTxBuilder(trade.getId());
 
         closedTrades.put(trade.getId(), trade);
-        persistClosedTrades();
     }
 
     private void removeFailedTrade(Trade trade) {
@@ -246,7 +342,10 @@ public class TradeManager {
             log.error("trades does not contain the trade with the ID " + trade.getId());
 
         pendingTrades.remove(trade.getId());
-        persistPendingTrades();
+        tradeRepository.removePendingTrade(trade.getId());
+        protocolJournal.remove(trade.getId());
+        protocolExecutor.remove(trade.getId());
+        walletService.removeMultiSigTxBuilder(trade.getId());
     }
 
 
@@ -261,8 +360,87 @@ public class TradeManager {
                 walletService,
                 blockChainService,
                 signatureService,
+                reputationService,
                 user);
+        model.setProtocolJournal(protocolJournal);
+        model.setProtocolExecutor(protocolExecutor.forTrade(openOffer.getId()));
+        addOpenOfferStateListener(openOffer, model);
+
+        BuyerAsOffererProtocol buyerAcceptsOfferProtocol = new BuyerAsOffererProtocol(model);
+        offererAsBuyerProtocolMap.put(openOffer.getId(), buyerAcceptsOfferProtocol);
+        buyerAcceptsOfferProtocol.start();
+    }
+
+    public Trade requestTakeOffer(Coin amount, Offer offer) {
+        Trade trade = createTrade(offer);
+        trade.setTradeAmount(amount);
+        addTradeStateListener(trade);
 
+        SellerAsTakerModel model = new SellerAsTakerModel(
+                trade,
+                tradeMessageService,
+                walletService,
+                blockChainService,
+                signatureService,
+                reputationService,
+                user);
+        model.setProtocolJournal(protocolJournal);
+        model.setProtocolExecutor(protocolExecutor.forTrade(trade.getId()));
+
+        SellerAsTakerProtocol sellerTakesOfferProtocol = new SellerAsTakerProtocol(model);
+        takerAsSellerProtocolMap.put(trade.getId(), sellerTakesOfferProtocol);
+
+        sellerTakesOfferProtocol.handleRequestTakeOfferUIEvent();
+
+        return trade;
+    }
+
+    // Rebuilds the protocol of an open offer or a pending trade from its journal after a restart.
+    // The models in the journal contain copies of the open offer and the trade, so we replace them with the
+    // persisted instances which are used by the UI.
+    private void restoreProtocol(ProtocolCheckpoint checkpoint) {
+        String id = checkpoint.getTradeId();
+        log.info("Restore protocol from checkpoint: " + checkpoint);
+
+        TradeSharedModel restoredModel = protocolJournal.restoreModel(id);
+        if (restoredModel instanceof BuyerAsOffererModel) {
+            BuyerAsOffererModel model = (BuyerAsOffererModel) restoredModel;
+            model.restore(tradeMessageService, walletService, blockChainService, signatureService,
+                    reputationService);
+            model.setProtocolJournal(protocolJournal);
+            model.setProtocolExecutor(protocolExecutor.forTrade(id));
+            if (openOffers.containsKey(id)) {
+                model.setOpenOffer(openOffers.get(id));
+                addOpenOfferStateListener(model.getOpenOffer(), model);
+            }
+            if (pendingTrades.containsKey(id)) {
+                model.setTrade(pendingTrades.get(id));
+                addTradeStateListener(model.getTrade());
+            }
+
+            BuyerAsOffererProtocol protocol = new BuyerAsOffererProtocol(model);
+            offererAsBuyerProtocolMap.put(id, protocol);
+            protocol.resume(checkpoint);
+        }
+        else if (restoredModel instanceof SellerAsTakerModel && pendingTrades.containsKey(id)) {
+            SellerAsTakerModel model = (SellerAsTakerModel) restoredModel;
+            model.restore(tradeMessageService, walletService, blockChainService, signatureService,
+                    reputationService);
+            model.setProtocolJournal(protocolJournal);
+            model.setProtocolExecutor(protocolExecutor.forTrade(id));
+            model.setTrade(pendingTrades.get(id));
+            addTradeStateListener(model.getTrade());
+
+            SellerAsTakerProtocol protocol = new SellerAsTakerProtocol(model);
+            takerAsSellerProtocolMap.put(id, protocol);
+            protocol.resume(checkpoint);
+        }
+        else {
+            log.warn("Protocol checkpoint does not match any open offer or pending trade. " + checkpoint);
+        }
+    }
+
+    private void addOpenOfferStateListener(OpenOffer openOffer, BuyerAsOffererModel model) {
         openOffer.stateProperty().addListener((ov, oldValue, newValue) -> {
             log.debug("trade state = " + newValue);
             switch (newValue) {
@@ -275,106 +453,80 @@ public class TradeManager {
 
                     Trade trade = model.getTrade();
                     pendingTrades.put(trade.getId(), trade);
-                    persistPendingTrades();
+                    tradeRepository.putPendingTrade(trade);
                     currentPendingTrade = trade;
 
-                    // TODO check, remove listener
-                    trade.stateProperty().addListener((ov2, oldValue2, newValue2) -> {
-                        log.debug("trade state = " + newValue);
-                        switch (newValue2) {
-                            case OPEN:
-                                break;
-                            case OFFERER_ACCEPTED: // only taker side
-                            case DEPOSIT_PUBLISHED:
-                            case DEPOSIT_CONFIRMED:
-                            case FIAT_PAYMENT_STARTED:
-                            case FIAT_PAYMENT_RECEIVED:
-                            case PAYOUT_PUBLISHED:
-                                persistPendingTrades();
-                                break;
-                            case OFFERER_REJECTED:
-                            case FAILED:
-                                removeFailedTrade(trade);
-                                break;
-                            default:
-                                log.error("Unhandled trade state: " + newValue);
-                                break;
-                        }
-                    });
+                    addTradeStateListener(trade);
                     break;
                 default:
                     log.error("Unhandled trade state: " + newValue);
                     break;
             }
         });
-
-        BuyerAsOffererProtocol buyerAcceptsOfferProtocol = new BuyerAsOffererProtocol(model);
-        offererAsBuyerProtocolMap.put(openOffer.getId(), buyerAcceptsOfferProtocol);
-        buyerAcceptsOfferProtocol.start();
     }
 
-
-    public Trade requestTakeOffer(Coin amount, Offer offer) {
-        Trade trade = createTrade(offer);
-        trade.setTradeAmount(amount);
-
-        // TODO check
+    // TODO check, remove listener
+    private void addTradeStateListener(Trade trade) {
         trade.stateProperty().addListener((ov, oldValue, newValue) -> {
             log.debug("trade state = " + newValue);
             switch (newValue) {
                 case OPEN:
                     break;
-                case OFFERER_ACCEPTED:
+                case OFFERER_ACCEPTED: // only taker side
                 case DEPOSIT_PUBLISHED:
                 case DEPOSIT_CONFIRMED:
                 case FIAT_PAYMENT_STARTED:
                 case FIAT_PAYMENT_RECEIVED:
+                    tradeRepository.putPendingTrade(trade);
+                    break;
                 case PAYOUT_PUBLISHED:
-                    persistPendingTrades();
+                    tradeRepository.putPendingTrade(trade);
+                    reputationService.onTradeCompleted(trade);
                     break;
                 case OFFERER_REJECTED:
                 case FAILED:
                     removeFailedTrade(trade);
                     break;
+                case MANUAL_HANDLING_REQUIRED:
+                    // We keep the trade and its journal, the payment might have happened
+                    tradeRepository.putPendingTrade(trade);
+                    break;
                 default:
                     log.error("Unhandled trade state: " + newValue);
                     break;
             }
         });
-
-        SellerAsTakerModel model = new SellerAsTakerModel(
-                trade,
-                tradeMessageService,
-                walletService,
-                blockChainService,
-                signatureService,
-                user);
-
-        SellerAsTakerProtocol sellerTakesOfferProtocol = new SellerAsTakerProtocol(model);
-        takerAsSellerProtocolMap.put(trade.getId(), sellerTakesOfferProtocol);
-
-        sellerTakesOfferProtocol.handleRequestTakeOfferUIEvent();
-
-        return trade;
     }
 
-    //TODO we don't support interruptions yet.
-    // If the user has shut down the app we lose the offererAsBuyerProtocolMap
-    // Also we don't support yet offline messaging (mail box)
-    public void fiatPaymentStarted(String tradeId) {
+    // Trades which have been started with an older version have no protocol checkpoint, so we cannot continue them
+    // after a restart. We don't support yet offline messaging (mail box)
+    /**
+     * @return false if there is no offerer protocol for that trade, so nothing got dispatched
+     */
+    public boolean fiatPaymentStarted(String tradeId) {
         if (offererAsBuyerProtocolMap.get(tradeId) != null) {
             offererAsBuyerProtocolMap.get(tradeId).handleBankTransferStartedUIEvent();
-            persistPendingTrades();
+            tradeRepository.putPendingTrade(pendingTrades.get(tradeId));
+            return true;
         }
         else {
-            featureNotImplementedWarning.set("Sorry, you cannot continue. You have restarted the application in the " +
-                    "meantime. Interruption of the trade process is not supported yet. Will need more time to be " +
-                    "implemented.");
+            setProtocolNotRestoredWarning();
+            return false;
         }
     }
 
-    public void fiatPaymentReceived(String tradeId) {
-        takerAsSellerProtocolMap.get(tradeId).handleFiatReceivedUIEvent();
+    /**
+     * @return false if there is no taker protocol for that trade, so nothing got dispatched
+     */
+    public boolean fiatPaymentReceived(String tradeId) {
+        if (takerAsSellerProtocolMap.get(tradeId) != null) {
+            takerAsSellerProtocolMap.get(tradeId).handleFiatReceivedUIEvent();
+            return true;
+        }
+        else {
+            setProtocolNotRestoredWarning();
+            return false;
+        }
     }
 
     public void requestIsOfferAvailable(Offer offer) {
@@ -402,7 +554,7 @@ public class TradeManager {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     // Routes the incoming messages to the responsible protocol
-    private void handleNewMessage(Message message, Peer sender) {
+    private boolean handleNewMessage(Message message, Peer sender) {
         log.trace("handleNewMessage: message = " + message.getClass().getSimpleName());
         log.trace("handleNewMessage: sender = " + sender);
 
@@ -414,7 +566,8 @@ public class TradeManager {
                 // That message arrives at the offerer and he returns if the offer is still available (if there is no trade already created with that offerId).
                 String offerId = offerMessage.getOfferId();
                 checkNotNull(offerId);
-                boolean isOfferOpen = getTrade(offerId) == null;
+                // If our protocol executor is overloaded we report the offer as not available to apply back-pressure.
+                boolean isOfferOpen = getTrade(offerId) == null && protocolExecutor.hasCapacity();
                 // no handling of results or faults needed
                 IsOfferAvailableResponse.run(sender, tradeMessageService, offerId, isOfferOpen);
             }
@@ -432,8 +585,22 @@ public class TradeManager {
             }
             else {
                 log.error("Incoming offerMessage not supported. " + offerMessage);
+                return false;
             }
+            return true;
         }
+        return false;
+    }
+
+    // The mailbox only delivers trade messages which are signed by the peer of the trade
+    @Nullable
+    private PublicKey getPeersMessagePublicKey(String tradeId) {
+        if (takerAsSellerProtocolMap.containsKey(tradeId))
+            return takerAsSellerProtocolMap.get(tradeId).getPeersMessagePublicKey();
+        else if (offererAsBuyerProtocolMap.containsKey(tradeId))
+            return offererAsBuyerProtocolMap.get(tradeId).getPeersMessagePublicKey();
+        else
+            return null;
     }
 
 
@@ -478,16 +645,30 @@ public class TradeManager {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void persistOpenOffers() {
-        persistence.write(this, "openOffers", (Map<String, OpenOffer>) new HashMap<>(openOffers));
+    private void setProtocolNotRestoredWarning() {
+        featureNotImplementedWarning.set("Sorry, you cannot continue. The trade process could not be restored " +
+                "after the restart of the application.");
     }
 
-    private void persistPendingTrades() {
-        persistence.write(this, "pendingTrades", (Map<String, Trade>) new HashMap<>(pendingTrades));
+    // Older versions have written the whole maps through the persistence. We move them to the trade repository and
+    // clear them in the persistence, so we don't import them again.
+    private void importLegacyTrades() {
+        Map<String, OpenOffer> legacyOpenOffers = readLegacyMap("openOffers");
+        Map<String, Trade> legacyPendingTrades = readLegacyMap("pendingTrades");
+        Map<String, Trade> legacyClosedTrades = readLegacyMap("closedTrades");
+        if (legacyOpenOffers.isEmpty() && legacyPendingTrades.isEmpty() && legacyClosedTrades.isEmpty())
+            return;
+
+        tradeRepository.importLegacyData(legacyOpenOffers, legacyPendingTrades, legacyClosedTrades);
+        persistence.write(this, "openOffers", (Map<String, OpenOffer>) new HashMap<String, OpenOffer>());
+        persistence.write(this, "pendingTrades", (Map<String, Trade>) new HashMap<String, Trade>());
+        persistence.write(this, "closedTrades", (Map<String, Trade>) new HashMap<String, Trade>());
     }
 
-    private void persistClosedTrades() {
-        persistence.write(this, "closedTrades", (Map<String, Trade>) new HashMap<>(closedTrades));
+    @SuppressWarnings("unchecked")
+    private <V extends Serializable> Map<String, V> readLegacyMap(String propertyKey) {
+        Object object = persistence.read(this, propertyKey);
+        return object instanceof Map ? (Map<String, V>) object : new HashMap<>();
     }
 
 
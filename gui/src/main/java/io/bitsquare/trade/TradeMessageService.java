@@ -27,6 +27,7 @@ import io.bitsquare.trade.listeners.SendMessageListener;
 import java.security.PublicKey;
 
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 public interface TradeMessageService extends MessageBroker {
     
@@ -34,6 +35,15 @@ public interface TradeMessageService extends MessageBroker {
 
     void sendMessage(Peer peer, Message message, SendMessageListener listener);
 
+    // If the peer is not online the message gets stored in his mailbox, signed with our message key which the peer
+    // knows for that trade
+    void sendMessage(Peer peer, Message message, PublicKey senderMessagePublicKey,
+                     PublicKey recipientMessagePublicKey, SendMessageListener listener);
+
+    // Delivers the trade messages of our mailbox which are signed with the message key of the peer of their trade.
+    // The resolver returns that key for a trade ID, or null if we don't know it.
+    void pollMailbox(Function<String, PublicKey> peersMessagePublicKeyResolver);
+
     void addMessageHandler(MessageHandler listener);
 
     void removeMessageHandler(MessageHandler listener);
@@ -18,6 +18,7 @@
 package io.bitsquare.trade;
 
 import io.bitsquare.BitsquareModule;
+import io.bitsquare.reputation.ReputationService;
 
 import com.google.inject.Singleton;
 
@@ -32,5 +33,6 @@ public class TradeModule extends BitsquareModule {
     @Override
     protected void configure() {
         bind(TradeManager.class).in(Singleton.class);
+        bind(ReputationService.class).in(Singleton.class);
     }
 }
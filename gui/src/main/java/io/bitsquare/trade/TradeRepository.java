@@ -0,0 +1,161 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.BitsquareException;
+import io.bitsquare.offer.OpenOffer;
+import io.bitsquare.persistence.RecordLog;
+import io.bitsquare.persistence.RecordStore;
+
+import java.io.File;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Storage of the open offers and trades. Open offers and pending trades are stored each in its own record, so a state
+ * change of a trade only writes that trade. Closed trades don't change anymore, so we append them to a history file.
+ */
+public class TradeRepository {
+    private static final Logger log = LoggerFactory.getLogger(TradeRepository.class);
+
+    private static final String OPEN_OFFERS_DIR = "openOffers";
+    private static final String PENDING_TRADES_DIR = "pendingTrades";
+    private static final String CLOSED_TRADES_FILE = "closedTrades.history";
+
+    private final RecordStore<OpenOffer> openOfferStore;
+    private final RecordStore<Trade> pendingTradeStore;
+    private final RecordLog<Trade> closedTradeLog;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public TradeRepository(File dir) {
+        openOfferStore = new RecordStore<>(new File(dir, OPEN_OFFERS_DIR));
+        pendingTradeStore = new RecordStore<>(new File(dir, PENDING_TRADES_DIR));
+        closedTradeLog = new RecordLog<>(new File(dir, CLOSED_TRADES_FILE));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Open offers
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Map<String, OpenOffer> readOpenOffers() {
+        return openOfferStore.readAll();
+    }
+
+    public void putOpenOffer(OpenOffer openOffer) {
+        try {
+            openOfferStore.put(openOffer.getId(), openOffer);
+        } catch (BitsquareException e) {
+            log.error("Could not persist open offer " + openOffer.getId() + ". " + e.getMessage());
+        }
+    }
+
+    public void putOpenOffers(Collection<OpenOffer> openOffers) {
+        Map<String, OpenOffer> records = new LinkedHashMap<>();
+        openOffers.forEach(openOffer -> records.put(openOffer.getId(), openOffer));
+        try {
+            openOfferStore.putAll(records);
+        } catch (BitsquareException e) {
+            log.error("Could not persist open offers " + records.keySet() + ". " + e.getMessage());
+        }
+    }
+
+    public void removeOpenOffer(String offerId) {
+        openOfferStore.remove(offerId);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Pending trades
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Map<String, Trade> readPendingTrades() {
+        return pendingTradeStore.readAll();
+    }
+
+    public void putPendingTrade(Trade trade) {
+        try {
+            pendingTradeStore.put(trade.getId(), trade);
+        } catch (BitsquareException e) {
+            log.error("Could not persist pending trade " + trade.getId() + ". " + e.getMessage());
+        }
+    }
+
+    public void removePendingTrade(String tradeId) {
+        pendingTradeStore.remove(tradeId);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Closed trades
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Map<String, Trade> readClosedTrades() {
+        Map<String, Trade> closedTrades = new HashMap<>();
+        try {
+            List<Trade> trades = closedTradeLog.read();
+            trades.forEach(trade -> closedTrades.put(trade.getId(), trade));
+        } catch (BitsquareException e) {
+            log.error("Could not read closed trades. " + e.getMessage());
+        }
+        return closedTrades;
+    }
+
+    /**
+     * @return false if the trade could not be archived, its pending record has to be kept then
+     */
+    public boolean archiveClosedTrade(Trade trade) {
+        try {
+            closedTradeLog.append(trade);
+            return true;
+        } catch (BitsquareException e) {
+            log.error("Could not archive closed trade " + trade.getId() + ". " + e.getMessage());
+            return false;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Migration
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Imports the maps which older versions have written as a whole through the Persistence
+    public void importLegacyData(Map<String, OpenOffer> openOffers,
+                                 Map<String, Trade> pendingTrades,
+                                 Map<String, Trade> closedTrades) {
+        if (openOfferStore.isEmpty())
+            openOffers.values().forEach(this::putOpenOffer);
+        if (pendingTradeStore.isEmpty())
+            pendingTrades.values().forEach(this::putPendingTrade);
+        if (closedTradeLog.read().isEmpty())
+            closedTrades.values().forEach(this::archiveClosedTrade);
+        log.info("Imported " + openOffers.size() + " open offers, " + pendingTrades.size() + " pending trades and " +
+                closedTrades.size() + " closed trades.");
+    }
+}
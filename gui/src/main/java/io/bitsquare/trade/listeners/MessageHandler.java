@@ -21,5 +21,9 @@ import io.bitsquare.network.Message;
 import io.bitsquare.network.Peer;
 
 public interface MessageHandler {
-    void handleMessage(Message message, Peer sender);
+    /**
+     * @return whether the message got accepted by the handler. Mailbox messages which no handler accepts stay in the
+     * mailbox.
+     */
+    boolean handleMessage(Message message, Peer sender);
 }
@@ -0,0 +1,197 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the trade protocols on a bounded thread pool. Each trade has its own mailbox, the tasks of one trade run one
+ * after the other in the order they got submitted, while different trades make progress in parallel.
+ * A mailbox gives its thread back after a few tasks, so a busy trade cannot block the others.
+ * The number of pending tasks over all trades is used for back-pressure: with no capacity left we don't accept new
+ * trades, but the tasks of the running trades are always accepted.
+ */
+public class ProtocolExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ProtocolExecutor.class);
+
+    private static final int MAX_TASKS_PER_RUN = 16;
+
+    private final ExecutorService executorService;
+    private final int maxPendingTasks;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public ProtocolExecutor(int numThreads, int maxPendingTasks) {
+        this(Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("Protocol-%d").setDaemon(true).build()), maxPendingTasks);
+    }
+
+    @VisibleForTesting
+    ProtocolExecutor(ExecutorService executorService, int maxPendingTasks) {
+        this.executorService = executorService;
+        this.maxPendingTasks = maxPendingTasks;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // We add the task while we hold the entry of the map, so a mailbox cannot get removed in between. A removed trade
+    // keeps its mailbox until it is empty, so its tasks never run in two mailboxes at the same time.
+    public void execute(String tradeId, Runnable task) {
+        pendingTasks.incrementAndGet();
+        mailboxes.compute(tradeId, (id, mailbox) -> {
+            if (mailbox == null)
+                mailbox = new Mailbox(id);
+            else if (mailbox.isClosed())
+                log.debug("Task for removed trade " + id + " runs after the pending tasks of its mailbox");
+            mailbox.add(task);
+            return mailbox;
+        });
+    }
+
+    // The executor for the protocol of one trade
+    public Executor forTrade(String tradeId) {
+        return task -> execute(tradeId, task);
+    }
+
+    public boolean hasCapacity() {
+        return pendingTasks.get() < maxPendingTasks;
+    }
+
+    public int getPendingTasks() {
+        return pendingTasks.get();
+    }
+
+    // Called when the trade is closed or failed. Tasks which are still in the mailbox get executed anyway, the mailbox
+    // gets removed when it is empty.
+    public void remove(String tradeId) {
+        mailboxes.computeIfPresent(tradeId, (id, mailbox) -> mailbox.close() ? null : mailbox);
+    }
+
+    @VisibleForTesting
+    boolean hasMailbox(String tradeId) {
+        return mailboxes.containsKey(tradeId);
+    }
+
+    public void shutDown() {
+        executorService.shutdown();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private class Mailbox implements Runnable {
+        private final String tradeId;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+
+        Mailbox(String tradeId) {
+            this.tradeId = tradeId;
+        }
+
+        synchronized void add(Runnable task) {
+            tasks.add(task);
+            if (!scheduled) {
+                scheduled = true;
+                executorService.execute(this);
+            }
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        // Returns whether the mailbox is idle and can be removed
+        synchronized boolean close() {
+            closed = true;
+            return isIdle();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_TASKS_PER_RUN; i++) {
+                Runnable task = poll();
+                if (task == null) {
+                    removeIfClosed();
+                    return;
+                }
+
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    log.error("Protocol task of trade " + tradeId + " failed.", t);
+                } finally {
+                    pendingTasks.decrementAndGet();
+                }
+            }
+            reschedule();
+        }
+
+        private synchronized Runnable poll() {
+            Runnable task = tasks.poll();
+            if (task == null)
+                scheduled = false;
+            return task;
+        }
+
+        // We have more tasks in the queue, so we go to the end of the queue of the thread pool
+        private void reschedule() {
+            synchronized (this) {
+                if (!tasks.isEmpty()) {
+                    executorService.execute(this);
+                    return;
+                }
+                scheduled = false;
+            }
+            removeIfClosed();
+        }
+
+        // Must not be called while we hold the lock of the mailbox, the map locks its entry before the mailbox
+        private void removeIfClosed() {
+            if (isClosed())
+                mailboxes.computeIfPresent(tradeId, (id, mailbox) -> mailbox == this && isIdle() ? null : mailbox);
+        }
+
+        private synchronized boolean isIdle() {
+            return tasks.isEmpty() && !scheduled;
+        }
+    }
+}
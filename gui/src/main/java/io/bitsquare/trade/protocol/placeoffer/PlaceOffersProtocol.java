@@ -0,0 +1,187 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.trade.protocol.placeoffer;
+
+import io.bitsquare.btc.WalletService;
+import io.bitsquare.offer.Offer;
+import io.bitsquare.offer.OfferBookService;
+import io.bitsquare.trade.handlers.PlaceOffersResultHandler;
+import io.bitsquare.util.handlers.FaultHandler;
+
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+
+import com.google.common.util.concurrent.FutureCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Responsible for coordinating tasks involved in the create offer process. Several offers are placed with one fee
+ * transaction and added to the DHT in one batch, a single offer is placed as a batch of one.
+ * Once the fee is paid the result handler gets the offers which have been published, which might be only some of
+ * them if adding to the DHT failed. The fault handler is only called if none of the offers got published.
+ * Executed on UI thread (single threaded)
+ */
+public class PlaceOffersProtocol {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceOffersProtocol.class);
+
+    private final List<Offer> offers;
+    private final WalletService walletService;
+    private final PlaceOffersResultHandler resultHandler;
+    private final FaultHandler faultHandler;
+    private final OfferBookService offerBookService;
+    private final List<Offer> publishedOffers = new ArrayList<>();
+    private int pendingRetries;
+    private String retryFaultMessage;
+    private Throwable retryFault;
+
+    public PlaceOffersProtocol(List<Offer> offers, WalletService walletService, OfferBookService offerBookService,
+                               PlaceOffersResultHandler resultHandler, FaultHandler faultHandler) {
+        this.offers = offers;
+        this.walletService = walletService;
+        this.resultHandler = resultHandler;
+        this.faultHandler = faultHandler;
+        this.offerBookService = offerBookService;
+    }
+
+    public void placeOffers() {
+        try {
+            validateOffers();
+            Transaction transaction = createOfferFeeTx();
+            broadcastCreateOfferFeeTx(transaction);
+        } catch (Throwable t) {
+            // handled in specific methods
+        }
+    }
+
+    // 1. Validate offer data
+    // Sync
+    // In case of an error: No rollback activity needed
+    void validateOffers() throws Exception {
+        for (Offer offer : offers) {
+            try {
+                offer.validate();
+            } catch (Exception ex) {
+                faultHandler.handleFault("Validation of offer " + offer.getId() + " failed", ex);
+                throw ex;
+            }
+        }
+    }
+
+    // 2. createOfferFeeTx
+    // Sync
+    // In case of an error: No rollback activity needed
+    Transaction createOfferFeeTx() throws Exception {
+        try {
+            return walletService.createOfferFeeTx(offers.stream().map(Offer::getId).collect(Collectors.toList()));
+        } catch (InsufficientMoneyException ex) {
+            faultHandler.handleFault(
+                    "Offer fee payment failed because there is insufficient money in the trade wallet", ex);
+            throw ex;
+        } catch (Throwable t) {
+            faultHandler.handleFault("Offer fee payment failed because of an exception occurred", t);
+            throw t;
+        }
+    }
+
+    // 3. broadcastCreateOfferFeeTx
+    // Async
+    void broadcastCreateOfferFeeTx(Transaction transaction) throws Exception {
+        try {
+            walletService.broadcastCreateOfferFeeTx(transaction, new FutureCallback<Transaction>() {
+                @Override
+                public void onSuccess(Transaction transaction) {
+                    log.info("Broadcast of offer fee payment for " + offers.size() + " offers succeeded: " +
+                            "transaction = " + transaction);
+                    if (transaction == null) {
+                        Exception ex = new Exception(
+                                "Broadcast of offer fee payment failed because transaction = null.");
+                        faultHandler.handleFault("Broadcast of offer fee payment failed.", ex);
+                        return;
+                    }
+                    addOffers(transaction);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    faultHandler.handleFault("Broadcast of offer fee payment failed with an exception.", t);
+                }
+            });
+        } catch (Throwable t) {
+            faultHandler.handleFault("Broadcast of offer fee payment failed with an exception.", t);
+            throw t;
+        }
+    }
+
+    // 4. addOffers
+    // Async
+    // In case of an error: Try again for each offer on its own, as we don't know which of the batch failed. Adding an
+    // offer a second time does no harm. The fee is paid, so the offers which got published are passed to the result
+    // handler even if others failed.
+    void addOffers(Transaction transaction) {
+        offers.forEach(offer -> offer.setOfferFeePaymentTxID(transaction.getHashAsString()));
+
+        offerBookService.addOffers(offers,
+                () -> resultHandler.handleResult(transaction, offers),
+                (message, throwable) -> {
+                    log.warn("Adding " + offers.size() + " offers failed, trying again for each offer. " + message);
+                    retryAddOffers(transaction);
+                });
+    }
+
+    private void retryAddOffers(Transaction transaction) {
+        pendingRetries = offers.size();
+        for (Offer offer : offers) {
+            offerBookService.addOffer(offer,
+                    () -> {
+                        publishedOffers.add(offer);
+                        onRetryCompleted(transaction);
+                    },
+                    (message, throwable) -> {
+                        retryFaultMessage = message;
+                        retryFault = throwable;
+                        onRetryCompleted(transaction);
+                    });
+        }
+    }
+
+    private void onRetryCompleted(Transaction transaction) {
+        if (--pendingRetries > 0)
+            return;
+
+        if (publishedOffers.isEmpty()) {
+            faultHandler.handleFault(retryFaultMessage, retryFault);
+        }
+        else {
+            if (publishedOffers.size() < offers.size())
+                log.error("Only " + publishedOffers.size() + " of " + offers.size() + " offers got published. " +
+                        retryFaultMessage, retryFault);
+            // Keep the order of the offers
+            resultHandler.handleResult(transaction, offers.stream()
+                    .filter(publishedOffers::contains)
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.trade.protocol.trade;
+
+import io.bitsquare.BitsquareException;
+
+import java.io.Serializable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The persisted fields of a trade model. The protocol journal uses them to write only the data which changed since
+ * its previous entry instead of the whole model after each task.
+ */
+final class ModelState {
+
+    private static final ClassValue<Field[]> PERSISTED_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            ArrayList<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[fields.size()]);
+        }
+    };
+
+    private ModelState() {
+    }
+
+    // Subclasses may declare a field with the name of one of their super class, so we qualify them with the class
+    static Map<String, Object> read(TradeSharedModel model) {
+        HashMap<String, Object> state = new HashMap<>();
+        for (Field field : PERSISTED_FIELDS.get(model.getClass())) {
+            try {
+                state.put(getKey(field), field.get(model));
+            } catch (IllegalAccessException e) {
+                throw new BitsquareException(e, "Cannot read field %s of the trade model", getKey(field));
+            }
+        }
+        return state;
+    }
+
+    // The fields of a serializable model are serializable, so the values can be written with the journal entry
+    static HashMap<String, Serializable> getChanges(Map<String, Object> previous, Map<String, Object> current) {
+        HashMap<String, Serializable> changes = new HashMap<>();
+        current.forEach((key, value) -> {
+            if (!previous.containsKey(key) || !Objects.equals(previous.get(key), value))
+                changes.put(key, (Serializable) value);
+        });
+        return changes;
+    }
+
+    static void apply(TradeSharedModel model, Map<String, Serializable> changes) {
+        for (Field field : PERSISTED_FIELDS.get(model.getClass())) {
+            String key = getKey(field);
+            if (changes.containsKey(key)) {
+                try {
+                    field.set(model, changes.get(key));
+                } catch (IllegalAccessException | IllegalArgumentException e) {
+                    throw new BitsquareException(e, "Cannot restore field %s of the trade model", key);
+                }
+            }
+        }
+    }
+
+    private static String getKey(Field field) {
+        return field.getDeclaringClass().getSimpleName() + "." + field.getName();
+    }
+}
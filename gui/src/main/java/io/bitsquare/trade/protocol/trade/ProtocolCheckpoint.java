@@ -0,0 +1,117 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.trade;
+
+import java.io.Serializable;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Entry of the protocol journal. It records the pipeline and the number of its completed tasks, so the protocol can be
+ * rebuilt and continued after a restart. The first entry of a trade holds the whole model, the later ones only the
+ * fields which have changed since the previous entry.
+ * <p>
+ * Before an {@link io.bitsquare.util.tasks.IrreversibleTask} runs, a started entry is written. If it is the latest
+ * entry at startup, the task got interrupted and we cannot know whether its effect happened.
+ */
+public class ProtocolCheckpoint implements Serializable {
+    private static final long serialVersionUID = 2637483205791284719L;
+
+    private final String tradeId;
+    private final String pipelineName;
+    private final String taskName;
+    private final int completedTasks;
+    private final boolean started;
+    private final Date date;
+    @Nullable private final TradeSharedModel model;
+    @Nullable private final HashMap<String, Serializable> changes;
+
+    private ProtocolCheckpoint(String tradeId, String pipelineName, String taskName, int completedTasks,
+                               boolean started, @Nullable TradeSharedModel model,
+                               @Nullable HashMap<String, Serializable> changes) {
+        this.tradeId = tradeId;
+        this.pipelineName = pipelineName;
+        this.taskName = taskName;
+        this.completedTasks = completedTasks;
+        this.started = started;
+        this.model = model;
+        this.changes = changes;
+        date = new Date();
+    }
+
+    static ProtocolCheckpoint withModel(String tradeId, String pipelineName, String taskName, int completedTasks,
+                                        boolean started, TradeSharedModel model) {
+        return new ProtocolCheckpoint(tradeId, pipelineName, taskName, completedTasks, started, model, null);
+    }
+
+    static ProtocolCheckpoint withChanges(String tradeId, String pipelineName, String taskName, int completedTasks,
+                                          boolean started, HashMap<String, Serializable> changes) {
+        return new ProtocolCheckpoint(tradeId, pipelineName, taskName, completedTasks, started, null, changes);
+    }
+
+    public String getTradeId() {
+        return tradeId;
+    }
+
+    public String getPipelineName() {
+        return pipelineName;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    // For a started entry the number of tasks completed before the started one
+    public int getCompletedTasks() {
+        return completedTasks;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    @Nullable
+    TradeSharedModel getModel() {
+        return model;
+    }
+
+    @Nullable
+    Map<String, Serializable> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "ProtocolCheckpoint{" +
+                "tradeId='" + tradeId + '\'' +
+                ", pipelineName='" + pipelineName + '\'' +
+                ", taskName='" + taskName + '\'' +
+                ", completedTasks=" + completedTasks +
+                ", started=" + started +
+                ", date=" + date +
+                '}';
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.trade;
+
+import io.bitsquare.BitsquareException;
+import io.bitsquare.persistence.RecordLog;
+
+import java.io.File;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log of the state transitions of the trade protocols. Each trade has its own append-only file, so a checkpoint only
+ * writes the state of the trade which has changed. At startup the model of a trade is rebuilt from its first
+ * checkpoint and the changes of the later ones, the latest checkpoint tells where to continue its protocol.
+ */
+public class ProtocolJournal {
+    private static final Logger log = LoggerFactory.getLogger(ProtocolJournal.class);
+
+    private static final String FILE_SUFFIX = ".protocol";
+
+    private final File dir;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public ProtocolJournal(File dir) {
+        this.dir = dir;
+        if (!dir.exists() && !dir.mkdirs())
+            log.error("Could not create protocol journal directory " + dir);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @throws BitsquareException if the checkpoint could not be written. The protocol must not continue then, as we
+     *                            could not tell after a restart where it has stopped.
+     */
+    public synchronized void append(ProtocolCheckpoint checkpoint) {
+        try {
+            getLog(checkpoint.getTradeId()).append(checkpoint);
+            log.trace("Protocol checkpoint written: " + checkpoint);
+        } catch (BitsquareException e) {
+            log.error("Could not write protocol checkpoint " + checkpoint + ". " + e.getMessage());
+            throw e;
+        }
+    }
+
+    public synchronized List<ProtocolCheckpoint> getTransitions(String tradeId) {
+        try {
+            return getLog(tradeId).read();
+        } catch (BitsquareException e) {
+            log.error("Could not read protocol journal of trade " + tradeId + ". " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    @Nullable
+    public ProtocolCheckpoint getLatestCheckpoint(String tradeId) {
+        List<ProtocolCheckpoint> transitions = getTransitions(tradeId);
+        return transitions.isEmpty() ? null : transitions.get(transitions.size() - 1);
+    }
+
+    /**
+     * Rebuilds the model of the trade at its latest checkpoint. The services of the model need to be restored by the
+     * caller.
+     */
+    @Nullable
+    public TradeSharedModel restoreModel(String tradeId) {
+        TradeSharedModel model = null;
+        for (ProtocolCheckpoint checkpoint : getTransitions(tradeId)) {
+            if (checkpoint.getModel() != null) {
+                model = checkpoint.getModel();
+            }
+            else if (model != null && checkpoint.getChanges() != null) {
+                ModelState.apply(model, checkpoint.getChanges());
+            }
+            else {
+                log.error("Protocol checkpoint without a model to apply its changes to: " + checkpoint);
+                return null;
+            }
+        }
+        return model;
+    }
+
+    public synchronized void remove(String tradeId) {
+        getLog(tradeId).delete();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private RecordLog<ProtocolCheckpoint> getLog(String tradeId) {
+        return new RecordLog<>(new File(dir, tradeId + FILE_SUFFIX));
+    }
+}
@@ -22,33 +22,52 @@ import io.bitsquare.btc.BlockChainService;
 import io.bitsquare.btc.WalletService;
 import io.bitsquare.crypto.SignatureService;
 import io.bitsquare.offer.Offer;
+import io.bitsquare.reputation.ReputationService;
 import io.bitsquare.trade.TradeMessageService;
 import io.bitsquare.user.User;
+import io.bitsquare.util.tasks.IrreversibleTask;
 import io.bitsquare.util.tasks.SharedModel;
+import io.bitsquare.util.tasks.Task;
 
 import org.bitcoinj.core.ECKey;
 
+import java.io.Serializable;
+
 import java.security.PublicKey;
 
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class TradeSharedModel extends SharedModel {
+/**
+ * The model gets persisted with the protocol checkpoints, the first one holds the whole model and the later ones the
+ * changed fields. The services are not part of the persisted state and need to be set again with {@link #restore}
+ * when the protocol gets rebuilt after a restart.
+ */
+public class TradeSharedModel extends SharedModel implements Serializable {
+    private static final long serialVersionUID = -4818623406431567284L;
     protected static final Logger log = LoggerFactory.getLogger(TradeSharedModel.class);
 
     // provided
     protected final Offer offer;
-    protected final TradeMessageService tradeMessageService;
-    protected final WalletService walletService;
-    protected final BlockChainService blockChainService;
-    protected final SignatureService signatureService;
+    protected transient TradeMessageService tradeMessageService;
+    protected transient WalletService walletService;
+    protected transient BlockChainService blockChainService;
+    protected transient SignatureService signatureService;
+    protected transient ReputationService reputationService;
+    private transient ProtocolJournal protocolJournal;
+    private transient Executor protocolExecutor;
+    // The state at the latest checkpoint, null until the first one got written
+    private transient Map<String, Object> checkpointState;
 
     // derived
     protected final String arbitratorPubKey;
     protected final BankAccount bankAccount;
     protected final String accountId;
     protected final PublicKey messagePublicKey;
-    protected final ECKey accountKey;
+    protected transient ECKey accountKey;
 
     // data written/read by tasks
     private TradeMessage tradeMessage;
@@ -61,21 +80,66 @@ public class TradeSharedModel extends SharedModel {
                             WalletService walletService,
                             BlockChainService blockChainService,
                             SignatureService signatureService,
+                            ReputationService reputationService,
                             User user) {
         this.offer = offer;
         this.tradeMessageService = tradeMessageService;
         this.walletService = walletService;
         this.blockChainService = blockChainService;
         this.signatureService = signatureService;
+        this.reputationService = reputationService;
 
         //TODO use default arbitrator for now
         arbitratorPubKey = offer.getArbitrators().get(0).getPubKeyAsHex();
         bankAccount = user.getBankAccount(offer.getBankAccountId());
         accountId = user.getAccountId();
-        messagePublicKey = user.getMessagePublicKey();
+        // As offerer we use the key our offer was published with, which is the legacy key for offers created before
+        // the key migration. The taker uses that key for the contract.
+        messagePublicKey = user.isMyMessagePublicKey(offer.getMessagePublicKey()) ?
+                offer.getMessagePublicKey() : user.getMessagePublicKey();
         accountKey = walletService.getRegistrationAddressEntry().getKey();
     }
 
+    public void restore(TradeMessageService tradeMessageService,
+                        WalletService walletService,
+                        BlockChainService blockChainService,
+                        SignatureService signatureService,
+                        ReputationService reputationService) {
+        this.tradeMessageService = tradeMessageService;
+        this.walletService = walletService;
+        this.blockChainService = blockChainService;
+        this.signatureService = signatureService;
+        this.reputationService = reputationService;
+
+        accountKey = walletService.getRegistrationAddressEntry().getKey();
+        checkpointState = ModelState.read(this);
+    }
+
+    // Called by the task runners before each task. Irreversible tasks get recorded before they run.
+    public void onTaskStarted(String pipelineName, Class<? extends Task> task, int completedTasks) {
+        if (IrreversibleTask.class.isAssignableFrom(task))
+            checkpoint(pipelineName, task.getSimpleName(), completedTasks, true);
+    }
+
+    // Called by the task runners after each completed task
+    public void checkpoint(String pipelineName, String taskName, int completedTasks) {
+        checkpoint(pipelineName, taskName, completedTasks, false);
+    }
+
+    private void checkpoint(String pipelineName, String taskName, int completedTasks, boolean started) {
+        if (protocolJournal == null)
+            return;
+
+        Map<String, Object> state = ModelState.read(this);
+        if (checkpointState == null)
+            protocolJournal.append(ProtocolCheckpoint.withModel(offer.getId(), pipelineName, taskName, completedTasks,
+                    started, this));
+        else
+            protocolJournal.append(ProtocolCheckpoint.withChanges(offer.getId(), pipelineName, taskName,
+                    completedTasks, started, ModelState.getChanges(checkpointState, state)));
+        checkpointState = state;
+    }
+
     // getter/setter
 
     public TradeMessageService getTradeMessageService() {
@@ -94,6 +158,23 @@ public class TradeSharedModel extends SharedModel {
         return signatureService;
     }
 
+    public ReputationService getReputationService() {
+        return reputationService;
+    }
+
+    public void setProtocolJournal(ProtocolJournal protocolJournal) {
+        this.protocolJournal = protocolJournal;
+    }
+
+    // The mailbox of the trade in the protocol executor. Without one we run the tasks directly.
+    public Executor getProtocolExecutor() {
+        return protocolExecutor != null ? protocolExecutor : Runnable::run;
+    }
+
+    public void setProtocolExecutor(Executor protocolExecutor) {
+        this.protocolExecutor = protocolExecutor;
+    }
+
     public Offer getOffer() {
         return offer;
     }
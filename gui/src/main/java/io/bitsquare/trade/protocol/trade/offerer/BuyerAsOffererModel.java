@@ -23,12 +23,14 @@ import io.bitsquare.btc.WalletService;
 import io.bitsquare.crypto.SignatureService;
 import io.bitsquare.network.Peer;
 import io.bitsquare.offer.OpenOffer;
+import io.bitsquare.reputation.ReputationService;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.TradeMessageService;
 import io.bitsquare.trade.protocol.trade.TradeSharedModel;
 import io.bitsquare.user.User;
 
 import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
 
 import java.security.PublicKey;
 
@@ -37,11 +39,12 @@ import org.slf4j.LoggerFactory;
 
 public class BuyerAsOffererModel extends TradeSharedModel {
 
+    private static final long serialVersionUID = 5917408263145870361L;
     private static final Logger log = LoggerFactory.getLogger(BuyerAsOffererModel.class);
 
 
     // provided
-    private final OpenOffer openOffer;
+    private OpenOffer openOffer;
 
     // derived
     private final String offererPaybackAddress;
@@ -51,12 +54,11 @@ public class BuyerAsOffererModel extends TradeSharedModel {
     private Peer peer;
 
     private String preparedOffererDepositTxAsHex;
-    private String depositTxAsHex;
 
     private String peersAccountId;
     private BankAccount peersBankAccount;
     private PublicKey peersMessagePublicKey;
-    private String peersContractAsJson;
+    private Sha256Hash peersContractHash;
 
     private String signedTakerDepositTxAsHex;
 
@@ -71,8 +73,7 @@ public class BuyerAsOffererModel extends TradeSharedModel {
 
     private long offererTxOutIndex;
     private String offererPubKey;
-    private String offererSignatureR;
-    private String offererSignatureS;
+    private byte[] offererSignature;
     private Coin offererPaybackAmount;
 
 
@@ -85,12 +86,14 @@ public class BuyerAsOffererModel extends TradeSharedModel {
                                WalletService walletService,
                                BlockChainService blockChainService,
                                SignatureService signatureService,
+                               ReputationService reputationService,
                                User user) {
         super(openOffer.getOffer(),
                 tradeMessageService,
                 walletService,
                 blockChainService,
                 signatureService,
+                reputationService,
                 user);
         this.openOffer = openOffer;
 
@@ -102,6 +105,11 @@ public class BuyerAsOffererModel extends TradeSharedModel {
         return openOffer;
     }
 
+    // After a restart we use the persisted open offer instead of the copy from the checkpoint
+    public void setOpenOffer(OpenOffer openOffer) {
+        this.openOffer = openOffer;
+    }
+
     public Peer getPeer() {
         return peer;
     }
@@ -180,12 +188,12 @@ public class BuyerAsOffererModel extends TradeSharedModel {
         this.peersMessagePublicKey = peersMessagePublicKey;
     }
 
-    public String getPeersContractAsJson() {
-        return peersContractAsJson;
+    public Sha256Hash getPeersContractHash() {
+        return peersContractHash;
     }
 
-    public void setPeersContractAsJson(String peersContractAsJson) {
-        this.peersContractAsJson = peersContractAsJson;
+    public void setPeersContractHash(Sha256Hash peersContractHash) {
+        this.peersContractHash = peersContractHash;
     }
 
     public String getSignedTakerDepositTxAsHex() {
@@ -228,28 +236,12 @@ public class BuyerAsOffererModel extends TradeSharedModel {
         this.offererPubKey = offererPubKey;
     }
 
-    public String getDepositTxAsHex() {
-        return depositTxAsHex;
-    }
-
-    public void setDepositTxAsHex(String depositTxAsHex) {
-        this.depositTxAsHex = depositTxAsHex;
-    }
-
-    public String getOffererSignatureR() {
-        return offererSignatureR;
-    }
-
-    public void setOffererSignatureR(String offererSignatureR) {
-        this.offererSignatureR = offererSignatureR;
-    }
-
-    public String getOffererSignatureS() {
-        return offererSignatureS;
+    public byte[] getOffererSignature() {
+        return offererSignature;
     }
 
-    public void setOffererSignatureS(String offererSignatureS) {
-        this.offererSignatureS = offererSignatureS;
+    public void setOffererSignature(byte[] offererSignature) {
+        this.offererSignature = offererSignature;
     }
 
     public Coin getOffererPaybackAmount() {
@@ -17,8 +17,11 @@
 
 package io.bitsquare.trade.protocol.trade.offerer;
 
+import io.bitsquare.BitsquareException;
 import io.bitsquare.network.Message;
 import io.bitsquare.network.Peer;
+import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.ProtocolCheckpoint;
 import io.bitsquare.trade.protocol.trade.TradeMessage;
 import io.bitsquare.trade.protocol.trade.offerer.tasks.CreateDepositTx;
 import io.bitsquare.trade.protocol.trade.offerer.tasks.ProcessPayoutTxPublishedMessage;
@@ -39,11 +42,22 @@ import io.bitsquare.trade.protocol.trade.taker.messages.PayoutTxPublishedMessage
 import io.bitsquare.trade.protocol.trade.taker.messages.RequestOffererPublishDepositTxMessage;
 import io.bitsquare.trade.protocol.trade.taker.messages.RequestTakeOfferMessage;
 import io.bitsquare.trade.protocol.trade.taker.messages.TakeOfferFeePayedMessage;
+import io.bitsquare.util.tasks.TaskPipeline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.security.PublicKey;
+
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static io.bitsquare.util.Validator.nonEmptyStringOf;
+import static io.bitsquare.util.tasks.TaskPipeline.parallel;
 
 /**
  * Responsible for the correct execution of the sequence of tasks, message passing to the peer and message processing
@@ -58,6 +72,39 @@ public class BuyerAsOffererProtocol {
 
     private static final Logger log = LoggerFactory.getLogger(BuyerAsOffererProtocol.class);
 
+    private static final TaskPipeline<BuyerAsOffererModel> REQUEST_TAKE_OFFER_TASKS = TaskPipeline.named(
+            "requestTakeOffer",
+            ProcessRequestTakeOfferMessage::new,
+            RespondToTakeOfferRequest::new);
+    private static final TaskPipeline<BuyerAsOffererModel> TAKE_OFFER_FEE_PAYED_TASKS = TaskPipeline.named(
+            "takeOfferFeePayed",
+            ProcessTakeOfferFeePayedMessage::new,
+            CreateDepositTx::new,
+            SendTakerDepositPaymentRequest::new);
+    private static final TaskPipeline<BuyerAsOffererModel> PUBLISH_DEPOSIT_TX_TASKS = TaskPipeline.named(
+            "publishDepositTx",
+            ProcessRequestOffererPublishDepositTxMessage::new,
+            // Both checks only read the model and wait for the network, so they run concurrently before we sign
+            parallel(VerifyTakerAccount::new, VerifyTakeOfferFeePayment::new),
+            VerifyAndSignContract::new,
+            SignAndPublishDepositTx::new,
+            SetupListenerForBlockChainConfirmation::new,
+            SendDepositTxIdToTaker::new);
+    private static final TaskPipeline<BuyerAsOffererModel> BANK_TRANSFER_STARTED_TASKS = TaskPipeline.named(
+            "bankTransferStarted",
+            SignPayoutTx::new,
+            SendBankTransferInitedMessage::new);
+    private static final TaskPipeline<BuyerAsOffererModel> PAYOUT_TX_PUBLISHED_TASKS = TaskPipeline.named(
+            "payoutTxPublished",
+            ProcessPayoutTxPublishedMessage::new);
+    private static final Map<String, TaskPipeline<BuyerAsOffererModel>> PIPELINES = Maps.uniqueIndex(ImmutableList.of(
+            REQUEST_TAKE_OFFER_TASKS,
+            TAKE_OFFER_FEE_PAYED_TASKS,
+            PUBLISH_DEPOSIT_TX_TASKS,
+            BANK_TRANSFER_STARTED_TASKS,
+            PAYOUT_TX_PUBLISHED_TASKS),
+            TaskPipeline::getName);
+
     private BuyerAsOffererModel model;
 
 
@@ -78,6 +125,48 @@ public class BuyerAsOffererProtocol {
         model.getTradeMessageService().addMessageHandler(this::handleMessage);
     }
 
+    /**
+     * Rebuilds the protocol from a checkpoint after a restart. A pipeline which got interrupted by the shutdown gets
+     * continued after its last completed task. If an irreversible task got interrupted, we cannot know whether its
+     * payment or transaction went out, so instead of running it again the trade is left for manual handling.
+     */
+    public void resume(ProtocolCheckpoint checkpoint) {
+        start();
+
+        Trade trade = model.getTrade();
+        TaskPipeline<BuyerAsOffererModel> pipeline = PIPELINES.get(checkpoint.getPipelineName());
+        if (trade != null && trade.getState() == Trade.State.MANUAL_HANDLING_REQUIRED) {
+            log.warn("Trade requires manual handling, protocol not resumed: " + checkpoint);
+        }
+        else if (checkpoint.isStarted()) {
+            log.warn("Irreversible task got interrupted: " + checkpoint);
+            if (trade != null) {
+                trade.setFault(new BitsquareException("The trade got interrupted in %s. Please check in your " +
+                        "wallet whether the transaction has been published.", checkpoint.getTaskName()));
+                trade.setState(Trade.State.MANUAL_HANDLING_REQUIRED);
+            }
+        }
+        else if (pipeline != null && checkpoint.getCompletedTasks() < pipeline.size()) {
+            log.info("Resume interrupted protocol: " + checkpoint);
+            BuyerAsOffererTaskRunner<BuyerAsOffererModel> sequence = new BuyerAsOffererTaskRunner<>(model,
+                    pipeline,
+                    () -> {
+                        log.debug("resumed sequence completed");
+                    },
+                    (message, throwable) -> {
+                        log.error(message);
+                    }
+            );
+            model.getProtocolExecutor().execute(() -> sequence.resume(checkpoint.getCompletedTasks()));
+        }
+    }
+
+    // Null as long as we don't know the peer
+    @Nullable
+    public PublicKey getPeersMessagePublicKey() {
+        return model.getPeersMessagePublicKey();
+    }
+
     public void cleanup() {
         model.getTradeMessageService().removeMessageHandler(this::handleMessage);
     }
@@ -87,29 +176,36 @@ public class BuyerAsOffererProtocol {
     // Incoming message handling
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void handleMessage(Message message, Peer peer) {
+    private boolean handleMessage(Message message, Peer peer) {
         log.trace("handleNewMessage: message = " + message.getClass().getSimpleName());
         if (message instanceof TradeMessage) {
             TradeMessage tradeMessage = (TradeMessage) message;
             nonEmptyStringOf(tradeMessage.getTradeId());
+            // Every protocol receives all messages, we only handle those of our trade
+            if (!tradeMessage.getTradeId().equals(model.getOffer().getId()))
+                return false;
 
-            if (tradeMessage instanceof RequestTakeOfferMessage) {
-                handleRequestTakeOfferMessage((RequestTakeOfferMessage) tradeMessage, peer);
-            }
-            else if (tradeMessage instanceof TakeOfferFeePayedMessage) {
-                handleTakeOfferFeePayedMessage((TakeOfferFeePayedMessage) tradeMessage);
-            }
+            model.getProtocolExecutor().execute(() -> {
+                if (tradeMessage instanceof RequestTakeOfferMessage) {
+                    handleRequestTakeOfferMessage((RequestTakeOfferMessage) tradeMessage, peer);
+                }
+                else if (tradeMessage instanceof TakeOfferFeePayedMessage) {
+                    handleTakeOfferFeePayedMessage((TakeOfferFeePayedMessage) tradeMessage);
+                }
 
-            else if (tradeMessage instanceof RequestOffererPublishDepositTxMessage) {
-                handleRequestOffererPublishDepositTxMessage((RequestOffererPublishDepositTxMessage) tradeMessage);
-            }
-            else if (tradeMessage instanceof PayoutTxPublishedMessage) {
-                handlePayoutTxPublishedMessage((PayoutTxPublishedMessage) tradeMessage);
-            }
-            else {
-                log.error("Incoming tradeMessage not supported. " + tradeMessage);
-            }
+                else if (tradeMessage instanceof RequestOffererPublishDepositTxMessage) {
+                    handleRequestOffererPublishDepositTxMessage((RequestOffererPublishDepositTxMessage) tradeMessage);
+                }
+                else if (tradeMessage instanceof PayoutTxPublishedMessage) {
+                    handlePayoutTxPublishedMessage((PayoutTxPublishedMessage) tradeMessage);
+                }
+                else {
+                    log.error("Incoming tradeMessage not supported. " + tradeMessage);
+                }
+            });
+            return true;
         }
+        return false;
     }
 
     private void handleRequestTakeOfferMessage(RequestTakeOfferMessage tradeMessage, Peer peer) {
@@ -117,6 +213,7 @@ public class BuyerAsOffererProtocol {
         model.setPeer(peer);
 
         BuyerAsOffererTaskRunner<BuyerAsOffererModel> sequence = new BuyerAsOffererTaskRunner<>(model,
+                REQUEST_TAKE_OFFER_TASKS,
                 () -> {
                     log.debug("sequence0 completed");
                 },
@@ -124,10 +221,6 @@ public class BuyerAsOffererProtocol {
                     log.error(message);
                 }
         );
-        sequence.addTasks(
-                ProcessRequestTakeOfferMessage.class,
-                RespondToTakeOfferRequest.class
-        );
         sequence.run();
     }
 
@@ -135,6 +228,7 @@ public class BuyerAsOffererProtocol {
         model.setTradeMessage(tradeMessage);
 
         BuyerAsOffererTaskRunner<BuyerAsOffererModel> sequence = new BuyerAsOffererTaskRunner<>(model,
+                TAKE_OFFER_FEE_PAYED_TASKS,
                 () -> {
                     log.debug("sequence1 completed");
                 },
@@ -142,11 +236,6 @@ public class BuyerAsOffererProtocol {
                     log.error(message);
                 }
         );
-        sequence.addTasks(
-                ProcessTakeOfferFeePayedMessage.class,
-                CreateDepositTx.class,
-                SendTakerDepositPaymentRequest.class
-        );
         sequence.run();
     }
 
@@ -154,6 +243,7 @@ public class BuyerAsOffererProtocol {
         model.setTradeMessage(tradeMessage);
 
         BuyerAsOffererTaskRunner<BuyerAsOffererModel> sequence = new BuyerAsOffererTaskRunner<>(model,
+                PUBLISH_DEPOSIT_TX_TASKS,
                 () -> {
                     log.debug("sequence2 completed");
                 },
@@ -161,14 +251,6 @@ public class BuyerAsOffererProtocol {
                     log.error(message);
                 }
         );
-        sequence.addTasks(
-                ProcessRequestOffererPublishDepositTxMessage.class,
-                VerifyTakerAccount.class,
-                VerifyAndSignContract.class,
-                SignAndPublishDepositTx.class,
-                SetupListenerForBlockChainConfirmation.class,
-                SendDepositTxIdToTaker.class
-        );
         sequence.run();
     }
 
@@ -180,6 +262,7 @@ public class BuyerAsOffererProtocol {
     // User clicked the "bank transfer started" button
     public void handleBankTransferStartedUIEvent() {
         BuyerAsOffererTaskRunner<BuyerAsOffererModel> sequence = new BuyerAsOffererTaskRunner<>(model,
+                BANK_TRANSFER_STARTED_TASKS,
                 () -> {
                     log.debug("sequence3 completed");
                 },
@@ -187,12 +270,7 @@ public class BuyerAsOffererProtocol {
                     log.error(message);
                 }
         );
-        sequence.addTasks(
-                SignPayoutTx.class,
-                VerifyTakeOfferFeePayment.class,
-                SendBankTransferInitedMessage.class
-        );
-        sequence.run();
+        model.getProtocolExecutor().execute(sequence::run);
     }
 
 
@@ -204,6 +282,7 @@ public class BuyerAsOffererProtocol {
         model.setTradeMessage(tradeMessage);
 
         BuyerAsOffererTaskRunner<BuyerAsOffererModel> sequence = new BuyerAsOffererTaskRunner<>(model,
+                PAYOUT_TX_PUBLISHED_TASKS,
                 () -> {
                     log.debug("sequence4 completed");
                 },
@@ -211,7 +290,6 @@ public class BuyerAsOffererProtocol {
                     log.error(message);
                 }
         );
-        sequence.addTasks(ProcessPayoutTxPublishedMessage.class);
         sequence.run();
     }
 
@@ -27,24 +27,19 @@ public class BankTransferInitedMessage implements Serializable, TradeMessage {
     private static final long serialVersionUID = -3479634129543632523L;
     private final String tradeId;
 
-    private final String depositTxAsHex;
-    private final String offererSignatureR;
-    private final String offererSignatureS;
+    // The taker has the deposit tx already, so the DER encoded signature is all he needs to create the payout tx
+    private final byte[] offererSignature;
     private final Coin offererPaybackAmount;
     private final Coin takerPaybackAmount;
     private final String offererPayoutAddress;
 
     public BankTransferInitedMessage(String tradeId,
-                                     String depositTxAsHex,
-                                     String offererSignatureR,
-                                     String offererSignatureS,
+                                     byte[] offererSignature,
                                      Coin offererPaybackAmount,
                                      Coin takerPaybackAmount,
                                      String offererPayoutAddress) {
         this.tradeId = tradeId;
-        this.depositTxAsHex = depositTxAsHex;
-        this.offererSignatureR = offererSignatureR;
-        this.offererSignatureS = offererSignatureS;
+        this.offererSignature = offererSignature;
         this.offererPaybackAmount = offererPaybackAmount;
         this.takerPaybackAmount = takerPaybackAmount;
         this.offererPayoutAddress = offererPayoutAddress;
@@ -55,16 +50,12 @@ public class BankTransferInitedMessage implements Serializable, TradeMessage {
         return tradeId;
     }
 
-    public String getDepositTxAsHex() {
-        return depositTxAsHex;
-    }
-
     public String getOffererPayoutAddress() {
         return offererPayoutAddress;
     }
 
-    public String getOffererSignatureS() {
-        return offererSignatureS;
+    public byte[] getOffererSignature() {
+        return offererSignature;
     }
 
     public Coin getOffererPaybackAmount() {
@@ -74,8 +65,4 @@ public class BankTransferInitedMessage implements Serializable, TradeMessage {
     public Coin getTakerPaybackAmount() {
         return takerPaybackAmount;
     }
-
-    public String getOffererSignatureR() {
-        return offererSignatureR;
-    }
 }
@@ -44,8 +44,10 @@ public class ProcessRequestOffererPublishDepositTxMessage extends Task<BuyerAsOf
             model.setTakerPayoutAddress(nonEmptyStringOf(message.getTakerPayoutAddress()));
             model.setPeersAccountId(nonEmptyStringOf(message.getTakerAccountId()));
             model.setPeersBankAccount(checkNotNull(message.getTakerBankAccount()));
-            model.setPeersMessagePublicKey(checkNotNull(message.getTakerMessagePublicKey()));
-            model.setPeersContractAsJson(nonEmptyStringOf(message.getTakerContractAsJson()));
+            // The taker told us his key with the take offer request, he must not switch to another one
+            checkArgument(checkNotNull(message.getTakerMessagePublicKey()).equals(model.getPeersMessagePublicKey()),
+                    "Message public key of the taker has changed");
+            model.setPeersContractHash(checkNotNull(message.getTakerContractHash()));
             model.setSignedTakerDepositTxAsHex(nonEmptyStringOf(message.getSignedTakerDepositTxAsHex()));
             model.setTxConnOutAsHex(nonEmptyStringOf(message.getTxConnOutAsHex()));
             model.setTxScriptSigAsHex(nonEmptyStringOf(message.getTxScriptSigAsHex()));
@@ -18,12 +18,14 @@
 package io.bitsquare.trade.protocol.trade.offerer.tasks;
 
 import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererModel;
+import io.bitsquare.trade.protocol.trade.taker.messages.RequestTakeOfferMessage;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static io.bitsquare.util.Validator.checkTradeId;
 
 public class ProcessRequestTakeOfferMessage extends Task<BuyerAsOffererModel> {
@@ -38,6 +40,9 @@ public class ProcessRequestTakeOfferMessage extends Task<BuyerAsOffererModel> {
         try {
             checkTradeId(model.getOffer().getId(), model.getTradeMessage());
 
+            RequestTakeOfferMessage message = (RequestTakeOfferMessage) model.getTradeMessage();
+            model.setPeersMessagePublicKey(checkNotNull(message.getTakerMessagePublicKey()));
+
             complete();
         } catch (Throwable t) {
             failed(t);
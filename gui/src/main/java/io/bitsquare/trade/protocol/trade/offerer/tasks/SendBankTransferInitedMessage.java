@@ -37,23 +37,23 @@ public class SendBankTransferInitedMessage extends Task<BuyerAsOffererModel> {
     protected void run() {
         BankTransferInitedMessage tradeMessage = new BankTransferInitedMessage(
                 model.getTrade().getId(),
-                model.getDepositTxAsHex(),
-                model.getOffererSignatureR(),
-                model.getOffererSignatureS(),
+                model.getOffererSignature(),
                 model.getOffererPaybackAmount(),
                 model.getTakerPaybackAmount(),
                 model.getOffererPaybackAddress());
-        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, new SendMessageListener() {
-            @Override
-            public void handleResult() {
-                log.trace("Sending BankTransferInitedMessage succeeded.");
-                complete();
-            }
+        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, model.getMessagePublicKey(),
+                model.getPeersMessagePublicKey(),
+                new SendMessageListener() {
+                    @Override
+                    public void handleResult() {
+                        log.trace("Sending BankTransferInitedMessage succeeded.");
+                        complete();
+                    }
 
-            @Override
-            public void handleFault() {
-                failed("Sending BankTransferInitedMessage failed.");
-            }
-        });
+                    @Override
+                    public void handleFault() {
+                        failed("Sending BankTransferInitedMessage failed.");
+                    }
+                });
     }
 }
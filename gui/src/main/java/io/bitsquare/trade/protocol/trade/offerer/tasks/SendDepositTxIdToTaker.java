@@ -40,17 +40,19 @@ public class SendDepositTxIdToTaker extends Task<BuyerAsOffererModel> {
         DepositTxPublishedMessage tradeMessage = new DepositTxPublishedMessage(model.getTrade().getId(),
                 Utils.HEX.encode(model.getTrade().getDepositTx().bitcoinSerialize()));
 
-        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, new SendMessageListener() {
-            @Override
-            public void handleResult() {
-                log.trace("DepositTxPublishedMessage successfully arrived at peer");
-                complete();
-            }
-
-            @Override
-            public void handleFault() {
-                failed("Sending DepositTxPublishedMessage failed.");
-            }
-        });
+        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, model.getMessagePublicKey(),
+                model.getPeersMessagePublicKey(),
+                new SendMessageListener() {
+                    @Override
+                    public void handleResult() {
+                        log.trace("DepositTxPublishedMessage successfully arrived at peer");
+                        complete();
+                    }
+
+                    @Override
+                    public void handleFault() {
+                        failed("Sending DepositTxPublishedMessage failed.");
+                    }
+                });
     }
 }
@@ -51,7 +51,7 @@ public class SetupListenerForBlockChainConfirmation extends Task<BuyerAsOffererM
                     confidence.removeEventListener(this);
                 }
             }
-        });
+        }, model.getWalletService().getUserExecutor());
         
         complete();
     }
@@ -19,9 +19,11 @@ package io.bitsquare.trade.protocol.trade.offerer.tasks;
 
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererModel;
+import io.bitsquare.util.tasks.IrreversibleTask;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
+import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Transaction;
 
 import com.google.common.util.concurrent.FutureCallback;
@@ -31,7 +33,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SignAndPublishDepositTx extends Task<BuyerAsOffererModel> {
+public class SignAndPublishDepositTx extends Task<BuyerAsOffererModel> implements IrreversibleTask {
     private static final Logger log = LoggerFactory.getLogger(SignAndPublishDepositTx.class);
 
     public SignAndPublishDepositTx(TaskRunner taskHandler, BuyerAsOffererModel model) {
@@ -41,7 +43,15 @@ public class SignAndPublishDepositTx extends Task<BuyerAsOffererModel> {
     @Override
     protected void run() {
         try {
-            model.getWalletService().offererSignAndPublishTx(model.getPreparedOffererDepositTxAsHex(),
+            Trade trade = model.getTrade();
+            // The same amount the taker pays to the multiSig output
+            Coin msOutputAmount = trade.getTradeAmount().add(trade.getSecurityDeposit().multiply(2));
+            model.getWalletService().offererSignAndPublishTx(trade.getId(),
+                    msOutputAmount,
+                    model.getOffererPubKey(),
+                    model.getTradePubKeyAsHex(),
+                    model.getArbitratorPubKey(),
+                    model.getPreparedOffererDepositTxAsHex(),
                     model.getSignedTakerDepositTxAsHex(),
                     model.getTxConnOutAsHex(),
                     model.getTxScriptSigAsHex(),
@@ -52,8 +62,8 @@ public class SignAndPublishDepositTx extends Task<BuyerAsOffererModel> {
                         public void onSuccess(Transaction transaction) {
                             log.trace("offererSignAndPublishTx succeeded " + transaction);
 
-                            model.getTrade().setDepositTx(transaction);
-                            model.getTrade().setState(Trade.State.DEPOSIT_PUBLISHED);
+                            trade.setDepositTx(transaction);
+                            trade.setState(Trade.State.DEPOSIT_PUBLISHED);
 
                             complete();
                         }
@@ -23,9 +23,6 @@ import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
 import org.bitcoinj.core.Coin;
-import org.bitcoinj.core.ECKey;
-
-import javafx.util.Pair;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,15 +42,17 @@ public class SignPayoutTx extends Task<BuyerAsOffererModel> {
             Coin offererPaybackAmount = trade.getTradeAmount().add(securityDeposit);
             @SuppressWarnings("UnnecessaryLocalVariable") Coin takerPaybackAmount = securityDeposit;
 
-            Pair<ECKey.ECDSASignature, String> result = model.getWalletService().offererCreatesAndSignsPayoutTx(
-                    trade.getDepositTx().getHashAsString(), offererPaybackAmount, takerPaybackAmount, model.getTakerPayoutAddress(), model.getTrade().getId());
-
-            ECKey.ECDSASignature offererSignature = result.getKey();
-            String depositTxAsHex = result.getValue();
+            byte[] offererSignature = model.getWalletService().offererCreatesAndSignsPayoutTx(
+                    trade.getDepositTx(),
+                    offererPaybackAmount,
+                    takerPaybackAmount,
+                    model.getTakerPayoutAddress(),
+                    model.getOffererPubKey(),
+                    model.getTradePubKeyAsHex(),
+                    model.getArbitratorPubKey(),
+                    trade.getId());
 
-            model.setDepositTxAsHex(depositTxAsHex);
-            model.setOffererSignatureR(offererSignature.r.toString());
-            model.setOffererSignatureS(offererSignature.s.toString());
+            model.setOffererSignature(offererSignature);
             model.setOffererPaybackAmount(offererPaybackAmount);
             model.setTakerPaybackAmount(takerPaybackAmount);
 
@@ -20,7 +20,6 @@ package io.bitsquare.trade.protocol.trade.offerer.tasks;
 import io.bitsquare.trade.Contract;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererModel;
-import io.bitsquare.util.Utilities;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
@@ -48,11 +47,15 @@ public class VerifyAndSignContract extends Task<BuyerAsOffererModel> {
                 model.getPeersBankAccount(),
                 model.getMessagePublicKey(),
                 model.getPeersMessagePublicKey());
-        String contractAsJson = Utilities.objectToJson(contract);
-        String signature = model.getSignatureService().signMessage(model.getAccountKey(), contractAsJson);
+        // The taker built the contract from its own data, so we only need to compare the hashes
+        if (!contract.getHash().equals(model.getPeersContractHash())) {
+            failed("The contract of the taker is not the same as ours.");
+            return;
+        }
+
+        String signature = model.getSignatureService().signMessage(model.getAccountKey(), contract.getHash());
 
         trade.setContract(contract);
-        trade.setContractAsJson(contractAsJson);
         trade.setTakerContractSignature(signature);
 
         complete();
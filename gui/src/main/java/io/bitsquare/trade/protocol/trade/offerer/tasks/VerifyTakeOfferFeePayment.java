@@ -14,32 +14,53 @@
  * You should have received a copy of the GNU Affero General Public License
  * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package io.bitsquare.trade.protocol.trade.offerer.tasks;
 
 import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererModel;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
+import org.bitcoinj.core.Transaction;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+import org.jetbrains.annotations.NotNull;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class VerifyTakeOfferFeePayment extends Task<BuyerAsOffererModel> {
     private static final Logger log = LoggerFactory.getLogger(VerifyTakeOfferFeePayment.class);
 
+    // The fee payment has to be propagated to that number of peers, otherwise it might be a double spend attempt
+    private static final int MIN_PEERS_SEEN_TX = 3;
+
     public VerifyTakeOfferFeePayment(TaskRunner taskHandler, BuyerAsOffererModel model) {
         super(taskHandler, model);
     }
 
     @Override
     protected void run() {
-        //TODO mocked yet, need a confidence listeners
-        int numOfPeersSeenTx = model.getWalletService().getNumOfPeersSeenTx(model.getTakeOfferFeeTxId());
-       /* if (numOfPeersSeenTx > 2) {
-            resultHandler.handleResult();
-        }*/
-        
-        complete();
-    }
+        Futures.addCallback(model.getWalletService().whenTxSeenByPeers(model.getTakeOfferFeeTxId(), MIN_PEERS_SEEN_TX),
+                new FutureCallback<Integer>() {
+                    @Override
+                    public void onSuccess(Integer numOfPeersSeenTx) {
+                        log.trace("Take offer fee payment was seen by " + numOfPeersSeenTx + " peers");
+                        // The taker could announce any transaction ID, so we check what it pays
+                        Transaction tx = model.getWalletService().getTxFromPeers(model.getTakeOfferFeeTxId());
+                        if (tx == null)
+                            failed("Take offer fee payment was not sent to us by the peers.");
+                        else if (!model.getWalletService().isTakeOfferFeePayment(tx))
+                            failed("Take offer fee payment does not pay the fee to the fee address.");
+                        else
+                            complete();
+                    }
 
+                    @Override
+                    public void onFailure(@NotNull Throwable t) {
+                        failed("Take offer fee payment was not seen by enough peers.", t);
+                    }
+                });
+    }
 }
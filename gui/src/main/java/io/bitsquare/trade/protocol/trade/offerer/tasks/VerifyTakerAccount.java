@@ -17,6 +17,8 @@
 
 package io.bitsquare.trade.protocol.trade.offerer.tasks;
 
+import io.bitsquare.btc.BlockChainService;
+import io.bitsquare.reputation.ReputationService;
 import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererModel;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
@@ -33,18 +35,25 @@ public class VerifyTakerAccount extends Task<BuyerAsOffererModel> {
 
     @Override
     protected void run() {
-        //TODO mocked yet
-        if (model.getBlockChainService().verifyAccountRegistration()) {
-            if (model.getBlockChainService().isAccountBlackListed(model.getPeersAccountId(), model.getPeersBankAccount())) {
+        BlockChainService.RegistrationState registrationState =
+                model.getBlockChainService().verifyAccountRegistration(model.getPeersAccountId());
+        if (registrationState == BlockChainService.RegistrationState.INVALID) {
+            failed("Account registration validation for peer failed.");
+        }
+        else {
+            // Until we can look up the registrations of our peers we accept them unverified
+            if (registrationState == BlockChainService.RegistrationState.UNVERIFIED)
+                log.warn("Registration of taker is not verified. Account ID: " + model.getPeersAccountId());
+
+            ReputationService reputationService = model.getReputationService();
+            if (reputationService.isBlacklisted(model.getPeersAccountId(), model.getPeersBankAccount())) {
                 log.error("Taker is blacklisted");
                 failed("Taker is blacklisted");
             }
             else {
+                log.info("Reputation of taker: " + reputationService.getAccountReputation(model.getPeersAccountId()));
                 complete();
             }
         }
-        else {
-            failed("Account registration validation for peer failed.");
-        }
     }
 }
@@ -19,6 +19,7 @@ package io.bitsquare.trade.protocol.trade.shared.tasks;
 
 import io.bitsquare.bank.BankAccount;
 import io.bitsquare.btc.BlockChainService;
+import io.bitsquare.reputation.ReputationService;
 import io.bitsquare.util.handlers.ExceptionHandler;
 import io.bitsquare.util.handlers.ResultHandler;
 
@@ -29,10 +30,13 @@ public class VerifyPeerAccount {
     private static final Logger log = LoggerFactory.getLogger(VerifyPeerAccount.class);
 
     public static void run(ResultHandler resultHandler, ExceptionHandler exceptionHandler,
-                           BlockChainService blockChainService, String peersAccountId, BankAccount peersBankAccount) {
+                           BlockChainService blockChainService, ReputationService reputationService,
+                           String peersAccountId, BankAccount peersBankAccount) {
         //TODO mocked yet
-        if (blockChainService.verifyAccountRegistration()) {
-            if (blockChainService.isAccountBlackListed(peersAccountId, peersBankAccount)) {
+        // A registration we cannot look up is accepted unverified
+        if (blockChainService.verifyAccountRegistration(peersAccountId) !=
+                BlockChainService.RegistrationState.INVALID) {
+            if (reputationService.isBlacklisted(peersAccountId, peersBankAccount)) {
                 log.error("Taker is blacklisted");
                 exceptionHandler.handleException(new Exception("Taker is blacklisted"));
             }
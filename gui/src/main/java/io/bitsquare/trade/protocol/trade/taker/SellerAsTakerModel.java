@@ -21,6 +21,7 @@ import io.bitsquare.btc.BlockChainService;
 import io.bitsquare.btc.WalletService;
 import io.bitsquare.crypto.SignatureService;
 import io.bitsquare.network.Peer;
+import io.bitsquare.reputation.ReputationService;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.TradeMessageService;
 import io.bitsquare.trade.protocol.trade.TradeSharedModel;
@@ -35,10 +36,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class SellerAsTakerModel extends TradeSharedModel {
+    private static final long serialVersionUID = -2790435416871354402L;
     private static final Logger log = LoggerFactory.getLogger(SellerAsTakerModel.class);
 
     // provided
-    private final Trade trade;
+    private Trade trade;
 
     // derived
     private final Coin tradeAmount;
@@ -58,8 +60,7 @@ public class SellerAsTakerModel extends TradeSharedModel {
 
     private String peersPubKey;
     private long peersTxOutIndex;
-    private String offererSignatureR;
-    private String offererSignatureS;
+    private byte[] offererSignature;
     private Coin offererPaybackAmount;
     private String offererPayoutAddress;
 
@@ -68,12 +69,14 @@ public class SellerAsTakerModel extends TradeSharedModel {
                               WalletService walletService,
                               BlockChainService blockChainService,
                               SignatureService signatureService,
+                              ReputationService reputationService,
                               User user) {
         super(trade.getOffer(),
                 tradeMessageService,
                 walletService,
                 blockChainService,
                 signatureService,
+                reputationService,
                 user);
 
         this.trade = trade;
@@ -88,6 +91,11 @@ public class SellerAsTakerModel extends TradeSharedModel {
         return trade;
     }
 
+    // After a restart we use the persisted trade instead of the copy from the checkpoint
+    public void setTrade(Trade trade) {
+        this.trade = trade;
+    }
+
     public Coin getTradeAmount() {
         return tradeAmount;
     }
@@ -156,20 +164,12 @@ public class SellerAsTakerModel extends TradeSharedModel {
         this.depositTxAsHex = depositTxAsHex;
     }
 
-    public String getOffererSignatureR() {
-        return offererSignatureR;
-    }
-
-    public void setOffererSignatureR(String offererSignatureR) {
-        this.offererSignatureR = offererSignatureR;
-    }
-
-    public String getOffererSignatureS() {
-        return offererSignatureS;
+    public byte[] getOffererSignature() {
+        return offererSignature;
     }
 
-    public void setOffererSignatureS(String offererSignatureS) {
-        this.offererSignatureS = offererSignatureS;
+    public void setOffererSignature(byte[] offererSignature) {
+        this.offererSignature = offererSignature;
     }
 
     public Coin getOffererPaybackAmount() {
@@ -17,9 +17,11 @@
 
 package io.bitsquare.trade.protocol.trade.taker;
 
+import io.bitsquare.BitsquareException;
 import io.bitsquare.network.Message;
 import io.bitsquare.network.Peer;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.ProtocolCheckpoint;
 import io.bitsquare.trade.protocol.trade.TradeMessage;
 import io.bitsquare.trade.protocol.trade.offerer.messages.BankTransferInitedMessage;
 import io.bitsquare.trade.protocol.trade.offerer.messages.DepositTxPublishedMessage;
@@ -41,6 +43,14 @@ import io.bitsquare.trade.protocol.trade.taker.tasks.ProcessRespondToTakeOfferRe
 import io.bitsquare.trade.protocol.trade.taker.tasks.ProcessTakerDepositPaymentRequestMessage;
 import io.bitsquare.trade.protocol.trade.taker.tasks.VerifyOfferFeePayment;
 import io.bitsquare.trade.protocol.trade.taker.tasks.VerifyOffererAccount;
+import io.bitsquare.util.tasks.TaskPipeline;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.security.PublicKey;
+
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +68,43 @@ import static io.bitsquare.util.Validator.nonEmptyStringOf;
 public class SellerAsTakerProtocol {
     private static final Logger log = LoggerFactory.getLogger(SellerAsTakerProtocol.class);
 
+    private static final TaskPipeline<SellerAsTakerModel> REQUEST_TAKE_OFFER_TASKS = TaskPipeline.named(
+            "requestTakeOffer",
+            GetPeerAddress::new,
+            RequestTakeOffer::new);
+    private static final TaskPipeline<SellerAsTakerModel> RESPOND_TO_TAKE_OFFER_REQUEST_TASKS = TaskPipeline.named(
+            "respondToTakeOfferRequest",
+            ProcessRespondToTakeOfferRequestMessage::new,
+            PayTakeOfferFee::new,
+            SendTakeOfferFeePayedMessage::new);
+    private static final TaskPipeline<SellerAsTakerModel> TAKER_DEPOSIT_PAYMENT_REQUEST_TASKS = TaskPipeline.named(
+            "takerDepositPaymentRequest",
+            ProcessTakerDepositPaymentRequestMessage::new,
+            VerifyOffererAccount::new,
+            CreateAndSignContract::new,
+            PayDeposit::new,
+            SendSignedTakerDepositTxAsHex::new);
+    private static final TaskPipeline<SellerAsTakerModel> DEPOSIT_TX_PUBLISHED_TASKS = TaskPipeline.named(
+            "depositTxPublished",
+            ProcessDepositTxPublishedMessage::new,
+            TakerCommitDepositTx::new);
+    private static final TaskPipeline<SellerAsTakerModel> BANK_TRANSFER_INITED_TASKS = TaskPipeline.named(
+            "bankTransferInited",
+            ProcessBankTransferInitedMessage::new);
+    private static final TaskPipeline<SellerAsTakerModel> FIAT_RECEIVED_TASKS = TaskPipeline.named(
+            "fiatReceived",
+            SignAndPublishPayoutTx::new,
+            VerifyOfferFeePayment::new,
+            SendPayoutTxToOfferer::new);
+    private static final Map<String, TaskPipeline<SellerAsTakerModel>> PIPELINES = Maps.uniqueIndex(ImmutableList.of(
+            REQUEST_TAKE_OFFER_TASKS,
+            RESPOND_TO_TAKE_OFFER_REQUEST_TASKS,
+            TAKER_DEPOSIT_PAYMENT_REQUEST_TASKS,
+            DEPOSIT_TX_PUBLISHED_TASKS,
+            BANK_TRANSFER_INITED_TASKS,
+            FIAT_RECEIVED_TASKS),
+            TaskPipeline::getName);
+
     private final SellerAsTakerModel model;
 
 
@@ -78,6 +125,7 @@ public class SellerAsTakerProtocol {
         model.getTradeMessageService().addMessageHandler(this::handleMessage);
 
         SellerAsTakerTaskRunner<SellerAsTakerModel> sequence = new SellerAsTakerTaskRunner<>(model,
+                REQUEST_TAKE_OFFER_TASKS,
                 () -> {
                     log.debug("sequence1 completed");
                 },
@@ -85,11 +133,47 @@ public class SellerAsTakerProtocol {
                     log.error(message);
                 }
         );
-        sequence.addTasks(
-                GetPeerAddress.class,
-                RequestTakeOffer.class
-        );
-        sequence.run();
+        model.getProtocolExecutor().execute(sequence::run);
+    }
+
+    /**
+     * Rebuilds the protocol from a checkpoint after a restart. A pipeline which got interrupted by the shutdown gets
+     * continued after its last completed task. If an irreversible task got interrupted, we cannot know whether its
+     * payment or transaction went out, so instead of running it again the trade is left for manual handling.
+     */
+    public void resume(ProtocolCheckpoint checkpoint) {
+        model.getTradeMessageService().addMessageHandler(this::handleMessage);
+
+        Trade trade = model.getTrade();
+        TaskPipeline<SellerAsTakerModel> pipeline = PIPELINES.get(checkpoint.getPipelineName());
+        if (trade != null && trade.getState() == Trade.State.MANUAL_HANDLING_REQUIRED) {
+            log.warn("Trade requires manual handling, protocol not resumed: " + checkpoint);
+        }
+        else if (checkpoint.isStarted()) {
+            log.warn("Irreversible task got interrupted: " + checkpoint);
+            if (trade != null) {
+                trade.setFault(new BitsquareException("The trade got interrupted in %s. Please check in your " +
+                        "wallet whether the transaction has been published.", checkpoint.getTaskName()));
+                trade.setState(Trade.State.MANUAL_HANDLING_REQUIRED);
+            }
+        }
+        else if (pipeline != null && checkpoint.getCompletedTasks() < pipeline.size()) {
+            log.info("Resume interrupted protocol: " + checkpoint);
+            SellerAsTakerTaskRunner<SellerAsTakerModel> sequence = new SellerAsTakerTaskRunner<>(model,
+                    pipeline,
+                    () -> {
+                        log.debug("resumed sequence completed");
+                    },
+                    (message, throwable) -> {
+                        log.error(message);
+                    }
+            );
+            model.getProtocolExecutor().execute(() -> sequence.resume(checkpoint.getCompletedTasks()));
+        }
+    }
+
+    public PublicKey getPeersMessagePublicKey() {
+        return model.getOffererMessagePublicKey();
     }
 
     public void cleanup() {
@@ -101,34 +185,42 @@ public class SellerAsTakerProtocol {
     // Incoming message handling
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void handleMessage(Message message, Peer sender) {
+    private boolean handleMessage(Message message, Peer sender) {
         log.trace("handleNewMessage: message = " + message.getClass().getSimpleName());
         if (message instanceof TradeMessage) {
             TradeMessage tradeMessage = (TradeMessage) message;
             nonEmptyStringOf(tradeMessage.getTradeId());
+            // Every protocol receives all messages, we only handle those of our trade
+            if (!tradeMessage.getTradeId().equals(model.getTrade().getId()))
+                return false;
 
-            if (tradeMessage instanceof RespondToTakeOfferRequestMessage) {
-                handleRespondToTakeOfferRequestMessage((RespondToTakeOfferRequestMessage) tradeMessage);
-            }
-            else if (tradeMessage instanceof TakerDepositPaymentRequestMessage) {
-                handleTakerDepositPaymentRequestMessage((TakerDepositPaymentRequestMessage) tradeMessage);
-            }
-            else if (tradeMessage instanceof DepositTxPublishedMessage) {
-                handleDepositTxPublishedMessage((DepositTxPublishedMessage) tradeMessage);
-            }
-            else if (tradeMessage instanceof BankTransferInitedMessage) {
-                handleBankTransferInitedMessage((BankTransferInitedMessage) tradeMessage);
-            }
-            else {
-                log.error("Incoming message not supported. " + tradeMessage);
-            }
+            model.getProtocolExecutor().execute(() -> {
+                if (tradeMessage instanceof RespondToTakeOfferRequestMessage) {
+                    handleRespondToTakeOfferRequestMessage((RespondToTakeOfferRequestMessage) tradeMessage);
+                }
+                else if (tradeMessage instanceof TakerDepositPaymentRequestMessage) {
+                    handleTakerDepositPaymentRequestMessage((TakerDepositPaymentRequestMessage) tradeMessage);
+                }
+                else if (tradeMessage instanceof DepositTxPublishedMessage) {
+                    handleDepositTxPublishedMessage((DepositTxPublishedMessage) tradeMessage);
+                }
+                else if (tradeMessage instanceof BankTransferInitedMessage) {
+                    handleBankTransferInitedMessage((BankTransferInitedMessage) tradeMessage);
+                }
+                else {
+                    log.error("Incoming message not supported. " + tradeMessage);
+                }
+            });
+            return true;
         }
+        return false;
     }
 
     private void handleRespondToTakeOfferRequestMessage(RespondToTakeOfferRequestMessage tradeMessage) {
         model.setTradeMessage(tradeMessage);
 
         SellerAsTakerTaskRunner<SellerAsTakerModel> sequence2 = new SellerAsTakerTaskRunner<>(model,
+                RESPOND_TO_TAKE_OFFER_REQUEST_TASKS,
                 () -> {
                     log.debug("sequence2 completed");
                 },
@@ -136,11 +228,6 @@ public class SellerAsTakerProtocol {
                     log.error(message);
                 }
         );
-        sequence2.addTasks(
-                ProcessRespondToTakeOfferRequestMessage.class,
-                PayTakeOfferFee.class,
-                SendTakeOfferFeePayedMessage.class
-        );
         sequence2.run();
     }
 
@@ -148,6 +235,7 @@ public class SellerAsTakerProtocol {
         model.setTradeMessage(tradeMessage);
 
         SellerAsTakerTaskRunner<SellerAsTakerModel> sequence3 = new SellerAsTakerTaskRunner<>(model,
+                TAKER_DEPOSIT_PAYMENT_REQUEST_TASKS,
                 () -> {
                     log.debug("sequence3 completed");
                 },
@@ -155,13 +243,6 @@ public class SellerAsTakerProtocol {
                     log.error(message);
                 }
         );
-        sequence3.addTasks(
-                ProcessTakerDepositPaymentRequestMessage.class,
-                VerifyOffererAccount.class,
-                CreateAndSignContract.class,
-                PayDeposit.class,
-                SendSignedTakerDepositTxAsHex.class
-        );
         sequence3.run();
     }
 
@@ -169,6 +250,7 @@ public class SellerAsTakerProtocol {
         model.setTradeMessage(tradeMessage);
 
         SellerAsTakerTaskRunner<SellerAsTakerModel> sequence4 = new SellerAsTakerTaskRunner<>(model,
+                DEPOSIT_TX_PUBLISHED_TASKS,
                 () -> {
                     log.debug("sequence4 completed");
                 },
@@ -176,10 +258,6 @@ public class SellerAsTakerProtocol {
                     log.error(message);
                 }
         );
-        sequence4.addTasks(
-                ProcessDepositTxPublishedMessage.class,
-                TakerCommitDepositTx.class
-        );
         sequence4.run();
     }
 
@@ -187,6 +265,7 @@ public class SellerAsTakerProtocol {
         model.setTradeMessage(tradeMessage);
 
         SellerAsTakerTaskRunner<SellerAsTakerModel> sequence5 = new SellerAsTakerTaskRunner<>(model,
+                BANK_TRANSFER_INITED_TASKS,
                 () -> {
                     log.debug("sequence5 completed");
                     model.getTrade().setState(Trade.State.FIAT_PAYMENT_STARTED);
@@ -195,7 +274,6 @@ public class SellerAsTakerProtocol {
                     log.error(message);
                 }
         );
-        sequence5.addTasks(ProcessBankTransferInitedMessage.class);
         sequence5.run();
     }
 
@@ -206,6 +284,7 @@ public class SellerAsTakerProtocol {
     // User clicked the "bank transfer received" button, so we release the funds for pay out
     public void handleFiatReceivedUIEvent() {
         SellerAsTakerTaskRunner<SellerAsTakerModel> sequence6 = new SellerAsTakerTaskRunner<>(model,
+                FIAT_RECEIVED_TASKS,
                 () -> {
                     log.debug("sequence6 completed");
                 },
@@ -213,11 +292,6 @@ public class SellerAsTakerProtocol {
                     log.error(message);
                 }
         );
-        sequence6.addTasks(
-                SignAndPublishPayoutTx.class,
-                VerifyOfferFeePayment.class,
-                SendPayoutTxToOfferer.class
-        );
-        sequence6.run();
+        model.getProtocolExecutor().execute(sequence6::run);
     }
 }
@@ -17,9 +17,12 @@
 
 package io.bitsquare.trade.protocol.trade.taker;
 
+import io.bitsquare.BitsquareException;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.util.handlers.FaultHandler;
 import io.bitsquare.util.handlers.ResultHandler;
+import io.bitsquare.util.tasks.Task;
+import io.bitsquare.util.tasks.TaskPipeline;
 import io.bitsquare.util.tasks.TaskRunner;
 
 import org.jetbrains.annotations.NotNull;
@@ -30,13 +33,53 @@ import org.slf4j.LoggerFactory;
 public class SellerAsTakerTaskRunner<T extends SellerAsTakerModel> extends TaskRunner<SellerAsTakerModel> {
     private static final Logger log = LoggerFactory.getLogger(SellerAsTakerTaskRunner.class);
 
-    public SellerAsTakerTaskRunner(T sharedModel, ResultHandler resultHandler, FaultHandler faultHandler) {
-        super(sharedModel, resultHandler, faultHandler);
+    private boolean journalFailed;
+
+    public SellerAsTakerTaskRunner(T sharedModel, TaskPipeline<SellerAsTakerModel> pipeline,
+                                   ResultHandler resultHandler, FaultHandler faultHandler) {
+        super(sharedModel, pipeline, resultHandler, faultHandler);
+    }
+
+    @Override
+    public String getTraceId() {
+        return sharedModel.getOffer().getId();
+    }
+
+    // Tasks complete on the threads of the network or the wallet, so we continue in the mailbox of the trade
+    @Override
+    public void complete() {
+        sharedModel.getProtocolExecutor().execute(super::complete);
+    }
+
+    @Override
+    protected void onTaskStarted(Class<? extends Task> task, int completedTasks) {
+        try {
+            sharedModel.onTaskStarted(getPipeline().getName(), task, completedTasks);
+        } catch (BitsquareException e) {
+            journalFailed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    protected void onTaskCompleted(Class<? extends Task> task, int completedTasks) {
+        try {
+            sharedModel.checkpoint(getPipeline().getName(), task.getSimpleName(), completedTasks);
+        } catch (BitsquareException e) {
+            journalFailed = true;
+            throw e;
+        }
     }
 
+    // Without a journal entry we could not tell after a restart where the trade has stopped, so the user has to
+    // check it instead of us failing it
     @Override
     public void handleFault(String message, @NotNull Throwable throwable) {
-        sharedModel.getTrade().setState(Trade.State.FAILED);
+        Trade trade = sharedModel.getTrade();
+        if (trade != null) {
+            trade.setFault(throwable);
+            trade.setState(journalFailed ? Trade.State.MANUAL_HANDLING_REQUIRED : Trade.State.FAILED);
+        }
         super.handleFault(message, throwable);
     }
 }
@@ -20,6 +20,8 @@ package io.bitsquare.trade.protocol.trade.taker.messages;
 import io.bitsquare.bank.BankAccount;
 import io.bitsquare.trade.protocol.trade.TradeMessage;
 
+import org.bitcoinj.core.Sha256Hash;
+
 import java.io.Serializable;
 
 import java.security.PublicKey;
@@ -33,7 +35,7 @@ public class RequestOffererPublishDepositTxMessage implements Serializable, Trad
     private final String signedTakerDepositTxAsHex;
     private final String txScriptSigAsHex;
     private final String txConnOutAsHex;
-    private final String contractAsJson;
+    private final Sha256Hash contractHash;
     private final String takerContractSignature;
     private final String takerPayoutAddress;
     private final long takerTxOutIndex;
@@ -48,7 +50,7 @@ public class RequestOffererPublishDepositTxMessage implements Serializable, Trad
                                                  String signedTakerDepositTxAsHex,
                                                  String txScriptSigAsHex,
                                                  String txConnOutAsHex,
-                                                 String contractAsJson,
+                                                 Sha256Hash contractHash,
                                                  String takerContractSignature,
                                                  String takerPayoutAddress,
                                                  long takerTxOutIndex,
@@ -61,7 +63,7 @@ public class RequestOffererPublishDepositTxMessage implements Serializable, Trad
         this.signedTakerDepositTxAsHex = signedTakerDepositTxAsHex;
         this.txScriptSigAsHex = txScriptSigAsHex;
         this.txConnOutAsHex = txConnOutAsHex;
-        this.contractAsJson = contractAsJson;
+        this.contractHash = contractHash;
         this.takerContractSignature = takerContractSignature;
         this.takerPayoutAddress = takerPayoutAddress;
         this.takerTxOutIndex = takerTxOutIndex;
@@ -102,8 +104,8 @@ public class RequestOffererPublishDepositTxMessage implements Serializable, Trad
         return txConnOutAsHex;
     }
 
-    public String getTakerContractAsJson() {
-        return contractAsJson;
+    public Sha256Hash getTakerContractHash() {
+        return contractHash;
     }
 
     public String getTakerContractSignature() {
@@ -21,12 +21,16 @@ import io.bitsquare.trade.protocol.trade.TradeMessage;
 
 import java.io.Serializable;
 
+import java.security.PublicKey;
+
 public class RequestTakeOfferMessage implements Serializable, TradeMessage {
     private static final long serialVersionUID = 4660151440192191798L;
     private final String tradeId;
+    private final PublicKey takerMessagePublicKey;
 
-    public RequestTakeOfferMessage(String tradeId) {
+    public RequestTakeOfferMessage(String tradeId, PublicKey takerMessagePublicKey) {
         this.tradeId = tradeId;
+        this.takerMessagePublicKey = takerMessagePublicKey;
     }
 
     @Override
@@ -34,5 +38,10 @@ public class RequestTakeOfferMessage implements Serializable, TradeMessage {
         return tradeId;
     }
 
+    // The offerer accepts the mailbox messages of the trade only if they are signed with that key
+    public PublicKey getTakerMessagePublicKey() {
+        return takerMessagePublicKey;
+    }
+
 
 }
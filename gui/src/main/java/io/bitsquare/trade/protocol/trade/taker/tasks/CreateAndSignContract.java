@@ -20,7 +20,6 @@ package io.bitsquare.trade.protocol.trade.taker.tasks;
 import io.bitsquare.trade.Contract;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.taker.SellerAsTakerModel;
-import io.bitsquare.util.Utilities;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
@@ -47,11 +46,9 @@ public class CreateAndSignContract extends Task<SellerAsTakerModel> {
                 model.getBankAccount(),
                 model.getOffererMessagePublicKey(),
                 model.getMessagePublicKey());
-        String contractAsJson = Utilities.objectToJson(contract);
-        String signature = model.getSignatureService().signMessage(model.getAccountKey(), contractAsJson);
+        String signature = model.getSignatureService().signMessage(model.getAccountKey(), contract.getHash());
 
         trade.setContract(contract);
-        trade.setContractAsJson(contractAsJson);
         trade.setTakerContractSignature(signature);
 
         complete();
@@ -18,6 +18,7 @@
 package io.bitsquare.trade.protocol.trade.taker.tasks;
 
 import io.bitsquare.trade.protocol.trade.taker.SellerAsTakerModel;
+import io.bitsquare.util.tasks.IrreversibleTask;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
@@ -28,7 +29,7 @@ import org.bitcoinj.core.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PayDeposit extends Task<SellerAsTakerModel> {
+public class PayDeposit extends Task<SellerAsTakerModel> implements IrreversibleTask {
     private static final Logger log = LoggerFactory.getLogger(PayDeposit.class);
 
     public PayDeposit(TaskRunner taskHandler, SellerAsTakerModel model) {
@@ -18,6 +18,7 @@
 package io.bitsquare.trade.protocol.trade.taker.tasks;
 
 import io.bitsquare.trade.protocol.trade.taker.SellerAsTakerModel;
+import io.bitsquare.util.tasks.IrreversibleTask;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
@@ -31,7 +32,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PayTakeOfferFee extends Task<SellerAsTakerModel> {
+public class PayTakeOfferFee extends Task<SellerAsTakerModel> implements IrreversibleTask {
     private static final Logger log = LoggerFactory.getLogger(PayTakeOfferFee.class);
 
     public PayTakeOfferFee(TaskRunner taskHandler, SellerAsTakerModel model) {
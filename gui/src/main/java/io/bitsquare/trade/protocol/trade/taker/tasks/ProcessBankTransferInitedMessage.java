@@ -40,9 +40,7 @@ public class ProcessBankTransferInitedMessage extends Task<SellerAsTakerModel> {
             checkTradeId(model.getTrade().getId(), model.getTradeMessage());
             BankTransferInitedMessage message = (BankTransferInitedMessage) model.getTradeMessage();
             
-            model.setDepositTxAsHex(nonEmptyStringOf(message.getDepositTxAsHex()));
-            model.setOffererSignatureR(nonEmptyStringOf(message.getOffererSignatureR()));
-            model.setOffererSignatureS(nonEmptyStringOf(message.getOffererSignatureS()));
+            model.setOffererSignature(nonEmptyByteArrayOf(message.getOffererSignature()));
             model.setOffererPaybackAmount(positiveCoinOf(nonZeroCoinOf(message.getOffererPaybackAmount())));
             model.setTakerPaybackAmount(positiveCoinOf(nonZeroCoinOf(message.getTakerPaybackAmount())));
             model.setOffererPayoutAddress(nonEmptyStringOf(message.getOffererPayoutAddress()));
@@ -35,7 +35,9 @@ public class RequestTakeOffer extends Task<SellerAsTakerModel> {
 
     @Override
     protected void run() {
-        model.getTradeMessageService().sendMessage(model.getPeer(), new RequestTakeOfferMessage(model.getTrade().getId()),
+        RequestTakeOfferMessage message = new RequestTakeOfferMessage(model.getTrade().getId(),
+                model.getMessagePublicKey());
+        model.getTradeMessageService().sendMessage(model.getPeer(), message,
                 new SendMessageListener() {
                     @Override
                     public void handleResult() {
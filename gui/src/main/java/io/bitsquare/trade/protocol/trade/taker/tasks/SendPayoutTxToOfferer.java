@@ -36,17 +36,19 @@ public class SendPayoutTxToOfferer extends Task<SellerAsTakerModel> {
     @Override
     protected void run() {
         PayoutTxPublishedMessage tradeMessage = new PayoutTxPublishedMessage(model.getTrade().getId(), model.getPayoutTxAsHex());
-        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, new SendMessageListener() {
-            @Override
-            public void handleResult() {
-                log.trace("PayoutTxPublishedMessage successfully arrived at peer");
-                complete();
-            }
+        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, model.getMessagePublicKey(),
+                model.getOffererMessagePublicKey(),
+                new SendMessageListener() {
+                    @Override
+                    public void handleResult() {
+                        log.trace("PayoutTxPublishedMessage successfully arrived at peer");
+                        complete();
+                    }
 
-            @Override
-            public void handleFault() {
-                failed("Sending PayoutTxPublishedMessage failed.");
-            }
-        });
+                    @Override
+                    public void handleFault() {
+                        failed("Sending PayoutTxPublishedMessage failed.");
+                    }
+                });
     }
 }
@@ -49,23 +49,25 @@ public class SendSignedTakerDepositTxAsHex extends Task<SellerAsTakerModel> {
                 Utils.HEX.encode(signedTakerDepositTx.bitcoinSerialize()),
                 Utils.HEX.encode(signedTakerDepositTx.getInput(1).getScriptBytes()),
                 Utils.HEX.encode(signedTakerDepositTx.getInput(1).getConnectedOutput().getParentTransaction().bitcoinSerialize()),
-                model.getTrade().getContractAsJson(),
+                model.getTrade().getContract().getHash(),
                 model.getTrade().getTakerContractSignature(),
                 model.getWalletService().getAddressInfoByTradeID(model.getTrade().getId()).getAddressString(),
                 takerTxOutIndex,
                 model.getPeersTxOutIndex());
 
-        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, new SendMessageListener() {
-            @Override
-            public void handleResult() {
-                complete();
-            }
+        model.getTradeMessageService().sendMessage(model.getPeer(), tradeMessage, model.getMessagePublicKey(),
+                model.getOffererMessagePublicKey(),
+                new SendMessageListener() {
+                    @Override
+                    public void handleResult() {
+                        complete();
+                    }
 
-            @Override
-            public void handleFault() {
-                failed("Sending RequestOffererDepositPublicationMessage failed");
-            }
-        });
+                    @Override
+                    public void handleFault() {
+                        failed("Sending RequestOffererDepositPublicationMessage failed");
+                    }
+                });
     }
 
 }
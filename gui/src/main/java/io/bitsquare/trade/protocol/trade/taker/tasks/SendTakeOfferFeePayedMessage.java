@@ -42,17 +42,19 @@ public class SendTakeOfferFeePayedMessage extends Task<SellerAsTakerModel> {
                 model.getTradePubKeyAsHex()
         );
 
-        model.getTradeMessageService().sendMessage(model.getPeer(), msg, new SendMessageListener() {
-            @Override
-            public void handleResult() {
-                log.trace("Sending TakeOfferFeePayedMessage succeeded.");
-                complete();
-            }
-
-            @Override
-            public void handleFault() {
-                failed("Sending TakeOfferFeePayedMessage failed.");
-            }
-        });
+        model.getTradeMessageService().sendMessage(model.getPeer(), msg, model.getMessagePublicKey(),
+                model.getOffererMessagePublicKey(),
+                new SendMessageListener() {
+                    @Override
+                    public void handleResult() {
+                        log.trace("Sending TakeOfferFeePayedMessage succeeded.");
+                        complete();
+                    }
+
+                    @Override
+                    public void handleFault() {
+                        failed("Sending TakeOfferFeePayedMessage failed.");
+                    }
+                });
     }
 }
\ No newline at end of file
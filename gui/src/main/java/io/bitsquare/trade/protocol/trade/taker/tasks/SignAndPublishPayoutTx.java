@@ -19,6 +19,7 @@ package io.bitsquare.trade.protocol.trade.taker.tasks;
 
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.taker.SellerAsTakerModel;
+import io.bitsquare.util.tasks.IrreversibleTask;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
 
@@ -33,7 +34,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SignAndPublishPayoutTx extends Task<SellerAsTakerModel> {
+public class SignAndPublishPayoutTx extends Task<SellerAsTakerModel> implements IrreversibleTask {
     private static final Logger log = LoggerFactory.getLogger(SignAndPublishPayoutTx.class);
 
     public SignAndPublishPayoutTx(TaskRunner taskHandler, SellerAsTakerModel model) {
@@ -43,12 +44,14 @@ public class SignAndPublishPayoutTx extends Task<SellerAsTakerModel> {
     @Override
     protected void run() {
         try {
-            model.getWalletService().takerSignsAndSendsTx(model.getDepositTxAsHex(),
-                    model.getOffererSignatureR(),
-                    model.getOffererSignatureS(),
+            model.getWalletService().takerSignsAndSendsTx(model.getTrade().getDepositTx(),
+                    model.getOffererSignature(),
                     model.getOffererPaybackAmount(),
                     model.getTakerPaybackAmount(),
                     model.getOffererPayoutAddress(),
+                    model.getPeersPubKey(),
+                    model.getTradePubKeyAsHex(),
+                    model.getArbitratorPubKey(),
                     model.getTrade().getId(),
                     new FutureCallback<Transaction>() {
                         @Override
@@ -17,6 +17,8 @@
 
 package io.bitsquare.trade.protocol.trade.taker.tasks;
 
+import io.bitsquare.btc.BlockChainService;
+import io.bitsquare.reputation.ReputationService;
 import io.bitsquare.trade.protocol.trade.taker.SellerAsTakerModel;
 import io.bitsquare.util.tasks.Task;
 import io.bitsquare.util.tasks.TaskRunner;
@@ -33,16 +35,25 @@ public class VerifyOffererAccount extends Task<SellerAsTakerModel> {
 
     @Override
     protected void run() {
-        if (model.getBlockChainService().verifyAccountRegistration()) {
-            if (model.getBlockChainService().isAccountBlackListed(model.getPeersAccountId(), model.getPeersBankAccount())) {
-                failed("Taker is blacklisted.");
+        BlockChainService.RegistrationState registrationState =
+                model.getBlockChainService().verifyAccountRegistration(model.getPeersAccountId());
+        if (registrationState == BlockChainService.RegistrationState.INVALID) {
+            failed("Account registration validation for peer failed.");
+        }
+        else {
+            // Until we can look up the registrations of our peers we accept them unverified
+            if (registrationState == BlockChainService.RegistrationState.UNVERIFIED)
+                log.warn("Registration of offerer is not verified. Account ID: " + model.getPeersAccountId());
+
+            ReputationService reputationService = model.getReputationService();
+            if (reputationService.isBlacklisted(model.getPeersAccountId(), model.getPeersBankAccount())) {
+                failed("Offerer is blacklisted.");
             }
             else {
+                log.info("Reputation of offerer: " +
+                        reputationService.getAccountReputation(model.getPeersAccountId()));
                 complete();
             }
         }
-        else {
-            failed("Account registration validation for peer faultHandler.onFault.");
-        }
     }
 }
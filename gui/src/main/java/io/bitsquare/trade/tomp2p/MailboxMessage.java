@@ -0,0 +1,56 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.tomp2p;
+
+import io.bitsquare.network.Message;
+import io.bitsquare.network.Peer;
+
+import java.io.Serializable;
+
+import java.security.PublicKey;
+
+/**
+ * Content of a mailbox entry. The sender is included so the recipient can handle the message like a direct message.
+ * The message key of the sender is the one which signed the entry, the recipient only accepts it if it is the key of
+ * the peer of the trade.
+ */
+class MailboxMessage implements Serializable {
+    private static final long serialVersionUID = -3111178895546299769L;
+
+    private final Message message;
+    private final Peer sender;
+    private final PublicKey senderMessagePublicKey;
+
+    MailboxMessage(Message message, Peer sender, PublicKey senderMessagePublicKey) {
+        this.message = message;
+        this.sender = sender;
+        this.senderMessagePublicKey = senderMessagePublicKey;
+    }
+
+    Message getMessage() {
+        return message;
+    }
+
+    Peer getSender() {
+        return sender;
+    }
+
+    PublicKey getSenderMessagePublicKey() {
+        return senderMessagePublicKey;
+    }
+}
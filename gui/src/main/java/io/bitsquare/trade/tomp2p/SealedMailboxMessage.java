@@ -0,0 +1,51 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.tomp2p;
+
+import java.io.Serializable;
+
+/**
+ * The encrypted {@link MailboxMessage} as it is stored in the DHT. Only the owner of the message key can read it.
+ * Everybody can write to a mailbox, so the sender signs the encrypted message with the message key he includes in it.
+ * The DHT removes the entry after its TTL, the expiration date protects us from entries which are kept longer.
+ */
+class SealedMailboxMessage implements Serializable {
+    private static final long serialVersionUID = 7451934620573185722L;
+
+    private final byte[] encryptedMailboxMessage;
+    private final byte[] signature;
+    private final long expirationDate;
+
+    SealedMailboxMessage(byte[] encryptedMailboxMessage, byte[] signature, long expirationDate) {
+        this.encryptedMailboxMessage = encryptedMailboxMessage;
+        this.signature = signature;
+        this.expirationDate = expirationDate;
+    }
+
+    byte[] getEncryptedMailboxMessage() {
+        return encryptedMailboxMessage;
+    }
+
+    byte[] getSignature() {
+        return signature;
+    }
+
+    boolean isExpired() {
+        return System.currentTimeMillis() > expirationDate;
+    }
+}
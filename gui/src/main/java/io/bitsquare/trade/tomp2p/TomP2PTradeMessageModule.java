@@ -17,10 +17,12 @@
 
 package io.bitsquare.trade.tomp2p;
 
+import io.bitsquare.crypto.EncryptionService;
 import io.bitsquare.network.tomp2p.TomP2PNode;
 import io.bitsquare.trade.TradeMessageModule;
 import io.bitsquare.trade.TradeMessageService;
 import io.bitsquare.user.User;
+import io.bitsquare.util.UserThread;
 
 import com.google.inject.Injector;
 import com.google.inject.Provider;
@@ -28,8 +30,6 @@ import com.google.inject.Singleton;
 
 import javax.inject.Inject;
 
-import javafx.application.Platform;
-
 import org.springframework.core.env.Environment;
 
 public class TomP2PTradeMessageModule extends TradeMessageModule {
@@ -53,9 +53,10 @@ class TomP2PTradeMessageServiceProvider implements Provider<TradeMessageService>
     private final TradeMessageService tradeMessageService;
 
     @Inject
-    public TomP2PTradeMessageServiceProvider(User user, TomP2PNode tomP2PNode) {
-        tradeMessageService = new TomP2PTradeMessageService(user, tomP2PNode);
-        tradeMessageService.setExecutor(Platform::runLater);
+    public TomP2PTradeMessageServiceProvider(User user, TomP2PNode tomP2PNode,
+                                             EncryptionService encryptionService) {
+        tradeMessageService = new TomP2PTradeMessageService(user, tomP2PNode, encryptionService);
+        tradeMessageService.setExecutor(UserThread::execute);
     }
 
     public TradeMessageService get() {
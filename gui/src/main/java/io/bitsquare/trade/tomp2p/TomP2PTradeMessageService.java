@@ -17,6 +17,7 @@
 
 package io.bitsquare.trade.tomp2p;
 
+import io.bitsquare.crypto.EncryptionService;
 import io.bitsquare.network.Message;
 import io.bitsquare.network.Peer;
 import io.bitsquare.network.tomp2p.TomP2PNode;
@@ -25,20 +26,38 @@ import io.bitsquare.trade.TradeMessageService;
 import io.bitsquare.trade.listeners.GetPeerAddressListener;
 import io.bitsquare.trade.listeners.MessageHandler;
 import io.bitsquare.trade.listeners.SendMessageListener;
+import io.bitsquare.trade.protocol.trade.TradeMessage;
 import io.bitsquare.user.User;
+import io.bitsquare.util.MessageKeyUtil;
 
+import com.google.common.primitives.Bytes;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PrivateKey;
 import java.security.PublicKey;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import net.tomp2p.dht.FutureGet;
+import net.tomp2p.dht.FuturePut;
 import net.tomp2p.futures.BaseFuture;
 import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.futures.BaseFutureListener;
 import net.tomp2p.futures.FutureDirect;
 import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.storage.Data;
 import net.tomp2p.utils.Utils;
 
 import org.slf4j.Logger;
@@ -51,13 +70,21 @@ import org.slf4j.LoggerFactory;
  * The TomP2P library codebase shall not be used outside that service.
  * That way we limit the dependency of the TomP2P library only to that class (and it's sub components).
  * <p/>
+ * Messages to an offline peer are stored encrypted in his mailbox in the DHT. The location key of the mailbox is
+ * derived from his message public key. He reads the messages in his mailbox after bootstrapping and removes those
+ * which got accepted by a message handler. Only messages signed by the peer of their trade get delivered.
+ * <p/>
  * TODO: improve callbacks that executor.execute is not necessary. We call usually that methods form teh UI thread.
  */
 public class TomP2PTradeMessageService implements TradeMessageService {
     private static final Logger log = LoggerFactory.getLogger(TomP2PTradeMessageService.class);
 
+    private static final int MAILBOX_TTL_SECONDS = (int) TimeUnit.DAYS.toSeconds(10);
+    private static final byte[] MAILBOX_LOCATION_KEY_SUFFIX = "mailbox".getBytes(StandardCharsets.UTF_8);
+
     private final TomP2PNode tomP2PNode;
     private final User user;
+    private final EncryptionService encryptionService;
     private final List<MessageHandler> messageHandlers = new ArrayList<>();
     private Executor executor;
 
@@ -66,9 +93,10 @@ public class TomP2PTradeMessageService implements TradeMessageService {
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public TomP2PTradeMessageService(User user, TomP2PNode tomP2PNode) {
+    public TomP2PTradeMessageService(User user, TomP2PNode tomP2PNode, EncryptionService encryptionService) {
         this.user = user;
         this.tomP2PNode = tomP2PNode;
+        this.encryptionService = encryptionService;
     }
 
 
@@ -82,7 +110,7 @@ public class TomP2PTradeMessageService implements TradeMessageService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void getPeerAddress(PublicKey publicKey, GetPeerAddressListener listener) {
-        final Number160 locationKey = Utils.makeSHAHash(publicKey.getEncoded());
+        final Number160 locationKey = TomP2PNode.getAddressLocationKey(publicKey);
         FutureGet futureGet = tomP2PNode.getDomainProtectedData(locationKey, publicKey);
 
         futureGet.addListener(new BaseFutureAdapter<BaseFuture>() {
@@ -129,6 +157,162 @@ public class TomP2PTradeMessageService implements TradeMessageService {
     }
 
 
+    public void sendMessage(Peer peer, Message message, PublicKey senderMessagePublicKey,
+                            PublicKey recipientMessagePublicKey, SendMessageListener listener) {
+        sendMessage(peer, message, new SendMessageListener() {
+            @Override
+            public void handleResult() {
+                listener.handleResult();
+            }
+
+            @Override
+            public void handleFault() {
+                log.info("Peer is not reachable. We store the message in his mailbox.");
+                addMailboxMessage(senderMessagePublicKey, recipientMessagePublicKey, message, listener);
+            }
+        });
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Mailbox
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void pollMailbox(Function<String, PublicKey> peersMessagePublicKeyResolver) {
+        pollMailbox(user.getMessageKeyPair(), peersMessagePublicKeyResolver);
+        // Messages for offers and trades from before the migration of our message key
+        if (user.getLegacyMessageKeyPair() != null)
+            pollMailbox(user.getLegacyMessageKeyPair(), peersMessagePublicKeyResolver);
+    }
+
+    private void pollMailbox(KeyPair messageKeyPair, Function<String, PublicKey> peersMessagePublicKeyResolver) {
+        Number160 locationKey = getMailboxLocationKey(messageKeyPair.getPublic());
+        FutureGet futureGet = tomP2PNode.getDataMap(locationKey);
+        futureGet.addListener(new BaseFutureAdapter<BaseFuture>() {
+            @Override
+            public void operationComplete(BaseFuture baseFuture) throws Exception {
+                Map<Number640, Data> dataMap = futureGet.dataMap();
+                if (baseFuture.isSuccess() && dataMap != null) {
+                    log.debug("Mailbox contains " + dataMap.size() + " entries");
+                    dataMap.values().forEach(data -> readMailboxEntry(locationKey, data,
+                            messageKeyPair.getPrivate(), peersMessagePublicKeyResolver));
+                }
+                else {
+                    log.warn("pollMailbox failed. failedReason = " + baseFuture.failedReason());
+                }
+            }
+        });
+    }
+
+    private void addMailboxMessage(PublicKey senderMessagePublicKey, PublicKey recipientMessagePublicKey,
+                                   Message message, SendMessageListener listener) {
+        KeyPair senderMessageKeyPair = user.getMessageKeyPair(senderMessagePublicKey);
+        if (senderMessageKeyPair == null) {
+            log.error("Could not store message in mailbox. The sender key is not one of our message keys.");
+            executor.execute(listener::handleFault);
+            return;
+        }
+
+        try {
+            MailboxMessage mailboxMessage = new MailboxMessage(message, new TomP2PPeer(tomP2PNode.getPeerAddress()),
+                    senderMessagePublicKey);
+            byte[] encrypted = encryptionService.encrypt(recipientMessagePublicKey,
+                    Utils.encodeJavaObject(mailboxMessage));
+            byte[] signature = MessageKeyUtil.sign(senderMessageKeyPair.getPrivate(), encrypted);
+            Data data = new Data(new SealedMailboxMessage(encrypted, signature,
+                    System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(MAILBOX_TTL_SECONDS)));
+            data.ttlSeconds(MAILBOX_TTL_SECONDS);
+
+            FuturePut futurePut = tomP2PNode.addProtectedData(getMailboxLocationKey(recipientMessagePublicKey), data);
+            futurePut.addListener(new BaseFutureListener<BaseFuture>() {
+                @Override
+                public void operationComplete(BaseFuture future) throws Exception {
+                    if (future.isSuccess()) {
+                        executor.execute(listener::handleResult);
+                    }
+                    else {
+                        log.error("addMailboxMessage failed with reason " + futurePut.failedReason());
+                        executor.execute(listener::handleFault);
+                    }
+                }
+
+                @Override
+                public void exceptionCaught(Throwable t) throws Exception {
+                    executor.execute(listener::handleFault);
+                }
+            });
+        } catch (IOException | GeneralSecurityException e) {
+            log.error("Could not store message in mailbox. " + e);
+            executor.execute(listener::handleFault);
+        }
+    }
+
+    // We remove the entry once a message handler has accepted it. Entries of an unknown sender stay in the mailbox
+    // until their TTL, entries we cannot read or which are not signed by their sender are of no use for us, so we
+    // remove them right away.
+    private void readMailboxEntry(Number160 locationKey, Data data, PrivateKey privateKey,
+                                  Function<String, PublicKey> peersMessagePublicKeyResolver) {
+        MailboxMessage mailboxMessage;
+        try {
+            mailboxMessage = openMailboxEntry(data, privateKey);
+        } catch (ClassNotFoundException | IOException | GeneralSecurityException e) {
+            log.warn("Could not read mailbox entry. " + e);
+            mailboxMessage = null;
+        }
+        if (mailboxMessage == null) {
+            tomP2PNode.removeFromDataMap(locationKey, data);
+            return;
+        }
+
+        Message message = mailboxMessage.getMessage();
+        PublicKey peersMessagePublicKey = message instanceof TradeMessage ?
+                peersMessagePublicKeyResolver.apply(((TradeMessage) message).getTradeId()) : null;
+        if (peersMessagePublicKey == null || !Arrays.equals(peersMessagePublicKey.getEncoded(),
+                mailboxMessage.getSenderMessagePublicKey().getEncoded())) {
+            log.warn("Mailbox message is not from the peer of its trade, we don't deliver it. " + message);
+            return;
+        }
+
+        log.debug("Received message from mailbox " + message);
+        Peer sender = mailboxMessage.getSender();
+        executor.execute(() -> {
+            if (dispatchMessage(message, sender))
+                tomP2PNode.removeFromDataMap(locationKey, data);
+            else
+                log.info("No handler accepted the mailbox message, we keep it. " + message);
+        });
+    }
+
+    // Returns null for entries which are expired or not signed by the message key of their sender
+    private MailboxMessage openMailboxEntry(Data data, PrivateKey privateKey)
+            throws ClassNotFoundException, IOException, GeneralSecurityException {
+        Object object = data.object();
+        if (!(object instanceof SealedMailboxMessage) || ((SealedMailboxMessage) object).isExpired())
+            return null;
+
+        SealedMailboxMessage sealedMailboxMessage = (SealedMailboxMessage) object;
+        byte[] encrypted = sealedMailboxMessage.getEncryptedMailboxMessage();
+        byte[] decrypted = encryptionService.decrypt(privateKey, encrypted);
+        Object decoded = Utils.decodeJavaObject(decrypted, 0, decrypted.length);
+        if (!(decoded instanceof MailboxMessage))
+            return null;
+
+        MailboxMessage mailboxMessage = (MailboxMessage) decoded;
+        if (mailboxMessage.getSenderMessagePublicKey() == null || sealedMailboxMessage.getSignature() == null
+                || !MessageKeyUtil.verify(mailboxMessage.getSenderMessagePublicKey(), encrypted,
+                sealedMailboxMessage.getSignature())) {
+            log.warn("Mailbox entry has no valid signature of its sender.");
+            return null;
+        }
+        return mailboxMessage;
+    }
+
+    private static Number160 getMailboxLocationKey(PublicKey messagePublicKey) {
+        return Utils.makeSHAHash(Bytes.concat(MessageKeyUtil.getCompactEncoding(messagePublicKey),
+                MAILBOX_LOCATION_KEY_SUFFIX));
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Event Listeners
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -149,8 +333,17 @@ public class TomP2PTradeMessageService implements TradeMessageService {
     @Override
     public void handleMessage(Object message, Peer sender) {
         if (message instanceof Message && sender instanceof TomP2PPeer) {
-            executor.execute(() -> messageHandlers.stream().forEach(e ->
-                    e.handleMessage((Message) message, sender)));
+            executor.execute(() -> dispatchMessage((Message) message, sender));
+        }
+    }
+
+    // Every handler gets the message, it is accepted if at least one of them accepts it
+    private boolean dispatchMessage(Message message, Peer sender) {
+        boolean accepted = false;
+        for (MessageHandler messageHandler : new ArrayList<>(messageHandlers)) {
+            if (messageHandler.handleMessage(message, sender))
+                accepted = true;
         }
+        return accepted;
     }
 }
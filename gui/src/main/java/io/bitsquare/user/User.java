@@ -18,8 +18,12 @@
 package io.bitsquare.user;
 
 import io.bitsquare.bank.BankAccount;
-import io.bitsquare.util.DSAKeyUtil;
+import io.bitsquare.util.MessageKeyUtil;
 
+import com.google.common.util.concurrent.Futures;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import java.security.KeyPair;
@@ -27,6 +31,8 @@ import java.security.PublicKey;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Nullable;
 
@@ -43,7 +49,9 @@ import javafx.collections.ObservableList;
 public class User implements Serializable {
     private static final long serialVersionUID = 7409078808248518638L;
 
-    private KeyPair messageKeyPair;
+    private volatile KeyPair messageKeyPair;
+    // The DSA key pair of former versions. We keep it for receiving messages of offers and trades which still use it.
+    @Nullable private KeyPair legacyMessageKeyPair;
     private String accountID;
 
     // Used for serialisation (ObservableList cannot be serialized) -> serialisation will change anyway so that is
@@ -53,6 +61,7 @@ public class User implements Serializable {
 
     private final transient ObservableList<BankAccount> bankAccounts = FXCollections.observableArrayList();
     private final transient ObjectProperty<BankAccount> currentBankAccount = new SimpleObjectProperty<>();
+    private transient Future<KeyPair> messageKeyPairFuture;
 
     public User() {
         // Used for serialisation (ObservableList cannot be serialized) -> serialisation will change anyway so that is
@@ -73,13 +82,19 @@ public class User implements Serializable {
             bankAccounts.setAll(persistedUser.getSerializedBankAccounts());
             setCurrentBankAccount(persistedUser.getSerializedCurrentBankAccount());
             messageKeyPair = persistedUser.getMessageKeyPair();
+            legacyMessageKeyPair = persistedUser.getLegacyMessageKeyPair();
             accountID = persistedUser.getAccountId();
+
+            if (messageKeyPair != null && MessageKeyUtil.isLegacyKeyPair(messageKeyPair)) {
+                legacyMessageKeyPair = messageKeyPair;
+                messageKeyPair = null;
+            }
         }
-        else {
-            // First time
-            // TODO use separate thread. DSAKeyUtil.getKeyPair() runs in same thread now
-            messageKeyPair = DSAKeyUtil.generateKeyPair();
-        }
+
+        // First time or migration of a DSA key pair. We generate the key pair while the app starts up, the first
+        // access to it waits for the result.
+        if (messageKeyPair == null)
+            generateMessageKeyPairInBackground();
     }
 
     public void setBankAccount(BankAccount bankAccount) {
@@ -163,15 +178,39 @@ public class User implements Serializable {
     }
 
     public KeyPair getMessageKeyPair() {
+        if (messageKeyPair == null && messageKeyPairFuture != null)
+            messageKeyPair = Futures.getUnchecked(messageKeyPairFuture);
         return messageKeyPair;
     }
 
     public PublicKey getMessagePublicKey() {
-        return messageKeyPair.getPublic();
+        return getMessageKeyPair().getPublic();
     }
 
     public String getMessagePublicKeyAsString() {
-        return DSAKeyUtil.getHexStringFromPublicKey(getMessagePublicKey());
+        return MessageKeyUtil.getHexStringFromPublicKey(getMessagePublicKey());
+    }
+
+    @Nullable
+    public KeyPair getLegacyMessageKeyPair() {
+        return legacyMessageKeyPair;
+    }
+
+    // The key pair of the given public key if it is one of our message keys
+    @Nullable
+    public KeyPair getMessageKeyPair(PublicKey publicKey) {
+        if (publicKey.equals(getMessagePublicKey()))
+            return getMessageKeyPair();
+        else if (legacyMessageKeyPair != null && publicKey.equals(legacyMessageKeyPair.getPublic()))
+            return legacyMessageKeyPair;
+        else
+            return null;
+    }
+
+    // Offers and trades created before the migration still use our legacy key
+    public boolean isMyMessagePublicKey(PublicKey publicKey) {
+        return publicKey.equals(getMessagePublicKey())
+                || (legacyMessageKeyPair != null && publicKey.equals(legacyMessageKeyPair.getPublic()));
     }
 
     public ObjectProperty<BankAccount> currentBankAccountProperty() {
@@ -188,4 +227,22 @@ public class User implements Serializable {
         return _currentBankAccount;
     }
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void generateMessageKeyPairInBackground() {
+        FutureTask<KeyPair> futureTask = new FutureTask<>(MessageKeyUtil::generateKeyPair);
+        messageKeyPairFuture = futureTask;
+        Thread thread = new Thread(futureTask, "MessageKeyGenerator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // We must not persist the user before the key pair is generated
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getMessageKeyPair();
+        out.defaultWriteObject();
+    }
 }
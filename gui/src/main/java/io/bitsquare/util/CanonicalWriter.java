@@ -0,0 +1,64 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.util;
+
+import org.bitcoinj.core.Coin;
+
+import com.google.common.base.Charsets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes a deterministic binary encoding of domain objects, used for hashing and signing. The fields are written in
+ * a fixed order, strings length prefixed as UTF-8. Lists are written with their size followed by the elements.
+ */
+public class CanonicalWriter extends DataOutputStream {
+
+    public CanonicalWriter() {
+        super(new ByteArrayOutputStream(256));
+    }
+
+    // Null is encoded as length -1, so it is distinguishable from an empty string
+    public void writeString(String value) throws IOException {
+        if (value == null)
+            writeByteArray(null);
+        else
+            writeByteArray(value.getBytes(Charsets.UTF_8));
+    }
+
+    public void writeByteArray(byte[] value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+        }
+        else {
+            writeInt(value.length);
+            write(value);
+        }
+    }
+
+    public void writeCoin(Coin coin) throws IOException {
+        writeLong(coin != null ? coin.value : -1);
+    }
+
+    public byte[] toByteArray() {
+        return ((ByteArrayOutputStream) out).toByteArray();
+    }
+}
@@ -1,49 +0,0 @@
-/*
- * This file is part of Bitsquare.
- *
- * Bitsquare is free software: you can redistribute it and/or modify it
- * under the terms of the GNU Affero General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or (at
- * your option) any later version.
- *
- * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
- * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
- * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
- * License for more details.
- *
- * You should have received a copy of the GNU Affero General Public License
- * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
- */
-
-package io.bitsquare.util;
-
-import org.bitcoinj.core.Utils;
-
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-public class DSAKeyUtil {
-    private static final Logger log = LoggerFactory.getLogger(DSAKeyUtil.class);
-
-    public static String getHexStringFromPublicKey(PublicKey publicKey) {
-        final X509EncodedKeySpec x509EncodedKeySpec = new X509EncodedKeySpec(publicKey.getEncoded());
-        return Utils.HEX.encode(x509EncodedKeySpec.getEncoded());
-    }
-
-    public static KeyPair generateKeyPair() {
-        try {
-            final KeyPairGenerator keyGen = KeyPairGenerator.getInstance("DSA");
-            keyGen.initialize(1024);
-            return keyGen.genKeyPair();
-        } catch (NoSuchAlgorithmException e) {
-            log.error(e.toString());
-        }
-        return null;
-    }
-}
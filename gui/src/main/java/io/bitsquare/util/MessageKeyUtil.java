@@ -0,0 +1,96 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.util;
+
+import io.bitsquare.BitsquareException;
+
+import org.bitcoinj.core.Utils;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECPoint;
+
+/**
+ * Message keys are EC keys on the P-256 curve. Compared with the 1024 bit DSA keys we used before they are faster
+ * to generate, to sign and to verify, and their public key has a compact encoding of 33 bytes (the compressed point).
+ * DSA keys of former versions are still supported, their compact encoding is their X.509 encoding.
+ */
+public class MessageKeyUtil {
+    private static final String KEY_ALGORITHM = "EC";
+    private static final String CURVE_NAME = "secp256r1";
+    private static final int COORDINATE_LENGTH = 32;
+
+    public static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(KEY_ALGORITHM);
+            keyPairGenerator.initialize(new ECGenParameterSpec(CURVE_NAME));
+            return keyPairGenerator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new BitsquareException(e, "Could not generate message key pair");
+        }
+    }
+
+    // Key pairs of former versions which need to be migrated
+    public static boolean isLegacyKeyPair(KeyPair keyPair) {
+        return !(keyPair.getPublic() instanceof ECPublicKey);
+    }
+
+    public static byte[] getCompactEncoding(PublicKey publicKey) {
+        if (!(publicKey instanceof ECPublicKey))
+            return publicKey.getEncoded();
+
+        ECPoint point = ((ECPublicKey) publicKey).getW();
+        byte[] encoded = new byte[1 + COORDINATE_LENGTH];
+        encoded[0] = (byte) (point.getAffineY().testBit(0) ? 0x03 : 0x02);
+        System.arraycopy(Utils.bigIntegerToBytes(point.getAffineX(), COORDINATE_LENGTH), 0, encoded, 1,
+                COORDINATE_LENGTH);
+        return encoded;
+    }
+
+    public static String getHexStringFromPublicKey(PublicKey publicKey) {
+        return Utils.HEX.encode(getCompactEncoding(publicKey));
+    }
+
+    public static byte[] sign(PrivateKey privateKey, byte[] data) throws GeneralSecurityException {
+        Signature signature = Signature.getInstance(getSignatureAlgorithm(privateKey));
+        signature.initSign(privateKey);
+        signature.update(data);
+        return signature.sign();
+    }
+
+    public static boolean verify(PublicKey publicKey, byte[] data, byte[] signatureBytes)
+            throws GeneralSecurityException {
+        Signature signature = Signature.getInstance(getSignatureAlgorithm(publicKey));
+        signature.initVerify(publicKey);
+        signature.update(data);
+        return signature.verify(signatureBytes);
+    }
+
+    // Legacy DSA keys have 1024 bits, which is only specified for SHA-1
+    private static String getSignatureAlgorithm(Key key) {
+        return KEY_ALGORITHM.equals(key.getAlgorithm()) ? "SHA256withECDSA" : "SHA1withDSA";
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.util;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The thread on which the state of the domain objects gets updated which the user interface is observing. The trade
+ * protocols run on their own threads, so they update e.g. the trade state through that executor.
+ * The GUI sets it to the JavaFX application thread, the daemon to a single thread. The services deliver their
+ * results on that thread as well. Without any of them (e.g. in tests) the updates are done directly.
+ */
+public class UserThread {
+    private static volatile Executor executor = Runnable::run;
+
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    public static void setExecutor(Executor executor) {
+        UserThread.executor = executor;
+    }
+
+    public static void execute(Runnable runnable) {
+        executor.execute(runnable);
+    }
+}
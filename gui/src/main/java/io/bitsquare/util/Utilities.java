@@ -48,12 +48,6 @@ public class Utilities {
     private static final Logger log = LoggerFactory.getLogger(Utilities.class);
     private static long lastTimeStamp = System.currentTimeMillis();
 
-    public static String objectToJson(Object object) {
-        Gson gson =
-                new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE).setPrettyPrinting().create();
-        return gson.toJson(object);
-    }
-
     public static boolean isWindows() {
         return getOSName().contains("win");
     }
@@ -34,6 +34,12 @@ public class Validator {
         return value;
     }
 
+    public static byte[] nonEmptyByteArrayOf(byte[] value) {
+        checkNotNull(value);
+        checkArgument(value.length > 0);
+        return value;
+    }
+
     public static long nonNegativeLongOf(long value) {
         checkArgument(value >= 0);
         return value;
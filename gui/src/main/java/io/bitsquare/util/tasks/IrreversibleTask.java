@@ -0,0 +1,27 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.util.tasks;
+
+/**
+ * Marks a task with an effect outside of the protocol, like a payment or a published transaction, which must not be
+ * executed a second time. Persisted protocols record the start of such a task, so after a restart they can tell that
+ * it got interrupted instead of running it again.
+ */
+public interface IrreversibleTask {
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in milliseconds with power of two buckets (bucket n counts values below 2^n ms).
+ * Percentiles are reported as the upper bound of the bucket, which is precise enough to find the slow steps.
+ */
+public class LatencyHistogram {
+    private static final int NUM_BUCKETS = 20;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public void record(long millis) {
+        buckets.incrementAndGet(getBucket(millis));
+        count.incrementAndGet();
+        sumMillis.addAndGet(millis);
+        maxMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanMillis() {
+        long count = this.count.get();
+        return count > 0 ? sumMillis.get() / count : 0;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    // Returns the upper bound of the bucket which contains the percentile, but never more than the max value
+    public long getPercentileMillis(double percentile) {
+        long count = this.count.get();
+        if (count == 0)
+            return 0;
+
+        long threshold = (long) Math.ceil(count * percentile / 100);
+        long accumulated = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            accumulated += buckets.get(i);
+            if (accumulated >= threshold)
+                return Math.min((1L << i) - 1, getMaxMillis());
+        }
+        return getMaxMillis();
+    }
+
+    private static int getBucket(long millis) {
+        int bucket = 64 - Long.numberOfLeadingZeros(Math.max(0, millis));
+        return Math.min(bucket, NUM_BUCKETS - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+                ", mean=" + getMeanMillis() + "ms" +
+                ", p50=" + getPercentileMillis(50) + "ms" +
+                ", p90=" + getPercentileMillis(90) + "ms" +
+                ", p99=" + getPercentileMillis(99) + "ms" +
+                ", max=" + getMaxMillis() + "ms";
+    }
+}
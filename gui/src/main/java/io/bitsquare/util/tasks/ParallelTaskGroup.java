@@ -0,0 +1,83 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import io.bitsquare.util.UserThread;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs independent tasks concurrently on a small worker pool. The group completes when all tasks have completed and
+ * fails with the first fault of any task. Later results of the other tasks are ignored after a fault.
+ * The result of the group is delivered on the {@link UserThread}, not on the worker thread of the task which finished
+ * last, as the following tasks update the observed domain objects.
+ * Tasks of a group must not depend on each other and must only read the shared model.
+ */
+class ParallelTaskGroup<T extends SharedModel> extends Task<T> {
+    private static final Logger log = LoggerFactory.getLogger(ParallelTaskGroup.class);
+
+    private static final int NUM_THREADS = 4;
+    private static final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("ParallelTaskGroup-%d").setDaemon(true).build());
+
+    private final List<TaskPipeline<T>> members;
+    private final AtomicInteger pendingMembers;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    ParallelTaskGroup(TaskRunner taskHandler, T model, List<TaskPipeline<T>> members) {
+        super(taskHandler, model);
+        this.members = members;
+        this.pendingMembers = new AtomicInteger(members.size());
+    }
+
+    @Override
+    protected void run() {
+        for (TaskPipeline<T> member : members) {
+            // The tasks of the group are traced under the ID of the runner of the group
+            String traceId = getTaskHandler().getTraceId();
+            TaskRunner<T> memberRunner = new TaskRunner<T>(model, member, this::onMemberCompleted,
+                    this::onMemberFailed) {
+                @Override
+                public String getTraceId() {
+                    return traceId;
+                }
+            };
+            executor.execute(memberRunner::run);
+        }
+    }
+
+    private void onMemberCompleted() {
+        if (pendingMembers.decrementAndGet() == 0 && finished.compareAndSet(false, true))
+            UserThread.execute(this::complete);
+    }
+
+    private void onMemberFailed(String message, Throwable throwable) {
+        if (finished.compareAndSet(false, true))
+            UserThread.execute(() -> failed(message, throwable));
+        else
+            log.debug("Ignore fault as the task group has finished already. " + message);
+    }
+}
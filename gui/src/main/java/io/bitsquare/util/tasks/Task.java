@@ -36,6 +36,10 @@ public class Task<T extends SharedModel> {
     protected void run() {
     }
 
+    TaskRunner getTaskHandler() {
+        return taskHandler;
+    }
+
     protected void complete() {
         taskHandler.complete();
     }
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable sequence of task factories. A protocol defines its pipelines once and every {@link TaskRunner} run just
+ * walks through it, so there is no reflection and no task queue per run.
+ * Independent tasks can be combined with {@link #parallel(TaskFactory[])} to run concurrently.
+ * Pipelines of persisted protocols get a name, so a checkpoint can refer to them.
+ */
+public class TaskPipeline<T extends SharedModel> {
+    private final String name;
+    private final List<TaskFactory<T>> taskFactories;
+
+    @SafeVarargs
+    public static <T extends SharedModel> TaskPipeline<T> of(TaskFactory<T>... taskFactories) {
+        return new TaskPipeline<>(null, ImmutableList.copyOf(taskFactories));
+    }
+
+    @SafeVarargs
+    public static <T extends SharedModel> TaskPipeline<T> named(String name, TaskFactory<T>... taskFactories) {
+        checkNotNull(name, "Name must not be null");
+        return new TaskPipeline<>(name, ImmutableList.copyOf(taskFactories));
+    }
+
+    /**
+     * Creates a fork/join group of independent tasks for a pipeline. The tasks run concurrently, the group completes
+     * when all of them have completed and fails on the first fault.
+     * Only use it for tasks which only read the shared model and have no side effects on the peer or the wallet, e.g.
+     * a verification must not run in parallel with a signature we hand out depending on its result.
+     */
+    @SafeVarargs
+    public static <T extends SharedModel> TaskFactory<T> parallel(TaskFactory<T>... taskFactories) {
+        checkArgument(taskFactories.length > 1, "A parallel task group needs at least two tasks");
+        List<TaskPipeline<T>> members = new ArrayList<>();
+        for (TaskFactory<T> taskFactory : taskFactories)
+            members.add(new TaskPipeline<>(null, ImmutableList.of(taskFactory)));
+
+        List<TaskPipeline<T>> immutableMembers = ImmutableList.copyOf(members);
+        return (taskHandler, model) -> new ParallelTaskGroup<>(taskHandler, model, immutableMembers);
+    }
+
+    private TaskPipeline(@Nullable String name, List<TaskFactory<T>> taskFactories) {
+        checkArgument(!taskFactories.isEmpty(), "A task pipeline needs at least one task");
+        taskFactories.forEach(taskFactory -> checkNotNull(taskFactory, "Task factory must not be null"));
+        this.name = name;
+        this.taskFactories = taskFactories;
+    }
+
+    @Nullable
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return taskFactories.size();
+    }
+
+    public TaskFactory<T> get(int index) {
+        return taskFactories.get(index);
+    }
+}
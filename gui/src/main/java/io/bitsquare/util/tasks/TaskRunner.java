@@ -20,29 +20,32 @@ package io.bitsquare.util.tasks;
 import io.bitsquare.util.handlers.FaultHandler;
 import io.bitsquare.util.handlers.ResultHandler;
 
-import java.util.Arrays;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
-
 import org.jetbrains.annotations.NotNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class TaskRunner<T extends SharedModel> {
     private static final Logger log = LoggerFactory.getLogger(TaskRunner.class);
 
-    private final Queue<Class> tasks = new LinkedBlockingQueue<>();
+    private final TaskPipeline<T> pipeline;
     protected final T sharedModel;
     private final ResultHandler resultHandler;
     private final FaultHandler faultHandler;
 
-    private boolean failed = false;
+    // Set by the thread of a failing task, read by the thread which continues the pipeline
+    private volatile boolean failed = false;
+    private int nextTaskIndex = 0;
     private Class<? extends Task> currentTask;
     private Class<? extends Task> previousTask;
+    private TaskTracer.Span currentSpan;
 
-    public TaskRunner(T sharedModel, ResultHandler resultHandler, FaultHandler faultHandler) {
+    public TaskRunner(T sharedModel, TaskPipeline<T> pipeline, ResultHandler resultHandler,
+                      FaultHandler faultHandler) {
         this.sharedModel = sharedModel;
+        this.pipeline = pipeline;
         this.resultHandler = resultHandler;
         this.faultHandler = faultHandler;
     }
@@ -51,21 +54,37 @@ public class TaskRunner<T extends SharedModel> {
         next();
     }
 
+    /**
+     * Continues the pipeline after the given number of completed tasks, e.g. from a checkpoint after a restart.
+     * The task which was running at the time of the checkpoint gets executed again, so callers must not resume a
+     * pipeline whose interrupted task is an {@link IrreversibleTask}.
+     */
+    public void resume(int completedTasks) {
+        checkArgument(completedTasks >= 0 && completedTasks <= pipeline.size(), "Invalid number of completed tasks");
+        nextTaskIndex = completedTasks;
+        next();
+    }
+
     public Class<? extends Task> getCurrentTask() {
         return currentTask;
     }
 
     protected void next() {
         if (!failed) {
-            if (tasks.size() > 0) {
+            if (nextTaskIndex < pipeline.size()) {
                 try {
-                    setCurrentTask(tasks.poll());
+                    Task<T> task = pipeline.get(nextTaskIndex++).create(this, sharedModel);
+                    setCurrentTask(task.getClass());
                     log.trace("Run task: " + currentTask.getSimpleName());
-                    currentTask.getDeclaredConstructor(TaskRunner.class, sharedModel.getClass()).newInstance(this, sharedModel).run();
+                    TaskTracer.Span span = startSpan(currentTask.getSimpleName());
+                    onTaskStarted(currentTask, nextTaskIndex - 1);
+                    task.run();
+                    if (span != null)
+                        span.onRunReturned();
                     setPreviousTask(currentTask);
                 } catch (Throwable t) {
                     t.printStackTrace();
-                    faultHandler.handleFault(t.getMessage(), t);
+                    handleFault(t.getMessage(), t);
                 }
             }
             else {
@@ -82,25 +101,64 @@ public class TaskRunner<T extends SharedModel> {
         currentTask = task;
     }
 
-    public void addTask(Class<? extends Task> task) {
-        tasks.add(task);
-    }
-
-    public void addTasks(Class<? extends Task>... items) {
-        tasks.addAll(Arrays.asList(items));
+    /**
+     * The ID under which the task spans get traced. Runners without a trace ID are not traced.
+     */
+    public String getTraceId() {
+        return null;
     }
 
     public void complete() {
+        finishSpan(TaskSpan.Outcome.COMPLETED);
+        try {
+            onTaskCompleted(currentTask, nextTaskIndex);
+        } catch (Throwable t) {
+            handleFault(t.getMessage(), t);
+            return;
+        }
         next();
     }
 
+    /**
+     * Called before a task gets started with the number of tasks completed before it. If it throws, the task does not
+     * run and the pipeline fails.
+     */
+    protected void onTaskStarted(Class<? extends Task> task, int completedTasks) {
+    }
+
+    /**
+     * Called after each completed task, before the next one gets started. Runners of persisted protocols write their
+     * checkpoint here. If it throws, the pipeline fails instead of continuing without the checkpoint.
+     */
+    protected void onTaskCompleted(Class<? extends Task> task, int completedTasks) {
+    }
+
+    protected TaskPipeline<T> getPipeline() {
+        return pipeline;
+    }
+
     public void handleFault(String message) {
         handleFault(message, new Exception(message));
     }
 
     public void handleFault(String message, @NotNull Throwable throwable) {
         log.debug(throwable.getMessage());
+        finishSpan(TaskSpan.Outcome.FAILED);
         failed = true;
         faultHandler.handleFault(message, throwable);
     }
+
+    private TaskTracer.Span startSpan(String taskName) {
+        String traceId = getTraceId();
+        currentSpan = traceId != null ? TaskTracer.getInstance().start(traceId, taskName) : null;
+        return currentSpan;
+    }
+
+    private void finishSpan(TaskSpan.Outcome outcome) {
+        TaskTracer.Span span = currentSpan;
+        if (span != null) {
+            currentSpan = null;
+            span.finish(outcome);
+        }
+    }
 }
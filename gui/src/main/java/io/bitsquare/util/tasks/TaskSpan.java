@@ -0,0 +1,86 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing of a single task execution. The waiting time is the time between the return of the run method and the
+ * completion of the task, so it is the time the task waited for the network or the wallet.
+ */
+public class TaskSpan {
+    public enum Outcome {
+        COMPLETED,
+        FAILED
+    }
+
+    private final String traceId;
+    private final String taskName;
+    private final long startNanos;
+    private final long endNanos;
+    private final long waitingNanos;
+    private final Outcome outcome;
+
+    public TaskSpan(String traceId, String taskName, long startNanos, long endNanos, long waitingNanos,
+                    Outcome outcome) {
+        this.traceId = traceId;
+        this.taskName = taskName;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.waitingNanos = waitingNanos;
+        this.outcome = outcome;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+    }
+
+    public long getWaitingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitingNanos);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskSpan{" +
+                "traceId='" + traceId + '\'' +
+                ", taskName='" + taskName + '\'' +
+                ", durationMillis=" + getDurationMillis() +
+                ", waitingMillis=" + getWaitingMillis() +
+                ", outcome=" + outcome +
+                '}';
+    }
+}
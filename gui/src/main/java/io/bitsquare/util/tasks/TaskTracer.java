@@ -0,0 +1,206 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the {@link TaskSpan}s of the task runners which have a trace ID (the trade ID for the trade protocols).
+ * The spans are aggregated into latency histograms per task and kept as a timeline per trace ID, so we can see for a
+ * slow trade which task took the time. Only the timelines of the latest trades are kept.
+ * It is exported via JMX.
+ */
+public class TaskTracer implements TaskTracerMBean {
+    private static final Logger log = LoggerFactory.getLogger(TaskTracer.class);
+
+    private static final String OBJECT_NAME = "io.bitsquare:type=TaskTracer";
+    private static final int MAX_TIMELINES = 100;
+
+    private static TaskTracer instance;
+
+    private final Ticker ticker;
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    @GuardedBy("timelines")
+    private final Map<String, List<TaskSpan>> timelines = new LinkedHashMap<String, List<TaskSpan>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<TaskSpan>> eldest) {
+            return size() > MAX_TIMELINES;
+        }
+    };
+
+    public static synchronized TaskTracer getInstance() {
+        if (instance == null) {
+            instance = new TaskTracer(Ticker.systemTicker());
+            instance.registerMBean();
+        }
+        return instance;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @VisibleForTesting
+    TaskTracer(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Span start(String traceId, String taskName) {
+        return new Span(traceId, taskName, ticker.read());
+    }
+
+    public LatencyHistogram getHistogram(String taskName) {
+        return histograms.get(taskName);
+    }
+
+    public List<TaskSpan> getTimeline(String traceId) {
+        synchronized (timelines) {
+            List<TaskSpan> timeline = timelines.get(traceId);
+            return timeline != null ? new ArrayList<>(timeline) : new ArrayList<>();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // TaskTracerMBean
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public String getTaskLatencies() {
+        return histograms.entrySet().stream()
+                .map(e -> e.getKey() + ": " + e.getValue())
+                .sorted()
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    public String getTraceIds() {
+        synchronized (timelines) {
+            return String.join(", ", timelines.keySet());
+        }
+    }
+
+    // Offsets are relative to the start of the first task of the trace
+    @Override
+    public String dumpTimeline(String traceId) {
+        List<TaskSpan> timeline = getTimeline(traceId);
+        if (timeline.isEmpty())
+            return "No timeline for " + traceId;
+
+        long traceStartNanos = timeline.get(0).getStartNanos();
+        StringBuilder sb = new StringBuilder("Timeline of " + traceId + ":");
+        for (TaskSpan span : timeline) {
+            sb.append(String.format("%n+%6dms %-45s %6dms (waiting %6dms) %s",
+                    TimeUnit.NANOSECONDS.toMillis(span.getStartNanos() - traceStartNanos),
+                    span.getTaskName(),
+                    span.getDurationMillis(),
+                    span.getWaitingMillis(),
+                    span.getOutcome()));
+        }
+        String dump = sb.toString();
+        log.info(dump);
+        return dump;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void add(TaskSpan span) {
+        histograms.computeIfAbsent(span.getTaskName(), key -> new LatencyHistogram()).record(span.getDurationMillis());
+        synchronized (timelines) {
+            timelines.computeIfAbsent(span.getTraceId(), key -> new ArrayList<>()).add(span);
+        }
+        log.trace(span.toString());
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName))
+                mBeanServer.registerMBean(this, objectName);
+        } catch (JMException e) {
+            log.warn("Could not register TaskTracer MBean. " + e);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A running task. A task might complete from another thread (e.g. a wallet callback), so the state is volatile.
+     */
+    public class Span {
+        private final String traceId;
+        private final String taskName;
+        private final long startNanos;
+        private volatile long runReturnedNanos = -1;
+        private volatile boolean finished;
+
+        private Span(String traceId, String taskName, long startNanos) {
+            this.traceId = traceId;
+            this.taskName = taskName;
+            this.startNanos = startNanos;
+        }
+
+        // If the task did not complete within its run method it waits for an async result from here on
+        public void onRunReturned() {
+            if (!finished)
+                runReturnedNanos = ticker.read();
+        }
+
+        public void finish(TaskSpan.Outcome outcome) {
+            if (finished)
+                return;
+
+            finished = true;
+            long endNanos = ticker.read();
+            long waitingNanos = runReturnedNanos >= 0 ? endNanos - runReturnedNanos : 0;
+            add(new TaskSpan(traceId, taskName, startNanos, endNanos, waitingNanos, outcome));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.arbitrator;
+
+import org.bitcoinj.core.Coin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ArbitratorDirectoryTest {
+    private ArbitratorDirectory directory;
+    private Arbitrator cheapEnglish;
+    private Arbitrator expensiveEnglishGerman;
+    private Arbitrator german;
+
+    @Before
+    public void setUp() {
+        directory = new ArbitratorDirectory();
+        cheapEnglish = createArbitrator("cheapEnglish", Coin.CENT, Arrays.asList(Locale.ENGLISH),
+                Arbitrator.METHOD.TLS_NOTARY, Arbitrator.ID_VERIFICATION.PASSPORT);
+        expensiveEnglishGerman = createArbitrator("expensiveEnglishGerman", Coin.COIN,
+                Arrays.asList(Locale.ENGLISH, Locale.GERMAN),
+                Arbitrator.METHOD.SKYPE_SCREEN_SHARING, Arbitrator.ID_VERIFICATION.PASSPORT);
+        german = createArbitrator("german", Coin.MILLICOIN, Arrays.asList(Locale.GERMAN),
+                Arbitrator.METHOD.TLS_NOTARY, Arbitrator.ID_VERIFICATION.PGP);
+        directory.put(expensiveEnglishGerman);
+        directory.put(cheapEnglish);
+        directory.put(german);
+    }
+
+    @Test
+    public void testFindByLanguageSortedByFee() {
+        assertEquals(Arrays.asList(cheapEnglish, expensiveEnglishGerman), directory.getArbitrators(Locale.ENGLISH));
+        assertEquals(Arrays.asList(german, expensiveEnglishGerman), directory.getArbitrators(Locale.GERMAN));
+        // The country of the locale is not relevant
+        assertEquals(Arrays.asList(cheapEnglish, expensiveEnglishGerman), directory.getArbitrators(Locale.UK));
+        assertTrue(directory.getArbitrators(Locale.FRENCH).isEmpty());
+    }
+
+    @Test
+    public void testFindWithFilters() {
+        assertEquals(Collections.singletonList(german),
+                directory.find(Locale.GERMAN, Arbitrator.METHOD.TLS_NOTARY, null, null));
+        assertEquals(Collections.singletonList(expensiveEnglishGerman),
+                directory.find(Locale.GERMAN, null, Arbitrator.ID_VERIFICATION.PASSPORT, null));
+        assertEquals(Collections.singletonList(cheapEnglish),
+                directory.find(Locale.ENGLISH, null, null, Coin.MILLICOIN.multiply(10)));
+        assertTrue(directory.find(Locale.ENGLISH, Arbitrator.METHOD.OTHER, null, null).isEmpty());
+    }
+
+    @Test
+    public void testFindInAnyLanguage() {
+        assertEquals(Arrays.asList(german, cheapEnglish, expensiveEnglishGerman),
+                directory.find(Arrays.asList(Locale.ENGLISH, Locale.GERMAN), null, null, null));
+        assertEquals(Arrays.asList(german, cheapEnglish),
+                directory.find(Arrays.asList(Locale.ENGLISH, Locale.GERMAN), Arbitrator.METHOD.TLS_NOTARY, null,
+                        null));
+        assertTrue(directory.find(Collections.emptyList(), null, null, null).isEmpty());
+    }
+
+    @Test
+    public void testRemoveClearsAllIndices() {
+        assertTrue(directory.remove(expensiveEnglishGerman));
+        assertFalse(directory.remove(expensiveEnglishGerman));
+
+        assertEquals(2, directory.size());
+        assertEquals(Collections.singletonList(german), directory.getArbitrators(Locale.GERMAN));
+        assertEquals(Collections.singletonList(cheapEnglish), directory.getArbitrators(Locale.ENGLISH));
+        assertTrue(directory.find(Locale.ENGLISH, Arbitrator.METHOD.SKYPE_SCREEN_SHARING, null, null).isEmpty());
+    }
+
+    @Test
+    public void testReplaceLanguage() {
+        // Same instances as known ones, nothing has changed
+        assertFalse(directory.replaceLanguage(Locale.ENGLISH, Arrays.asList(expensiveEnglishGerman, cheapEnglish)));
+
+        Arbitrator newEnglish = createArbitrator("newEnglish", Coin.ZERO, Arrays.asList(Locale.ENGLISH),
+                Arbitrator.METHOD.OTHER, Arbitrator.ID_VERIFICATION.OTHER);
+        assertTrue(directory.replaceLanguage(Locale.ENGLISH, Arrays.asList(cheapEnglish, newEnglish)));
+
+        assertEquals(Arrays.asList(newEnglish, cheapEnglish), directory.getArbitrators(Locale.ENGLISH));
+        // Still listed under German
+        assertEquals(Arrays.asList(german, expensiveEnglishGerman), directory.getArbitrators(Locale.GERMAN));
+        assertEquals(4, directory.size());
+    }
+
+    @Test
+    public void testReplaceLanguageRemovesArbitratorWithoutLanguages() {
+        // cheapEnglish is not listed under any language any more
+        assertTrue(directory.replaceLanguage(Locale.ENGLISH, Collections.singletonList(expensiveEnglishGerman)));
+        assertEquals(2, directory.size());
+
+        assertTrue(directory.replaceLanguage(Locale.GERMAN, Collections.singletonList(german)));
+        assertTrue(directory.replaceLanguage(Locale.ENGLISH, Collections.emptyList()));
+
+        assertEquals(1, directory.size());
+        assertEquals(Collections.singletonList(german), directory.getArbitrators(Locale.GERMAN));
+        assertEquals(Collections.singletonList(german),
+                directory.find(Locale.GERMAN, null, Arbitrator.ID_VERIFICATION.PGP, null));
+        assertTrue(directory.find(Locale.GERMAN, null, Arbitrator.ID_VERIFICATION.PASSPORT, null).isEmpty());
+    }
+
+    @Test
+    public void testUpdatedArbitratorReplacesKnownOne() {
+        Arbitrator updated = createArbitrator("cheapEnglish", Coin.COIN.multiply(2), Arrays.asList(Locale.ENGLISH),
+                Arbitrator.METHOD.TLS_NOTARY, Arbitrator.ID_VERIFICATION.PASSPORT);
+
+        assertTrue(directory.replaceLanguage(Locale.ENGLISH, Arrays.asList(expensiveEnglishGerman, updated)));
+
+        assertEquals(Arrays.asList(expensiveEnglishGerman, updated), directory.getArbitrators(Locale.ENGLISH));
+    }
+
+    @Test
+    public void testIndicesAfterDeserialization() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(directory);
+        }
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            directory = (ArbitratorDirectory) objectIn.readObject();
+        }
+
+        assertEquals(Collections.singletonList(german),
+                directory.find(Locale.GERMAN, Arbitrator.METHOD.TLS_NOTARY, null, null));
+        assertEquals(Collections.singletonList(expensiveEnglishGerman),
+                directory.find(Locale.GERMAN, null, Arbitrator.ID_VERIFICATION.PASSPORT, null));
+    }
+
+    private static Arbitrator createArbitrator(String name, Coin fee, List<Locale> languages,
+                                               Arbitrator.METHOD method,
+                                               Arbitrator.ID_VERIFICATION idVerification) {
+        return new Arbitrator("pubKey", "messagePubKey", name, Arbitrator.ID_TYPE.NICKNAME, languages,
+                new Reputation(), fee, Arrays.asList(method), Arrays.asList(idVerification), "", "");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.btc;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.params.RegTestParams;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AddressEntryJournalTest {
+    private File file;
+    private AddressEntryJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("addresses", null);
+        file.delete();
+        journal = new AddressEntryJournal(file);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        DeterministicKey masterKey = HDKeyDerivation.createMasterPrivateKey(new byte[32]);
+        AddressEntry tradeEntry = new AddressEntry(HDKeyDerivation.deriveChildKey(masterKey, 0),
+                RegTestParams.get(), AddressEntry.AddressContext.TRADE, "offerId");
+        AddressEntry depositEntry = new AddressEntry(HDKeyDerivation.deriveChildKey(masterKey, 1),
+                RegTestParams.get(), AddressEntry.AddressContext.ARBITRATOR_DEPOSIT);
+        assertTrue(journal.read().isEmpty());
+
+        journal.append(tradeEntry);
+        journal.append(depositEntry);
+        // incomplete line of an interrupted append
+        try (FileWriter writer = new FileWriter(file, true)) {
+            writer.write("TRA");
+        }
+
+        List<AddressEntryJournal.Record> records = journal.read();
+        assertEquals(2, records.size());
+        assertEquals(AddressEntry.AddressContext.TRADE, records.get(0).addressContext);
+        assertArrayEquals(tradeEntry.getPubKeyHash(), records.get(0).pubKeyHash);
+        assertEquals("offerId", records.get(0).offerId);
+        assertEquals(AddressEntry.AddressContext.ARBITRATOR_DEPOSIT, records.get(1).addressContext);
+        assertArrayEquals(depositEntry.getPubKeyHash(), records.get(1).pubKeyHash);
+        assertNull(records.get(1).offerId);
+
+        journal.clear();
+        assertTrue(journal.read().isEmpty());
+    }
+}
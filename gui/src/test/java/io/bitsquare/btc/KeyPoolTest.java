@@ -0,0 +1,80 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.btc;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeyPoolTest {
+    private final DeterministicKey masterKey = HDKeyDerivation.createMasterPrivateKey(new byte[32]);
+    private final AtomicInteger derivedKeys = new AtomicInteger();
+
+    @Test
+    public void testPollTakesPreDerivedKeysAndRefillsInBackground() {
+        Queue<Runnable> refillThread = new LinkedList<>();
+        KeyPool keyPool = new KeyPool(this::deriveKey, 3, refillThread::add);
+
+        keyPool.scheduleRefill();
+        keyPool.scheduleRefill();
+        assertEquals(1, refillThread.size());
+        refillThread.poll().run();
+        assertEquals(3, keyPool.size());
+        assertEquals(3, derivedKeys.get());
+
+        DeterministicKey key = keyPool.poll();
+        assertEquals(0, key.getChildNumber().num());
+        assertEquals(2, keyPool.size());
+        assertEquals(3, derivedKeys.get());
+
+        refillThread.poll().run();
+        assertEquals(3, keyPool.size());
+        assertEquals(4, derivedKeys.get());
+    }
+
+    @Test
+    public void testPollDerivesKeyIfPoolIsEmpty() {
+        Queue<Runnable> refillThread = new LinkedList<>();
+        KeyPool keyPool = new KeyPool(this::deriveKey, 3, refillThread::add);
+
+        assertNotNull(keyPool.poll());
+        assertEquals(1, derivedKeys.get());
+        assertEquals(1, refillThread.size());
+    }
+
+    @Test
+    public void testAddedKeysAreUsedFirst() {
+        KeyPool keyPool = new KeyPool(this::deriveKey, 3, runnable -> {
+        });
+        DeterministicKey unusedKey = HDKeyDerivation.deriveChildKey(masterKey, 100);
+        keyPool.add(unusedKey);
+
+        assertEquals(unusedKey, keyPool.poll());
+        assertEquals(0, derivedKeys.get());
+    }
+
+    private DeterministicKey deriveKey() {
+        return HDKeyDerivation.deriveChildKey(masterKey, derivedKeys.getAndIncrement());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatestValueDispatcherTest {
+
+    @Test
+    public void testOnlyLatestPendingValueIsDelivered() {
+        Queue<Runnable> userThread = new LinkedList<>();
+        WalletSyncStats syncStats = new WalletSyncStats();
+        LatestValueDispatcher<String, Integer> dispatcher = new LatestValueDispatcher<>(userThread::add, syncStats);
+        List<String> delivered = new ArrayList<>();
+
+        dispatcher.dispatch("a", 1, (key, value) -> delivered.add(key + value));
+        dispatcher.dispatch("a", 2, (key, value) -> delivered.add(key + value));
+        dispatcher.dispatch("b", 1, (key, value) -> delivered.add(key + value));
+        dispatcher.dispatch("a", 3, (key, value) -> delivered.add(key + value));
+        assertEquals(2, userThread.size());
+
+        while (!userThread.isEmpty())
+            userThread.poll().run();
+        assertEquals(2, delivered.size());
+        assertEquals("a3", delivered.get(0));
+        assertEquals("b1", delivered.get(1));
+
+        // Nothing pending anymore, so the next value gets posted again
+        dispatcher.dispatch("a", 4, (key, value) -> delivered.add(key + value));
+        userThread.poll().run();
+        assertEquals("a4", delivered.get(2));
+
+        assertEquals(3, syncStats.getUserThreadUpdatesPosted());
+        assertEquals(2, syncStats.getUserThreadUpdatesCoalesced());
+    }
+}
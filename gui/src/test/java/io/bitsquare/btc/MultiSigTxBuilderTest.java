@@ -0,0 +1,106 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.ScriptException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.params.RegTestParams;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MultiSigTxBuilderTest {
+    private final NetworkParameters params = RegTestParams.get();
+
+    private ECKey offererKey;
+    private ECKey takerKey;
+    private ECKey arbitratorKey;
+    private MultiSigTxBuilder builder;
+    private Transaction depositTx;
+
+    @Before
+    public void setUp() {
+        offererKey = new ECKey();
+        takerKey = new ECKey();
+        arbitratorKey = new ECKey();
+        builder = new MultiSigTxBuilder(params, toHex(offererKey), toHex(takerKey), toHex(arbitratorKey));
+
+        depositTx = new Transaction(params);
+        depositTx.addOutput(Coin.COIN, builder.getOutputScript());
+    }
+
+    @Test
+    public void testOutputScriptIsP2SH() {
+        assertTrue(builder.getOutputScript().isSentToP2SH());
+        assertTrue(builder.hasKeys(toHex(offererKey), toHex(takerKey), toHex(arbitratorKey)));
+        assertFalse(builder.hasKeys(toHex(takerKey), toHex(offererKey), toHex(arbitratorKey)));
+    }
+
+    @Test
+    public void testPayoutTxSpendsDepositWithBothSignatures() {
+        Transaction payoutTx = createPayoutTx();
+
+        TransactionSignature offererSignature = builder.signPayoutTx(payoutTx, offererKey);
+        // The taker creates his own payout tx and only gets the signature of the offerer
+        Transaction takersPayoutTx = createPayoutTx();
+        TransactionSignature takerSignature = builder.signPayoutTx(takersPayoutTx, takerKey);
+
+        builder.applyPayoutSignatures(takersPayoutTx, offererSignature, takerSignature);
+
+        assertEquals(2, takersPayoutTx.getOutputs().size());
+    }
+
+    @Test
+    public void testBothTradersCreateTheSamePayoutTx() {
+        assertEquals(createPayoutTx().getHash(), createPayoutTx().getHash());
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testWrongSignatureIsRejected() {
+        Transaction payoutTx = createPayoutTx();
+        TransactionSignature offererSignature = builder.signPayoutTx(payoutTx, offererKey);
+        TransactionSignature otherSignature = builder.signPayoutTx(payoutTx, new ECKey());
+
+        builder.applyPayoutSignatures(payoutTx, offererSignature, otherSignature);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDepositToOtherAddressIsRejected() {
+        MultiSigTxBuilder otherBuilder = new MultiSigTxBuilder(params, toHex(offererKey), toHex(takerKey),
+                toHex(new ECKey()));
+
+        otherBuilder.getMultiSigOutput(depositTx);
+    }
+
+    private Transaction createPayoutTx() {
+        return builder.createPayoutTx(depositTx, Coin.CENT, Coin.COIN.subtract(Coin.CENT),
+                offererKey.toAddress(params), takerKey.toAddress(params));
+    }
+
+    private static String toHex(ECKey key) {
+        return Utils.HEX.encode(key.getPubKey());
+    }
+}
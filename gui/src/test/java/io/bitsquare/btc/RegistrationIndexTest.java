@@ -0,0 +1,59 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RegistrationIndexTest {
+    private static final String ADDRESS = "mhDcBUq1GhdRpRNmpvD7E9V3ppQG6ojSTc";
+
+    private RegistrationIndex index;
+
+    @Before
+    public void setUp() {
+        index = new RegistrationIndex();
+    }
+
+    @Test
+    public void testFirstRegistrationIsKept() {
+        assertTrue(index.put(ADDRESS, "tx1", new byte[]{1}));
+        assertFalse(index.put(ADDRESS, "tx2", new byte[]{2}));
+
+        assertEquals("tx1", index.get(ADDRESS).getTxId());
+        assertArrayEquals(new byte[]{1}, index.get(ADDRESS).getData());
+        assertNull(index.get("otherAddress"));
+    }
+
+    @Test
+    public void testDoubleSpentRegistrationGetsReplaced() {
+        index.put(ADDRESS, "tx1", new byte[]{1});
+        assertFalse(index.markDead("unknownTx"));
+        assertTrue(index.markDead("tx1"));
+        assertFalse(index.markDead("tx1"));
+        assertTrue(index.get(ADDRESS).isDead());
+
+        assertTrue(index.put(ADDRESS, "tx2", new byte[]{2}));
+        assertEquals("tx2", index.get(ADDRESS).getTxId());
+        assertFalse(index.get(ADDRESS).isDead());
+        // The replaced transaction is not linked to the address any more
+        assertFalse(index.markDead("tx1"));
+    }
+}
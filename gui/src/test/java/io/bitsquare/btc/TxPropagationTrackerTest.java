@@ -0,0 +1,144 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.params.RegTestParams;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TxPropagationTrackerTest {
+    private static final Sha256Hash TX_HASH = Sha256Hash.create(new byte[]{1});
+    private static final Sha256Hash OTHER_TX_HASH = Sha256Hash.create(new byte[]{2});
+
+    private TxPropagationTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new TxPropagationTracker(2);
+    }
+
+    @After
+    public void tearDown() {
+        tracker.shutDown();
+    }
+
+    @Test
+    public void testPeersAreCountedOnce() {
+        assertEquals(0, tracker.getNumPeersSeen(TX_HASH));
+        assertNull(tracker.getFirstSeenTime(TX_HASH));
+
+        tracker.onTxSeen(TX_HASH, "peer1");
+        Long firstSeenTime = tracker.getFirstSeenTime(TX_HASH);
+        tracker.onTxSeen(TX_HASH, "peer1");
+        tracker.onTxSeen(TX_HASH, "peer2");
+
+        assertEquals(2, tracker.getNumPeersSeen(TX_HASH));
+        assertEquals(firstSeenTime, tracker.getFirstSeenTime(TX_HASH));
+    }
+
+    @Test
+    public void testOldestTxIsDropped() {
+        tracker.onTxSeen(TX_HASH, "peer1");
+        tracker.onTxSeen(OTHER_TX_HASH, "peer1");
+        tracker.onTxSeen(Sha256Hash.create(new byte[]{3}), "peer1");
+
+        assertEquals(0, tracker.getNumPeersSeen(TX_HASH));
+        assertEquals(1, tracker.getNumPeersSeen(OTHER_TX_HASH));
+    }
+
+    @Test
+    public void testReceivedTxIsKept() {
+        Transaction tx = new Transaction(RegTestParams.get());
+        tx.addOutput(Coin.COIN, new ECKey().toAddress(RegTestParams.get()));
+
+        tracker.onTxSeen(tx.getHash(), "peer1");
+        assertNull(tracker.getTransaction(tx.getHash()));
+
+        tracker.onTxReceived(tx, "peer2");
+        assertSame(tx, tracker.getTransaction(tx.getHash()));
+        assertEquals(2, tracker.getNumPeersSeen(tx.getHash()));
+    }
+
+    @Test
+    public void testFutureCompletesWhenSeenByPeers() throws Exception {
+        ListenableFuture<Integer> future = tracker.whenSeenByPeers(TX_HASH, 2, 10, TimeUnit.SECONDS);
+        tracker.onTxSeen(TX_HASH, "peer1");
+        tracker.onTxSeen(OTHER_TX_HASH, "peer2");
+        assertFalse(future.isDone());
+
+        tracker.onTxSeen(TX_HASH, "peer2");
+        assertEquals(Integer.valueOf(2), future.get(0, TimeUnit.SECONDS));
+
+        // Already seen, completes at once
+        assertTrue(tracker.whenSeenByPeers(TX_HASH, 1, 10, TimeUnit.SECONDS).isDone());
+    }
+
+    @Test
+    public void testFutureTimesOut() throws Exception {
+        ListenableFuture<Integer> future = tracker.whenSeenByPeers(TX_HASH, 1, 10, TimeUnit.MILLISECONDS);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected a timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testRequestsAreRepeatedUntilSeenByPeers() throws Exception {
+        AtomicInteger numRequests = new AtomicInteger();
+        tracker.shutDown();
+        tracker = new TxPropagationTracker(2) {
+            @Override
+            public void requestFromPeers(Sha256Hash txHash) {
+                numRequests.incrementAndGet();
+            }
+        };
+
+        ListenableFuture<Integer> future = tracker.requestUntilSeenByPeers(TX_HASH, 1, 10000, 10,
+                TimeUnit.MILLISECONDS);
+        assertFalse(future.isDone());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (numRequests.get() < 3 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertTrue(numRequests.get() >= 3);
+
+        tracker.onTxSeen(TX_HASH, "peer1");
+        assertEquals(Integer.valueOf(1), future.get(0, TimeUnit.SECONDS));
+        // A request which was running at completion can still finish, later ones are cancelled
+        Thread.sleep(50);
+        int numRequestsAtCompletion = numRequests.get();
+        Thread.sleep(100);
+        assertEquals(numRequestsAtCompletion, numRequests.get());
+    }
+}
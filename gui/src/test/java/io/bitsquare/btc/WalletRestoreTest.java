@@ -0,0 +1,96 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.btc;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import java.text.ParseException;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class WalletRestoreTest {
+    private Path seedFile;
+
+    @Before
+    public void setUp() throws IOException {
+        seedFile = Files.createTempFile("seed", null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(seedFile);
+    }
+
+    @Test
+    public void testReadSeedWords() throws IOException {
+        writeSeedFile(" abandon ability  able\nabout above \n", "rw-------");
+
+        assertEquals(Arrays.asList("abandon", "ability", "able", "about", "above"),
+                WalletRestore.readSeedWords(seedFile));
+    }
+
+    @Test(expected = IOException.class)
+    public void testSeedFileReadableByOthersIsRejected() throws IOException {
+        assumeTrue(isPosix());
+        writeSeedFile("abandon ability able", "rw-r--r--");
+
+        WalletRestore.readSeedWords(seedFile);
+    }
+
+    @Test(expected = IOException.class)
+    public void testEmptySeedFileIsRejected() throws IOException {
+        writeSeedFile(" \n", "rw-------");
+
+        WalletRestore.readSeedWords(seedFile);
+    }
+
+    @Test
+    public void testParseBirthday() throws ParseException {
+        assertEquals(0, WalletRestore.parseBirthday(""));
+        // 2014-11-01 00:00 UTC minus one day
+        assertEquals(1414800000 - 86400, WalletRestore.parseBirthday("2014-11-01"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testInvalidBirthdayIsRejected() throws ParseException {
+        WalletRestore.parseBirthday("2014-13-01");
+    }
+
+    private void writeSeedFile(String seed, String permissions) throws IOException {
+        Files.write(seedFile, seed.getBytes(StandardCharsets.UTF_8));
+        if (isPosix())
+            Files.setPosixFilePermissions(seedFile, PosixFilePermissions.fromString(permissions));
+    }
+
+    private boolean isPosix() {
+        return seedFile.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
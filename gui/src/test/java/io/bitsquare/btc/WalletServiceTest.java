@@ -0,0 +1,128 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.RegTestParams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WalletServiceTest {
+    private static final Coin FEE = FeePolicy.CREATE_OFFER_FEE.subtract(FeePolicy.TX_FEE);
+
+    private final NetworkParameters params = RegTestParams.get();
+    private final List<TransactionOutput> spendCandidates = new ArrayList<>();
+
+    private Address feeAddress;
+    private Address firstOfferAddress;
+    private Address secondOfferAddress;
+    private Address thirdOfferAddress;
+
+    @Before
+    public void setUp() {
+        feeAddress = new ECKey().toAddress(params);
+        firstOfferAddress = new ECKey().toAddress(params);
+        secondOfferAddress = new ECKey().toAddress(params);
+        thirdOfferAddress = new ECKey().toAddress(params);
+    }
+
+    @Test
+    public void testOfferFeeTxForSeveralOffers() throws InsufficientMoneyException {
+        fund(firstOfferAddress, Coin.COIN);
+        fund(secondOfferAddress, Coin.COIN);
+        fund(thirdOfferAddress, Coin.CENT);
+
+        Transaction tx = WalletService.createOfferFeeTx(params, feeAddress,
+                Arrays.asList(firstOfferAddress, secondOfferAddress, thirdOfferAddress), spendCandidates);
+
+        // The inputs of the first offer are added by completeTx
+        assertEquals(2, tx.getInputs().size());
+        assertEquals(3, tx.getOutputs().size());
+        assertEquals(FEE.multiply(3), tx.getOutput(0).getValue());
+        assertEquals(feeAddress, tx.getOutput(0).getScriptPubKey().getToAddress(params));
+        assertEquals(Coin.COIN.subtract(FEE), tx.getOutput(1).getValue());
+        assertEquals(secondOfferAddress, tx.getOutput(1).getScriptPubKey().getToAddress(params));
+        assertEquals(Coin.CENT.subtract(FEE), tx.getOutput(2).getValue());
+        assertEquals(thirdOfferAddress, tx.getOutput(2).getScriptPubKey().getToAddress(params));
+    }
+
+    @Test
+    public void testDustChangeGoesToMiners() throws InsufficientMoneyException {
+        fund(secondOfferAddress, FEE.add(Coin.valueOf(100)));
+
+        Transaction tx = WalletService.createOfferFeeTx(params, feeAddress,
+                Arrays.asList(firstOfferAddress, secondOfferAddress), spendCandidates);
+
+        assertEquals(1, tx.getInputs().size());
+        assertEquals(1, tx.getOutputs().size());
+        assertEquals(FEE.multiply(2), tx.getOutput(0).getValue());
+    }
+
+    @Test
+    public void testSpendsOnlyTheOutputsOfTheOfferAddresses() throws InsufficientMoneyException {
+        fund(secondOfferAddress, Coin.CENT);
+        fund(new ECKey().toAddress(params), Coin.COIN);
+
+        Transaction tx = WalletService.createOfferFeeTx(params, feeAddress,
+                Arrays.asList(firstOfferAddress, secondOfferAddress), spendCandidates);
+
+        assertEquals(1, tx.getInputs().size());
+        assertEquals(spendCandidates.get(0).getParentTransaction().getHash(),
+                tx.getInput(0).getOutpoint().getHash());
+    }
+
+    @Test(expected = InsufficientMoneyException.class)
+    public void testInsufficientMoneyAtOfferAddress() throws InsufficientMoneyException {
+        fund(firstOfferAddress, Coin.COIN);
+        fund(secondOfferAddress, FEE.subtract(Coin.SATOSHI));
+
+        WalletService.createOfferFeeTx(params, feeAddress, Arrays.asList(firstOfferAddress, secondOfferAddress),
+                spendCandidates);
+    }
+
+    @Test
+    public void testFeePayment() {
+        Transaction tx = new Transaction(params);
+        tx.addOutput(Coin.COIN, firstOfferAddress);
+        tx.addOutput(FEE, feeAddress);
+
+        assertTrue(WalletService.isFeePayment(params, tx, feeAddress, FEE));
+        assertFalse(WalletService.isFeePayment(params, tx, feeAddress, FEE.add(Coin.SATOSHI)));
+        assertFalse(WalletService.isFeePayment(params, tx, secondOfferAddress, FEE));
+    }
+
+    private void fund(Address address, Coin value) {
+        Transaction fundingTx = new Transaction(params);
+        fundingTx.addOutput(value, address);
+        spendCandidates.add(fundingTx.getOutput(0));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WalletSyncStatsTest {
+
+    @Test
+    public void testBlocksPerSecondAndEta() {
+        FakeTicker ticker = new FakeTicker();
+        WalletSyncStats stats = new WalletSyncStats(ticker);
+        assertEquals(-1, stats.getEtaSeconds());
+
+        stats.onBlockDownloaded("peer1", true, 1000);
+        ticker.advance(1, TimeUnit.SECONDS);
+        for (int i = 0; i < 99; i++) {
+            stats.onBlockDownloaded("peer1", true, 999 - i);
+        }
+        ticker.advance(1, TimeUnit.SECONDS);
+        for (int i = 0; i < 100; i++) {
+            stats.onBlockDownloaded("peer2", false, 900 - i);
+        }
+
+        assertEquals(100, stats.getHeadersDownloaded());
+        assertEquals(100, stats.getFullBlocksDownloaded());
+        assertEquals(801, stats.getBlocksLeft());
+        assertEquals(100, stats.getBlocksPerSecond(), 0.001);
+        assertEquals(8, stats.getEtaSeconds());
+    }
+
+    @Test
+    public void testTimeToFirstUsableBalance() {
+        FakeTicker ticker = new FakeTicker();
+        WalletSyncStats stats = new WalletSyncStats(ticker);
+        assertEquals(-1, stats.getTimeToFirstUsableBalanceMillis());
+
+        ticker.advance(1500, TimeUnit.MILLISECONDS);
+        stats.onBalanceUsable();
+        ticker.advance(1500, TimeUnit.MILLISECONDS);
+        stats.onBalanceUsable();
+
+        assertEquals(1500, stats.getTimeToFirstUsableBalanceMillis());
+    }
+
+    @Test
+    public void testWalletListenerTime() {
+        WalletSyncStats stats = new WalletSyncStats(new FakeTicker());
+        stats.onWalletListenerCompleted(TimeUnit.MILLISECONDS.toNanos(3));
+        stats.onWalletListenerCompleted(TimeUnit.MILLISECONDS.toNanos(4));
+
+        assertEquals(2, stats.getWalletListenerCalls());
+        assertEquals(7, stats.getWalletListenerTimeMillis());
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long time, TimeUnit timeUnit) {
+            nanos += timeUnit.toNanos(time);
+        }
+    }
+}
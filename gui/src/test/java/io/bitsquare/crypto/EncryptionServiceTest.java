@@ -0,0 +1,85 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.crypto;
+
+import io.bitsquare.util.MessageKeyUtil;
+
+import java.nio.charset.StandardCharsets;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EncryptionServiceTest {
+    private EncryptionService encryptionService;
+    private KeyPair keyPair;
+
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        encryptionService = new EncryptionService();
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("DSA");
+        keyPairGenerator.initialize(1024);
+        keyPair = keyPairGenerator.generateKeyPair();
+    }
+
+    @Test
+    public void testEncryptAndDecrypt() throws GeneralSecurityException {
+        byte[] plainText = "message for the mailbox".getBytes(StandardCharsets.UTF_8);
+        byte[] encrypted = encryptionService.encrypt(keyPair.getPublic(), plainText);
+
+        assertArrayEquals(plainText, encryptionService.decrypt(keyPair.getPrivate(), encrypted));
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void testTamperedDataIsRejected() throws GeneralSecurityException {
+        byte[] encrypted = encryptionService.encrypt(keyPair.getPublic(), new byte[]{1, 2, 3});
+        encrypted[encrypted.length - 1] ^= 1;
+
+        encryptionService.decrypt(keyPair.getPrivate(), encrypted);
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void testOtherKeyCannotDecrypt() throws GeneralSecurityException {
+        byte[] encrypted = encryptionService.encrypt(keyPair.getPublic(), new byte[]{1, 2, 3});
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("DSA");
+        keyPairGenerator.initialize(1024);
+
+        encryptionService.decrypt(keyPairGenerator.generateKeyPair().getPrivate(), encrypted);
+    }
+
+    @Test
+    public void testEncryptAndDecryptWithECKey() throws GeneralSecurityException {
+        KeyPair ecKeyPair = MessageKeyUtil.generateKeyPair();
+        byte[] plainText = "message for the mailbox".getBytes(StandardCharsets.UTF_8);
+        byte[] encrypted = encryptionService.encrypt(ecKeyPair.getPublic(), plainText);
+
+        assertArrayEquals(plainText, encryptionService.decrypt(ecKeyPair.getPrivate(), encrypted));
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void testOtherECKeyCannotDecrypt() throws GeneralSecurityException {
+        byte[] encrypted = encryptionService.encrypt(MessageKeyUtil.generateKeyPair().getPublic(), new byte[]{1, 2, 3});
+
+        encryptionService.decrypt(MessageKeyUtil.generateKeyPair().getPrivate(), encrypted);
+    }
+}
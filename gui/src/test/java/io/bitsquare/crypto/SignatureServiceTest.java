@@ -0,0 +1,60 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.crypto;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.security.SecureRandom;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SignatureServiceTest {
+    private final SignatureService signatureService = new SignatureService();
+    private final SecureRandom random = new SecureRandom();
+
+    @Test
+    public void testSameSignatureAsKeyRecovery() {
+        for (int i = 0; i < 200; i++) {
+            ECKey key = new ECKey();
+            ECKey uncompressedKey = ECKey.fromPrivate(key.getPrivKey(), false);
+            Sha256Hash hash = randomHash();
+
+            assertEquals(signatureService.signMessageByKeyRecovery(key, hash), signatureService.signMessage(key, hash));
+            assertEquals(signatureService.signMessageByKeyRecovery(uncompressedKey, hash),
+                    signatureService.signMessage(uncompressedKey, hash));
+        }
+    }
+
+    @Test
+    public void testSignedMessageVerifies() throws Exception {
+        ECKey key = new ECKey();
+        String message = "bitsquare";
+
+        key.verifyMessage(message, signatureService.signMessage(key, message));
+    }
+
+    private Sha256Hash randomHash() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return new Sha256Hash(bytes);
+    }
+}
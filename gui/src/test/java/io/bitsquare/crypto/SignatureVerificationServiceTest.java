@@ -0,0 +1,104 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.crypto;
+
+import io.bitsquare.crypto.SignatureVerificationService.SignedData;
+
+import java.nio.charset.StandardCharsets;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SignatureVerificationServiceTest {
+    private SignatureVerificationService signatureVerificationService;
+    private KeyPair keyPair;
+
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        signatureVerificationService = new SignatureVerificationService(4);
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("DSA");
+        keyPairGenerator.initialize(1024);
+        keyPair = keyPairGenerator.generateKeyPair();
+    }
+
+    @After
+    public void tearDown() {
+        signatureVerificationService.shutDown();
+    }
+
+    @Test
+    public void testVerifyAll() throws Exception {
+        List<SignedData> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            byte[] data = ("offer " + i).getBytes(StandardCharsets.UTF_8);
+            byte[] signature = sign(data);
+            // Every 10th entry got tampered
+            if (i % 10 == 0)
+                data = ("fake offer " + i).getBytes(StandardCharsets.UTF_8);
+            batch.add(new SignedData(keyPair.getPublic(), data, signature));
+        }
+
+        List<Boolean> results = signatureVerificationService.verifyAll(batch).get();
+
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++)
+            assertEquals(i % 10 != 0, results.get(i));
+    }
+
+    @Test
+    public void testResultsAreCached() throws Exception {
+        byte[] data = "arbitrator".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = sign(data);
+        List<SignedData> batch = new ArrayList<>();
+        batch.add(new SignedData(keyPair.getPublic(), data, signature));
+
+        assertTrue(signatureVerificationService.verifyAll(batch).get().get(0));
+        assertEquals(1, signatureVerificationService.getNumCachedResults());
+
+        // An equal entry we get at the next poll is a cache hit
+        batch.set(0, new SignedData(keyPair.getPublic(), data.clone(), signature.clone()));
+        assertTrue(signatureVerificationService.verifyAll(batch).get().get(0));
+        assertEquals(1, signatureVerificationService.getNumCachedResults());
+    }
+
+    @Test
+    public void testMalformedSignature() {
+        SignedData signedData = new SignedData(keyPair.getPublic(), new byte[]{1}, new byte[]{1, 2, 3});
+
+        assertFalse(signatureVerificationService.verify(signedData));
+    }
+
+    private byte[] sign(byte[] data) throws GeneralSecurityException {
+        Signature signature = Signature.getInstance("SHA1withDSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(data);
+        return signature.sign();
+    }
+}
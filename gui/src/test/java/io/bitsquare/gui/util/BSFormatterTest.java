@@ -186,4 +186,12 @@ public class BSFormatterTest {
         assertFalse(formatter.hasFiatValidDecimals("0.01222312312312313"));
     }
 
+    @Test
+    public void testFormatDurationAsWords() {
+        BSFormatter formatter = new BSFormatter(new User());
+        assertEquals("0 sec", formatter.formatDurationAsWords(0));
+        assertEquals("59 sec", formatter.formatDurationAsWords(59));
+        assertEquals("2 min", formatter.formatDurationAsWords(150));
+        assertEquals("1 h 1 min", formatter.formatDurationAsWords(3660));
+    }
 }
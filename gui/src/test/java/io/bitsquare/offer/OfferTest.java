@@ -0,0 +1,71 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.offer;
+
+import io.bitsquare.arbitrator.Arbitrator;
+import io.bitsquare.bank.BankAccountType;
+import io.bitsquare.locale.CountryUtil;
+import io.bitsquare.locale.LanguageUtil;
+import io.bitsquare.util.MessageKeyUtil;
+import io.bitsquare.util.Utilities;
+
+import org.bitcoinj.core.Coin;
+
+import java.util.Arrays;
+import java.util.Currency;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OfferTest {
+
+    @Test
+    public void testContentHashIsStable() {
+        Offer offer = getOffer("offerId");
+        byte[] contentHash = offer.getContentHash();
+
+        offer.setOfferFeePaymentTxID("offerFeePaymentTxID");
+        assertArrayEquals(contentHash, offer.getContentHash());
+        // The peers get a deserialized copy from the DHT
+        assertArrayEquals(contentHash, ((Offer) Utilities.copy(offer)).getContentHash());
+    }
+
+    @Test
+    public void testContentHashDiffersForOtherOffers() {
+        assertFalse(Arrays.equals(getOffer("offerId").getContentHash(), getOffer("otherOfferId").getContentHash()));
+    }
+
+    private Offer getOffer(String id) {
+        return new Offer(id,
+                MessageKeyUtil.generateKeyPair().getPublic(),
+                Direction.BUY,
+                100L,
+                Coin.CENT,
+                Coin.CENT,
+                BankAccountType.SEPA,
+                Currency.getInstance("EUR"),
+                CountryUtil.getDefaultCountry(),
+                "bankAccountUID",
+                Arrays.asList(new Arbitrator()),
+                Coin.CENT,
+                Arrays.asList(CountryUtil.getDefaultCountry()),
+                Arrays.asList(LanguageUtil.getDefaultLanguageLocale()));
+    }
+}
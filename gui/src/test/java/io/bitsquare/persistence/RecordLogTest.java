@@ -0,0 +1,85 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecordLogTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("RecordLogTest", ".log");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testAppendAndRead() {
+        RecordLog<String> recordLog = new RecordLog<>(file);
+        assertTrue(recordLog.read().isEmpty());
+
+        recordLog.append("first");
+        recordLog.append("second");
+
+        List<String> records = new RecordLog<String>(file).read();
+        assertEquals(2, records.size());
+        assertEquals("first", records.get(0));
+        assertEquals("second", records.get(1));
+    }
+
+    @Test
+    public void testIncompleteLastRecordIsSkipped() throws IOException {
+        RecordLog<String> recordLog = new RecordLog<>(file);
+        recordLog.append("first");
+        recordLog.append("second");
+
+        // Simulate a crash during the last append
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(randomAccessFile.length() - 3);
+        }
+
+        List<String> records = recordLog.read();
+        assertEquals(1, records.size());
+        assertEquals("first", records.get(0));
+    }
+
+    @Test
+    public void testDelete() {
+        RecordLog<String> recordLog = new RecordLog<>(file);
+        recordLog.append("first");
+        recordLog.delete();
+
+        assertFalse(file.exists());
+        assertTrue(recordLog.read().isEmpty());
+    }
+}
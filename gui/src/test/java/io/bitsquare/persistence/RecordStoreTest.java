@@ -0,0 +1,103 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.persistence;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecordStoreTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("RecordStoreTest").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files)
+                file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testPutReplacesOnlyTheChangedRecord() {
+        RecordStore<String> recordStore = new RecordStore<>(dir);
+        assertTrue(recordStore.isEmpty());
+
+        recordStore.put("a", "first");
+        recordStore.put("b", "second");
+        long lastModified = new File(dir, "b.ser").lastModified();
+        recordStore.put("a", "changed");
+
+        Map<String, String> records = new RecordStore<String>(dir).readAll();
+        assertEquals(2, records.size());
+        assertEquals("changed", records.get("a"));
+        assertEquals("second", records.get("b"));
+        assertEquals(lastModified, new File(dir, "b.ser").lastModified());
+    }
+
+    @Test
+    public void testPutAll() {
+        RecordStore<String> recordStore = new RecordStore<>(dir);
+        recordStore.put("a", "first");
+        Map<String, String> batch = new HashMap<>();
+        batch.put("a", "changed");
+        batch.put("b", "second");
+        batch.put("c", "third");
+        recordStore.putAll(batch);
+
+        assertEquals(batch, new RecordStore<String>(dir).readAll());
+        assertEquals(3, dir.listFiles().length);
+    }
+
+    @Test
+    public void testRemove() {
+        RecordStore<String> recordStore = new RecordStore<>(dir);
+        recordStore.put("a", "first");
+        recordStore.remove("a");
+
+        assertTrue(recordStore.isEmpty());
+        assertTrue(recordStore.readAll().isEmpty());
+    }
+
+    @Test
+    public void testInvalidRecordIsSkipped() throws IOException {
+        RecordStore<String> recordStore = new RecordStore<>(dir);
+        recordStore.put("a", "first");
+        Files.write(new File(dir, "b.ser").toPath(), new byte[]{1, 2, 3});
+
+        Map<String, String> records = recordStore.readAll();
+        assertEquals(1, records.size());
+        assertEquals("first", records.get("a"));
+    }
+}
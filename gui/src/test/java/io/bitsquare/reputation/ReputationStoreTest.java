@@ -0,0 +1,152 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.reputation;
+
+import io.bitsquare.bank.BankAccount;
+import io.bitsquare.bank.BankAccountType;
+
+import org.bitcoinj.core.Coin;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.Currency;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReputationStoreTest {
+    private File dir;
+    private ReputationStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ReputationStoreTest").toFile();
+        store = new ReputationStore(dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files)
+                file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testCompletedTradesGetAggregated() {
+        assertTrue(store.isEmpty());
+        store.addCompletedTrade("offerer", "taker", "arbitrator", Coin.COIN);
+        store.addCompletedTrade("offerer", "otherTaker", "arbitrator", Coin.CENT);
+        assertFalse(store.isEmpty());
+
+        ReputationStore.Aggregate offerer = store.getAccountAggregate("offerer");
+        assertEquals(2, offerer.getNumCompletedTrades());
+        assertEquals(Coin.COIN.add(Coin.CENT), offerer.getTradeVolume());
+        assertEquals(1, store.getAccountAggregate("taker").getNumCompletedTrades());
+        assertEquals(2, store.getArbitratorAggregate("arbitrator").getNumCompletedTrades());
+        // Accounts and arbitrators are kept apart
+        assertEquals(0, store.getAccountAggregate("arbitrator").getNumCompletedTrades());
+    }
+
+    @Test
+    public void testUnknownAccountHasEmptyAggregate() {
+        assertEquals(0, store.getAccountAggregate("unknown").getNumCompletedTrades());
+        assertEquals(Coin.ZERO, store.getAccountAggregate("unknown").getTradeVolume());
+    }
+
+    @Test
+    public void testReturnedAggregateIsACopy() {
+        store.addCompletedTrade("offerer", "taker", null, Coin.COIN);
+        ReputationStore.Aggregate aggregate = store.getAccountAggregate("offerer");
+        store.addCompletedTrade("offerer", "taker", null, Coin.COIN);
+
+        assertEquals(1, aggregate.getNumCompletedTrades());
+    }
+
+    @Test
+    public void testFlushWritesOnlyChangedAggregates() {
+        store.addCompletedTrade("offerer", "taker", "arbitrator/with:any chars", Coin.COIN);
+        assertEquals(0, dir.listFiles().length);
+        store.flush();
+        assertEquals(3, dir.listFiles().length);
+
+        store.addCompletedTrade("offerer", "otherTaker", null, Coin.COIN);
+        store.flush();
+        assertEquals(4, dir.listFiles().length);
+
+        ReputationStore reloaded = new ReputationStore(dir);
+        assertEquals(2, reloaded.getAccountAggregate("offerer").getNumCompletedTrades());
+        assertEquals(1, reloaded.getArbitratorAggregate("arbitrator/with:any chars").getNumCompletedTrades());
+    }
+
+    @Test
+    public void testDisputeResultsGetAggregated() {
+        store.addCompletedTrade("winner", "loser", "arbitrator", Coin.COIN);
+        store.addDisputeResult("arbitrator", "winner", "loser");
+
+        ReputationStore.Aggregate winner = store.getAccountAggregate("winner");
+        assertEquals(1, winner.getNumDisputes());
+        assertEquals(0, winner.getNumLostDisputes());
+        assertEquals(2, winner.getScore());
+
+        ReputationStore.Aggregate loser = store.getAccountAggregate("loser");
+        assertEquals(1, loser.getNumLostDisputes());
+        assertEquals(1 + 1 - (ReputationStore.Aggregate.LOST_DISPUTE_PENALTY + 1), loser.getScore());
+        assertEquals(2, store.getArbitratorAggregate("arbitrator").getScore());
+    }
+
+    @Test
+    public void testBlacklist() {
+        BankAccount bankAccount = createBankAccount("IBAN1");
+        assertFalse(store.isBlacklisted("account", bankAccount));
+
+        store.blacklistAccount("account");
+        assertTrue(store.isBlacklisted("account", bankAccount));
+        assertTrue(store.getAccountAggregate("account").isBlacklisted());
+        assertFalse(store.isBlacklisted("otherAccount", bankAccount));
+
+        // The bank account stays blacklisted with any account ID
+        store.blacklistBankAccount(bankAccount);
+        assertTrue(store.isBlacklisted("otherAccount", createBankAccount("IBAN1")));
+        assertFalse(store.isBlacklisted("otherAccount", createBankAccount("IBAN2")));
+
+        store.flush();
+        assertTrue(new ReputationStore(dir).isBlacklisted("otherAccount", bankAccount));
+    }
+
+    @Test
+    public void testUnflushedTradeIsNotPersisted() {
+        store.addCompletedTrade("offerer", "taker", null, Coin.COIN);
+
+        assertTrue(new ReputationStore(dir).isEmpty());
+    }
+
+    private static BankAccount createBankAccount(String iban) {
+        return new BankAccount(BankAccountType.SEPA, Currency.getInstance("EUR"), null, "Bank", "Holder", iban,
+                "BIC");
+    }
+}
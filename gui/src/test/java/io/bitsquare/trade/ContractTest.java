@@ -0,0 +1,114 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.trade;
+
+import io.bitsquare.arbitrator.Arbitrator;
+import io.bitsquare.bank.BankAccount;
+import io.bitsquare.bank.BankAccountType;
+import io.bitsquare.locale.CountryUtil;
+import io.bitsquare.locale.LanguageUtil;
+import io.bitsquare.offer.Direction;
+import io.bitsquare.offer.Offer;
+import io.bitsquare.util.MessageKeyUtil;
+import io.bitsquare.util.Utilities;
+
+import org.bitcoinj.core.Coin;
+
+import java.security.PublicKey;
+
+import java.util.Arrays;
+import java.util.Currency;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ContractTest {
+    private Offer offer;
+    private BankAccount offererBankAccount;
+    private BankAccount takerBankAccount;
+    private PublicKey offererMessagePublicKey;
+    private PublicKey takerMessagePublicKey;
+
+    @Before
+    public void setUp() {
+        offererMessagePublicKey = MessageKeyUtil.generateKeyPair().getPublic();
+        takerMessagePublicKey = MessageKeyUtil.generateKeyPair().getPublic();
+        offer = new Offer("offerId",
+                offererMessagePublicKey,
+                Direction.BUY,
+                100L,
+                Coin.CENT,
+                Coin.CENT,
+                BankAccountType.SEPA,
+                Currency.getInstance("EUR"),
+                CountryUtil.getDefaultCountry(),
+                "bankAccountUID",
+                Arrays.asList(new Arbitrator()),
+                Coin.CENT,
+                Arrays.asList(CountryUtil.getDefaultCountry()),
+                Arrays.asList(LanguageUtil.getDefaultLanguageLocale()));
+        offererBankAccount = getBankAccount("offerer");
+        takerBankAccount = getBankAccount("taker");
+    }
+
+    @Test
+    public void testPeersGetSameHash() {
+        Contract offerersContract = getContract(offer, Coin.CENT);
+        // The taker got the offer from the DHT
+        Contract takersContract = getContract((Offer) Utilities.copy(offer), Coin.CENT);
+
+        assertArrayEquals(offerersContract.getCanonicalBytes(), takersContract.getCanonicalBytes());
+        assertEquals(offerersContract.getHash(), takersContract.getHash());
+    }
+
+    @Test
+    public void testHashChangesWithData() {
+        assertNotEquals(getContract(offer, Coin.CENT).getHash(), getContract(offer, Coin.MILLICOIN).getHash());
+    }
+
+    // The offer fee payment is not part of the content hash of the offer, but the contract has to cover it
+    @Test
+    public void testHashCoversOfferFeePayment() {
+        offer.setOfferFeePaymentTxID("offerFeePaymentTxID");
+        Offer otherOffer = (Offer) Utilities.copy(offer);
+        otherOffer.setOfferFeePaymentTxID("otherOfferFeePaymentTxID");
+
+        assertArrayEquals(offer.getContentHash(), otherOffer.getContentHash());
+        assertNotEquals(getContract(offer, Coin.CENT).getHash(), getContract(otherOffer, Coin.CENT).getHash());
+    }
+
+    private Contract getContract(Offer offer, Coin tradeAmount) {
+        return new Contract(offer,
+                tradeAmount,
+                "takeOfferFeeTxID",
+                "offererAccountID",
+                "takerAccountID",
+                offererBankAccount,
+                takerBankAccount,
+                offererMessagePublicKey,
+                takerMessagePublicKey);
+    }
+
+    private BankAccount getBankAccount(String holder) {
+        return new BankAccount(BankAccountType.SEPA, Currency.getInstance("EUR"), CountryUtil.getDefaultCountry(),
+                "bank", holder, "primaryID", "secondaryID");
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.trade.protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProtocolExecutorTest {
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testTasksOfOneTradeRunInOrder() throws InterruptedException {
+        ProtocolExecutor protocolExecutor = new ProtocolExecutor(executorService, 1000);
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            protocolExecutor.execute("trade1", () -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                results.add(value);
+                concurrent.decrementAndGet();
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxConcurrent.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void testTradesRunInParallel() throws InterruptedException {
+        ProtocolExecutor protocolExecutor = new ProtocolExecutor(executorService, 1000);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+
+        // Each task waits for the task of the other trade, so that only completes if both run at the same time
+        for (String tradeId : new String[]{"trade1", "trade2"}) {
+            protocolExecutor.execute(tradeId, () -> {
+                started.countDown();
+                try {
+                    if (started.await(5, TimeUnit.SECONDS))
+                        done.countDown();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCapacity() throws InterruptedException {
+        ProtocolExecutor protocolExecutor = new ProtocolExecutor(executorService, 2);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Runnable task = () -> {
+            try {
+                blocker.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            done.countDown();
+        };
+
+        protocolExecutor.forTrade("trade1").execute(task);
+        assertTrue(protocolExecutor.hasCapacity());
+        protocolExecutor.forTrade("trade1").execute(task);
+        assertFalse(protocolExecutor.hasCapacity());
+
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // The counter is decremented after the task has completed
+        for (int i = 0; i < 50 && protocolExecutor.getPendingTasks() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(protocolExecutor.hasCapacity());
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopMailbox() throws InterruptedException {
+        ProtocolExecutor protocolExecutor = new ProtocolExecutor(executorService, 1000);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        protocolExecutor.execute("trade1", () -> {
+            throw new IllegalStateException("test");
+        });
+        protocolExecutor.execute("trade1", latch::countDown);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRemovedTradeKeepsMailboxUntilEmpty() throws InterruptedException {
+        ProtocolExecutor protocolExecutor = new ProtocolExecutor(executorService, 1000);
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(3);
+
+        protocolExecutor.execute("trade1", () -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            int value = i;
+            if (i == 1)
+                protocolExecutor.remove("trade1");
+            protocolExecutor.execute("trade1", () -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                results.add(value);
+                concurrent.decrementAndGet();
+                latch.countDown();
+            });
+        }
+        assertTrue(protocolExecutor.hasMailbox("trade1"));
+        blocked.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxConcurrent.get());
+        assertEquals(3, results.size());
+        for (int i = 0; i < 3; i++)
+            assertEquals(i, (int) results.get(i));
+
+        // The mailbox removes itself after its last task
+        long deadline = System.currentTimeMillis() + 5000;
+        while (protocolExecutor.hasMailbox("trade1") && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertFalse(protocolExecutor.hasMailbox("trade1"));
+        assertEquals(0, protocolExecutor.getPendingTasks());
+    }
+
+    @Test
+    public void testRemoveIdleMailbox() throws InterruptedException {
+        ProtocolExecutor protocolExecutor = new ProtocolExecutor(executorService, 1000);
+        CountDownLatch latch = new CountDownLatch(1);
+        protocolExecutor.execute("trade1", latch::countDown);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // Either removed right away or by the mailbox itself when it has seen that it is empty
+        protocolExecutor.remove("trade1");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (protocolExecutor.hasMailbox("trade1") && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertFalse(protocolExecutor.hasMailbox("trade1"));
+    }
+}
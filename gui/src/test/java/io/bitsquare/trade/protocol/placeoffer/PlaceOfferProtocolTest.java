@@ -23,6 +23,7 @@ import io.bitsquare.btc.BitcoinNetwork;
 import io.bitsquare.btc.FeePolicy;
 import io.bitsquare.btc.UserAgent;
 import io.bitsquare.btc.WalletService;
+import io.bitsquare.crypto.EncryptionService;
 import io.bitsquare.locale.CountryUtil;
 import io.bitsquare.locale.LanguageUtil;
 import io.bitsquare.network.BootstrapState;
@@ -35,10 +36,10 @@ import io.bitsquare.offer.OfferBookService;
 import io.bitsquare.offer.tomp2p.TomP2POfferBookService;
 import io.bitsquare.persistence.Persistence;
 import io.bitsquare.trade.TradeMessageService;
-import io.bitsquare.trade.handlers.TransactionResultHandler;
+import io.bitsquare.trade.handlers.PlaceOffersResultHandler;
 import io.bitsquare.trade.tomp2p.TomP2PTradeMessageService;
 import io.bitsquare.user.User;
-import io.bitsquare.util.DSAKeyUtil;
+import io.bitsquare.util.MessageKeyUtil;
 import io.bitsquare.util.handlers.FaultHandler;
 
 import org.bitcoinj.core.Address;
@@ -50,6 +51,7 @@ import java.io.File;
 import java.io.IOException;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -103,7 +105,7 @@ public class PlaceOfferProtocolTest {
         user.applyPersistedUser(null);
         bootstrappedPeerBuilder = new BootstrappedPeerBuilder(Node.DEFAULT_PORT, false, bootstrapNode, "<unspecified>");
         tomP2PNode = new TomP2PNode(bootstrappedPeerBuilder);
-        tradeMessageService = new TomP2PTradeMessageService(user, tomP2PNode);
+        tradeMessageService = new TomP2PTradeMessageService(user, tomP2PNode, new EncryptionService());
 
         Observable<BootstrapState> messageObservable = tomP2PNode.bootstrap(user.getMessageKeyPair(), tradeMessageService);
         messageObservable.publish();
@@ -128,7 +130,9 @@ public class PlaceOfferProtocolTest {
                 persistence,
                 new UserAgent("", ""),
                 dir,
-                "Tests"
+                "Tests",
+                "",
+                ""
         );
 
         Observable<Object> walletServiceObservable = walletService.initialize(Threading.SAME_THREAD);
@@ -171,7 +175,7 @@ public class PlaceOfferProtocolTest {
     public void validateOfferTest() throws InterruptedException {
         try {
             Offer offer = getOffer();
-            getCreateOfferCoordinator(offer).validateOffer();
+            getCreateOfferCoordinator(offer).validateOffers();
             assertTrue(true);
         } catch (Exception e) {
             e.printStackTrace();
@@ -198,15 +202,15 @@ public class PlaceOfferProtocolTest {
         try {
             log.info("Balance pre = " + walletService.getBalanceForAddress(address));
             Offer offer = getOffer();
-            TransactionResultHandler resultHandler = transaction -> assertNotNull(transaction);
+            PlaceOffersResultHandler resultHandler = (transaction, publishedOffers) -> assertNotNull(transaction);
             FaultHandler faultHandler = (message, throwable) -> {
                 log.error(message);
                 throwable.printStackTrace();
                 fail(throwable.getMessage());
             };
-            PlaceOfferProtocol placeOfferProtocol = getCreateOfferCoordinator(offer);
-            Transaction transaction = placeOfferProtocol.createOfferFeeTx();
-            placeOfferProtocol.broadcastCreateOfferFeeTx(transaction, resultHandler, faultHandler);
+            PlaceOffersProtocol placeOffersProtocol = getPlaceOffersProtocol(offer, resultHandler, faultHandler);
+            Transaction transaction = placeOffersProtocol.createOfferFeeTx();
+            placeOffersProtocol.broadcastCreateOfferFeeTx(transaction);
             log.info("Balance post = " + walletService.getBalanceForAddress(address));
 
         } catch (Exception e) {
@@ -238,7 +242,7 @@ public class PlaceOfferProtocolTest {
                 }
             });
 
-            TransactionResultHandler resultHandler = transaction -> {
+            PlaceOffersResultHandler resultHandler = (transaction, publishedOffers) -> {
                 assertNotNull(transaction);
                 countDownLatch.countDown();
             };
@@ -249,9 +253,9 @@ public class PlaceOfferProtocolTest {
                 countDownLatch.countDown();
                 countDownLatch.countDown();
             };
-            PlaceOfferProtocol placeOfferProtocol = getPlaceOfferProtocol(offer, resultHandler, faultHandler);
-            Transaction transaction = placeOfferProtocol.createOfferFeeTx();
-            placeOfferProtocol.addOffer(transaction);
+            PlaceOffersProtocol placeOffersProtocol = getPlaceOffersProtocol(offer, resultHandler, faultHandler);
+            Transaction transaction = placeOffersProtocol.createOfferFeeTx();
+            placeOffersProtocol.addOffers(transaction);
             countDownLatch.await();
             log.info("Finished");
         } catch (Exception e) {
@@ -265,7 +269,7 @@ public class PlaceOfferProtocolTest {
     @Test
     public void placeOfferTest() throws InterruptedException {
         CountDownLatch countDownLatch = new CountDownLatch(1);
-        TransactionResultHandler resultHandler = transaction -> {
+        PlaceOffersResultHandler resultHandler = (transaction, publishedOffers) -> {
             assertNotNull(transaction);
             countDownLatch.countDown();
         };
@@ -276,25 +280,26 @@ public class PlaceOfferProtocolTest {
             countDownLatch.countDown();
             countDownLatch.countDown();
         };
-        PlaceOfferProtocol placeOfferProtocol = getPlaceOfferProtocol(getOffer(), resultHandler, faultHandler);
-        placeOfferProtocol.placeOffer();
+        PlaceOffersProtocol placeOffersProtocol = getPlaceOffersProtocol(getOffer(), resultHandler, faultHandler);
+        placeOffersProtocol.placeOffers();
         countDownLatch.await();
     }
 
 
-    private PlaceOfferProtocol getCreateOfferCoordinator(Offer offer) throws InterruptedException {
-        TransactionResultHandler resultHandler = transaction -> log.debug("result transaction=" + transaction.toString());
+    private PlaceOffersProtocol getCreateOfferCoordinator(Offer offer) throws InterruptedException {
+        PlaceOffersResultHandler resultHandler = (transaction, publishedOffers) ->
+                log.debug("result transaction=" + transaction.toString());
         FaultHandler faultHandler = (message, throwable) -> {
             log.error(message);
             throwable.printStackTrace();
             log.info("Balance = " + walletService.getBalanceForAddress(walletService.getAddressInfoByTradeID(OFFER_ID).getAddress()));
         };
-        return getPlaceOfferProtocol(offer, resultHandler, faultHandler);
+        return getPlaceOffersProtocol(offer, resultHandler, faultHandler);
     }
 
-    private PlaceOfferProtocol getPlaceOfferProtocol(Offer offer, TransactionResultHandler resultHandler, FaultHandler faultHandler) throws
-            InterruptedException {
-        return new PlaceOfferProtocol(offer,
+    private PlaceOffersProtocol getPlaceOffersProtocol(Offer offer, PlaceOffersResultHandler resultHandler,
+                                                       FaultHandler faultHandler) throws InterruptedException {
+        return new PlaceOffersProtocol(Collections.singletonList(offer),
                 walletService,
                 offerBookService,
                 resultHandler,
@@ -303,7 +308,7 @@ public class PlaceOfferProtocolTest {
 
     private Offer getOffer() {
         return new Offer(OFFER_ID,
-                DSAKeyUtil.generateKeyPair().getPublic(),
+                MessageKeyUtil.generateKeyPair().getPublic(),
                 Direction.BUY,
                 100L,
                 Coin.CENT,
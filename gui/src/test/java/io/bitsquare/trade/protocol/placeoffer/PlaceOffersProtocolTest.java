@@ -0,0 +1,134 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.trade.protocol.placeoffer;
+
+import io.bitsquare.btc.WalletService;
+import io.bitsquare.offer.Offer;
+import io.bitsquare.offer.OfferBookService;
+import io.bitsquare.util.handlers.FaultHandler;
+import io.bitsquare.util.handlers.ResultHandler;
+
+import org.bitcoinj.core.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class PlaceOffersProtocolTest {
+
+    private OfferBookService offerBookService;
+    private Transaction transaction;
+    private Offer offer1;
+    private Offer offer2;
+    private List<List<Offer>> results;
+    private List<String> faults;
+    private PlaceOffersProtocol placeOffersProtocol;
+
+    @Before
+    public void setUp() {
+        offerBookService = mock(OfferBookService.class);
+        transaction = mock(Transaction.class);
+        when(transaction.getHashAsString()).thenReturn("offerFeeTxId");
+        offer1 = mock(Offer.class);
+        offer2 = mock(Offer.class);
+        results = new ArrayList<>();
+        faults = new ArrayList<>();
+        placeOffersProtocol = new PlaceOffersProtocol(Arrays.asList(offer1, offer2), mock(WalletService.class),
+                offerBookService,
+                (transaction, publishedOffers) -> results.add(publishedOffers),
+                (message, throwable) -> faults.add(message));
+    }
+
+    @Test
+    public void testAllOffersPublished() {
+        doAnswer(invocation -> {
+            ((ResultHandler) invocation.getArguments()[1]).handleResult();
+            return null;
+        }).when(offerBookService).addOffers(anyList(), any(), any());
+
+        placeOffersProtocol.addOffers(transaction);
+
+        assertEquals(Collections.singletonList(Arrays.asList(offer1, offer2)), results);
+        assertTrue(faults.isEmpty());
+        verify(offer1).setOfferFeePaymentTxID("offerFeeTxId");
+        verify(offer2).setOfferFeePaymentTxID("offerFeeTxId");
+        verify(offerBookService, never()).addOffer(any(), any(), any());
+    }
+
+    @Test
+    public void testPartialFailureKeepsThePublishedOffers() {
+        failBatch();
+        answerAddOffer(offer1, true);
+        answerAddOffer(offer2, false);
+
+        placeOffersProtocol.addOffers(transaction);
+
+        assertEquals(Collections.singletonList(Collections.singletonList(offer1)), results);
+        assertTrue(faults.isEmpty());
+    }
+
+    @Test
+    public void testRetrySucceeds() {
+        failBatch();
+        answerAddOffer(offer1, true);
+        answerAddOffer(offer2, true);
+
+        placeOffersProtocol.addOffers(transaction);
+
+        assertEquals(Collections.singletonList(Arrays.asList(offer1, offer2)), results);
+        assertTrue(faults.isEmpty());
+    }
+
+    @Test
+    public void testNoOfferPublished() {
+        failBatch();
+        answerAddOffer(offer1, false);
+        answerAddOffer(offer2, false);
+
+        placeOffersProtocol.addOffers(transaction);
+
+        assertTrue(results.isEmpty());
+        assertEquals(Collections.singletonList("Failed to add offer"), faults);
+    }
+
+    private void failBatch() {
+        doAnswer(invocation -> {
+            ((FaultHandler) invocation.getArguments()[2]).handleFault("Failed to add offers", new Exception());
+            return null;
+        }).when(offerBookService).addOffers(anyList(), any(), any());
+    }
+
+    private void answerAddOffer(Offer offer, boolean success) {
+        doAnswer(invocation -> {
+            if (success)
+                ((ResultHandler) invocation.getArguments()[1]).handleResult();
+            else
+                ((FaultHandler) invocation.getArguments()[2]).handleFault("Failed to add offer", new Exception());
+            return null;
+        }).when(offerBookService).addOffer(eq(offer), any(), any());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.trade.protocol.trade;
+
+import io.bitsquare.bank.BankAccount;
+import io.bitsquare.bank.BankAccountType;
+import io.bitsquare.btc.BlockChainService;
+import io.bitsquare.btc.RegistrationIndex;
+import io.bitsquare.btc.WalletService;
+import io.bitsquare.persistence.Persistence;
+import io.bitsquare.reputation.ReputationService;
+import io.bitsquare.trade.protocol.trade.offerer.BuyerAsOffererModel;
+import io.bitsquare.trade.protocol.trade.offerer.tasks.VerifyTakerAccount;
+import io.bitsquare.trade.protocol.trade.taker.SellerAsTakerModel;
+import io.bitsquare.trade.protocol.trade.taker.tasks.VerifyOffererAccount;
+import io.bitsquare.util.tasks.SharedModel;
+import io.bitsquare.util.tasks.TaskPipeline;
+import io.bitsquare.util.tasks.TaskRunner;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the account verification of both traders of a trade between two registered accounts. Each trader has only
+ * its own registration indexed, as the wallet does not watch the registration addresses of the peers.
+ */
+public class AccountVerificationTest {
+    private static final String OFFERER_ACCOUNT_ID = "mhDcBUq1GhdRpRNmpvD7E9V3ppQG6ojSTc";
+    private static final String TAKER_ACCOUNT_ID = "mwJ2SfGCz8m4xjf8zVkEJkPnyLDvKCPvQs";
+
+    private File dir;
+    private RegistrationIndex offererIndex;
+    private BlockChainService offererBlockChainService;
+    private BlockChainService takerBlockChainService;
+    private ReputationService offererReputationService;
+    private ReputationService takerReputationService;
+    private List<String> results;
+    private List<String> faults;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("AccountVerificationTest").toFile();
+        offererIndex = new RegistrationIndex();
+        offererIndex.put(OFFERER_ACCOUNT_ID, "offererRegistrationTx", new byte[20]);
+        RegistrationIndex takerIndex = new RegistrationIndex();
+        takerIndex.put(TAKER_ACCOUNT_ID, "takerRegistrationTx", new byte[20]);
+
+        offererBlockChainService = createBlockChainService(offererIndex);
+        takerBlockChainService = createBlockChainService(takerIndex);
+        offererReputationService = new ReputationService(new File(dir, "offerer"));
+        takerReputationService = new ReputationService(new File(dir, "taker"));
+        results = new ArrayList<>();
+        faults = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void testTradeBetweenRegisteredAccounts() {
+        assertEquals(BlockChainService.RegistrationState.VERIFIED,
+                offererBlockChainService.verifyAccountRegistration(OFFERER_ACCOUNT_ID));
+        assertEquals(BlockChainService.RegistrationState.UNVERIFIED,
+                offererBlockChainService.verifyAccountRegistration(TAKER_ACCOUNT_ID));
+
+        verifyTakerAccount();
+        verifyOffererAccount();
+
+        assertEquals(Arrays.asList("verifyTakerAccount", "verifyOffererAccount"), results);
+        assertTrue(faults.isEmpty());
+    }
+
+    @Test
+    public void testInvalidRegistrationIsRejected() {
+        // A registration we know of which got double spent
+        offererIndex.put(TAKER_ACCOUNT_ID, "takerRegistrationTx", new byte[20]);
+        offererIndex.markDead("takerRegistrationTx");
+        assertEquals(BlockChainService.RegistrationState.INVALID,
+                offererBlockChainService.verifyAccountRegistration(TAKER_ACCOUNT_ID));
+        assertEquals(BlockChainService.RegistrationState.INVALID,
+                offererBlockChainService.verifyAccountRegistration(null));
+
+        verifyTakerAccount();
+
+        assertTrue(results.isEmpty());
+        assertEquals(1, faults.size());
+    }
+
+    @Test
+    public void testBlacklistedPeerIsRejected() {
+        offererReputationService.blacklistAccount(TAKER_ACCOUNT_ID);
+
+        verifyTakerAccount();
+        verifyOffererAccount();
+
+        assertEquals(Arrays.asList("verifyOffererAccount"), results);
+        assertEquals(Arrays.asList("Taker is blacklisted"), faults);
+    }
+
+    private void verifyTakerAccount() {
+        BuyerAsOffererModel model = mock(BuyerAsOffererModel.class);
+        when(model.getBlockChainService()).thenReturn(offererBlockChainService);
+        when(model.getReputationService()).thenReturn(offererReputationService);
+        when(model.getPeersAccountId()).thenReturn(TAKER_ACCOUNT_ID);
+        when(model.getPeersBankAccount()).thenReturn(createBankAccount("takerIBAN"));
+        run(model, TaskPipeline.named("verifyTakerAccount", VerifyTakerAccount::new));
+    }
+
+    private void verifyOffererAccount() {
+        SellerAsTakerModel model = mock(SellerAsTakerModel.class);
+        when(model.getBlockChainService()).thenReturn(takerBlockChainService);
+        when(model.getReputationService()).thenReturn(takerReputationService);
+        when(model.getPeersAccountId()).thenReturn(OFFERER_ACCOUNT_ID);
+        when(model.getPeersBankAccount()).thenReturn(createBankAccount("offererIBAN"));
+        run(model, TaskPipeline.named("verifyOffererAccount", VerifyOffererAccount::new));
+    }
+
+    private <T extends SharedModel> void run(T model, TaskPipeline<T> pipeline) {
+        new TaskRunner<>(model, pipeline,
+                () -> results.add(pipeline.getName()),
+                (message, throwable) -> faults.add(message)).run();
+    }
+
+    // Without an initialized wallet the address format is not checked
+    private static BlockChainService createBlockChainService(RegistrationIndex index) {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.read(any(), eq("registrationIndex"))).thenReturn(index);
+        return new BlockChainService(mock(WalletService.class), persistence);
+    }
+
+    private static BankAccount createBankAccount(String iban) {
+        return new BankAccount(BankAccountType.SEPA, Currency.getInstance("EUR"), null, "Bank", "Holder", iban,
+                "BIC");
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files)
+                delete(child);
+        }
+        file.delete();
+    }
+}
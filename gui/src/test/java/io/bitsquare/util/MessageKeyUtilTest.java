@@ -0,0 +1,55 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.util;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MessageKeyUtilTest {
+
+    @Test
+    public void testCompactEncoding() {
+        KeyPair keyPair = MessageKeyUtil.generateKeyPair();
+        byte[] compact = MessageKeyUtil.getCompactEncoding(keyPair.getPublic());
+        // The X.509 encoding ends with the uncompressed point: 0x04, x, y
+        byte[] encoded = keyPair.getPublic().getEncoded();
+        byte[] x = Arrays.copyOfRange(encoded, encoded.length - 64, encoded.length - 32);
+        boolean yIsOdd = (encoded[encoded.length - 1] & 1) == 1;
+
+        assertEquals(33, compact.length);
+        assertEquals(yIsOdd ? 0x03 : 0x02, compact[0]);
+        assertArrayEquals(x, Arrays.copyOfRange(compact, 1, 33));
+    }
+
+    @Test
+    public void testLegacyKeyPair() throws GeneralSecurityException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("DSA");
+        keyPairGenerator.initialize(1024);
+
+        assertFalse(MessageKeyUtil.isLegacyKeyPair(MessageKeyUtil.generateKeyPair()));
+        assertTrue(MessageKeyUtil.isLegacyKeyPair(keyPairGenerator.generateKeyPair()));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import io.bitsquare.util.handlers.ResultHandler;
+
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares a run of a precompiled task pipeline with the former way of creating the tasks by reflection from a task
+ * queue which got filled for each run.
+ * Run it with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskRunnerBenchmark {
+    private static final TaskPipeline<BenchmarkModel> PIPELINE = TaskPipeline.of(
+            BenchmarkTask::new, BenchmarkTask::new, BenchmarkTask::new, BenchmarkTask::new, BenchmarkTask::new);
+
+    private final BenchmarkModel model = new BenchmarkModel();
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskRunnerBenchmark.class.getSimpleName())
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .forks(1)
+                .build()).run();
+    }
+
+    @Benchmark
+    public void pipeline(Blackhole blackhole) {
+        new TaskRunner<>(model, PIPELINE, () -> blackhole.consume(model), (message, throwable) -> {
+        }).run();
+    }
+
+    @Benchmark
+    public void reflection(Blackhole blackhole) {
+        ReflectiveTaskRunner taskRunner = new ReflectiveTaskRunner(model, () -> blackhole.consume(model));
+        for (int i = 0; i < PIPELINE.size(); i++)
+            taskRunner.addTask(BenchmarkTask.class);
+        taskRunner.run();
+    }
+
+    // That is how TaskRunner worked before we used pipelines
+    private static class ReflectiveTaskRunner extends TaskRunner<BenchmarkModel> {
+        private final Queue<Class<? extends Task>> tasks = new LinkedBlockingQueue<>();
+        private final ResultHandler resultHandler;
+
+        ReflectiveTaskRunner(BenchmarkModel model, ResultHandler resultHandler) {
+            super(model, PIPELINE, resultHandler, (message, throwable) -> {
+            });
+            this.resultHandler = resultHandler;
+        }
+
+        void addTask(Class<? extends Task> task) {
+            tasks.add(task);
+        }
+
+        @Override
+        protected void next() {
+            if (tasks.isEmpty()) {
+                resultHandler.handleResult();
+                return;
+            }
+
+            try {
+                tasks.poll().getDeclaredConstructor(TaskRunner.class, sharedModel.getClass())
+                        .newInstance(this, sharedModel).run();
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public static class BenchmarkModel extends SharedModel {
+    }
+
+    public static class BenchmarkTask extends Task<BenchmarkModel> {
+        public BenchmarkTask(TaskRunner taskHandler, BenchmarkModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            complete();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import io.bitsquare.util.UserThread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaskRunnerTest {
+
+    @Test
+    public void testTasksRunInPipelineOrder() {
+        TaskPipeline<TestModel> pipeline = TaskPipeline.of(Task1::new, Task2::new);
+        TestModel model = new TestModel();
+        boolean[] completed = {false};
+
+        new TaskRunner<>(model, pipeline, () -> completed[0] = true, (message, throwable) -> fail(message)).run();
+        assertEquals(2, model.executedTasks.size());
+        assertEquals("Task1", model.executedTasks.get(0));
+        assertEquals("Task2", model.executedTasks.get(1));
+        assertTrue(completed[0]);
+
+        // The pipeline is reusable
+        new TaskRunner<>(model, pipeline, () -> {
+        }, (message, throwable) -> fail(message)).run();
+        assertEquals(4, model.executedTasks.size());
+    }
+
+    @Test
+    public void testFailedTaskStopsPipeline() {
+        TaskPipeline<TestModel> pipeline = TaskPipeline.of(Task1::new, FailingTask::new, Task2::new);
+        TestModel model = new TestModel();
+        List<String> faults = new ArrayList<>();
+
+        new TaskRunner<>(model, pipeline, () -> fail("must not complete"),
+                (message, throwable) -> faults.add(message)).run();
+        assertEquals(1, model.executedTasks.size());
+        assertEquals(1, faults.size());
+        assertEquals("failed", faults.get(0));
+    }
+
+    @Test
+    public void testParallelTaskGroupRunsTasksConcurrently() throws InterruptedException {
+        // Each task waits for the other one, so the group can only complete if both run at the same time
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        TaskFactory<TestModel> waitingTask = (taskHandler, model) -> new Task<TestModel>(taskHandler, model) {
+            @Override
+            protected void run() {
+                bothStarted.countDown();
+                try {
+                    if (bothStarted.await(5, TimeUnit.SECONDS))
+                        complete();
+                    else
+                        failed("Tasks did not run concurrently");
+                } catch (InterruptedException e) {
+                    failed(e);
+                }
+            }
+        };
+        TaskPipeline<TestModel> pipeline = TaskPipeline.of(TaskPipeline.parallel(waitingTask, waitingTask), Task2::new);
+        TestModel model = new TestModel();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        new TaskRunner<>(model, pipeline, completed::countDown, (message, throwable) -> fail(message)).run();
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, model.executedTasks.size());
+        assertEquals("Task2", model.executedTasks.get(0));
+    }
+
+    @Test
+    public void testParallelTaskGroupFailsFast() throws InterruptedException {
+        CountDownLatch blockingTaskReleased = new CountDownLatch(1);
+        TaskFactory<TestModel> blockingTask = (taskHandler, model) -> new Task<TestModel>(taskHandler, model) {
+            @Override
+            protected void run() {
+                try {
+                    blockingTaskReleased.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+                complete();
+            }
+        };
+        TaskPipeline<TestModel> pipeline = TaskPipeline.of(TaskPipeline.parallel(blockingTask, FailingTask::new),
+                Task2::new);
+        TestModel model = new TestModel();
+        CountDownLatch failed = new CountDownLatch(1);
+
+        new TaskRunner<>(model, pipeline, () -> fail("must not complete"),
+                (message, throwable) -> failed.countDown()).run();
+        // The fault is reported while the other task is still running
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        blockingTaskReleased.countDown();
+        assertTrue(model.executedTasks.isEmpty());
+    }
+
+    @Test
+    public void testParallelTaskGroupContinuesOnUserThread() throws InterruptedException {
+        ExecutorService userThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "user"));
+        UserThread.setExecutor(userThread);
+        try {
+            List<String> threadNames = new CopyOnWriteArrayList<>();
+            TaskFactory<TestModel> recordingTask = (taskHandler, model) -> new Task<TestModel>(taskHandler, model) {
+                @Override
+                protected void run() {
+                    threadNames.add(Thread.currentThread().getName());
+                    complete();
+                }
+            };
+            TaskPipeline<TestModel> pipeline = TaskPipeline.of(TaskPipeline.parallel(Task1::new, Task1::new),
+                    recordingTask);
+            CountDownLatch completed = new CountDownLatch(1);
+
+            new TaskRunner<>(new TestModel(), pipeline, completed::countDown,
+                    (message, throwable) -> fail(message)).run();
+            assertTrue(completed.await(5, TimeUnit.SECONDS));
+            assertEquals(1, threadNames.size());
+            assertEquals("user", threadNames.get(0));
+        } finally {
+            UserThread.setExecutor(Runnable::run);
+            userThread.shutdown();
+        }
+    }
+
+    @Test
+    public void testCheckpointAfterEachTaskAndResume() {
+        TaskPipeline<TestModel> pipeline = TaskPipeline.named("test", Task1::new, Task2::new);
+        assertEquals("test", pipeline.getName());
+        TestModel model = new TestModel();
+        List<String> checkpoints = new ArrayList<>();
+
+        new TaskRunner<TestModel>(model, pipeline, () -> {
+        }, (message, throwable) -> fail(message)) {
+            @Override
+            protected void onTaskCompleted(Class<? extends Task> task, int completedTasks) {
+                checkpoints.add(getPipeline().getName() + ":" + task.getSimpleName() + ":" + completedTasks);
+            }
+        }.run();
+        assertEquals(2, checkpoints.size());
+        assertEquals("test:Task1:1", checkpoints.get(0));
+        assertEquals("test:Task2:2", checkpoints.get(1));
+
+        // Resuming after the first checkpoint only runs the remaining task
+        model.executedTasks.clear();
+        boolean[] completed = {false};
+        new TaskRunner<>(model, pipeline, () -> completed[0] = true, (message, throwable) -> fail(message)).resume(1);
+        assertEquals(1, model.executedTasks.size());
+        assertEquals("Task2", model.executedTasks.get(0));
+        assertTrue(completed[0]);
+    }
+
+    @Test
+    public void testTaskStartedBeforeItRuns() {
+        TaskPipeline<TestModel> pipeline = TaskPipeline.named("test", Task1::new, Task2::new);
+        TestModel model = new TestModel();
+        List<String> events = new ArrayList<>();
+
+        new TaskRunner<TestModel>(model, pipeline, () -> {
+        }, (message, throwable) -> fail(message)) {
+            @Override
+            protected void onTaskStarted(Class<? extends Task> task, int completedTasks) {
+                events.add("started:" + task.getSimpleName() + ":" + completedTasks + ":" + model.executedTasks);
+            }
+        }.resume(1);
+        assertEquals(1, events.size());
+        assertEquals("started:Task2:1:[]", events.get(0));
+        assertEquals(1, model.executedTasks.size());
+    }
+
+    @Test
+    public void testFailedCheckpointStopsPipeline() {
+        TaskPipeline<TestModel> pipeline = TaskPipeline.named("test", Task1::new, Task2::new);
+        TestModel model = new TestModel();
+        List<String> faults = new ArrayList<>();
+
+        new TaskRunner<TestModel>(model, pipeline, () -> fail("Pipeline must not complete"),
+                (message, throwable) -> faults.add(message)) {
+            @Override
+            protected void onTaskCompleted(Class<? extends Task> task, int completedTasks) {
+                throw new IllegalStateException("disk full");
+            }
+        }.run();
+        assertEquals(1, model.executedTasks.size());
+        assertEquals(1, faults.size());
+        assertEquals("disk full", faults.get(0));
+    }
+
+    @Test
+    public void testFailedTaskStartDoesNotRunTask() {
+        TaskPipeline<TestModel> pipeline = TaskPipeline.named("test", Task1::new, Task2::new);
+        TestModel model = new TestModel();
+        List<String> faults = new ArrayList<>();
+
+        new TaskRunner<TestModel>(model, pipeline, () -> fail("Pipeline must not complete"),
+                (message, throwable) -> faults.add(message)) {
+            @Override
+            protected void onTaskStarted(Class<? extends Task> task, int completedTasks) {
+                if (task == Task2.class)
+                    throw new IllegalStateException("disk full");
+            }
+        }.run();
+        assertEquals(1, model.executedTasks.size());
+        assertEquals("Task1", model.executedTasks.get(0));
+        assertEquals(1, faults.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPipelineIsRejected() {
+        TaskPipeline.<TestModel>of();
+    }
+
+    private static class TestModel extends SharedModel {
+        final List<String> executedTasks = new CopyOnWriteArrayList<>();
+    }
+
+    private static class Task1 extends Task<TestModel> {
+        Task1(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.executedTasks.add("Task1");
+            complete();
+        }
+    }
+
+    private static class Task2 extends Task<TestModel> {
+        Task2(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.executedTasks.add("Task2");
+            complete();
+        }
+    }
+
+    private static class FailingTask extends Task<TestModel> {
+        FailingTask(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            failed("failed");
+        }
+    }
+}
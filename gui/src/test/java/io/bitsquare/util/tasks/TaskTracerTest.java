@@ -0,0 +1,98 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bitsquare.util.tasks;
+
+import com.google.common.base.Ticker;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaskTracerTest {
+
+    @Test
+    public void testSpansAreAddedToTimelineAndHistogram() {
+        FakeTicker ticker = new FakeTicker();
+        TaskTracer taskTracer = new TaskTracer(ticker);
+
+        // Completes within run
+        TaskTracer.Span span = taskTracer.start("trade1", "Task1");
+        ticker.advance(5);
+        span.finish(TaskSpan.Outcome.COMPLETED);
+        span.onRunReturned();
+
+        // Waits 100 ms for an async result after run returned
+        span = taskTracer.start("trade1", "Task2");
+        ticker.advance(10);
+        span.onRunReturned();
+        ticker.advance(100);
+        span.finish(TaskSpan.Outcome.FAILED);
+        // Only the first finish counts
+        span.finish(TaskSpan.Outcome.COMPLETED);
+
+        List<TaskSpan> timeline = taskTracer.getTimeline("trade1");
+        assertEquals(2, timeline.size());
+        assertEquals("Task1", timeline.get(0).getTaskName());
+        assertEquals(5, timeline.get(0).getDurationMillis());
+        assertEquals(0, timeline.get(0).getWaitingMillis());
+        assertEquals(TaskSpan.Outcome.COMPLETED, timeline.get(0).getOutcome());
+        assertEquals("Task2", timeline.get(1).getTaskName());
+        assertEquals(110, timeline.get(1).getDurationMillis());
+        assertEquals(100, timeline.get(1).getWaitingMillis());
+        assertEquals(TaskSpan.Outcome.FAILED, timeline.get(1).getOutcome());
+        assertTrue(taskTracer.getTimeline("trade2").isEmpty());
+
+        assertEquals(1, taskTracer.getHistogram("Task2").getCount());
+        assertEquals(110, taskTracer.getHistogram("Task2").getMaxMillis());
+        assertTrue(taskTracer.dumpTimeline("trade1").contains("Task2"));
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMillis(50));
+
+        for (int i = 0; i < 90; i++)
+            histogram.record(10);
+        for (int i = 0; i < 10; i++)
+            histogram.record(1000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(109, histogram.getMeanMillis());
+        assertEquals(1000, histogram.getMaxMillis());
+        // 10 ms is in the bucket up to 15 ms, 1000 ms in the bucket up to 1023 ms
+        assertEquals(15, histogram.getPercentileMillis(50));
+        assertEquals(15, histogram.getPercentileMillis(90));
+        assertEquals(1000, histogram.getPercentileMillis(99));
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}